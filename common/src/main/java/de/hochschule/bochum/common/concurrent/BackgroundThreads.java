@@ -0,0 +1,30 @@
+package de.hochschule.bochum.common.concurrent;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+// Hier entstehen die Hintergrund-Threads der Services (Flusher, Timer, Refresher usw.).
+// Mit spring.threads.virtual.enabled laufen sie wie Tomcat und die Spring-Scheduler auf virtuellen Threads,
+// sonst wie bisher auf einem Plattform-Daemon-Thread. Der Name bleibt in beiden Fällen gleich (Logs, Thread-Dumps).
+public final class BackgroundThreads {
+
+    private BackgroundThreads() {
+    }
+
+    public static ThreadFactory factory(String name, boolean virtual) {
+        if (virtual) {
+            return Thread.ofVirtual().name(name).factory();
+        }
+        return r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // Ein Thread für periodische Aufgaben; zwei Läufe derselben Aufgabe überholen sich so nie
+    public static ScheduledExecutorService newScheduler(String name, boolean virtual) {
+        return Executors.newSingleThreadScheduledExecutor(factory(name, virtual));
+    }
+}
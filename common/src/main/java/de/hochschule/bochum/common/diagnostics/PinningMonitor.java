@@ -0,0 +1,90 @@
+package de.hochschule.bochum.common.diagnostics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Hier beobachte ich per JFR-Streaming, wann ein virtueller Thread an seinen Träger-Thread gepinnt bleibt
+// (synchronized-Block oder native Frame um eine blockierende Operation). Jedes Event ab "threshold" wird
+// als Metrik jvm.threads.virtual.pinned{frame} gezählt; frame ist die erste Methode aus
+// unserem Code im Stack (sonst die oberste). Beim ersten Mal pro Stelle gibt es eine Warnung mit dem Stack.
+@Slf4j
+public class PinningMonitor implements AutoCloseable {
+
+    static final String EVENT = "jdk.VirtualThreadPinned";
+    private static final String OWN_PACKAGE = "de.hochschule.bochum.";
+    private static final int LOGGED_FRAMES = 8;
+
+    private final MeterRegistry meterRegistry;
+    private final Duration threshold;
+    // Stellen, für die schon eine Warnung geschrieben wurde
+    private final Set<String> reported = ConcurrentHashMap.newKeySet();
+
+    private volatile RecordingStream stream;
+
+    public PinningMonitor(MeterRegistry meterRegistry, Duration threshold) {
+        this.meterRegistry = meterRegistry;
+        this.threshold = threshold;
+    }
+
+    public void start() {
+        RecordingStream recording = new RecordingStream();
+        recording.enable(EVENT).withThreshold(threshold).withStackTrace();
+        recording.onEvent(EVENT, this::onPinned);
+        recording.startAsync();
+        stream = recording;
+        log.info("Pinning-Monitor aktiv: {} ab {} ms", EVENT, threshold.toMillis());
+    }
+
+    void onPinned(RecordedEvent event) {
+        List<RecordedFrame> frames = event.getStackTrace() == null ? List.of() : event.getStackTrace().getFrames();
+        String frame = frameOf(frames);
+        meterRegistry.counter("jvm.threads.virtual.pinned", "frame", frame).increment();
+        if (reported.add(frame)) {
+            log.warn("! Virtueller Thread {} ms gepinnt in {}:{}", event.getDuration().toMillis(), frame,
+                    stackOf(event.getStackTrace()));
+        } else {
+            log.debug("Virtueller Thread {} ms gepinnt in {}", event.getDuration().toMillis(), frame);
+        }
+    }
+
+    static String frameOf(List<RecordedFrame> frames) {
+        for (RecordedFrame frame : frames) {
+            if (frame.isJavaFrame() && frame.getMethod().getType().getName().startsWith(OWN_PACKAGE)) {
+                return name(frame);
+            }
+        }
+        return frames.isEmpty() ? "unknown" : name(frames.get(0));
+    }
+
+    private static String name(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName();
+    }
+
+    private static String stackOf(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return " (kein Stack)";
+        }
+        StringBuilder text = new StringBuilder();
+        stackTrace.getFrames().stream().limit(LOGGED_FRAMES).forEach(frame ->
+                text.append("\n    at ").append(name(frame)).append(':').append(frame.getLineNumber()));
+        return text.toString();
+    }
+
+    @Override
+    public void close() {
+        RecordingStream current = stream;
+        if (current != null) {
+            stream = null;
+            current.close();
+        }
+    }
+}
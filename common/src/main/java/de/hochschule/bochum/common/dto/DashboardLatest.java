@@ -0,0 +1,23 @@
+package de.hochschule.bochum.common.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DashboardLatest {
+    // Aktuelles Statuswort der Wago (Bit i = Lampe i) und wann es empfangen wurde.
+    private Integer wagoStatus;
+    private LocalDateTime wagoTimestamp;
+    // Letzte Siemens-Werte mit ihren Zeitstempeln (null, solange noch kein Wert da ist).
+    private Double ist;
+    private LocalDateTime istTimestamp;
+    private Double soll;
+    private LocalDateTime sollTimestamp;
+    private Double differenz;
+    private LocalDateTime differenzTimestamp;
+}
@@ -0,0 +1,40 @@
+package de.hochschule.bochum.common.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SiemensSeries {
+    // Typ der Messwerte (IST, SOLL, DIFFERENZ).
+    private String type;
+    // Angefragter Zeitraum.
+    private LocalDateTime from;
+    private LocalDateTime to;
+    // Verfahren: "minmax" (feste Intervalle mit min/max/avg) oder "lttb" (ausgewählte echte Messpunkte).
+    private String mode;
+    // Länge eines Intervalls in Millisekunden (bei lttb die Intervalle der Vorauswahl).
+    private long intervalMillis;
+    // Die Punkte für das Diagramm, aufsteigend nach Zeit.
+    private List<Point> points;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Point {
+        // Beginn des Intervalls (minmax) bzw. Zeitpunkt des Messwerts (lttb).
+        private LocalDateTime timestamp;
+        // Mittelwert des Intervalls (minmax) bzw. der Messwert selbst (lttb).
+        private Double value;
+        // Kleinster und größter Wert im Intervall (nur minmax).
+        private Double min;
+        private Double max;
+        // Anzahl der Messwerte im Intervall (nur minmax).
+        private Long count;
+    }
+}
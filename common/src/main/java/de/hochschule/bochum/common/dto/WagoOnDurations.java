@@ -0,0 +1,32 @@
+package de.hochschule.bochum.common.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WagoOnDurations {
+    // Beginn des ausgewerteten Zeitraums.
+    private LocalDateTime from;
+    // Ende des ausgewerteten Zeitraums.
+    private LocalDateTime to;
+    // Anzahl der ausgewerteten Wechsel im Zeitraum.
+    private long transitions;
+    // Einschaltdauer pro Bit (Bit 0 = Lampe 1 usw.).
+    private List<BitDuration> bits;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BitDuration {
+        // Nummer des Bits im Statuswort.
+        private int bit;
+        // Wie lange das Bit im Zeitraum an war, in Millisekunden.
+        private long onMillis;
+    }
+}
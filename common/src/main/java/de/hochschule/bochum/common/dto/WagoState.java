@@ -0,0 +1,19 @@
+package de.hochschule.bochum.common.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WagoState {
+    // Zeitpunkt, für den der Zustand abgefragt wurde.
+    private LocalDateTime at;
+    // Status (Lampenwort), der zu diesem Zeitpunkt galt.
+    private Integer status;
+    // Seit wann dieser Status gilt (Zeitstempel des letzten Wechsels davor).
+    private LocalDateTime since;
+}
@@ -0,0 +1,39 @@
+package de.hochschule.bochum.common.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@Document(collection = "rollups")
+public class Rollup {
+    // Die ID setzt sich aus Reihe, Stufe und Intervallbeginn zusammen (z.B. "IST:1h:2024-05-01T13:00"), damit der Consumer per Upsert fortschreiben kann.
+    @Id
+    private String id;
+    // Messreihe: IST, SOLL, DIFFERENZ oder WAGO (Statuswort).
+    private String series;
+    // Auflösung (siehe RollupTier): 1m, 1h oder 1d.
+    private String tier;
+    // Beginn des Intervalls.
+    private LocalDateTime start;
+    // Anzahl, Summe, kleinster und größter Wert aller Messwerte im Intervall.
+    private Long count;
+    private Double sum;
+    private Double min;
+    private Double max;
+    // Erster und letzter Messwert im Intervall mit Zeitpunkt.
+    private Double first;
+    private LocalDateTime firstAt;
+    private Double last;
+    private LocalDateTime lastAt;
+    // Journal-Batch, der zuletzt eingerechnet wurde (nur mit Journal gesetzt); schützt vor doppeltem Einrechnen beim Wiederholen.
+    private String lastBatch;
+
+    // ID des Rollups für eine Reihe, eine Stufe und einen Zeitstempel.
+    public static String idOf(String series, RollupTier tier, LocalDateTime timestamp) {
+        return series + ':' + tier.getCode() + ':' + tier.startOf(timestamp);
+    }
+}
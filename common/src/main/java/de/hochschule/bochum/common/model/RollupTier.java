@@ -0,0 +1,55 @@
+package de.hochschule.bochum.common.model;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+// Auflösungsstufen der Rollups, von fein nach grob.
+public enum RollupTier {
+
+    MINUTE("1m", ChronoUnit.MINUTES),
+    HOUR("1h", ChronoUnit.HOURS),
+    DAY("1d", ChronoUnit.DAYS);
+
+    // Kurzname, so steht die Stufe auch im Dokument (z.B. "1h").
+    private final String code;
+    private final ChronoUnit unit;
+
+    RollupTier(String code, ChronoUnit unit) {
+        this.code = code;
+        this.unit = unit;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public Duration getDuration() {
+        return unit.getDuration();
+    }
+
+    // Beginn des Intervalls dieser Stufe, in das ein Zeitstempel fällt.
+    public LocalDateTime startOf(LocalDateTime timestamp) {
+        return timestamp.truncatedTo(unit);
+    }
+
+    // Gröbste Stufe, deren Intervall noch in einen Schritt der gewünschten Länge passt (null: feiner als 1 Minute).
+    public static RollupTier coarsestWithin(Duration step) {
+        RollupTier result = null;
+        for (RollupTier tier : values()) {
+            if (tier.getDuration().compareTo(step) <= 0) {
+                result = tier;
+            }
+        }
+        return result;
+    }
+
+    public static RollupTier fromCode(String code) {
+        for (RollupTier tier : values()) {
+            if (tier.code.equalsIgnoreCase(code.trim())) {
+                return tier;
+            }
+        }
+        throw new IllegalArgumentException("Unknown rollup tier: " + code);
+    }
+}
@@ -23,11 +23,18 @@ public class SiemensData {
     private String type;
     // Zeitstempel, wann der Wert empfangen wurde.
     private LocalDateTime timestamp;
+    // Eindeutiger Schlüssel der MQTT-Nachricht (nur gesetzt, wenn der Unique-Index zur Deduplizierung aktiv ist).
+    private String dedupKey;
 
     // Konstruktor zum einfachen Erzeugen des Objekts mit Wert und Typ.
     public SiemensData(Double value, String type) {
+        this(value, type, LocalDateTime.now());
+    }
+
+    // Konstruktor mit dem Empfangszeitpunkt (z.B. beim Nachholen aus dem Journal).
+    public SiemensData(Double value, String type, LocalDateTime timestamp) {
         this.type = type;
-        this.timestamp = LocalDateTime.now();
+        this.timestamp = timestamp;
 
         // Je nach Typ wird der richtige Wert gesetzt.
         switch(type) {
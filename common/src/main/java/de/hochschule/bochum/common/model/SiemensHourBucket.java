@@ -0,0 +1,46 @@
+package de.hochschule.bochum.common.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@Document(collection = "siemens_hour_buckets")
+public class SiemensHourBucket {
+    // Die ID setzt sich aus Typ und Stunde zusammen (z.B. "IST:2024-05-01T13:00"), damit der Consumer per Upsert anhängen kann.
+    @Id
+    private String id;
+    // Typ der Messwerte in diesem Bucket (IST, SOLL, DIFFERENZ).
+    private String type;
+    // Beginn der Stunde, zu der die Messwerte gehören.
+    private LocalDateTime hour;
+    // Anzahl der Messwerte im Bucket.
+    private Integer count;
+    // Kleinster, größter Wert und Summe, damit Statistiken ohne die Arrays auskommen.
+    private Double min;
+    private Double max;
+    private Double sum;
+    // Zeitstempel und Werte als parallele Arrays (gleicher Index = gleicher Messwert), in Empfangsreihenfolge.
+    private List<LocalDateTime> timestamps = new ArrayList<>();
+    private List<Double> values = new ArrayList<>();
+    // Jüngster Zeitstempel im Bucket.
+    private LocalDateTime lastTs;
+    // Schlüssel der letzten Schreibvorgänge; der Consumer hängt einen bekannten Schlüssel nicht erneut an (Journal-Replay).
+    private List<String> recentBatches = new ArrayList<>();
+
+    // Stunde, in die ein Zeitstempel fällt.
+    public static LocalDateTime hourOf(LocalDateTime timestamp) {
+        return timestamp.truncatedTo(ChronoUnit.HOURS);
+    }
+
+    // ID des Buckets für einen Typ und einen Zeitstempel.
+    public static String idOf(String type, LocalDateTime timestamp) {
+        return type + ':' + hourOf(timestamp);
+    }
+}
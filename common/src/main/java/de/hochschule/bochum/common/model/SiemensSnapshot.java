@@ -0,0 +1,44 @@
+package de.hochschule.bochum.common.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@Document(collection = "siemens_snapshots")
+public class SiemensSnapshot {
+    // MongoDB generiert die ID automatisch.
+    @Id
+    private String id;
+    // Zeitpunkt des jüngsten Werts, der in den Snapshot eingeflossen ist.
+    private LocalDateTime timestamp;
+    // Ist-, Soll- und Differenzwert aus demselben Zeitfenster (fehlende Werte bleiben null).
+    private Double istTemperatur;
+    private Double sollTemperatur;
+    private Double differenzTemperatur;
+    // true, wenn alle drei Werte im Zeitfenster angekommen sind.
+    private boolean complete;
+
+    // Übernimmt einen Wert je nach Typ in das passende Feld.
+    public void set(String type, Double value) {
+        switch (type) {
+            case "IST" -> istTemperatur = value;
+            case "SOLL" -> sollTemperatur = value;
+            case "DIFFERENZ" -> differenzTemperatur = value;
+            default -> throw new IllegalArgumentException("Unknown Siemens type: " + type);
+        }
+    }
+
+    // Ist für diesen Typ schon ein Wert gesetzt?
+    public boolean has(String type) {
+        return switch (type) {
+            case "IST" -> istTemperatur != null;
+            case "SOLL" -> sollTemperatur != null;
+            case "DIFFERENZ" -> differenzTemperatur != null;
+            default -> false;
+        };
+    }
+}
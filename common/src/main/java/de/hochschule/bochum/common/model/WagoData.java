@@ -19,13 +19,20 @@ public class WagoData {
     private byte[] statusBinary;
     // Zeitstempel, wann der Status empfangen wurde.
     private LocalDateTime timestamp;
+    // Eindeutiger Schlüssel der MQTT-Nachricht (nur gesetzt, wenn der Unique-Index zur Deduplizierung aktiv ist).
+    private String dedupKey;
 
     // Konstruktor, um direkt den Status zu setzen.
     public WagoData(Integer status) {
+        this(status, LocalDateTime.now());
+    }
+
+    // Konstruktor mit dem Empfangszeitpunkt (z.B. beim Nachholen aus dem Journal).
+    public WagoData(Integer status, LocalDateTime timestamp) {
         this.status = status;
         // Den Integer-Status direkt in ein 2-Byte Array umwandeln.
         this.statusBinary = intToByteArray(status);
-        this.timestamp = LocalDateTime.now();
+        this.timestamp = timestamp;
     }
 
     // Hilfsmethode zum Umwandeln von Integer in ein 2-Byte Array (wird von mir im Konstruktor verwendet).
@@ -0,0 +1,39 @@
+package de.hochschule.bochum.common.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@Document(collection = "wago_transitions")
+public class WagoTransition {
+    // Maske für einen Eintrag, bei dem der vorherige Zustand unbekannt ist (alle 16 Bits gelten als geändert).
+    public static final int FULL_MASK = 0xFFFF;
+
+    // MongoDB generiert die ID automatisch.
+    @Id
+    private String id;
+    // Zeitpunkt, ab dem der neue Status gilt.
+    private LocalDateTime timestamp;
+    // Welche Bits sich gegenüber dem vorherigen Status geändert haben (XOR alt/neu).
+    private Integer changedMask;
+    // Der komplette neue Status (Lampenwort), damit jeder Eintrag für sich allein lesbar ist.
+    private Integer status;
+    // Eindeutiger Schlüssel der MQTT-Nachricht (nur gesetzt, wenn der Unique-Index zur Deduplizierung aktiv ist).
+    private String dedupKey;
+
+    // Konstruktor für einen neuen Wechsel, der Zeitstempel ist der Empfangszeitpunkt.
+    public WagoTransition(Integer status, Integer changedMask) {
+        this(status, changedMask, LocalDateTime.now());
+    }
+
+    // Konstruktor mit explizitem Zeitpunkt (z.B. beim Nachholen aus dem Journal).
+    public WagoTransition(Integer status, Integer changedMask, LocalDateTime timestamp) {
+        this.status = status;
+        this.changedMask = changedMask;
+        this.timestamp = timestamp;
+    }
+}
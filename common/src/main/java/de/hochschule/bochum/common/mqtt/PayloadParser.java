@@ -0,0 +1,151 @@
+package de.hochschule.bochum.common.mqtt;
+
+import java.nio.charset.StandardCharsets;
+
+// Hier lese ich Zahlen direkt aus der rohen MQTT-Payload (ASCII-Bytes), ohne vorher einen String
+// zu bauen und ohne Regex. Die SPSen schicken einfache Werte wie "5", "[5]" oder "23.5".
+// Der Consumer und der Latest-Cache der REST-API nutzen denselben Parser, damit beide dieselben Payloads akzeptieren.
+public final class PayloadParser {
+
+    // Zehnerpotenzen, die als double exakt darstellbar sind (bis 10^22)
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // Bis hierhin ist jede Ganzzahl exakt als double darstellbar (2^53)
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private PayloadParser() {
+    }
+
+    // Liest eine Ganzzahl; Leerzeichen und eckige Klammern (z.B. "[5]") werden übersprungen
+    public static int parseInt(byte[] payload) {
+        int start = skipIgnorable(payload, 0);
+        int end = skipIgnorableBackwards(payload, payload.length);
+        if (start >= end) {
+            throw invalid(payload);
+        }
+
+        boolean negative = false;
+        int i = start;
+        if (payload[i] == '-' || payload[i] == '+') {
+            negative = payload[i] == '-';
+            i++;
+        }
+        if (i == end) {
+            throw invalid(payload);
+        }
+
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = payload[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw invalid(payload);
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw invalid(payload);
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw invalid(payload);
+        }
+        return (int) value;
+    }
+
+    // Liest eine Kommazahl wie "23.5" oder "-1.25". Alles, was über einfache Dezimalzahlen hinausgeht
+    // (Exponent, sehr viele Stellen, "NaN" ...), übernimmt Double.parseDouble als Fallback.
+    public static double parseDouble(byte[] payload) {
+        int start = skipWhitespace(payload, 0);
+        int end = skipWhitespaceBackwards(payload, payload.length);
+        if (start >= end) {
+            throw invalid(payload);
+        }
+
+        boolean negative = false;
+        int i = start;
+        if (payload[i] == '-' || payload[i] == '+') {
+            negative = payload[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean seenDot = false;
+        for (; i < end; i++) {
+            byte b = payload[i];
+            if (b == '.' && !seenDot) {
+                seenDot = true;
+                continue;
+            }
+            int digit = b - '0';
+            if (digit < 0 || digit > 9) {
+                return fallback(payload, start, end);
+            }
+            mantissa = mantissa * 10 + digit;
+            digits++;
+            if (seenDot) {
+                scale++;
+            }
+            if (mantissa >= MAX_EXACT_MANTISSA || scale >= POWERS_OF_TEN.length) {
+                return fallback(payload, start, end);
+            }
+        }
+        if (digits == 0) {
+            throw invalid(payload);
+        }
+
+        // Mantisse und Zehnerpotenz sind exakt, also ist auch die Division korrekt gerundet
+        double value = mantissa / POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+
+    private static double fallback(byte[] payload, int start, int end) {
+        return Double.parseDouble(new String(payload, start, end - start, StandardCharsets.US_ASCII));
+    }
+
+    private static int skipIgnorable(byte[] payload, int from) {
+        int i = from;
+        while (i < payload.length && (isWhitespace(payload[i]) || payload[i] == '[')) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipIgnorableBackwards(byte[] payload, int to) {
+        int i = to;
+        while (i > 0 && (isWhitespace(payload[i - 1]) || payload[i - 1] == ']')) {
+            i--;
+        }
+        return i;
+    }
+
+    private static int skipWhitespace(byte[] payload, int from) {
+        int i = from;
+        while (i < payload.length && isWhitespace(payload[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipWhitespaceBackwards(byte[] payload, int to) {
+        int i = to;
+        while (i > 0 && isWhitespace(payload[i - 1])) {
+            i--;
+        }
+        return i;
+    }
+
+    // Entspricht dem, was String.trim() entfernt (alle Steuerzeichen bis einschließlich Leerzeichen)
+    private static boolean isWhitespace(byte b) {
+        return b >= 0 && b <= ' ';
+    }
+
+    private static NumberFormatException invalid(byte[] payload) {
+        // Der String wird nur im Fehlerfall gebaut
+        return new NumberFormatException("Invalid numeric payload: " + new String(payload, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,48 @@
+package de.hochschule.bochum.common.diagnostics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Test-Hilfsklasse: sucht im Quellcode der heißen Pfade nach synchronized.
+ *
+ * Mit spring.threads.virtual.enabled laufen beide Services auf virtuellen Threads. Ein synchronized-Block um
+ * eine blockierende Operation (MongoDB, Queue) pinnt den virtuellen Thread an seinen Träger-Thread (Java 21).
+ * Die Services binden das Test-Jar von common ein und prüfen damit ihre eigenen Pakete (PinningFreeHotPathTest).
+ */
+public final class SynchronizedSourceScan {
+
+    // Kommentare und String-Literale, damit Erklärungen wie "statt synchronized" nicht zählen
+    private static final Pattern COMMENTS_AND_STRINGS = Pattern.compile("//[^\\n]*|/\\*.*?\\*/|\"(?:\\\\.|[^\"\\\\])*\"", Pattern.DOTALL);
+    private static final Pattern SYNCHRONIZED = Pattern.compile("\\bsynchronized\\b");
+
+    // scanned = Anzahl gelesener Dateien, offenders = Dateien mit synchronized (relativ zu sources)
+    public record Result(int scanned, List<String> offenders) {
+    }
+
+    private SynchronizedSourceScan() {
+    }
+
+    // Liest alle Java-Dateien der Pakete unter sources, entfernt Kommentare und Strings und sucht nach synchronized
+    public static Result scan(Path sources, List<String> hotPaths) throws IOException {
+        List<String> offenders = new ArrayList<>();
+        int scanned = 0;
+        for (String hotPath : hotPaths) {
+            try (Stream<Path> files = Files.walk(sources.resolve(hotPath))) {
+                for (Path file : files.filter(path -> path.toString().endsWith(".java")).toList()) {
+                    scanned++;
+                    String code = COMMENTS_AND_STRINGS.matcher(Files.readString(file)).replaceAll("");
+                    if (SYNCHRONIZED.matcher(code).find()) {
+                        offenders.add(sources.relativize(file).toString());
+                    }
+                }
+            }
+        }
+        return new Result(scanned, offenders);
+    }
+}
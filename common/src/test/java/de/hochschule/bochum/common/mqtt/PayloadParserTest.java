@@ -0,0 +1,70 @@
+package de.hochschule.bochum.common.mqtt;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit-Tests für den PayloadParser.
+ *
+ * Ich prüfe, dass die Byte-Parser dieselben Werte liefern wie Integer.parseInt / Double.parseDouble
+ * (inkl. Klammern und Whitespace bei der Wago) und bei ungültigen Payloads eine
+ * NumberFormatException werfen – genau wie vorher die String-Variante.
+ */
+class PayloadParserTest {
+
+    @Test
+    void testParseInt_ShouldHandleBracketsAndWhitespace() {
+        // **Was erwarte ich?**
+        // - Klammern und Leerzeichen um den Wert herum werden ignoriert
+        assertEquals(5, PayloadParser.parseInt(bytes("5")));
+        assertEquals(42, PayloadParser.parseInt(bytes("[42]")));
+        assertEquals(7, PayloadParser.parseInt(bytes("  [7]\n")));
+        assertEquals(-3, PayloadParser.parseInt(bytes("-3")));
+        assertEquals(Integer.MAX_VALUE, PayloadParser.parseInt(bytes("2147483647")));
+        assertEquals(Integer.MIN_VALUE, PayloadParser.parseInt(bytes("-2147483648")));
+    }
+
+    @Test
+    void testParseInt_ShouldRejectInvalidPayloads() {
+        // **Was erwarte ich?**
+        // - Keine Zahl, leere Payload und Überlauf führen zu NumberFormatException
+        assertThrows(NumberFormatException.class, () -> PayloadParser.parseInt(bytes("invalid_number")));
+        assertThrows(NumberFormatException.class, () -> PayloadParser.parseInt(bytes("")));
+        assertThrows(NumberFormatException.class, () -> PayloadParser.parseInt(bytes("[]")));
+        assertThrows(NumberFormatException.class, () -> PayloadParser.parseInt(bytes("-")));
+        assertThrows(NumberFormatException.class, () -> PayloadParser.parseInt(bytes("2147483648")));
+        assertThrows(NumberFormatException.class, () -> PayloadParser.parseInt(bytes("1.5")));
+    }
+
+    @Test
+    void testParseDouble_ShouldMatchDoubleParseDouble() {
+        // **Was mache ich?**
+        // Typische Temperaturwerte und ein paar Randfälle gegen Double.parseDouble vergleichen.
+
+        String[] samples = {"23.5", "25", "-1.5", " 0.1 ", "20.000001", ".5", "1.", "+3.25",
+                "123456789.123456", "1e3", "-2.5E-2", "0.30000000000000004", "NaN"};
+
+        // **Was erwarte ich?**
+        // - Bitgenau dasselbe Ergebnis wie die JDK-Variante
+        for (String sample : samples) {
+            assertEquals(Double.parseDouble(sample.trim()), PayloadParser.parseDouble(bytes(sample)), sample);
+        }
+    }
+
+    @Test
+    void testParseDouble_ShouldRejectInvalidPayloads() {
+        // **Was erwarte ich?**
+        // - Ungültige Werte führen wie bisher zu NumberFormatException
+        assertThrows(NumberFormatException.class, () -> PayloadParser.parseDouble(bytes("abc")));
+        assertThrows(NumberFormatException.class, () -> PayloadParser.parseDouble(bytes("  ")));
+        assertThrows(NumberFormatException.class, () -> PayloadParser.parseDouble(bytes(".")));
+        assertThrows(NumberFormatException.class, () -> PayloadParser.parseDouble(bytes("1.2.3")));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
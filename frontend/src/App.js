@@ -1,13 +1,42 @@
-import React, { useState, useEffect } from 'react';
+import React, { useState, useEffect, useCallback } from 'react';
 import { Card, CardContent, CardHeader, CardTitle } from './components/ui/card';
 import { Button } from './components/ui/button';
 import { AlertCircle, Lightbulb } from 'lucide-react';
 
 // Hier lege ich die Basis-URL für meine API fest (kann später leicht angepasst werden)
 const API_BASE_URL = 'http://localhost:8080/api';
+// Ein Endpunkt mit allen Werten fürs Dashboard
+const DASHBOARD_URL = `${API_BASE_URL}/dashboard/latest`;
+
+// Hier merke ich mir pro URL das letzte ETag und die Daten dazu. Beim nächsten Poll schicke ich es als
+// If-None-Match mit; ist der Wert unverändert, antwortet die API mit 304 ohne Body.
+const latestResponses = new Map();
+
+// Holt einen /latest-Endpunkt: liefert { ok, changed, data } (bei 304 die gemerkten Daten, bei 204 null)
+const fetchLatest = async (url) => {
+  const cached = latestResponses.get(url);
+  const response = await fetch(url, {
+    cache: 'no-store', // den Browser-Cache umgehen, damit das 304 bei mir ankommt
+    headers: cached ? { 'If-None-Match': cached.etag } : {}
+  });
+  if (response.status === 304 && cached) {
+    return { ok: true, changed: false, data: cached.data };
+  }
+  if (!response.ok) {
+    return { ok: false, changed: true, data: null };
+  }
+  const data = response.status === 204 ? null : await response.json();
+  const etag = response.headers.get('ETag');
+  if (etag) {
+    latestResponses.set(url, { etag, data });
+  } else {
+    latestResponses.delete(url);
+  }
+  return { ok: true, changed: true, data };
+};
 
 function App() {
-  // State für den aktuellen Status der Wago-Lampen
+  // State für das aktuelle Statuswort der Wago-Lampen
   const [wagoStatus, setWagoStatus] = useState(null);
   // State für die Siemens-Werte
   const [siemensData, setSiemensData] = useState({
@@ -19,89 +48,65 @@ function App() {
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState(null);
 
-  // Hier hole ich regelmäßig den aktuellen Lampenstatus von der Wago SPS ab
-  useEffect(() => {
-    let active = true;
-
-    const pollWago = async () => {
-      try {
-        const response = await fetch(`${API_BASE_URL}/wago/status/latest`);
-        if (response.ok && active) {
-          const data = await response.json();
-          setWagoStatus(data);
-        }
-      } catch (err) {
-        if (active) setError('Fehler beim Laden des Wago-Status');
-      }
-    };
-
-    pollWago(); // Gleich beim Start einmal ausführen
-    const interval = setInterval(pollWago, 700); // Polling alle 0,7 Sekunden
-
-    // Beim Unmount alles aufräumen
-    return () => {
-      active = false;
-      clearInterval(interval);
-    };
+  // Hier übernehme ich den Dashboard-Payload (Wago-Status + IST, SOLL, DIFFERENZ) in den State
+  const applyDashboard = useCallback((data) => {
+    setWagoStatus(data?.wagoStatus ?? null);
+    setSiemensData({
+      ist: data?.ist,
+      soll: data?.soll,
+      differenz: data?.differenz
+    });
   }, []);
 
-  // Hier hole ich regelmäßig die Temperaturwerte von der Siemens SPS (langsamer als bei Wago)
+  // Hier hole ich regelmäßig alle aktuellen Werte mit einem einzigen Request ab (statt vier einzelner Polls)
   useEffect(() => {
     let active = true;
 
-    const pollSiemens = async () => {
-      setLoading(true);
+    const pollDashboard = async () => {
       try {
-        // Ich hole alle drei Werte parallel ab
-        const [istRes, sollRes, diffRes] = await Promise.all([
-          fetch(`${API_BASE_URL}/siemens/temperatur/ist/latest`),
-          fetch(`${API_BASE_URL}/siemens/temperatur/soll/latest`),
-          fetch(`${API_BASE_URL}/siemens/temperatur/differenz/latest`)
-        ]);
-
-        const ist = istRes.ok ? await istRes.json() : null;
-        const soll = sollRes.ok ? await sollRes.json() : null;
-        const diff = diffRes.ok ? await diffRes.json() : null;
-
-        if (active) {
-          setSiemensData({
-            ist: ist?.istTemperatur,
-            soll: soll?.sollTemperatur,
-            differenz: diff?.differenzTemperatur
-          });
-          setLoading(false);
+        const result = await fetchLatest(DASHBOARD_URL);
+        // Unverändert (304): kein neuer State, kein Re-Render
+        if (result.ok && result.changed && active) {
+          applyDashboard(result.data);
         }
       } catch (err) {
-        if (active) setError('Fehler beim Laden der Siemens-Daten');
-        setLoading(false);
+        if (active) setError('Fehler beim Laden der aktuellen Werte');
+      } finally {
+        if (active) setLoading(false);
       }
     };
 
-    pollSiemens();
-    const interval = setInterval(pollSiemens, 1000); // Polling alle 1 Sekunde
+    pollDashboard(); // Gleich beim Start einmal ausführen
+    const interval = setInterval(pollDashboard, 700); // Polling alle 0,7 Sekunden (Wago braucht es so schnell)
 
+    // Beim Unmount alles aufräumen
     return () => {
       active = false;
       clearInterval(interval);
     };
-  }, []);
+  }, [applyDashboard]);
 
   // Hier verschicke ich einen Control-Befehl an die Wago SPS
   const sendControlCommand = async (command) => {
     try {
-      const response = await fetch(`${API_BASE_URL}/wago/control`, {
+      // Die API wartet bis zu 3 s, bis die SPS den Befehl über ihren Status bestätigt (sonst 202, Befehl noch offen)
+      const response = await fetch(`${API_BASE_URL}/wago/control?waitMs=3000`, {
         method: 'POST',
         headers: { 'Content-Type': 'application/json' },
         body: JSON.stringify({ command })
       });
 
       if (response.ok) {
-        // Nach dem Senden nochmal sofort aktualisieren
-        setTimeout(() => {
-          fetch(`${API_BASE_URL}/wago/status/latest`)
-              .then(res => res.ok ? res.json() : null)
-              .then(data => setWagoStatus(data));
-        }, 300);
+        const tracked = await response.json();
+        if (tracked.state === 'TIMED_OUT') {
+          setError('SPS hat den Befehl nicht bestätigt');
+        }
+        // Nach der Bestätigung gleich den neuen Zustand holen
+        fetchLatest(DASHBOARD_URL)
+            .then(result => result.ok && result.changed && applyDashboard(result.data));
+      } else if (response.status === 429) {
+        // Die Befehls-Queue hat den Befehl verworfen (zu viele Befehle in kurzer Zeit)
+        setError('Zu viele Befehle, bitte kurz warten');
       }
     } catch (err) {
       setError('Fehler beim Senden des Kommandos');
@@ -114,7 +119,7 @@ function App() {
     // Bitweise prüfen, ob die Lampe an ist
     return Array.from({ length: 16 }, (_, i) => (status & (1 << i)) !== 0);
   };
-  const lights = wagoStatus ? getLightStatus(wagoStatus.status) : Array(16).fill(false);
+  const lights = getLightStatus(wagoStatus);
 
   // Ab hier folgt mein Frontend-Layout mit Tailwind und shadcn/ui Komponenten
   return (
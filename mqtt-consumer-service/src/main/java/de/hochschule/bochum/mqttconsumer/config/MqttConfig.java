@@ -1,6 +1,12 @@
 package de.hochschule.bochum.mqttconsumer.config;
 
+import de.hochschule.bochum.mqttconsumer.ingest.IngestOverloadGuard;
+import de.hochschule.bochum.mqttconsumer.ingest.OverloadGuardedChannel;
+import de.hochschule.bochum.mqttconsumer.ingest.StripedIngestChannel;
+import de.hochschule.bochum.mqttconsumer.ingest.StripedIngestExecutor;
+import lombok.RequiredArgsConstructor;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -16,8 +22,13 @@ import org.springframework.messaging.MessageHandler;
 
 // Hier konfiguriere ich die komplette MQTT-Anbindung für meinen Service
 @Configuration
+@RequiredArgsConstructor
 public class MqttConfig {
 
+    // Nur vorhanden, wenn ingest.execution.mode=striped gesetzt ist
+    private final ObjectProvider<StripedIngestExecutor> stripedIngestExecutor;
+    private final IngestOverloadGuard overloadGuard;
+
     // Konfiguration aus application.properties holen (Broker, User, PW usw.)
     @Value("${mqtt.broker.url}")
     private String brokerUrl;
@@ -37,6 +48,8 @@ public class MqttConfig {
     private String siemensDifferenzTopic;
     @Value("${mqtt.topics.test}")
     private String testTopic;
+    @Value("${ingest.journal.enabled:false}")
+    private boolean journalEnabled;
 
     // MQTT-Client-Factory mit meinen Broker-Settings (inkl. Auth)
     @Bean
@@ -52,10 +65,23 @@ public class MqttConfig {
         return factory;
     }
 
-    // Hier landen alle eingehenden MQTT-Nachrichten
+    // Hier landen alle eingehenden MQTT-Nachrichten.
+    // Standard ist ein DirectChannel (alles auf dem Paho-Thread), im Modus "striped" werden
+    // die Nachrichten pro Topic geordnet, aber topic-übergreifend parallel verarbeitet.
+    // Mit Journal bleibt es beim DirectChannel: Der Eintrag muss vor dem Ack geschrieben sein,
+    // die parallele Verarbeitung übernimmt dann der JournalReplayer.
+    // Ohne Journal liegt der Rückstau im Heap, deshalb prüft dort der IngestOverloadGuard jede Nachricht.
+    // Mit Journal liegt er auf der Platte und der Replayer liest nur batchweise, dort wird nichts verworfen.
     @Bean
     public MessageChannel mqttInputChannel() {
-        return new DirectChannel();
+        if (journalEnabled) {
+            return new DirectChannel();
+        }
+        StripedIngestExecutor executor = stripedIngestExecutor.getIfAvailable();
+        if (executor != null) {
+            return new StripedIngestChannel(executor, overloadGuard);
+        }
+        return new OverloadGuardedChannel(overloadGuard);
     }
 
     // Für ausgehende MQTT-Nachrichten (z.B. Steuerbefehle)
@@ -81,7 +107,10 @@ public class MqttConfig {
                         mqttClientFactory(),
                         topics);
         adapter.setCompletionTimeout(5000);
-        adapter.setConverter(new DefaultPahoMessageConverter());
+        // Payload als byte[] weiterreichen, geparst wird direkt auf den Bytes (siehe PayloadParser)
+        DefaultPahoMessageConverter converter = new DefaultPahoMessageConverter();
+        converter.setPayloadAsBytes(true);
+        adapter.setConverter(converter);
         adapter.setQos(1);
         adapter.setOutputChannel(mqttInputChannel());
         return adapter;
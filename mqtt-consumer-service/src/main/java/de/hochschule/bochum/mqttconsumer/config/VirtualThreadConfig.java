@@ -0,0 +1,24 @@
+package de.hochschule.bochum.mqttconsumer.config;
+
+import de.hochschule.bochum.common.diagnostics.PinningMonitor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+// Virtueller-Thread-Modus: Mit spring.threads.virtual.enabled stellt Spring Boot Tomcat, den TaskExecutor und den
+// TaskScheduler (auch den von Spring Integration) selbst um, unsere eigenen Hintergrund-Threads folgen über BackgroundThreads.
+// Hier hänge ich zusätzlich den Pinning-Monitor an, der per JFR meldet, wo ein virtueller Thread festhängt.
+@Configuration
+public class VirtualThreadConfig {
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty(name = "diagnostics.pinning.enabled", havingValue = "true")
+    public PinningMonitor pinningMonitor(MeterRegistry meterRegistry,
+                                         @Value("${diagnostics.pinning.threshold-ms:20}") long thresholdMs) {
+        return new PinningMonitor(meterRegistry, Duration.ofMillis(thresholdMs));
+    }
+}
@@ -0,0 +1,22 @@
+package de.hochschule.bochum.mqttconsumer.ingest;
+
+import java.util.Locale;
+
+// Wie ein Siemens-Messwert komprimiert wird, bevor er gespeichert wird
+public enum CompressionMode {
+
+    // Jeder Wert wird gespeichert
+    NONE,
+    // Speichern, wenn der Wert um mehr als deviation (absolut) vom zuletzt gespeicherten abweicht
+    DEADBAND,
+    // Wie DEADBAND, deviation ist aber ein Anteil des zuletzt gespeicherten Werts (0.01 = 1 %)
+    DEADBAND_RELATIVE,
+    // Swinging-Door-Trending: speichern, sobald sich die Werte nicht mehr durch eine Gerade
+    // mit Toleranz deviation ab dem zuletzt gespeicherten Punkt beschreiben lassen
+    SWINGING_DOOR;
+
+    // Erlaubt die Schreibweise aus der application.yml, z.B. "swinging-door"
+    public static CompressionMode fromProperty(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+}
@@ -0,0 +1,136 @@
+package de.hochschule.bochum.mqttconsumer.ingest;
+
+import de.hochschule.bochum.common.model.SiemensData;
+import de.hochschule.bochum.common.model.WagoData;
+import de.hochschule.bochum.common.model.WagoTransition;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Hier erkenne ich QoS-1-Wiederholungen (z.B. nach einem Reconnect), bevor sie gespeichert werden.
+// Schlüssel ist Topic + MQTT-Message-ID + Hash der Payload; gemerkt wird ein begrenztes Fenster
+// (Anzahl und Zeit), damit der Speicher konstant bleibt. Optional bekommt jedes Dokument zusätzlich
+// einen dedupKey mit Unique-Index, dann lehnt auch MongoDB doppelte Inserts ab (z.B. beim Journal-Replay).
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IngestDeduplicator {
+
+    static final String DEDUP_KEY_FIELD = "dedupKey";
+
+    private final MongoTemplate mongoTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ingest.dedup.enabled:false}")
+    private boolean enabled;
+
+    @Value("${ingest.dedup.window-size:10000}")
+    private int windowSize;
+
+    // Message-IDs sind nur 16 Bit und werden vom Broker wiederverwendet, deshalb zusätzlich ein Zeitfenster
+    @Value("${ingest.dedup.window-ms:30000}")
+    private long windowMs;
+
+    @Value("${ingest.dedup.unique-index:false}")
+    private boolean uniqueIndex;
+
+    private final ReentrantLock windowLock = new ReentrantLock();
+    private final Map<String, Counter> duplicateCounters = new ConcurrentHashMap<>();
+    // Einfügereihenfolge = Alter, der älteste Eintrag fliegt bei vollem Fenster zuerst raus
+    private final LinkedHashMap<Key, Long> window = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Long> eldest) {
+            return size() > windowSize;
+        }
+    };
+
+    private record Key(String topic, int messageId, int payloadHash) {
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        if (uniqueIndex) {
+            ensureUniqueIndex(WagoData.class);
+            ensureUniqueIndex(SiemensData.class);
+            ensureUniqueIndex(WagoTransition.class);
+        }
+        log.info("Deduplizierung aktiv: Fenster {} Nachrichten / {} ms, Unique-Index {}", windowSize, windowMs, uniqueIndex);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // true = diese Nachricht wurde im Fenster schon einmal angenommen und soll verworfen werden.
+    // Message-ID 0 (QoS 0) ist nicht eindeutig und wird daher nie als Duplikat gewertet.
+    public boolean isDuplicate(String topic, int messageId, byte[] payload) {
+        if (!enabled || messageId == 0) {
+            return false;
+        }
+        Key key = new Key(topic, messageId, Arrays.hashCode(payload));
+        long now = System.currentTimeMillis();
+        boolean duplicate;
+        windowLock.lock();
+        try {
+            expire(now);
+            duplicate = window.putIfAbsent(key, now) != null;
+        } finally {
+            windowLock.unlock();
+        }
+        if (duplicate) {
+            duplicateCounters.computeIfAbsent(topic,
+                    t -> meterRegistry.counter("mqtt.ingest.duplicates", "topic", t)).increment();
+            log.debug("Duplikat verworfen: Topic {}, Message-ID {}", topic, messageId);
+        }
+        return duplicate;
+    }
+
+    // Schlüssel für das Feld dedupKey im Dokument; null, wenn kein Unique-Index verwendet wird.
+    // Eine Wiederholung durch den Broker hat eine neue Empfangszeit, deshalb geht nur das Zeitfenster (window-ms)
+    // in den Schlüssel ein, in das sie fällt: so kollidiert die Wiederholung mit dem Original, eine viel später
+    // wiederverwendete Message-ID aber nicht. Fallen Original und Wiederholung knapp in zwei Fenster, erkennt
+    // das der Unique-Index nicht (das Fenster im Speicher schon). Beim Journal-Replay gilt die ursprüngliche Empfangszeit.
+    public String documentKey(String topic, int messageId, long receivedAt, byte[] payload) {
+        if (!enabled || !uniqueIndex || messageId == 0) {
+            return null;
+        }
+        return topic + ':' + messageId + ':' + Integer.toHexString(Arrays.hashCode(payload)) + ':' + receivedAt / windowMs;
+    }
+
+    private void expire(long now) {
+        Iterator<Long> seenAt = window.values().iterator();
+        while (seenAt.hasNext() && now - seenAt.next() > windowMs) {
+            seenAt.remove();
+        }
+    }
+
+    // Sparse: alte Dokumente ohne dedupKey stören den Index nicht
+    private void ensureUniqueIndex(Class<?> type) {
+        try {
+            mongoTemplate.indexOps(type).ensureIndex(new Index()
+                    .on(DEDUP_KEY_FIELD, Sort.Direction.ASC)
+                    .named("dedupKey_unique")
+                    .unique()
+                    .sparse());
+        } catch (RuntimeException e) {
+            log.warn("! Unique-Index für {} konnte nicht angelegt werden: {}", type.getSimpleName(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package de.hochschule.bochum.mqttconsumer.ingest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Append-only Journal für alle empfangenen MQTT-Nachrichten. Jede Nachricht wird hier (per
+// Memory-Mapped-NIO) in eine Segmentdatei geschrieben, bevor Paho sie beim Broker bestätigt.
+// Der JournalReplayer schreibt die Einträge danach in MongoDB und setzt den Checkpoint weiter.
+//
+// Aufbau eines Eintrags: [int Länge][int CRC32][long Empfangszeit][int MQTT-Message-ID][short Topic-Länge][Topic][Payload]
+// Länge 0 = hier endet das Segment bisher, Länge -1 = Segment ist abgeschlossen.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IngestJournal {
+
+    private static final int RECORD_HEADER = 8;
+    private static final int BODY_HEADER = 14;
+    private static final int SEGMENT_CLOSED = -1;
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ingest.journal.enabled:false}")
+    private boolean enabled;
+
+    @Value("${ingest.journal.directory:data/journal}")
+    private String directory;
+
+    @Value("${ingest.journal.segment-size-bytes:16777216}")
+    private int segmentSize;
+
+    // true = nach jedem Eintrag force() (übersteht auch Stromausfall, kostet aber Durchsatz)
+    @Value("${ingest.journal.fsync:false}")
+    private boolean fsync;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Map<Long, MappedByteBuffer> readMappings = new ConcurrentHashMap<>();
+
+    private Path journalDir;
+    private MappedByteBuffer writeMapping;
+    private long writeSegment;
+    private int writeOffset;
+    private Counter appendedCounter;
+
+    // Ende der geschriebenen Daten; volatile, damit der Replayer nie über halbe Einträge liest
+    private volatile Position head;
+    private volatile Position checkpoint;
+
+    // Position im Journal: Segmentnummer + Byte-Offset im Segment
+    public record Position(long segment, int offset) implements Comparable<Position> {
+        @Override
+        public int compareTo(Position other) {
+            int bySegment = Long.compare(segment, other.segment);
+            return bySegment != 0 ? bySegment : Integer.compare(offset, other.offset);
+        }
+    }
+
+    // Ein gelesener Eintrag; next zeigt auf den direkt folgenden Eintrag (= neuer Checkpoint)
+    public record Entry(Position next, long receivedAt, int messageId, String topic, byte[] payload) {
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        journalDir = Paths.get(directory);
+        Files.createDirectories(journalDir);
+
+        List<Long> segments = listSegments();
+        long lastSegment = segments.isEmpty() ? 0 : segments.get(segments.size() - 1);
+        mapForWrite(lastSegment);
+        // Nach einem Absturz: bis zum ersten unvollständigen Eintrag vorspulen und den Rest nullen
+        writeOffset = scanValidEnd(writeMapping);
+        if (writeOffset + RECORD_HEADER <= segmentSize && writeMapping.getInt(writeOffset) == SEGMENT_CLOSED) {
+            mapForWrite(lastSegment + 1);
+            writeOffset = 0;
+        } else {
+            clearFrom(writeMapping, writeOffset);
+        }
+        head = new Position(writeSegment, writeOffset);
+        checkpoint = loadCheckpoint(segments.isEmpty() ? 0 : segments.get(0));
+
+        appendedCounter = meterRegistry.counter("mqtt.journal.appended");
+        Gauge.builder("mqtt.journal.lag.bytes", this, IngestJournal::getLagBytes)
+                .description("Noch nicht in MongoDB geschriebene Journal-Daten")
+                .register(meterRegistry);
+        log.info("Ingest-Journal geöffnet: {} (Ende {}, Checkpoint {})", journalDir.toAbsolutePath(), head, checkpoint);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Hängt eine Nachricht an; kehrt erst zurück, wenn sie im gemappten Segment steht.
+    // Die MQTT-Message-ID wird mitgeschrieben, damit die Deduplizierung auch beim Replay greift.
+    public void append(String topic, int messageId, byte[] payload) {
+        byte[] topicBytes = topic.getBytes(StandardCharsets.UTF_8);
+        int bodyLength = BODY_HEADER + topicBytes.length + payload.length;
+        int recordLength = RECORD_HEADER + bodyLength;
+        if (topicBytes.length > 0xFFFF || recordLength > segmentSize - Integer.BYTES) {
+            throw new IllegalArgumentException("Message on topic " + topic + " is too large for the journal");
+        }
+
+        appendLock.lock();
+        try {
+            // Platz für die Abschlussmarkierung (-1) bleibt immer frei
+            if (writeOffset + recordLength > segmentSize - Integer.BYTES) {
+                writeMapping.putInt(writeOffset, SEGMENT_CLOSED);
+                mapForWrite(writeSegment + 1);
+                writeOffset = 0;
+            }
+            int bodyStart = writeOffset + RECORD_HEADER;
+            writeMapping.putLong(bodyStart, System.currentTimeMillis());
+            writeMapping.putInt(bodyStart + 8, messageId);
+            writeMapping.putShort(bodyStart + 12, (short) topicBytes.length);
+            writeMapping.put(bodyStart + BODY_HEADER, topicBytes);
+            writeMapping.put(bodyStart + BODY_HEADER + topicBytes.length, payload);
+
+            CRC32 crc = new CRC32();
+            crc.update(writeMapping.slice(bodyStart, bodyLength));
+            writeMapping.putInt(writeOffset + 4, (int) crc.getValue());
+            // Die Länge schreibe ich zuletzt: erst damit wird der Eintrag beim Recovery gültig
+            writeMapping.putInt(writeOffset, bodyLength);
+            if (fsync) {
+                writeMapping.force(writeOffset, recordLength);
+            }
+            writeOffset += recordLength;
+            head = new Position(writeSegment, writeOffset);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not roll journal segment", e);
+        } finally {
+            appendLock.unlock();
+        }
+        appendedCounter.increment();
+    }
+
+    // Liest bis zu max Einträge ab der angegebenen Position (nur vollständig geschriebene)
+    public List<Entry> read(Position from, int max) {
+        List<Entry> entries = new ArrayList<>();
+        Position end = head;
+        long segment = from.segment();
+        int offset = from.offset();
+        while (entries.size() < max && new Position(segment, offset).compareTo(end) < 0) {
+            ByteBuffer buffer = readMapping(segment);
+            int length = offset + RECORD_HEADER <= segmentSize ? buffer.getInt(offset) : SEGMENT_CLOSED;
+            if (length <= 0 || !hasValidCrc(buffer, offset, length)) {
+                if (segment == end.segment()) {
+                    break;
+                }
+                // Abgeschlossenes (oder beschädigtes) Segment: weiter im nächsten
+                if (length > 0) {
+                    log.error("X Beschädigter Journal-Eintrag in Segment {} bei Offset {}, überspringe Rest", segment, offset);
+                }
+                segment++;
+                offset = 0;
+                continue;
+            }
+            int bodyStart = offset + RECORD_HEADER;
+            long receivedAt = buffer.getLong(bodyStart);
+            int messageId = buffer.getInt(bodyStart + 8);
+            int topicLength = Short.toUnsignedInt(buffer.getShort(bodyStart + 12));
+            byte[] topic = new byte[topicLength];
+            buffer.get(bodyStart + BODY_HEADER, topic);
+            byte[] payload = new byte[length - BODY_HEADER - topicLength];
+            buffer.get(bodyStart + BODY_HEADER + topicLength, payload);
+            offset += RECORD_HEADER + length;
+            entries.add(new Entry(new Position(segment, offset), receivedAt, messageId,
+                    new String(topic, StandardCharsets.UTF_8), payload));
+        }
+        return entries;
+    }
+
+    public Position getCheckpoint() {
+        return checkpoint;
+    }
+
+    public Position getHead() {
+        return head;
+    }
+
+    // Merkt sich, bis wohin alles in MongoDB steht, und löscht vollständig abgearbeitete Segmente
+    public void commit(Position position) {
+        try {
+            Path tmp = journalDir.resolve(CHECKPOINT_FILE + ".tmp");
+            Files.writeString(tmp, position.segment() + " " + position.offset());
+            Files.move(tmp, journalDir.resolve(CHECKPOINT_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            checkpoint = position;
+            for (long segment : listSegments()) {
+                if (segment < position.segment()) {
+                    readMappings.remove(segment);
+                    Files.deleteIfExists(segmentPath(segment));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write journal checkpoint", e);
+        }
+    }
+
+    // Ungefähre Menge an Daten zwischen Checkpoint und Journal-Ende
+    public long getLagBytes() {
+        Position end = head;
+        Position done = checkpoint;
+        if (end == null || done == null) {
+            return 0;
+        }
+        return (end.segment() - done.segment()) * (long) segmentSize + end.offset() - done.offset();
+    }
+
+    @PreDestroy
+    public void close() {
+        if (writeMapping != null) {
+            writeMapping.force();
+        }
+    }
+
+    private void mapForWrite(long segment) throws IOException {
+        if (writeMapping != null) {
+            writeMapping.force();
+        }
+        try (FileChannel channel = FileChannel.open(segmentPath(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Das Mapping bleibt auch nach dem Schließen des Channels gültig
+            writeMapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        writeSegment = segment;
+    }
+
+    private ByteBuffer readMapping(long segment) {
+        return readMappings.computeIfAbsent(segment, s -> {
+            try (FileChannel channel = FileChannel.open(segmentPath(s), StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, segmentSize);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not map journal segment " + s, e);
+            }
+        });
+    }
+
+    private int scanValidEnd(ByteBuffer buffer) {
+        int offset = 0;
+        while (offset + RECORD_HEADER <= segmentSize) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || !hasValidCrc(buffer, offset, length)) {
+                return offset;
+            }
+            offset += RECORD_HEADER + length;
+        }
+        return offset;
+    }
+
+    private boolean hasValidCrc(ByteBuffer buffer, int offset, int length) {
+        if (length < BODY_HEADER || offset + RECORD_HEADER + length > segmentSize) {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset + RECORD_HEADER, length));
+        return (int) crc.getValue() == buffer.getInt(offset + 4);
+    }
+
+    private void clearFrom(MappedByteBuffer buffer, int offset) {
+        byte[] zeros = new byte[8192];
+        for (int i = offset; i < segmentSize; i += zeros.length) {
+            buffer.put(i, zeros, 0, Math.min(zeros.length, segmentSize - i));
+        }
+    }
+
+    private Position loadCheckpoint(long firstSegment) throws IOException {
+        Path file = journalDir.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) {
+            return new Position(firstSegment, 0);
+        }
+        String[] parts = Files.readString(file).trim().split(" ");
+        return new Position(Long.parseLong(parts[0]), Integer.parseInt(parts[1]));
+    }
+
+    private List<Long> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(journalDir)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith("segment-") && name.endsWith(".log"))
+                    .map(name -> Long.parseLong(name.substring(8, name.length() - 4)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(long segment) {
+        return journalDir.resolve(String.format("segment-%020d.log", segment));
+    }
+}
@@ -0,0 +1,169 @@
+package de.hochschule.bochum.mqttconsumer.ingest;
+
+import de.hochschule.bochum.mqttconsumer.routing.TopicHandlerRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Hier entscheide ich vor der Verarbeitung, ob eine eingehende MQTT-Nachricht angenommen wird.
+// Signal ist der Ingest-Rückstau (wartende Nachrichten in den Stripes + ungeschriebene Dokumente
+// im Write-Behind-Puffer). Liegt er über der High-Watermark, greift die konfigurierte OverloadPolicy,
+// damit ein Burst den Heap nicht unbegrenzt wachsen lässt.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IngestOverloadGuard {
+
+    // Beim Blockieren wird in diesem Abstand geprüft, ob wieder Platz ist
+    private static final long BLOCK_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final WriteBehindBuffer writeBuffer;
+    private final TopicHandlerRegistry topicHandlers;
+    private final MeterRegistry meterRegistry;
+    // Nur vorhanden, wenn ingest.execution.mode=striped gesetzt ist
+    private final ObjectProvider<StripedIngestExecutor> stripedIngestExecutor;
+
+    @Value("${ingest.overload.policy:block}")
+    private String policyName;
+
+    @Value("${ingest.overload.high-watermark:20000}")
+    private int highWatermark;
+
+    @Value("${ingest.overload.sample-every:10}")
+    private int sampleEvery;
+
+    // 0 = unbegrenzt warten; sonst wird die Nachricht nach dieser Zeit doch verworfen
+    @Value("${ingest.overload.max-block-ms:10000}")
+    private long maxBlockMs;
+
+    private final Map<String, Counter> shedCounters = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> sampleCounters = new ConcurrentHashMap<>();
+    private final AtomicBoolean overloaded = new AtomicBoolean();
+
+    private OverloadPolicy policy;
+    private StripedIngestExecutor executor;
+    private Timer blockedTimer;
+
+    @PostConstruct
+    public void init() {
+        policy = OverloadPolicy.fromProperty(policyName);
+        if (sampleEvery < 1) {
+            throw new IllegalArgumentException("ingest.overload.sample-every must be >= 1");
+        }
+        executor = stripedIngestExecutor.getIfAvailable();
+        Gauge.builder("mqtt.ingest.backlog", this, IngestOverloadGuard::getBacklog)
+                .description("Wartende Nachrichten/Dokumente zwischen MQTT und MongoDB")
+                .register(meterRegistry);
+        blockedTimer = Timer.builder("mqtt.ingest.blocked")
+                .description("Wartezeit des MQTT-Threads bei Policy block")
+                .register(meterRegistry);
+        log.info("Overload-Policy: {} ab Rückstau {}", policy.tagValue(), highWatermark);
+    }
+
+    public OverloadPolicy getPolicy() {
+        return policy;
+    }
+
+    // Aktueller Ingest-Rückstau über Stripes und Write-Behind-Puffer
+    public int getBacklog() {
+        int backlog = writeBuffer.getPendingCount();
+        if (executor != null) {
+            backlog += executor.getBacklog();
+        }
+        return backlog;
+    }
+
+    // true = Nachricht weiterverarbeiten, false = Nachricht wurde verworfen (und gezählt)
+    public boolean admit(String topic) {
+        if (!isOverloaded()) {
+            return true;
+        }
+        return switch (policy) {
+            case BLOCK -> awaitCapacity(topic);
+            case DROP_NEWEST -> shed(topic);
+            case DROP_OLDEST -> {
+                evictOldest(topic);
+                yield true;
+            }
+            case SAMPLE -> sample(topic);
+        };
+    }
+
+    private boolean isOverloaded() {
+        boolean now = getBacklog() >= highWatermark;
+        // Nur die Übergänge loggen, sonst schreibt ein Burst das Log voll
+        if (overloaded.compareAndSet(!now, now)) {
+            if (now) {
+                log.warn("! Ingest überlastet (Rückstau >= {}), Policy {} greift", highWatermark, policy.tagValue());
+            } else {
+                log.info("Ingest wieder unter der High-Watermark");
+            }
+        }
+        return now;
+    }
+
+    private boolean awaitCapacity(String topic) {
+        long start = System.nanoTime();
+        long maxBlockNanos = TimeUnit.MILLISECONDS.toNanos(maxBlockMs);
+        try {
+            while (isOverloaded()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    // Beim Herunterfahren lieber annehmen als hängen bleiben
+                    return true;
+                }
+                if (maxBlockMs > 0 && System.nanoTime() - start > maxBlockNanos) {
+                    return shed(topic);
+                }
+                LockSupport.parkNanos(BLOCK_POLL_NANOS);
+            }
+            return true;
+        } finally {
+            blockedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Erst im Stripe des Topics verwerfen, sonst das älteste noch ungeschriebene Dokument
+    private void evictOldest(String topic) {
+        String evictedTopic = executor == null ? null : executor.evictOldest(topic);
+        if (evictedTopic == null) {
+            Object evicted = writeBuffer.evictOldest();
+            if (evicted == null) {
+                return;
+            }
+            evictedTopic = topicHandlers.topicOf(evicted);
+        }
+        shed(evictedTopic);
+    }
+
+    private boolean sample(String topic) {
+        long n = sampleCounters.computeIfAbsent(topic, t -> new AtomicLong()).getAndIncrement();
+        if (n % sampleEvery == 0) {
+            return true;
+        }
+        return shed(topic);
+    }
+
+    private boolean shed(String topic) {
+        String tag = topic == null ? "unknown" : topic;
+        shedCounters.computeIfAbsent(tag, t -> Counter.builder("mqtt.ingest.shed")
+                .description("Wegen Überlast verworfene Nachrichten")
+                .tag("topic", t)
+                .tag("policy", policy.tagValue())
+                .register(meterRegistry)).increment();
+        return false;
+    }
+}
@@ -0,0 +1,141 @@
+package de.hochschule.bochum.mqttconsumer.ingest;
+
+import de.hochschule.bochum.common.model.SiemensData;
+import de.hochschule.bochum.common.model.WagoData;
+import de.hochschule.bochum.common.model.WagoTransition;
+import de.hochschule.bochum.mqttconsumer.repository.MqttSiemensDataRepository;
+import de.hochschule.bochum.mqttconsumer.repository.MqttWagoDataRepository;
+import de.hochschule.bochum.mqttconsumer.repository.MqttWagoTransitionRepository;
+import de.hochschule.bochum.mqttconsumer.storage.RollupWriter;
+import de.hochschule.bochum.mqttconsumer.storage.SiemensBucketWriter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+// Ziel aller bereits geparsten Messwerte: Hier entsteht das Dokument und wird entweder
+// in den Write-Behind-Puffer gelegt oder (ohne Puffer) direkt gespeichert.
+// Alle Zeitstempel (Dokumente, Wechsel, Rollups, Buckets, Snapshots) kommen aus receivedAt, nicht aus der Uhr:
+// beim Nachholen aus dem Journal behalten die Werte so ihren ursprünglichen Empfangszeitpunkt.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IngestSink {
+
+    private final MqttWagoDataRepository wagoRepository;
+    private final MqttSiemensDataRepository siemensRepository;
+    private final MqttWagoTransitionRepository transitionRepository;
+    private final WriteBehindBuffer writeBuffer;
+    private final SiemensCompressor compressor;
+    private final WagoTransitionTracker transitionTracker;
+    private final SiemensBucketWriter bucketWriter;
+    private final SiemensSnapshotAggregator snapshotAggregator;
+    private final RollupWriter rollupWriter;
+
+    // Hier speichere ich den Status der Wago-SPS ab (und logge die Infos dazu).
+    // Je nach ingest.wago.storage als vollständiges Dokument, nur als Wechsel oder beides.
+    // In die Rollups geht jeder empfangene Status, auch wenn nur Wechsel gespeichert werden.
+    public void acceptWagoStatus(int status, long receivedAt, String dedupKey) {
+        LocalDateTime timestamp = toDateTime(receivedAt);
+        rollupWriter.record("WAGO", status, timestamp);
+        WagoTransition transition = transitionTracker.track(status, timestamp);
+        if (transition != null) {
+            transition.setDedupKey(dedupKey);
+            storeTransition(transition);
+        }
+        if (!transitionTracker.isStoringFull()) {
+            return;
+        }
+        WagoData wagoData = new WagoData(status, timestamp);
+        wagoData.setDedupKey(dedupKey);
+        if (writeBuffer.isEnabled()) {
+            // Im Write-Behind-Modus landet der Wert im Puffer und wird gebündelt geschrieben
+            writeBuffer.add(wagoData);
+            log.debug("WAGO DATA BUFFERED: Status {}", status);
+            return;
+        }
+        WagoData saved;
+        try {
+            saved = wagoRepository.save(wagoData);
+        } catch (DuplicateKeyException e) {
+            log.debug("WAGO DATA bereits gespeichert (dedupKey {})", dedupKey);
+            return;
+        }
+        log.info("WAGO DATA SAVED!");
+        log.info("   Status: {}", status);
+        log.info("   Binary: {}", Integer.toBinaryString(status));
+        log.info("   ID: {}", saved.getId());
+        log.info("   Timestamp: {}", saved.getTimestamp());
+    }
+
+    private void storeTransition(WagoTransition transition) {
+        if (writeBuffer.isEnabled()) {
+            writeBuffer.add(transition);
+            log.debug("WAGO TRANSITION BUFFERED: Status {}, Maske {}", transition.getStatus(), transition.getChangedMask());
+            return;
+        }
+        try {
+            transitionRepository.save(transition);
+        } catch (DuplicateKeyException e) {
+            log.debug("WAGO TRANSITION bereits gespeichert (dedupKey {})", transition.getDedupKey());
+            return;
+        }
+        log.info("WAGO TRANSITION SAVED! Status: {}, geänderte Bits: {}",
+                transition.getStatus(), Integer.toBinaryString(transition.getChangedMask()));
+    }
+
+    // Hier wird ein Temperaturwert für Siemens verarbeitet und in die Datenbank gespeichert.
+    // Vorher entscheidet der SiemensCompressor, ob (und welcher) Wert wirklich gespeichert werden muss.
+    // Zusätzlich fließt jeder Wert (unkomprimiert) in den Snapshot aus IST, SOLL und DIFFERENZ und in die Rollups ein.
+    public void acceptSiemensTemperature(double temperature, String type, long receivedAt, String dedupKey) {
+        snapshotAggregator.offer(type, temperature, receivedAt);
+        SiemensData siemensData = new SiemensData(temperature, type, toDateTime(receivedAt));
+        rollupWriter.record(type, temperature, siemensData.getTimestamp());
+        // Eine Nachricht kann mehrere Siemens-Dokumente erzeugen (Test-Topic), deshalb mit Typ
+        siemensData.setDedupKey(dedupKey == null ? null : dedupKey + ':' + type);
+        List<SiemensData> toStore = compressor.offer(siemensData, temperature, receivedAt);
+        if (toStore.isEmpty()) {
+            log.debug("SIEMENS {} DATA COMPRESSED: {}", type, temperature);
+            return;
+        }
+        for (SiemensData data : toStore) {
+            storeSiemens(data);
+        }
+    }
+
+    private void storeSiemens(SiemensData siemensData) {
+        String type = siemensData.getType();
+        if (writeBuffer.isEnabled()) {
+            writeBuffer.add(siemensData);
+            log.debug("SIEMENS {} DATA BUFFERED: {}", type, siemensData.getTimestamp());
+            return;
+        }
+        if (bucketWriter.isWritingBuckets()) {
+            bucketWriter.append(siemensData);
+        }
+        if (!bucketWriter.isWritingDocuments()) {
+            return;
+        }
+        SiemensData saved;
+        try {
+            saved = siemensRepository.save(siemensData);
+        } catch (DuplicateKeyException e) {
+            log.debug("SIEMENS {} DATA bereits gespeichert (dedupKey {})", type, siemensData.getDedupKey());
+            return;
+        }
+        log.info("SIEMENS {} DATA SAVED!", type);
+        log.info("   Temperature: {}", SiemensBucketWriter.valueOf(saved));
+        log.info("   ID: {}", saved.getId());
+        log.info("   Timestamp: {}", saved.getTimestamp());
+    }
+
+    // Epoch-Millisekunden als lokale Zeit, so wie LocalDateTime.now() sie liefert
+    static LocalDateTime toDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,192 @@
+package de.hochschule.bochum.mqttconsumer.ingest;
+
+import de.hochschule.bochum.mqttconsumer.service.MqttMessageHandler;
+import de.hochschule.bochum.mqttconsumer.storage.RollupWriter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Liest das IngestJournal ab dem Checkpoint, schreibt die Einträge über die normale
+// Verarbeitung in MongoDB und setzt den Checkpoint erst weiter, wenn der Batch sicher gespeichert ist.
+// Ist MongoDB weg, bleibt der Checkpoint stehen und derselbe Batch wird später erneut versucht.
+// Nach einem Neustart wird so automatisch alles nachgeholt, was noch nicht gespeichert war.
+// Vor jedem Batch merke ich mir den Zustand der Verarbeitungsstufen (Wago-Wechsel, Kompression, Snapshot,
+// Rollups, Write-Behind-Puffer) und stelle ihn bei einem Fehler wieder her; der Wiederholungsversuch rechnet
+// dann von demselben Stand aus. Rollups schreibe ich pro Batch mit der Journal-Position als Schlüssel,
+// Stunden-Buckets schützen sich selbst über die Schlüssel ihrer letzten Schreibvorgänge. Doppelte Dokumente verhindert der Unique-Index der Deduplizierung.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class JournalReplayer implements SmartLifecycle {
+
+    private final IngestJournal journal;
+    private final MqttMessageHandler messageHandler;
+    private final WriteBehindBuffer writeBuffer;
+    private final WagoTransitionTracker transitionTracker;
+    private final SiemensCompressor compressor;
+    private final SiemensSnapshotAggregator snapshotAggregator;
+    private final RollupWriter rollupWriter;
+    private final MeterRegistry meterRegistry;
+    // Optional: Im Modus "striped" laufen die Einträge eines Batches pro Topic parallel
+    private final ObjectProvider<StripedIngestExecutor> stripedIngestExecutor;
+
+    @Value("${ingest.journal.replay-batch-size:500}")
+    private int batchSize;
+
+    @Value("${ingest.journal.poll-interval-ms:20}")
+    private long pollIntervalMs;
+
+    @Value("${ingest.journal.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    private volatile boolean running;
+    private Thread worker;
+    // Gescheiterter Batch: wird unverändert wiederholt, auch wenn inzwischen weitere Einträge im Journal stehen
+    private List<IngestJournal.Entry> retrying;
+
+    @Override
+    public void start() {
+        if (!journal.isEnabled()) {
+            return;
+        }
+        running = true;
+        worker = Thread.ofVirtual().name("journal-replayer").start(this::run);
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                if (replayOnce() == 0) {
+                    TimeUnit.MILLISECONDS.sleep(pollIntervalMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                meterRegistry.counter("mqtt.journal.replay.failed").increment();
+                log.error("X Journal-Replay fehlgeschlagen, neuer Versuch in {} ms", retryBackoffMs, e);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(retryBackoffMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // Verarbeitet einen Batch ab dem Checkpoint; liefert die Anzahl der gespeicherten Einträge
+    int replayOnce() throws InterruptedException {
+        IngestJournal.Position from = journal.getCheckpoint();
+        List<IngestJournal.Entry> entries = retrying != null ? retrying : journal.read(from, batchSize);
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        List<Runnable> rollback = List.of(transitionTracker.checkpoint(), compressor.checkpoint(),
+                snapshotAggregator.checkpoint(), rollupWriter.checkpoint(), writeBuffer.checkpoint());
+        IngestJournal.Position to = entries.get(entries.size() - 1).next();
+        boolean committed = false;
+        try {
+            // Die Positionen beschreiben genau diese Einträge: ein Rollup mit demselben Schlüssel enthält den Batch schon
+            replay(entries, from.segment() + ":" + from.offset() + "-" + to.segment() + ":" + to.offset());
+            journal.commit(to);
+            committed = true;
+        } finally {
+            if (committed) {
+                retrying = null;
+            } else {
+                // Der Puffer kommt zuletzt dran, damit nichts aus dem Batch darin liegen bleibt
+                rollback.forEach(Runnable::run);
+                retrying = entries;
+            }
+        }
+        meterRegistry.counter("mqtt.journal.replayed").increment(entries.size());
+        return entries.size();
+    }
+
+    private void replay(List<IngestJournal.Entry> entries, String batchKey) throws InterruptedException {
+        long failedFlushesBefore = writeBuffer.getFailedFlushCount();
+
+        StripedIngestExecutor executor = stripedIngestExecutor.getIfAvailable();
+        if (executor != null) {
+            replayStriped(executor, entries);
+        } else {
+            for (IngestJournal.Entry entry : entries) {
+                processEntry(entry);
+            }
+        }
+
+        if (writeBuffer.isEnabled()) {
+            writeBuffer.flush();
+            // Ist zwischendurch ein Hintergrund-Flush gescheitert, fehlen evtl. Einträge aus diesem Batch
+            if (writeBuffer.getFailedFlushCount() != failedFlushesBefore) {
+                throw new IllegalStateException("Write-behind flush failed while replaying journal batch");
+            }
+        }
+        if (rollupWriter.isEnabled()) {
+            rollupWriter.flush(batchKey);
+        }
+    }
+
+    private void replayStriped(StripedIngestExecutor executor, List<IngestJournal.Entry> entries)
+            throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(entries.size());
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        for (IngestJournal.Entry entry : entries) {
+            executor.execute(entry.topic(), () -> {
+                try {
+                    processEntry(entry);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    private void processEntry(IngestJournal.Entry entry) {
+        try {
+            messageHandler.process(entry.topic(), entry.messageId(), entry.receivedAt(), entry.payload());
+        } catch (NumberFormatException e) {
+            // Kaputte Payloads werden auch beim nächsten Versuch nicht besser: loggen und weiter
+            log.error("X Invalid payload on topic {} (journal): {}", entry.topic(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Startet nach dem StripedIngestExecutor und stoppt vor ihm
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE / 3;
+    }
+}
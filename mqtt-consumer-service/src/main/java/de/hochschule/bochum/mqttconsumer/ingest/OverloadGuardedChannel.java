@@ -0,0 +1,26 @@
+package de.hochschule.bochum.mqttconsumer.ingest;
+
+import org.springframework.integration.channel.DirectChannel;
+import org.springframework.integration.mqtt.support.MqttHeaders;
+import org.springframework.messaging.Message;
+
+// DirectChannel, der vor der Verarbeitung den IngestOverloadGuard fragt.
+// Verworfene Nachrichten gelten für den Adapter trotzdem als zugestellt, damit Paho nicht
+// wegen einer Exception die Verbindung abbaut.
+public class OverloadGuardedChannel extends DirectChannel {
+
+    private final IngestOverloadGuard guard;
+
+    public OverloadGuardedChannel(IngestOverloadGuard guard) {
+        this.guard = guard;
+    }
+
+    @Override
+    protected boolean doSend(Message<?> message, long timeout) {
+        String topic = message.getHeaders().get(MqttHeaders.RECEIVED_TOPIC, String.class);
+        if (!guard.admit(topic)) {
+            return true;
+        }
+        return super.doSend(message, timeout);
+    }
+}
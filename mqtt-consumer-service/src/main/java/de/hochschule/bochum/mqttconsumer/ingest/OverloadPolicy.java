@@ -0,0 +1,25 @@
+package de.hochschule.bochum.mqttconsumer.ingest;
+
+import java.util.Locale;
+
+// Was passiert, wenn der Ingest-Rückstau über der High-Watermark liegt
+public enum OverloadPolicy {
+
+    // Paho-Thread wartet, bis wieder Platz ist (Gegendruck bis zum Broker)
+    BLOCK,
+    // Älteste wartende Nachricht verwerfen, die neue annehmen
+    DROP_OLDEST,
+    // Neue Nachricht verwerfen
+    DROP_NEWEST,
+    // Pro Topic nur noch jede N-te Nachricht annehmen
+    SAMPLE;
+
+    // Erlaubt die Schreibweise aus der application.yml, z.B. "drop-oldest"
+    public static OverloadPolicy fromProperty(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+
+    public String tagValue() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+}
@@ -0,0 +1,244 @@
+package de.hochschule.bochum.mqttconsumer.ingest;
+
+import de.hochschule.bochum.common.model.SiemensData;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Hier entscheide ich pro Siemens-Typ (IST, SOLL, DIFFERENZ), ob ein neuer Messwert überhaupt
+// gespeichert werden muss. Unveränderte Werte (vor allem SOLL) landen so nicht jedes Mal als neues
+// Dokument in MongoDB. Unabhängig vom Modus wird spätestens alle heartbeat-seconds ein Wert gespeichert,
+// damit "latest" nie beliebig alt wird.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SiemensCompressor {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ingest.compression.enabled:false}")
+    private boolean enabled;
+
+    @Value("${ingest.compression.heartbeat-seconds:60}")
+    private long heartbeatSeconds;
+
+    @Value("${ingest.compression.ist.mode:none}")
+    private String istMode;
+    @Value("${ingest.compression.ist.deviation:0.1}")
+    private double istDeviation;
+
+    @Value("${ingest.compression.soll.mode:none}")
+    private String sollMode;
+    @Value("${ingest.compression.soll.deviation:0.1}")
+    private double sollDeviation;
+
+    @Value("${ingest.compression.differenz.mode:none}")
+    private String differenzMode;
+    @Value("${ingest.compression.differenz.deviation:0.1}")
+    private double differenzDeviation;
+
+    // Wird nur in init() befüllt, danach nur noch gelesen
+    private final Map<String, TypeState> states = new HashMap<>();
+    private long heartbeatMillis;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        heartbeatMillis = TimeUnit.SECONDS.toMillis(heartbeatSeconds);
+        register("IST", istMode, istDeviation);
+        register("SOLL", sollMode, sollDeviation);
+        register("DIFFERENZ", differenzMode, differenzDeviation);
+        log.info("Kompression aktiv (Heartbeat {} s): IST={}, SOLL={}, DIFFERENZ={}",
+                heartbeatSeconds, istMode, sollMode, differenzMode);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Nimmt einen neuen Messwert an und liefert die Dokumente, die jetzt gespeichert werden sollen
+    // (meist keins oder eins). Bei Swinging-Door ist das ein früherer, bisher zurückgehaltener Wert.
+    public List<SiemensData> offer(SiemensData data, double value, long timeMillis) {
+        TypeState state = enabled ? states.get(data.getType()) : null;
+        if (state == null) {
+            return List.of(data);
+        }
+        return state.offer(data, value, timeMillis);
+    }
+
+    // Merkt sich den Zustand aller Typen; die zurückgegebene Aktion stellt ihn wieder her
+    // (JournalReplayer, wenn ein Batch wiederholt werden muss)
+    public Runnable checkpoint() {
+        List<Runnable> restores = states.values().stream().map(TypeState::checkpoint).toList();
+        return () -> restores.forEach(Runnable::run);
+    }
+
+    private void register(String type, String mode, double deviation) {
+        if (deviation < 0) {
+            throw new IllegalArgumentException("ingest.compression deviation must be >= 0 for " + type);
+        }
+        TypeState state = new TypeState(CompressionMode.fromProperty(mode), deviation,
+                meterRegistry.counter("mqtt.compression.received", "type", type),
+                meterRegistry.counter("mqtt.compression.stored", "type", type));
+        Gauge.builder("mqtt.compression.ratio", state, TypeState::ratio)
+                .description("Empfangene pro gespeicherte Messwerte")
+                .tag("type", type)
+                .register(meterRegistry);
+        states.put(type, state);
+    }
+
+    // Zustand pro Typ: zuletzt gespeicherter Punkt und (bei Swinging-Door) der zurückgehaltene Punkt
+    // samt aktueller Türöffnung. Der Test-Topic erzeugt Werte auf einem anderen Thread, deshalb mit Lock.
+    private final class TypeState {
+
+        private final CompressionMode mode;
+        private final double deviation;
+        private final Counter received;
+        private final Counter stored;
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private SiemensData archived;
+        private double archivedValue;
+        private long archivedTime;
+
+        private SiemensData held;
+        private double heldValue;
+        private long heldTime;
+        // Steigungsgrenzen der "Tür" ab dem gespeicherten Punkt
+        private double upperSlope;
+        private double lowerSlope;
+
+        private TypeState(CompressionMode mode, double deviation, Counter received, Counter stored) {
+            this.mode = mode;
+            this.deviation = deviation;
+            this.received = received;
+            this.stored = stored;
+        }
+
+        private List<SiemensData> offer(SiemensData data, double value, long time) {
+            received.increment();
+            List<SiemensData> result;
+            lock.lock();
+            try {
+                result = decide(data, value, time);
+            } finally {
+                lock.unlock();
+            }
+            stored.increment(result.size());
+            return result;
+        }
+
+        private List<SiemensData> decide(SiemensData data, double value, long time) {
+            // Erster Wert und Heartbeat werden immer gespeichert
+            if (archived == null || time - archivedTime >= heartbeatMillis) {
+                // Ein zurückgehaltener Swinging-Door-Punkt geht vorher raus, sonst fehlt das Ende der letzten Tür
+                SiemensData pending = held;
+                archive(data, value, time);
+                return pending != null ? List.of(pending, data) : List.of(data);
+            }
+            return switch (mode) {
+                case NONE -> {
+                    archive(data, value, time);
+                    yield List.of(data);
+                }
+                case DEADBAND -> deadband(data, value, time, deviation);
+                case DEADBAND_RELATIVE -> deadband(data, value, time, deviation * Math.abs(archivedValue));
+                case SWINGING_DOOR -> swingingDoor(data, value, time);
+            };
+        }
+
+        private List<SiemensData> deadband(SiemensData data, double value, long time, double limit) {
+            if (Math.abs(value - archivedValue) <= limit) {
+                return List.of();
+            }
+            archive(data, value, time);
+            return List.of(data);
+        }
+
+        private List<SiemensData> swingingDoor(SiemensData data, double value, long time) {
+            // Zwei Werte in derselben Millisekunde: mit 1 ms rechnen statt durch 0 zu teilen
+            double dt = Math.max(time - archivedTime, 1);
+            double upper = Math.min(upperSlope, (value + deviation - archivedValue) / dt);
+            double lower = Math.max(lowerSlope, (value - deviation - archivedValue) / dt);
+            if (upper >= lower || held == null) {
+                upperSlope = upper;
+                lowerSlope = lower;
+                hold(data, value, time);
+                return List.of();
+            }
+            // Tür geschlossen: Der letzte noch passende Punkt wird gespeichert,
+            // ab ihm beginnt mit dem aktuellen Wert eine neue Tür
+            SiemensData toStore = held;
+            archive(held, heldValue, heldTime);
+            double newDt = Math.max(time - archivedTime, 1);
+            upperSlope = (value + deviation - archivedValue) / newDt;
+            lowerSlope = (value - deviation - archivedValue) / newDt;
+            hold(data, value, time);
+            return List.of(toStore);
+        }
+
+        private void archive(SiemensData data, double value, long time) {
+            archived = data;
+            archivedValue = value;
+            archivedTime = time;
+            held = null;
+            upperSlope = Double.POSITIVE_INFINITY;
+            lowerSlope = Double.NEGATIVE_INFINITY;
+        }
+
+        private void hold(SiemensData data, double value, long time) {
+            held = data;
+            heldValue = value;
+            heldTime = time;
+        }
+
+        private Runnable checkpoint() {
+            lock.lock();
+            try {
+                SiemensData savedArchived = archived;
+                double savedArchivedValue = archivedValue;
+                long savedArchivedTime = archivedTime;
+                SiemensData savedHeld = held;
+                double savedHeldValue = heldValue;
+                long savedHeldTime = heldTime;
+                double savedUpperSlope = upperSlope;
+                double savedLowerSlope = lowerSlope;
+                return () -> {
+                    lock.lock();
+                    try {
+                        archived = savedArchived;
+                        archivedValue = savedArchivedValue;
+                        archivedTime = savedArchivedTime;
+                        held = savedHeld;
+                        heldValue = savedHeldValue;
+                        heldTime = savedHeldTime;
+                        upperSlope = savedUpperSlope;
+                        lowerSlope = savedLowerSlope;
+                    } finally {
+                        lock.unlock();
+                    }
+                };
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private double ratio() {
+            double storedCount = stored.count();
+            return storedCount == 0 ? 0 : received.count() / storedCount;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package de.hochschule.bochum.mqttconsumer.ingest;
+
+import de.hochschule.bochum.common.concurrent.BackgroundThreads;
+import de.hochschule.bochum.common.model.SiemensSnapshot;
+import de.hochschule.bochum.mqttconsumer.repository.MqttSiemensSnapshotRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Hier führe ich die drei Siemens-Topics (IST, SOLL, DIFFERENZ) zu einem Snapshot-Dokument zusammen.
+// Ein Snapshot sammelt alle Werte, die innerhalb von window-ms nach dem ersten Wert ankommen.
+// Sind alle drei da, wird er sofort gespeichert. Sonst endet er, wenn das Fenster abläuft oder ein Typ
+// zum zweiten Mal kommt; dann wird er je nach write-partial als unvollständiger Snapshot gespeichert oder verworfen.
+// Fenster und Zeitstempel rechnen mit dem Empfangszeitpunkt der Werte, damit nachgeholte Journal-Einträge
+// genauso zusammengefasst werden wie live empfangene.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SiemensSnapshotAggregator {
+
+    private static final int TYPE_COUNT = 3;
+
+    private final MqttSiemensSnapshotRepository snapshotRepository;
+    private final WriteBehindBuffer writeBuffer;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ingest.snapshot.enabled:false}")
+    private boolean enabled;
+
+    @Value("${ingest.snapshot.window-ms:1000}")
+    private long windowMs;
+
+    // Unvollständige Snapshots nach Ablauf des Fensters trotzdem speichern (fehlende Werte bleiben null)
+    @Value("${ingest.snapshot.write-partial:true}")
+    private boolean writePartial;
+
+    // Offener Snapshot; die drei Topics laufen in verschiedenen Stripes, deshalb mit Lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private SiemensSnapshot open;
+    private int openCount;
+    private long openedAt;
+    // Empfangszeit des jüngsten Werts und wann er angenommen wurde: daraus rechnet der Timer die aktuelle Empfangszeit
+    private long lastReceivedAt;
+    private long lastOfferedAt;
+
+    // Hintergrund-Thread virtuell, wenn die ganze Anwendung auf virtuellen Threads läuft
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private volatile ScheduledExecutorService timer;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        if (windowMs <= 0) {
+            throw new IllegalArgumentException("ingest.snapshot.window-ms must be > 0");
+        }
+        // Der Timer schließt Snapshots, bei denen nach Fensterende kein weiterer Wert mehr kommt
+        timer = BackgroundThreads.newScheduler("siemens-snapshot-timer", virtualThreads);
+        long period = Math.max(windowMs / 2, 10);
+        timer.scheduleWithFixedDelay(this::expireQuietly, period, period, TimeUnit.MILLISECONDS);
+        log.info("Siemens-Snapshots aktiv: Fenster {} ms, unvollständige {}", windowMs,
+                writePartial ? "werden gespeichert" : "werden verworfen");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Nimmt einen Siemens-Wert mit seinem Empfangszeitpunkt an; fertige Snapshots werden direkt gespeichert
+    public void offer(String type, double value, long receivedAt) {
+        if (!enabled) {
+            return;
+        }
+        List<SiemensSnapshot> closed = new ArrayList<>(2);
+        lock.lock();
+        try {
+            // Fenster abgelaufen oder Typ schon belegt: Der offene Snapshot gehört zu einem früheren Zyklus
+            lastReceivedAt = receivedAt;
+            lastOfferedAt = System.currentTimeMillis();
+            if (open != null && (receivedAt - openedAt > windowMs || open.has(type))) {
+                closed.add(close());
+            }
+            if (open == null) {
+                open = new SiemensSnapshot();
+                openCount = 0;
+                openedAt = receivedAt;
+            }
+            open.set(type, value);
+            open.setTimestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(receivedAt), ZoneId.systemDefault()));
+            openCount++;
+            if (openCount == TYPE_COUNT) {
+                closed.add(close());
+            }
+        } finally {
+            lock.unlock();
+        }
+        closed.forEach(this::store);
+    }
+
+    // Schließt einen offenen Snapshot, dessen Fenster (gemessen in Empfangszeit) abgelaufen ist
+    void expire(long nowMillis) {
+        SiemensSnapshot closed = null;
+        lock.lock();
+        try {
+            if (open != null && nowMillis - openedAt > windowMs) {
+                closed = close();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (closed != null) {
+            store(closed);
+        }
+    }
+
+    // Merkt sich den offenen Snapshot; die zurückgegebene Aktion stellt ihn wieder her
+    // (JournalReplayer, wenn ein Batch wiederholt werden muss)
+    public Runnable checkpoint() {
+        lock.lock();
+        try {
+            SiemensSnapshot savedOpen = copyOf(open);
+            int savedCount = openCount;
+            long savedOpenedAt = openedAt;
+            long savedReceivedAt = lastReceivedAt;
+            long savedOfferedAt = lastOfferedAt;
+            return () -> {
+                lock.lock();
+                try {
+                    open = copyOf(savedOpen);
+                    openCount = savedCount;
+                    openedAt = savedOpenedAt;
+                    lastReceivedAt = savedReceivedAt;
+                    lastOfferedAt = savedOfferedAt;
+                } finally {
+                    lock.unlock();
+                }
+            };
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static SiemensSnapshot copyOf(SiemensSnapshot snapshot) {
+        if (snapshot == null) {
+            return null;
+        }
+        SiemensSnapshot copy = new SiemensSnapshot();
+        copy.setTimestamp(snapshot.getTimestamp());
+        copy.setIstTemperatur(snapshot.getIstTemperatur());
+        copy.setSollTemperatur(snapshot.getSollTemperatur());
+        copy.setDifferenzTemperatur(snapshot.getDifferenzTemperatur());
+        return copy;
+    }
+
+    // Muss unter dem Lock aufgerufen werden
+    private SiemensSnapshot close() {
+        SiemensSnapshot snapshot = open;
+        snapshot.setComplete(openCount == TYPE_COUNT);
+        open = null;
+        return snapshot;
+    }
+
+    private void store(SiemensSnapshot snapshot) {
+        if (!snapshot.isComplete() && !writePartial) {
+            meterRegistry.counter("mqtt.snapshot.dropped").increment();
+            log.debug("SIEMENS SNAPSHOT unvollständig verworfen: {}", snapshot);
+            return;
+        }
+        meterRegistry.counter("mqtt.snapshot.written", "complete", String.valueOf(snapshot.isComplete())).increment();
+        if (writeBuffer.isEnabled()) {
+            writeBuffer.add(snapshot);
+            log.debug("SIEMENS SNAPSHOT BUFFERED: {}", snapshot);
+            return;
+        }
+        try {
+            snapshotRepository.save(snapshot);
+        } catch (DuplicateKeyException e) {
+            log.debug("SIEMENS SNAPSHOT bereits gespeichert");
+            return;
+        }
+        log.info("SIEMENS SNAPSHOT SAVED! Ist: {}, Soll: {}, Differenz: {}, vollständig: {}",
+                snapshot.getIstTemperatur(), snapshot.getSollTemperatur(),
+                snapshot.getDifferenzTemperatur(), snapshot.isComplete());
+    }
+
+    private void expireQuietly() {
+        try {
+            // Empfangszeit des letzten Werts plus die seitdem vergangene Zeit; live ist das die Uhrzeit,
+            // beim Nachholen schließt der Timer so keine Snapshots, nur weil die Werte alt sind
+            long receivedClock;
+            lock.lock();
+            try {
+                receivedClock = lastReceivedAt + (System.currentTimeMillis() - lastOfferedAt);
+            } finally {
+                lock.unlock();
+            }
+            expire(receivedClock);
+        } catch (Exception e) {
+            log.error("X Siemens-Snapshot konnte nicht gespeichert werden", e);
+        }
+    }
+
+    // Beim Herunterfahren den offenen Snapshot noch wegschreiben (vor dem Drain des Write-Behind-Puffers)
+    @PreDestroy
+    public void stop() {
+        ScheduledExecutorService current = timer;
+        if (current == null) {
+            return;
+        }
+        timer = null;
+        current.shutdownNow();
+        expire(Long.MAX_VALUE);
+    }
+}
@@ -0,0 +1,51 @@
+package de.hochschule.bochum.mqttconsumer.ingest;
+
+import org.springframework.integration.channel.AbstractSubscribableChannel;
+import org.springframework.integration.dispatcher.AbstractDispatcher;
+import org.springframework.integration.dispatcher.MessageDispatcher;
+import org.springframework.integration.mqtt.support.MqttHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+
+// Channel, der jede Nachricht anhand ihres Topics an den StripedIngestExecutor übergibt.
+// Der Paho-Thread kehrt damit sofort zurück, Parsing und Mongo-I/O laufen im Stripe.
+// Vor dem Einreihen entscheidet der IngestOverloadGuard, ob die Nachricht angenommen wird.
+public class StripedIngestChannel extends AbstractSubscribableChannel {
+
+    private final StripedDispatcher dispatcher;
+
+    public StripedIngestChannel(StripedIngestExecutor executor, IngestOverloadGuard guard) {
+        this.dispatcher = new StripedDispatcher(executor, guard);
+    }
+
+    @Override
+    protected MessageDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    private static final class StripedDispatcher extends AbstractDispatcher {
+
+        private final StripedIngestExecutor executor;
+        private final IngestOverloadGuard guard;
+
+        private StripedDispatcher(StripedIngestExecutor executor, IngestOverloadGuard guard) {
+            this.executor = executor;
+            this.guard = guard;
+        }
+
+        @Override
+        public boolean dispatch(Message<?> message) {
+            String topic = message.getHeaders().get(MqttHeaders.RECEIVED_TOPIC, String.class);
+            if (!guard.admit(topic)) {
+                // Verworfen, für den Adapter aber zugestellt (keine Exception auf dem Paho-Thread)
+                return true;
+            }
+            executor.execute(topic, () -> {
+                for (MessageHandler handler : getHandlers()) {
+                    handler.handleMessage(message);
+                }
+            });
+            return true;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package de.hochschule.bochum.mqttconsumer.ingest;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Hier verteile ich die Verarbeitung der MQTT-Nachrichten auf mehrere "Stripes".
+// Jeder Stripe hat eine eigene begrenzte Queue und einen eigenen virtuellen Thread:
+// Nachrichten mit demselben Schlüssel (Topic) landen immer im selben Stripe und bleiben
+// dadurch in Reihenfolge, verschiedene Topics laufen parallel.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "ingest.execution.mode", havingValue = "striped")
+public class StripedIngestExecutor implements SmartLifecycle {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ingest.execution.stripes:8}")
+    private int stripeCount;
+
+    @Value("${ingest.execution.queue-capacity:1000}")
+    private int queueCapacity;
+
+    private final List<BlockingQueue<Task>> queues = new ArrayList<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    @Override
+    public void start() {
+        for (int i = 0; i < stripeCount; i++) {
+            BlockingQueue<Task> queue = new ArrayBlockingQueue<>(queueCapacity);
+            queues.add(queue);
+            Gauge.builder("mqtt.ingest.queue.depth", queue, BlockingQueue::size)
+                    .description("Anzahl wartender Nachrichten pro Stripe")
+                    .tag("stripe", String.valueOf(i))
+                    .register(meterRegistry);
+        }
+        running = true;
+        for (int i = 0; i < stripeCount; i++) {
+            BlockingQueue<Task> queue = queues.get(i);
+            workers.add(Thread.ofVirtual().name("ingest-stripe-" + i).start(() -> work(queue)));
+        }
+        log.info("Striped Ingest aktiv: {} Stripes, Queue-Kapazität {}", stripeCount, queueCapacity);
+    }
+
+    // Reiht eine Aufgabe in den Stripe ihres Schlüssels ein; ist die Queue voll, wartet der Aufrufer
+    public void execute(String key, Runnable task) {
+        if (!running) {
+            throw new IllegalStateException("Striped ingest executor is not running");
+        }
+        try {
+            queues.get(stripeOf(key)).put(new Task(key, task));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for ingest queue", e);
+        }
+    }
+
+    // Verwirft die älteste wartende Aufgabe im Stripe dieses Schlüssels (für "drop-oldest").
+    // Liefert den Schlüssel der verworfenen Aufgabe oder null, wenn der Stripe leer war.
+    public String evictOldest(String key) {
+        Task evicted = queues.get(stripeOf(key)).poll();
+        return evicted == null ? null : evicted.key();
+    }
+
+    // Gesamtzahl aller wartenden Nachrichten über alle Stripes (der "Ingest-Rückstau")
+    public int getBacklog() {
+        int backlog = 0;
+        for (BlockingQueue<Task> queue : queues) {
+            backlog += queue.size();
+        }
+        return backlog;
+    }
+
+    int stripeOf(String key) {
+        return Math.floorMod(key == null ? 0 : key.hashCode(), stripeCount);
+    }
+
+    private void work(BlockingQueue<Task> queue) {
+        // Auch nach stop() wird die Queue noch leer gearbeitet, damit nichts verloren geht
+        while (running || !queue.isEmpty()) {
+            try {
+                Task task = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (task != null) {
+                    task.runnable().run();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("X Fehler in {}", Thread.currentThread().getName(), e);
+            }
+        }
+    }
+
+    // Der Schlüssel wird mitgeführt, damit verworfene Aufgaben dem richtigen Topic zugeordnet werden können
+    private record Task(String key, Runnable runnable) {
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        for (Thread worker : workers) {
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        workers.clear();
+        log.info("Striped Ingest gestoppt, Rest-Backlog: {}", getBacklog());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Stoppt nach dem MQTT-Inbound-Adapter (Integer.MAX_VALUE / 2), aber vor dem Write-Behind-Drain
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE / 4;
+    }
+}
@@ -0,0 +1,18 @@
+package de.hochschule.bochum.mqttconsumer.ingest;
+
+import java.util.Locale;
+
+// Wie der Wago-Status gespeichert wird
+public enum WagoStorageMode {
+
+    // Jede Nachricht als vollständiges WagoData-Dokument (bisheriges Verhalten)
+    FULL,
+    // Nur Wechsel als WagoTransition (Zeitpunkt, geänderte Bits, neues Wort)
+    TRANSITIONS,
+    // Beides, z.B. während der Umstellung
+    BOTH;
+
+    public static WagoStorageMode fromProperty(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+}
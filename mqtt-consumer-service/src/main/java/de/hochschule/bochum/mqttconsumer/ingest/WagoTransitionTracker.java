@@ -0,0 +1,99 @@
+package de.hochschule.bochum.mqttconsumer.ingest;
+
+import de.hochschule.bochum.common.model.WagoTransition;
+import de.hochschule.bochum.mqttconsumer.repository.MqttWagoTransitionRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Hier merke ich mir das zuletzt gesehene Wago-Statuswort und erzeuge nur dann einen Eintrag,
+// wenn sich mindestens ein Bit geändert hat. Das Lampenwort ändert sich selten, dadurch fallen
+// die meisten Wago-Schreibzugriffe weg.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WagoTransitionTracker {
+
+    private final MqttWagoTransitionRepository transitionRepository;
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${ingest.wago.storage:full}")
+    private String storageModeName;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private WagoStorageMode storageMode;
+    // null = vorheriger Status unbekannt (nächster Eintrag wird ein vollständiger Startpunkt)
+    private Integer lastStatus;
+
+    @PostConstruct
+    public void init() {
+        storageMode = WagoStorageMode.fromProperty(storageModeName);
+        if (!isStoringTransitions()) {
+            return;
+        }
+        try {
+            // Index für die Verlaufsabfragen der REST-API (Zustand zu einem Zeitpunkt, Zeiträume)
+            mongoTemplate.indexOps(WagoTransition.class)
+                    .ensureIndex(new Index().on("timestamp", Sort.Direction.ASC));
+            // Nach einem Neustart weiter vom zuletzt gespeicherten Stand aus vergleichen
+            lastStatus = transitionRepository.findTopByOrderByTimestampDesc()
+                    .map(WagoTransition::getStatus)
+                    .orElse(null);
+        } catch (RuntimeException e) {
+            log.warn("! Letzter Wago-Wechsel konnte nicht geladen werden, starte mit vollständigem Eintrag: {}", e.getMessage());
+        }
+        log.info("Wago-Speicherung: {} (letzter bekannter Status {})", storageMode, lastStatus);
+    }
+
+    public boolean isStoringFull() {
+        return storageMode != WagoStorageMode.TRANSITIONS;
+    }
+
+    public boolean isStoringTransitions() {
+        return storageMode != WagoStorageMode.FULL;
+    }
+
+    // Liefert einen neuen Wechsel (gültig ab timestamp) oder null, wenn sich nichts geändert hat
+    public WagoTransition track(int status, LocalDateTime timestamp) {
+        if (!isStoringTransitions()) {
+            return null;
+        }
+        int changedMask;
+        lock.lock();
+        try {
+            changedMask = lastStatus == null ? WagoTransition.FULL_MASK : lastStatus ^ status;
+            lastStatus = status;
+        } finally {
+            lock.unlock();
+        }
+        return changedMask == 0 ? null : new WagoTransition(status, changedMask, timestamp);
+    }
+
+    // Merkt sich den aktuellen Vergleichsstand; die zurückgegebene Aktion stellt ihn wieder her
+    // (JournalReplayer, wenn ein Batch wiederholt werden muss)
+    public Runnable checkpoint() {
+        Integer saved;
+        lock.lock();
+        try {
+            saved = lastStatus;
+        } finally {
+            lock.unlock();
+        }
+        return () -> {
+            lock.lock();
+            try {
+                lastStatus = saved;
+            } finally {
+                lock.unlock();
+            }
+        };
+    }
+}
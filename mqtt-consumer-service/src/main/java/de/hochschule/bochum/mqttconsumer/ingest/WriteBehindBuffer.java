@@ -0,0 +1,253 @@
+package de.hochschule.bochum.mqttconsumer.ingest;
+
+import de.hochschule.bochum.common.concurrent.BackgroundThreads;
+import de.hochschule.bochum.common.model.SiemensData;
+import de.hochschule.bochum.common.model.SiemensSnapshot;
+import de.hochschule.bochum.common.model.WagoData;
+import de.hochschule.bochum.common.model.WagoTransition;
+import de.hochschule.bochum.mqttconsumer.storage.SiemensBucketWriter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Hier sammle ich die empfangenen Messwerte und schreibe sie gebündelt per Bulk-Insert in MongoDB,
+// statt für jede MQTT-Nachricht einzeln save() aufzurufen (Write-Behind).
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WriteBehindBuffer {
+
+    // MongoDB-Fehlercode für "duplicate key" (Unique-Index der Deduplizierung)
+    private static final int DUPLICATE_KEY = 11000;
+
+    // Diese Dokumenttypen darf der Puffer aufnehmen
+    private static final Set<Class<?>> SUPPORTED_TYPES = Set.of(
+            WagoData.class, SiemensData.class, WagoTransition.class, SiemensSnapshot.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final MeterRegistry meterRegistry;
+    private final SiemensBucketWriter bucketWriter;
+
+    // Einstellungen aus der application.yml (Schwellwerte für Größe und Zeit)
+    @Value("${ingest.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${ingest.write-behind.max-batch-size:500}")
+    private int maxBatchSize;
+
+    @Value("${ingest.write-behind.flush-interval-ms:50}")
+    private long flushIntervalMs;
+
+    // Die Queue nimmt alle Dokumenttypen gemischt auf, getrennt wird erst beim Flush
+    private final Queue<Object> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    // Flushes laufen nie parallel: wer flush() aufruft, wartet auf einen laufenden Flush
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicLong failedFlushes = new AtomicLong();
+
+    // Hintergrund-Thread virtuell, wenn die ganze Anwendung auf virtuellen Threads läuft
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private volatile ScheduledExecutorService flusher;
+    private DistributionSummary flushSize;
+    private Timer flushLatency;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        flushSize = DistributionSummary.builder("mqtt.persistence.flush.size")
+                .description("Anzahl Dokumente pro Bulk-Insert")
+                .register(meterRegistry);
+        flushLatency = Timer.builder("mqtt.persistence.flush.latency")
+                .description("Dauer eines Bulk-Inserts")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        meterRegistry.gauge("mqtt.persistence.buffer.pending", pendingCount);
+
+        // Ein einzelner Thread übernimmt alle Flushes, damit sich zwei Bulk-Inserts nie überholen
+        flusher = BackgroundThreads.newScheduler("write-behind-flusher", virtualThreads);
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Write-Behind aktiv: maxBatchSize={}, flushIntervalMs={}", maxBatchSize, flushIntervalMs);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Anzahl der Dokumente, die noch auf den nächsten Flush warten
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    // Nimmt einen Messwert an; ist die Batch-Größe erreicht, wird sofort ein Flush angestoßen
+    public void add(Object data) {
+        if (!SUPPORTED_TYPES.contains(data.getClass())) {
+            throw new IllegalArgumentException("Unsupported data type: " + data.getClass().getName());
+        }
+        pending.add(data);
+        ScheduledExecutorService current = flusher;
+        if (pendingCount.incrementAndGet() >= maxBatchSize
+                && current != null
+                && flushRequested.compareAndSet(false, true)) {
+            current.execute(this::flushQuietly);
+        }
+    }
+
+    // Verwirft das älteste noch nicht geschriebene Dokument (für die Overload-Policy "drop-oldest").
+    // Liefert das Dokument oder null, wenn nichts mehr wartet.
+    public Object evictOldest() {
+        Object evicted = pending.poll();
+        if (evicted != null) {
+            pendingCount.decrementAndGet();
+        }
+        return evicted;
+    }
+
+    // Merkt sich, was gerade wartet; die zurückgegebene Aktion verwirft alles, was danach dazugekommen ist
+    // und noch nicht geschrieben wurde (JournalReplayer, wenn ein Batch wiederholt werden muss)
+    public Runnable checkpoint() {
+        Set<Object> before = Collections.newSetFromMap(new IdentityHashMap<>());
+        before.addAll(pending);
+        return () -> {
+            List<Object> added = pending.stream().filter(data -> !before.contains(data)).toList();
+            for (Object data : added) {
+                if (pending.remove(data)) {
+                    pendingCount.decrementAndGet();
+                }
+            }
+        };
+    }
+
+    // Anzahl fehlgeschlagener Hintergrund-Flushes (der JournalReplayer erkennt daran verlorene Batches)
+    public long getFailedFlushCount() {
+        return failedFlushes.get();
+    }
+
+    // Schreibt alles, was gerade in der Queue liegt, in Batches von maxBatchSize weg
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushRequested.set(false);
+            flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushPending() {
+        while (!pending.isEmpty()) {
+            // Pro Dokumenttyp (= Collection) ein eigener Batch
+            Map<Class<?>, List<Object>> batches = new LinkedHashMap<>();
+            Object next;
+            int drained = 0;
+            while (drained < maxBatchSize && (next = pending.poll()) != null) {
+                batches.computeIfAbsent(next.getClass(), type -> new ArrayList<>()).add(next);
+                drained++;
+            }
+            pendingCount.addAndGet(-drained);
+            writeBatch(batches, drained);
+        }
+    }
+
+    private void writeBatch(Map<Class<?>, List<Object>> batches, int size) {
+        long start = System.nanoTime();
+        // UNORDERED: Mongo darf die Inserts parallel abarbeiten und bricht bei einem Fehler nicht ab
+        batches.forEach(this::writeCollection);
+        if (flushSize != null) {
+            flushSize.record(size);
+            flushLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (log.isDebugEnabled()) {
+            batches.forEach((type, batch) ->
+                    log.debug("Write-Behind Flush: {} {} Dokumente", batch.size(), type.getSimpleName()));
+        }
+    }
+
+    // Siemens-Werte gehen je nach storage.siemens.layout als Dokumente, in die Stunden-Buckets oder beides
+    private void writeCollection(Class<?> type, List<?> batch) {
+        if (type == SiemensData.class) {
+            if (bucketWriter.isWritingBuckets()) {
+                bucketWriter.appendAll(batch);
+            }
+            if (!bucketWriter.isWritingDocuments()) {
+                return;
+            }
+        }
+        insertIgnoringDuplicates(type, batch);
+    }
+
+    // Bei aktivem Unique-Index lehnt MongoDB bereits gespeicherte Dokumente ab; das ist gewollt.
+    // Alle anderen Dokumente des Batches sind trotzdem geschrieben (UNORDERED), nur echte Fehler werden weitergereicht.
+    private void insertIgnoringDuplicates(Class<?> type, List<?> batch) {
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, type)
+                    .insert(batch)
+                    .execute();
+        } catch (BulkOperationException e) {
+            boolean onlyDuplicates = e.getErrors().stream().allMatch(error -> error.getCode() == DUPLICATE_KEY);
+            if (!onlyDuplicates) {
+                throw e;
+            }
+            meterRegistry.counter("mqtt.persistence.duplicates").increment(e.getErrors().size());
+            log.debug("Write-Behind: {} doppelte {} Dokumente übersprungen", e.getErrors().size(), type.getSimpleName());
+        }
+    }
+
+    // Variante für den Scheduler: Fehler werden geloggt, damit der Flush-Thread weiterläuft
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            failedFlushes.incrementAndGet();
+            meterRegistry.counter("mqtt.persistence.flush.failed").increment();
+            log.error("X Write-Behind Flush fehlgeschlagen", e);
+        }
+    }
+
+    // Beim Herunterfahren werden alle noch gepufferten Werte geschrieben
+    @PreDestroy
+    public void drain() {
+        ScheduledExecutorService current = flusher;
+        if (current == null) {
+            return;
+        }
+        flusher = null;
+        current.shutdown();
+        try {
+            current.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Write-Behind: schreibe {} verbleibende Dokumente vor dem Shutdown", pendingCount.get());
+        flushQuietly();
+    }
+}
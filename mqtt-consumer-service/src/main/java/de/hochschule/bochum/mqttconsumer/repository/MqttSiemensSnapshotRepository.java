@@ -0,0 +1,10 @@
+package de.hochschule.bochum.mqttconsumer.repository;
+
+import de.hochschule.bochum.common.model.SiemensSnapshot;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+// Hier speichere ich die zusammengeführten Siemens-Snapshots (IST, SOLL, DIFFERENZ in einem Dokument)
+@Repository
+public interface MqttSiemensSnapshotRepository extends MongoRepository<SiemensSnapshot, String> {
+}
@@ -0,0 +1,13 @@
+package de.hochschule.bochum.mqttconsumer.repository;
+
+import de.hochschule.bochum.common.model.WagoTransition;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+import java.util.Optional;
+
+// Hier speichere ich die Statuswechsel der Wago-SPS (nur Änderungen, nicht jede Nachricht)
+@Repository
+public interface MqttWagoTransitionRepository extends MongoRepository<WagoTransition, String> {
+    // Letzter gespeicherter Wechsel – daraus kenne ich nach einem Neustart den aktuellen Status
+    Optional<WagoTransition> findTopByOrderByTimestampDesc();
+}
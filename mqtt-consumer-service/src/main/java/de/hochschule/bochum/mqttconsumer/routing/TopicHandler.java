@@ -0,0 +1,12 @@
+package de.hochschule.bochum.mqttconsumer.routing;
+
+// Ein TopicHandler verarbeitet die rohe Payload genau eines MQTT-Topics.
+// Die Payload kommt als byte[] direkt von Paho, ohne Umweg über einen String.
+@FunctionalInterface
+public interface TopicHandler {
+
+    // Wirft NumberFormatException, wenn die Payload nicht zum Topic passt.
+    // receivedAt ist der Empfangszeitpunkt in Millisekunden (beim Nachholen aus dem Journal der ursprüngliche).
+    // dedupKey ist null, solange kein Unique-Index für die Deduplizierung verwendet wird.
+    void handle(byte[] payload, long receivedAt, String dedupKey);
+}
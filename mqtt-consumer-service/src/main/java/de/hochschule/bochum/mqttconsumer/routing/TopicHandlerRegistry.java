@@ -0,0 +1,107 @@
+package de.hochschule.bochum.mqttconsumer.routing;
+
+import de.hochschule.bochum.common.model.SiemensData;
+import de.hochschule.bochum.common.model.WagoData;
+import de.hochschule.bochum.common.model.WagoTransition;
+import de.hochschule.bochum.common.mqtt.PayloadParser;
+import de.hochschule.bochum.mqttconsumer.ingest.IngestSink;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Hier baue ich beim Start einmalig die Zuordnung Topic -> TopicHandler aus den mqtt.topics.* Properties.
+// Zur Laufzeit ist das Routing dann nur noch ein HashMap-Lookup statt einer equals-Kette.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TopicHandlerRegistry {
+
+    private final IngestSink sink;
+
+    @Value("${mqtt.topics.wago.status}")
+    private String wagoStatusTopic;
+
+    @Value("${mqtt.topics.siemens.ist}")
+    private String siemensIstTopic;
+
+    @Value("${mqtt.topics.siemens.soll}")
+    private String siemensSollTopic;
+
+    @Value("${mqtt.topics.siemens.differenz}")
+    private String siemensDifferenzTopic;
+
+    @Value("${mqtt.topics.test:Random/Integer}")
+    private String testTopic;
+
+    // Wird nur beim Start bzw. per register() ersetzt, Lesezugriffe brauchen daher keinen Lock
+    private volatile Map<String, TopicHandler> handlers = Map.of();
+    // ReentrantLock statt synchronized, damit ein virtueller Thread beim Registrieren nicht gepinnt wird
+    private final ReentrantLock registerLock = new ReentrantLock();
+
+    @PostConstruct
+    public void init() {
+        Map<String, TopicHandler> map = new HashMap<>();
+        map.put(wagoStatusTopic, (payload, receivedAt, dedupKey) ->
+                sink.acceptWagoStatus(PayloadParser.parseInt(payload), receivedAt, dedupKey));
+        map.put(siemensIstTopic, (payload, receivedAt, dedupKey) ->
+                sink.acceptSiemensTemperature(PayloadParser.parseDouble(payload), "IST", receivedAt, dedupKey));
+        map.put(siemensSollTopic, (payload, receivedAt, dedupKey) ->
+                sink.acceptSiemensTemperature(PayloadParser.parseDouble(payload), "SOLL", receivedAt, dedupKey));
+        map.put(siemensDifferenzTopic, (payload, receivedAt, dedupKey) ->
+                sink.acceptSiemensTemperature(PayloadParser.parseDouble(payload), "DIFFERENZ", receivedAt, dedupKey));
+        map.put(testTopic, this::handleTestData);
+        handlers = Map.copyOf(map);
+        log.info("TopicHandler registriert für: {}", handlers.keySet());
+    }
+
+    // Liefert den Handler für ein Topic oder null, wenn das Topic unbekannt ist
+    public TopicHandler find(String topic) {
+        return topic == null ? null : handlers.get(topic);
+    }
+
+    // Umkehrung des Routings: Zu welchem Topic gehört ein bereits erzeugtes Dokument?
+    // Wird gebraucht, wenn die Overload-Policy gepufferte Dokumente verwirft und pro Topic zählt.
+    public String topicOf(Object data) {
+        if (data instanceof WagoData || data instanceof WagoTransition) {
+            return wagoStatusTopic;
+        }
+        if (data instanceof SiemensData siemensData && siemensData.getType() != null) {
+            return switch (siemensData.getType()) {
+                case "IST" -> siemensIstTopic;
+                case "SOLL" -> siemensSollTopic;
+                case "DIFFERENZ" -> siemensDifferenzTopic;
+                default -> "unknown";
+            };
+        }
+        return "unknown";
+    }
+
+    // Erlaubt es, zusätzliche Topics einzuhängen (oder vorhandene zu ersetzen)
+    public void register(String topic, TopicHandler handler) {
+        registerLock.lock();
+        try {
+            Map<String, TopicHandler> map = new HashMap<>(handlers);
+            map.put(topic, handler);
+            handlers = Map.copyOf(map);
+        } finally {
+            registerLock.unlock();
+        }
+    }
+
+    // Hier greife ich auf Testdaten zurück, falls die SPS nicht erreichbar ist
+    private void handleTestData(byte[] payload, long receivedAt, String dedupKey) {
+        int value = PayloadParser.parseInt(payload);
+        sink.acceptWagoStatus(value, receivedAt, dedupKey);
+        // Dummy-Daten für Siemens generieren, damit auch das Frontend beim Testen was sieht
+        double randomTemp = value / 10.0;
+        sink.acceptSiemensTemperature(randomTemp + 20, "IST", receivedAt, dedupKey);
+        sink.acceptSiemensTemperature(25.0, "SOLL", receivedAt, dedupKey);
+        sink.acceptSiemensTemperature(randomTemp - 5, "DIFFERENZ", receivedAt, dedupKey);
+    }
+}
@@ -1,111 +1,135 @@
 package de.hochschule.bochum.mqttconsumer.service;
 
-import de.hochschule.bochum.common.model.SiemensData;
-import de.hochschule.bochum.common.model.WagoData;
-import de.hochschule.bochum.mqttconsumer.repository.MqttSiemensDataRepository;
-import de.hochschule.bochum.mqttconsumer.repository.MqttWagoDataRepository;
+import de.hochschule.bochum.mqttconsumer.ingest.IngestDeduplicator;
+import de.hochschule.bochum.mqttconsumer.ingest.IngestJournal;
+import de.hochschule.bochum.mqttconsumer.routing.TopicHandler;
+import de.hochschule.bochum.mqttconsumer.routing.TopicHandlerRegistry;
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.integration.annotation.MessageEndpoint;
 import org.springframework.integration.annotation.ServiceActivator;
+import org.springframework.integration.mqtt.support.MqttHeaders;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.handler.annotation.Header;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
 // Hier werden die MQTT-Nachrichten verarbeitet, die auf den konfigurierten Topics ankommen
 @Slf4j
 @MessageEndpoint
 @RequiredArgsConstructor
 public class MqttMessageHandler {
 
-    private final MqttWagoDataRepository wagoRepository;
-    private final MqttSiemensDataRepository siemensRepository;
+    private final TopicHandlerRegistry topicHandlers;
     private final MeterRegistry meterRegistry;
+    private final IngestJournal journal;
+    private final IngestDeduplicator deduplicator;
 
-    // Topics werden über die application.properties gesetzt
-    @Value("${mqtt.topics.wago.status}")
-    private String wagoStatusTopic;
-
-    @Value("${mqtt.topics.siemens.ist}")
-    private String siemensIstTopic;
+    // Wiederholungen, wenn das Anhängen ans Journal scheitert (z.B. kurz keine Schreibrechte)
+    @Value("${ingest.journal.append-retries:3}")
+    private int appendRetries = 3;
 
-    @Value("${mqtt.topics.siemens.soll}")
-    private String siemensSollTopic;
+    @Value("${ingest.journal.append-retry-ms:20}")
+    private long appendRetryMs = 20;
 
-    @Value("${mqtt.topics.siemens.differenz}")
-    private String siemensDifferenzTopic;
+    // Counter pro Topic werden einmal angelegt und dann wiederverwendet
+    private final Map<String, Counter> receivedCounters = new ConcurrentHashMap<>();
 
     // Diese Methode wird automatisch für jede empfangene MQTT-Nachricht aufgerufen
     @ServiceActivator(inputChannel = "mqttInputChannel")
     public void handleMessage(Message<?> message, @Header("mqtt_receivedTopic") String topic) {
-        String payload = message.getPayload().toString();
-        log.info("====================================");
-        log.info("MQTT MESSAGE RECEIVED!");
-        log.info("Topic: {}", topic);
-        log.info("Payload: {}", payload);
-        log.info("====================================");
+        byte[] payload = payloadBytes(message.getPayload());
+        if (log.isDebugEnabled()) {
+            // Den String baue ich nur, wenn er auch wirklich geloggt wird
+            log.debug("MQTT MESSAGE RECEIVED! Topic: {}, Payload: {}", topic, new String(payload, StandardCharsets.UTF_8));
+        }
 
         // Hier zähle ich die empfangenen Nachrichten für das Monitoring mit Micrometer mit
-        meterRegistry.counter("mqtt.messages.received", "topic", topic).increment();
+        receivedCounters.computeIfAbsent(topic,
+                t -> meterRegistry.counter("mqtt.messages.received", "topic", t)).increment();
+
+        // QoS-1-Wiederholungen werden vor Journal und Speicherung aussortiert
+        int messageId = messageId(message);
+        if (deduplicator.isDuplicate(topic, messageId, payload)) {
+            return;
+        }
+
+        if (journal.isEnabled()) {
+            // Erst ins Journal, dann bestätigt Paho die Nachricht; gespeichert wird nur durch den JournalReplayer.
+            // Direkt verarbeiten darf ich hier nicht: scheitert parallel ein Replay-Batch, nimmt sein Rollback
+            // auch diese Werte wieder aus den Puffern und Verarbeitungsstufen.
+            appendToJournal(topic, messageId, payload);
+            return;
+        }
 
         try {
-            // Je nach Topic leite ich die Nachricht an die passende Methode weiter
-            if (topic.equals(wagoStatusTopic)) {
-                handleWagoStatus(payload);
-            } else if (topic.equals(siemensIstTopic)) {
-                handleSiemensTemperature(payload, "IST");
-            } else if (topic.equals(siemensSollTopic)) {
-                handleSiemensTemperature(payload, "SOLL");
-            } else if (topic.equals(siemensDifferenzTopic)) {
-                handleSiemensTemperature(payload, "DIFFERENZ");
-            } else if (topic.equals("Random/Integer")) {
-                // Hier greife ich auf Testdaten zurück, falls die SPS nicht erreichbar ist
-                log.info("Using Random/Integer as test data");
-                handleWagoStatus(payload);
-                // Dummy-Daten für Siemens generieren, damit auch das Frontend beim Testen was sieht
-                Double randomTemp = Double.parseDouble(payload) / 10.0;
-                handleSiemensTemperature(String.valueOf(randomTemp + 20), "IST");
-                handleSiemensTemperature(String.valueOf(25.0), "SOLL");
-                handleSiemensTemperature(String.valueOf(randomTemp - 5), "DIFFERENZ");
-            } else {
-                log.warn("X Unknown topic: {}", topic);
-            }
+            process(topic, messageId, System.currentTimeMillis(), payload);
+        } catch (NumberFormatException e) {
+            log.error("X Invalid payload on topic {}: {}", topic, e.getMessage());
         } catch (Exception e) {
-            log.error("X Error processing message from topic {}: {}", topic, e.getMessage());
+            log.error("X Error processing message from topic {}", topic, e);
         }
     }
 
-    // Hier speichere ich den Status der Wago-SPS ab (und logge die Infos dazu)
-    private void handleWagoStatus(String payload) {
-        try {
-            // Manchmal sind Klammern um die Payload, die entferne ich hier
-            String cleanPayload = payload.trim().replaceAll("[\\[\\]]", "");
-            Integer status = Integer.parseInt(cleanPayload);
-            WagoData wagoData = new WagoData(status);
-            WagoData saved = wagoRepository.save(wagoData);
-            log.info("WAGO DATA SAVED!");
-            log.info("   Status: {}", status);
-            log.info("   Binary: {}", Integer.toBinaryString(status));
-            log.info("   ID: {}", saved.getId());
-            log.info("   Timestamp: {}", saved.getTimestamp());
-        } catch (NumberFormatException e) {
-            log.error("X Invalid Wago status format: {}", payload);
+    // Leitet die Payload an den passenden TopicHandler weiter. Fehler (z.B. MongoDB nicht erreichbar)
+    // werden hier bewusst nicht gefangen, damit der JournalReplayer den Eintrag erneut versuchen kann.
+    // receivedAt wird zum Zeitstempel der Dokumente und bildet (auf das Dedup-Fenster gerundet) mit messageId,
+    // Topic und Payload den dedupKey.
+    public void process(String topic, int messageId, long receivedAt, byte[] payload) {
+        TopicHandler handler = topicHandlers.find(topic);
+        if (handler == null) {
+            log.warn("X Unknown topic: {}", topic);
+            return;
         }
+        handler.handle(payload, receivedAt, deduplicator.documentKey(topic, messageId, receivedAt, payload));
     }
 
-    // Hier wird ein Temperaturwert für Siemens verarbeitet und in die Datenbank gespeichert
-    private void handleSiemensTemperature(String payload, String type) {
+    // Ein paar Versuche mit kurzer Pause; klappt es nicht, fliegt die Exception bis zu Paho durch
+    // und die Nachricht wird nicht bestätigt
+    private void appendToJournal(String topic, int messageId, byte[] payload) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                journal.append(topic, messageId, payload);
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= appendRetries || !pause(appendRetryMs)) {
+                    meterRegistry.counter("mqtt.journal.append.failed").increment();
+                    log.error("X Journal append failed for topic {} after {} attempts, message is not acknowledged",
+                            topic, attempt + 1, e);
+                    throw e;
+                }
+                log.warn("! Journal append failed for topic {}, retrying: {}", topic, e.getMessage());
+            }
+        }
+    }
+
+    private static boolean pause(long millis) {
         try {
-            Double temperature = Double.parseDouble(payload.trim());
-            SiemensData siemensData = new SiemensData(temperature, type);
-            SiemensData saved = siemensRepository.save(siemensData);
-            log.info("SIEMENS {} DATA SAVED!", type);
-            log.info("   Temperature: {}", temperature);
-            log.info("   ID: {}", saved.getId());
-            log.info("   Timestamp: {}", saved.getTimestamp());
-        } catch (NumberFormatException e) {
-            log.error("X Invalid Siemens temperature format: {}", payload);
+            TimeUnit.MILLISECONDS.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Paho setzt die MQTT-Message-ID als Header mqtt_id (bei QoS 0 ist sie 0)
+    private static int messageId(Message<?> message) {
+        Integer id = message.getHeaders().get(MqttHeaders.ID, Integer.class);
+        return id == null ? 0 : id;
+    }
+
+    // Paho liefert byte[] (payloadAsBytes), Tests und andere Quellen evtl. einen String
+    private static byte[] payloadBytes(Object payload) {
+        if (payload instanceof byte[] bytes) {
+            return bytes;
         }
+        return payload.toString().getBytes(StandardCharsets.UTF_8);
     }
 }
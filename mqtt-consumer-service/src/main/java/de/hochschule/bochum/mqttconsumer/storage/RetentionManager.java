@@ -0,0 +1,249 @@
+package de.hochschule.bochum.mqttconsumer.storage;
+
+import com.mongodb.client.result.DeleteResult;
+import de.hochschule.bochum.common.concurrent.BackgroundThreads;
+import de.hochschule.bochum.common.model.Rollup;
+import de.hochschule.bochum.common.model.RollupTier;
+import de.hochschule.bochum.common.model.SiemensData;
+import de.hochschule.bochum.common.model.SiemensHourBucket;
+import de.hochschule.bochum.common.model.SiemensSnapshot;
+import de.hochschule.bochum.common.model.WagoData;
+import de.hochschule.bochum.common.model.WagoTransition;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Hier sorge ich dafür, dass alte Messwerte wieder aus MongoDB verschwinden (Aufbewahrung pro Collection und Typ).
+// Rohdaten (siemens_data, wago_data, ...) bekommen beim Start einen TTL-Index auf ihr Zeitfeld, den Rest
+// erledigt MongoDB selbst. Time-Series-Collections haben keine TTL-Indizes, dort setze ich expireAfterSeconds per collMod.
+// Was ein einzelner TTL-Index nicht abbilden kann, räumt ein Hintergrund-Thread alle compaction-interval-minutes ab:
+// kürzere Fristen einzelner Siemens-Typen und die Stufen der Rollups (1m kurz, 1h länger, 1d meist für immer).
+// Gelöscht wird in Batches über die _id, damit nie eine riesige Löschung auf einmal die Datenbank blockiert.
+// 0 Tage heißt jeweils: unbegrenzt aufbewahren.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RetentionManager {
+
+    private final MongoTemplate mongoTemplate;
+    private final MeterRegistry meterRegistry;
+    // Über den Konstruktor eingebunden, damit die Time-Series-Collections schon angelegt sind, wenn ich TTLs setze
+    private final TimeSeriesStorage timeSeriesStorage;
+
+    @Value("${storage.retention.enabled:false}")
+    private boolean enabled;
+
+    @Value("${storage.retention.compaction-interval-minutes:60}")
+    private long compactionIntervalMinutes;
+
+    @Value("${storage.retention.delete-batch-size:5000}")
+    private int deleteBatchSize;
+
+    @Value("${storage.retention.siemens.ist-days:0}")
+    private int istDays;
+
+    @Value("${storage.retention.siemens.soll-days:0}")
+    private int sollDays;
+
+    @Value("${storage.retention.siemens.differenz-days:0}")
+    private int differenzDays;
+
+    @Value("${storage.retention.wago-days:0}")
+    private int wagoDays;
+
+    // Vorsicht: der aktuelle Wago-Zustand wird aus dem letzten Wechsel gelesen, der kann sehr alt sein
+    @Value("${storage.retention.transitions-days:0}")
+    private int transitionsDays;
+
+    @Value("${storage.retention.snapshots-days:0}")
+    private int snapshotsDays;
+
+    @Value("${storage.retention.buckets-days:0}")
+    private int bucketsDays;
+
+    @Value("${storage.retention.rollups.minute-days:0}")
+    private int rollupMinuteDays;
+
+    @Value("${storage.retention.rollups.hour-days:0}")
+    private int rollupHourDays;
+
+    @Value("${storage.retention.rollups.day-days:0}")
+    private int rollupDayDays;
+
+    // Hintergrund-Thread virtuell, wenn die ganze Anwendung auf virtuellen Threads läuft
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private volatile ScheduledExecutorService compactor;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            applyTtls();
+        } catch (RuntimeException e) {
+            // Ohne MongoDB beim Start nicht abbrechen, die Compaction läuft trotzdem und holt das Löschen nach
+            log.error("X TTL-Indizes für die Aufbewahrung konnten nicht gesetzt werden", e);
+        }
+        compactor = BackgroundThreads.newScheduler("retention-compactor", virtualThreads);
+        compactor.scheduleWithFixedDelay(this::compactQuietly, 1, compactionIntervalMinutes, TimeUnit.MINUTES);
+        log.info("Aufbewahrung aktiv: Siemens {}, Rollups {}, Compaction alle {} min",
+                siemensDays(), rollupDays(), compactionIntervalMinutes);
+    }
+
+    void applyTtls() {
+        applyTtl(mongoTemplate.getCollectionName(SiemensData.class), "timestamp", siemensTtlDays());
+        applyTtl(mongoTemplate.getCollectionName(WagoData.class), "timestamp", wagoDays);
+        applyTtl(mongoTemplate.getCollectionName(WagoTransition.class), "timestamp", transitionsDays);
+        applyTtl(mongoTemplate.getCollectionName(SiemensSnapshot.class), "timestamp", snapshotsDays);
+        applyTtl(mongoTemplate.getCollectionName(SiemensHourBucket.class), "hour", bucketsDays);
+    }
+
+    // Setzt die Frist für eine Collection; ein bestehender TTL-Index wird bei anderer Frist per collMod angepasst
+    void applyTtl(String collection, String field, int days) {
+        if (days <= 0) {
+            return;
+        }
+        long seconds = Duration.ofDays(days).toSeconds();
+        if (timeSeriesStorage.isTimeSeries(collection)) {
+            mongoTemplate.executeCommand(new Document("collMod", collection).append("expireAfterSeconds", seconds));
+            log.info("Aufbewahrung {}: {} Tage (Time-Series)", collection, days);
+            return;
+        }
+        try {
+            mongoTemplate.indexOps(collection).ensureIndex(new Index()
+                    .on(field, Sort.Direction.ASC)
+                    .expire(Duration.ofDays(days))
+                    .named("ttl_" + field));
+        } catch (RuntimeException e) {
+            // Index auf dem Feld gibt es schon (mit anderer Frist oder ohne TTL): umstellen statt neu anlegen
+            log.debug("TTL-Index {}.{} vorhanden, passe ihn an: {}", collection, field, e.getMessage());
+            mongoTemplate.executeCommand(new Document("collMod", collection).append("index",
+                    new Document("keyPattern", new Document(field, 1)).append("expireAfterSeconds", seconds)));
+        }
+        log.info("Aufbewahrung {}: {} Tage (TTL auf {})", collection, days, field);
+    }
+
+    // Ein Durchlauf der Hintergrund-Compaction, liefert die Zahl der gelöschten Dokumente
+    public long compact() {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        LocalDateTime now = LocalDateTime.now();
+        long deleted = 0;
+
+        // Typen mit kürzerer Frist als der TTL-Index von siemens_data
+        int ttlDays = siemensTtlDays();
+        String siemens = mongoTemplate.getCollectionName(SiemensData.class);
+        for (Map.Entry<String, Integer> entry : siemensDays().entrySet()) {
+            int days = entry.getValue();
+            if (days > 0 && (ttlDays == 0 || days < ttlDays)) {
+                deleted += deleteInBatches(siemens, Criteria.where("type").is(entry.getKey())
+                        .and("timestamp").lt(now.minusDays(days)));
+            }
+        }
+
+        String rollups = mongoTemplate.getCollectionName(Rollup.class);
+        for (Map.Entry<RollupTier, Integer> entry : rollupDays().entrySet()) {
+            int days = entry.getValue();
+            if (days > 0) {
+                deleted += deleteInBatches(rollups, Criteria.where("tier").is(entry.getKey().getCode())
+                        .and("start").lt(now.minusDays(days)));
+            }
+        }
+
+        sample.stop(meterRegistry.timer("mqtt.retention.compaction"));
+        log.debug("Compaction fertig: {} Dokumente gelöscht", deleted);
+        return deleted;
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (Exception e) {
+            meterRegistry.counter("mqtt.retention.compaction.failed").increment();
+            log.error("X Compaction fehlgeschlagen, neuer Versuch im nächsten Intervall", e);
+        }
+    }
+
+    // Erst höchstens delete-batch-size IDs lesen, dann genau diese löschen, bis nichts mehr passt
+    long deleteInBatches(String collection, Criteria criteria) {
+        long deleted = 0;
+        while (true) {
+            Query query = new Query(criteria).limit(deleteBatchSize);
+            query.fields().include("_id");
+            List<Object> ids = mongoTemplate.find(query, Document.class, collection).stream()
+                    .map(document -> document.get("_id"))
+                    .toList();
+            if (ids.isEmpty()) {
+                break;
+            }
+            DeleteResult result = mongoTemplate.remove(new Query(Criteria.where("_id").in(ids)), collection);
+            deleted += result.getDeletedCount();
+            if (ids.size() < deleteBatchSize) {
+                break;
+            }
+        }
+        if (deleted > 0) {
+            meterRegistry.counter("mqtt.retention.deleted", "collection", collection).increment(deleted);
+            log.info("Aufbewahrung {}: {} alte Dokumente gelöscht", collection, deleted);
+        }
+        return deleted;
+    }
+
+    // Der TTL-Index gilt für alle Typen, also die längste Frist (0, sobald ein Typ unbegrenzt bleibt)
+    private int siemensTtlDays() {
+        int max = 0;
+        for (int days : siemensDays().values()) {
+            if (days <= 0) {
+                return 0;
+            }
+            max = Math.max(max, days);
+        }
+        return max;
+    }
+
+    private Map<String, Integer> siemensDays() {
+        Map<String, Integer> days = new LinkedHashMap<>();
+        days.put("IST", istDays);
+        days.put("SOLL", sollDays);
+        days.put("DIFFERENZ", differenzDays);
+        return days;
+    }
+
+    private Map<RollupTier, Integer> rollupDays() {
+        Map<RollupTier, Integer> days = new LinkedHashMap<>();
+        days.put(RollupTier.MINUTE, rollupMinuteDays);
+        days.put(RollupTier.HOUR, rollupHourDays);
+        days.put(RollupTier.DAY, rollupDayDays);
+        return days;
+    }
+
+    @PreDestroy
+    public void stop() {
+        ScheduledExecutorService current = compactor;
+        if (current != null) {
+            compactor = null;
+            current.shutdownNow();
+        }
+    }
+}
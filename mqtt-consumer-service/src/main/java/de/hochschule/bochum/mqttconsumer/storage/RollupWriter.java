@@ -0,0 +1,284 @@
+package de.hochschule.bochum.mqttconsumer.storage;
+
+import de.hochschule.bochum.common.concurrent.BackgroundThreads;
+import de.hochschule.bochum.common.model.Rollup;
+import de.hochschule.bochum.common.model.RollupTier;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Hier pflege ich die Rollups (1 Minute, 1 Stunde, 1 Tag) pro Messreihe, während die Werte ankommen.
+// Jeder Messwert wird nur im Speicher in drei Zähler eingerechnet; alle flush-interval-ms gehen die
+// geänderten Rollups gesammelt als ein Bulk-Upsert raus ($inc count/sum, $min, $max, erster/letzter Wert).
+// Pro Flush sind das nur so viele Upserts, wie es gerade offene Intervalle gibt, nicht einer pro Messwert.
+// Die Werte kommen pro Reihe in Empfangsreihenfolge, deshalb reichen $setOnInsert für "first" und $set für "last".
+// Mit Journal schreibt nicht der eigene Thread, sondern der JournalReplayer nach jedem Batch (flush(batchKey)):
+// jeder Rollup merkt sich den Batch (lastBatch), ein wiederholter Batch wird so nicht doppelt eingerechnet.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RollupWriter {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${storage.rollups.enabled:false}")
+    private boolean enabled;
+
+    @Value("${storage.rollups.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    // Mit Journal flusht der JournalReplayer, damit kein Rollup Werte eines noch nicht bestätigten Batches enthält
+    @Value("${ingest.journal.enabled:false}")
+    private boolean flushedByReplayer;
+
+    // Noch nicht geschriebene Teil-Rollups, Schlüssel ist die Rollup-ID
+    private final Map<String, Partial> pending = new ConcurrentHashMap<>();
+
+    // Hintergrund-Thread virtuell, wenn die ganze Anwendung auf virtuellen Threads läuft
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private volatile ScheduledExecutorService flusher;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        // Abfragen laufen über Reihe + Stufe + Zeitraum
+        try {
+            mongoTemplate.indexOps(Rollup.class).ensureIndex(new Index()
+                    .on("series", Sort.Direction.ASC)
+                    .on("tier", Sort.Direction.ASC)
+                    .on("start", Sort.Direction.ASC)
+                    .named("series_tier_start"));
+        } catch (RuntimeException e) {
+            log.warn("! Index für Rollups konnte nicht angelegt werden: {}", e.getMessage());
+        }
+        if (flushedByReplayer) {
+            log.info("Rollups aktiv: {}, geschrieben nach jedem Journal-Batch", List.of(RollupTier.values()));
+            return;
+        }
+        // Ein einzelner Thread schreibt, damit sich zwei Flushes desselben Rollups nie überholen
+        flusher = BackgroundThreads.newScheduler("rollup-flusher", virtualThreads);
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Rollups aktiv: {} alle {} ms", List.of(RollupTier.values()), flushIntervalMs);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Rechnet einen Messwert in alle Stufen ein (series: IST, SOLL, DIFFERENZ oder WAGO)
+    public void record(String series, double value, LocalDateTime timestamp) {
+        if (!enabled) {
+            return;
+        }
+        for (RollupTier tier : RollupTier.values()) {
+            pending.compute(Rollup.idOf(series, tier, timestamp), (id, partial) -> {
+                Partial current = partial != null ? partial : new Partial(series, tier, tier.startOf(timestamp));
+                current.add(value, timestamp);
+                return current;
+            });
+        }
+    }
+
+    // Anzahl der Rollups, die auf den nächsten Flush warten
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    // Schreibt alle gesammelten Teil-Rollups als einen Bulk-Upsert
+    public void flush() {
+        flush(null);
+    }
+
+    // Wie flush(), aber nur in Rollups, die diesen Batch (z.B. die Journal-Position) noch nicht enthalten.
+    // Steht der Batch schon drin, scheitert der Upsert am vorhandenen _id und wird übersprungen.
+    public void flush(String batchKey) {
+        List<Partial> batch = new ArrayList<>(pending.size());
+        for (String id : pending.keySet()) {
+            Partial partial = pending.remove(id);
+            if (partial != null) {
+                batch.add(partial);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Rollup.class);
+            for (Partial partial : batch) {
+                Criteria criteria = Criteria.where("_id").is(partial.id());
+                Update update = partial.toUpdate();
+                if (batchKey != null) {
+                    criteria = criteria.and("lastBatch").ne(batchKey);
+                    update.set("lastBatch", batchKey);
+                }
+                bulk.upsert(new Query(criteria), update);
+            }
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            if (batchKey == null || !e.getErrors().stream().allMatch(error -> error.getCode() == DUPLICATE_KEY)) {
+                restore(batch);
+                throw e;
+            }
+            log.debug("Rollups: {} enthielten Batch {} schon", e.getErrors().size(), batchKey);
+        } catch (RuntimeException e) {
+            restore(batch);
+            throw e;
+        }
+        meterRegistry.counter("mqtt.rollup.upserts").increment(batch.size());
+        log.debug("Rollups geschrieben: {}", batch.size());
+    }
+
+    // Nicht verlieren: zurücklegen und mit den inzwischen neu eingerechneten Werten zusammenführen
+    private void restore(List<Partial> batch) {
+        for (Partial partial : batch) {
+            pending.merge(partial.id(), partial, (newer, older) -> older.followedBy(newer));
+        }
+    }
+
+    // Merkt sich die offenen Teil-Rollups; die zurückgegebene Aktion stellt genau diesen Stand wieder her
+    // (JournalReplayer, wenn ein Batch wiederholt werden muss)
+    public Runnable checkpoint() {
+        Map<String, Partial> saved = new HashMap<>();
+        pending.forEach((id, partial) -> saved.put(id, partial.copy()));
+        return () -> {
+            pending.clear();
+            saved.forEach((id, partial) -> pending.put(id, partial.copy()));
+        };
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            meterRegistry.counter("mqtt.rollup.flush.failed").increment();
+            log.error("X Rollups konnten nicht geschrieben werden, neuer Versuch beim nächsten Flush", e);
+        }
+    }
+
+    // Beim Herunterfahren die offenen Teil-Rollups noch wegschreiben; mit Journal nicht, die Werte gehören
+    // zu einem nicht bestätigten Batch und kommen nach dem Neustart ohnehin noch einmal
+    @PreDestroy
+    public void stop() {
+        ScheduledExecutorService current = flusher;
+        if (current == null) {
+            return;
+        }
+        flusher = null;
+        current.shutdown();
+        try {
+            current.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+    }
+
+    // Werte eines Rollups seit dem letzten Flush; wird nur innerhalb von ConcurrentHashMap.compute/merge verändert
+    static final class Partial {
+
+        private final String series;
+        private final RollupTier tier;
+        private final LocalDateTime start;
+        private long count;
+        private double sum;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private double first;
+        private LocalDateTime firstAt;
+        private double last;
+        private LocalDateTime lastAt;
+
+        Partial(String series, RollupTier tier, LocalDateTime start) {
+            this.series = series;
+            this.tier = tier;
+            this.start = start;
+        }
+
+        String id() {
+            return Rollup.idOf(series, tier, start);
+        }
+
+        void add(double value, LocalDateTime timestamp) {
+            if (count == 0) {
+                first = value;
+                firstAt = timestamp;
+            }
+            count++;
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            last = value;
+            lastAt = timestamp;
+        }
+
+        Partial copy() {
+            Partial copy = new Partial(series, tier, start);
+            copy.count = count;
+            copy.sum = sum;
+            copy.min = min;
+            copy.max = max;
+            copy.first = first;
+            copy.firstAt = firstAt;
+            copy.last = last;
+            copy.lastAt = lastAt;
+            return copy;
+        }
+
+        // Dieser (ältere) Teil gefolgt von einem neueren: Summen addieren, first vom älteren, last vom neueren
+        Partial followedBy(Partial newer) {
+            Partial merged = new Partial(series, tier, start);
+            merged.count = count + newer.count;
+            merged.sum = sum + newer.sum;
+            merged.min = Math.min(min, newer.min);
+            merged.max = Math.max(max, newer.max);
+            merged.first = first;
+            merged.firstAt = firstAt;
+            merged.last = newer.last;
+            merged.lastAt = newer.lastAt;
+            return merged;
+        }
+
+        Update toUpdate() {
+            return new Update()
+                    .setOnInsert("series", series)
+                    .setOnInsert("tier", tier.getCode())
+                    .setOnInsert("start", start)
+                    .setOnInsert("first", first)
+                    .setOnInsert("firstAt", firstAt)
+                    .inc("count", count)
+                    .inc("sum", sum)
+                    .min("min", min)
+                    .max("max", max)
+                    .set("last", last)
+                    .set("lastAt", lastAt);
+        }
+    }
+}
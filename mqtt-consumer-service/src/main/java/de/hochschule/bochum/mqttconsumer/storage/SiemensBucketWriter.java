@@ -0,0 +1,182 @@
+package de.hochschule.bochum.mqttconsumer.storage;
+
+import de.hochschule.bochum.common.model.SiemensData;
+import de.hochschule.bochum.common.model.SiemensHourBucket;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import com.mongodb.bulk.BulkWriteError;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Hier hänge ich Siemens-Messwerte an Stunden-Buckets an (ein Dokument pro Typ und Stunde).
+// Statt tausender kleiner Dokumente mit eigener _id, Typ und zwei leeren Temperaturfeldern
+// gibt es pro Stunde ein Dokument mit parallelen Arrays und vorberechneten count/min/max/sum.
+// Geschrieben wird per Upsert mit $push, die Bucket-ID ergibt sich aus Typ und Stunde; alle Buckets eines Batches
+// gehen als ein ungeordneter Bulk-Write raus. Jeder Bucket merkt sich die Schlüssel seiner letzten Schreibvorgänge
+// (aus Anzahl, Zeitstempeln und Werten gebildet) und lehnt einen bekannten Schlüssel ab: ein nach einem Fehler
+// wiederholter Batch (Journal-Replay) wird so nicht doppelt angehängt. Werte mit gleichem oder älterem Zeitstempel
+// gehen dabei nicht verloren, nur exakt dieselbe Gruppe von Werten wird übersprungen (Metrik mqtt.persistence.bucket.skipped).
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SiemensBucketWriter {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    // So viele Schreibschlüssel behält jeder Bucket; ein Replay wiederholt nur die letzten Batches
+    static final int RECENT_BATCHES = 16;
+
+    private final MongoTemplate mongoTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${storage.siemens.layout:documents}")
+    private String layoutName = "documents";
+
+    private SiemensLayout layout = SiemensLayout.DOCUMENTS;
+
+    @PostConstruct
+    public void init() {
+        layout = SiemensLayout.fromProperty(layoutName);
+        if (!isWritingBuckets()) {
+            return;
+        }
+        // Die Verlaufsabfragen laufen über Typ + Stunde (neueste zuerst)
+        try {
+            mongoTemplate.indexOps(SiemensHourBucket.class).ensureIndex(new Index()
+                    .on("type", Sort.Direction.ASC)
+                    .on("hour", Sort.Direction.DESC)
+                    .named("type_hour"));
+        } catch (RuntimeException e) {
+            log.warn("! Index für Siemens-Buckets konnte nicht angelegt werden: {}", e.getMessage());
+        }
+        log.info("Siemens-Speicherlayout: {}", layout);
+    }
+
+    public boolean isWritingDocuments() {
+        return layout != SiemensLayout.BUCKETS;
+    }
+
+    public boolean isWritingBuckets() {
+        return layout != SiemensLayout.DOCUMENTS;
+    }
+
+    public void append(SiemensData data) {
+        appendAll(List.of(data));
+    }
+
+    // Mehrere Werte (z.B. ein Write-Behind-Batch) werden pro Bucket zu einem Upsert zusammengefasst, alle Upserts zu einem Bulk-Write
+    public void appendAll(List<?> batch) {
+        Map<String, List<SiemensData>> byBucket = new LinkedHashMap<>();
+        for (Object element : batch) {
+            SiemensData data = (SiemensData) element;
+            if (valueOf(data) == null) {
+                continue;
+            }
+            byBucket.computeIfAbsent(SiemensHourBucket.idOf(data.getType(), data.getTimestamp()),
+                    id -> new ArrayList<>()).add(data);
+        }
+        if (byBucket.isEmpty()) {
+            return;
+        }
+        List<String> ids = new ArrayList<>(byBucket.keySet());
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SiemensHourBucket.class);
+        ids.forEach(id -> {
+            String batchKey = batchKeyOf(byBucket.get(id));
+            bulk.upsert(guarded(id, batchKey), updateFor(byBucket.get(id), batchKey));
+        });
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            // Duplicate Key heißt: der Bucket existiert und hat genau diese Werte schon angehängt
+            if (!e.getErrors().stream().allMatch(error -> error.getCode() == DUPLICATE_KEY)) {
+                throw e;
+            }
+            for (BulkWriteError error : e.getErrors()) {
+                String id = ids.get(error.getIndex());
+                int skipped = byBucket.get(id).size();
+                meterRegistry.counter("mqtt.persistence.bucket.skipped").increment(skipped);
+                log.info("SIEMENS BUCKET {}: {} Werte schon enthalten (wiederholter Batch), übersprungen", id, skipped);
+            }
+        }
+        if (log.isDebugEnabled()) {
+            byBucket.forEach((id, values) -> log.debug("SIEMENS BUCKET {}: {} Werte angehängt", id, values.size()));
+        }
+    }
+
+    // Trifft nur Buckets, die diesen Schlüssel noch nicht kennen; sonst scheitert der Upsert am vorhandenen _id
+    private static Query guarded(String id, String batchKey) {
+        return new Query(Criteria.where("_id").is(id).and("recentBatches").ne(batchKey));
+    }
+
+    // Gleiche Werte in gleicher Reihenfolge ergeben denselben Schlüssel, auch bei gleichen Zeitstempeln
+    static String batchKeyOf(List<SiemensData> values) {
+        long hash = 1;
+        for (SiemensData data : values) {
+            hash = 31 * hash + data.getTimestamp().hashCode();
+            hash = 31 * hash + Double.hashCode(valueOf(data));
+        }
+        return values.size() + ":" + Long.toHexString(hash);
+    }
+
+    private static Update updateFor(List<SiemensData> values, String batchKey) {
+        SiemensData first = values.get(0);
+        Object[] timestamps = new Object[values.size()];
+        Object[] numbers = new Object[values.size()];
+        double sum = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        LocalDateTime last = first.getTimestamp();
+        for (int i = 0; i < values.size(); i++) {
+            double value = valueOf(values.get(i));
+            timestamps[i] = values.get(i).getTimestamp();
+            if (values.get(i).getTimestamp().isAfter(last)) {
+                last = values.get(i).getTimestamp();
+            }
+            numbers[i] = value;
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        Update update = new Update()
+                .setOnInsert("type", first.getType())
+                .setOnInsert("hour", SiemensHourBucket.hourOf(first.getTimestamp()))
+                .inc("count", values.size())
+                .inc("sum", sum)
+                .min("min", min)
+                .max("max", max)
+                .max("lastTs", last);
+        update.push("timestamps").each(timestamps);
+        update.push("values").each(numbers);
+        update.push("recentBatches").slice(-RECENT_BATCHES).each(batchKey);
+        return update;
+    }
+
+    // Je nach Typ steht der Wert in einem anderen Feld
+    public static Double valueOf(SiemensData data) {
+        if (data.getType() == null) {
+            return null;
+        }
+        return switch (data.getType()) {
+            case "IST" -> data.getIstTemperatur();
+            case "SOLL" -> data.getSollTemperatur();
+            case "DIFFERENZ" -> data.getDifferenzTemperatur();
+            default -> null;
+        };
+    }
+}
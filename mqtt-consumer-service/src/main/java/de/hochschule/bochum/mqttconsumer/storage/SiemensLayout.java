@@ -0,0 +1,18 @@
+package de.hochschule.bochum.mqttconsumer.storage;
+
+import java.util.Locale;
+
+// Wie die Siemens-Messwerte in MongoDB abgelegt werden
+public enum SiemensLayout {
+
+    // Ein SiemensData-Dokument pro Messwert (bisheriges Verhalten)
+    DOCUMENTS,
+    // Ein SiemensHourBucket pro Typ und Stunde mit parallelen Arrays
+    BUCKETS,
+    // Beides, z.B. während der Umstellung
+    BOTH;
+
+    public static SiemensLayout fromProperty(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+}
@@ -0,0 +1,222 @@
+package de.hochschule.bochum.mqttconsumer.storage;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import de.hochschule.bochum.common.model.SiemensData;
+import de.hochschule.bochum.common.model.WagoData;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.timeseries.Granularity;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+// Optionaler Speichermodus: siemens_data und wago_data als native MongoDB-Time-Series-Collections.
+// timestamp ist das timeField, bei Siemens ist type das metaField (IST/SOLL/DIFFERENZ werden so
+// getrennt gebucketet). Die Repositories merken davon nichts, sie schreiben und lesen wie bisher.
+//
+// Läuft beim Start, bevor der MQTT-Adapter Nachrichten annimmt. Gibt es die Collection schon als
+// normale Collection, wird sie nur mit storage.time-series.migrate=true umgebaut (Migration):
+// umbenennen nach <name>_legacy, Time-Series-Collection anlegen, Dokumente batchweise kopieren.
+// Der Fortschritt steht in timeseries_migration; bricht die Migration ab, setzt der nächste Start sie fort.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TimeSeriesStorage {
+
+    private static final int COPY_BATCH_SIZE = 1000;
+    private static final String LEGACY_SUFFIX = "_legacy";
+    // Fortschritt je Collection: { _id: <collection>, lastId: <zuletzt kopierte _id>, finished: true/false }
+    static final String PROGRESS_COLLECTION = "timeseries_migration";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${storage.time-series.enabled:false}")
+    private boolean enabled;
+
+    @Value("${storage.time-series.granularity:seconds}")
+    private String granularity;
+
+    // Einmalig setzen (z.B. --storage.time-series.migrate=true), um vorhandene Daten zu übernehmen
+    @Value("${storage.time-series.migrate:false}")
+    private boolean migrate;
+
+    // Nach erfolgreicher Migration die alte Collection löschen (sonst bleibt sie als Backup liegen)
+    @Value("${storage.time-series.drop-legacy:false}")
+    private boolean dropLegacy;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            ensureTimeSeries(mongoTemplate.getCollectionName(SiemensData.class), "type");
+            ensureTimeSeries(mongoTemplate.getCollectionName(WagoData.class), null);
+        } catch (RuntimeException e) {
+            // Ohne MongoDB beim Start nicht abbrechen: Journal/Puffer halten die Daten, bis Mongo wieder da ist
+            log.error("X Time-Series-Collections konnten nicht geprüft/angelegt werden", e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // true, wenn die Collection als Time-Series-Collection existiert (TTL geht dort nur über collMod)
+    boolean isTimeSeries(String collection) {
+        Document info = collectionInfo(collection);
+        return info != null && "timeseries".equals(info.getString("type"));
+    }
+
+    void ensureTimeSeries(String collection, String metaField) {
+        Document info = collectionInfo(collection);
+        boolean timeSeries = info != null && "timeseries".equals(info.getString("type"));
+        if (info != null && !timeSeries) {
+            if (!migrate) {
+                log.warn("! {} ist eine normale Collection - zum Umstellen einmal mit storage.time-series.migrate=true starten",
+                        collection);
+                return;
+            }
+            migrateCollection(collection, metaField);
+            return;
+        }
+        if (info == null) {
+            mongoTemplate.createCollection(collection, options(metaField));
+            log.info("Time-Series-Collection {} angelegt (metaField {})", collection, metaField);
+        }
+        // Eine unterbrochene Migration fortsetzen, auch wenn die Time-Series-Collection schon steht
+        Document progress = mongoTemplate.findById(collection, Document.class, PROGRESS_COLLECTION);
+        if (progress != null && !progress.getBoolean("finished", false)) {
+            log.warn("! Migration von {} wurde unterbrochen, setze nach _id {} fort", collection, progress.get("lastId"));
+            copyLegacy(collection, progress.get("lastId"), false);
+        } else if (progress == null && migrate && legacyHasDocuments(collection)) {
+            // Ohne Vermerk (Migration einer älteren Version) weiß ich nicht, was schon kopiert ist: jeden Batch prüfen
+            log.warn("! {}{} enthält noch Daten, aber keinen Migrationsvermerk - kopiere fehlende Dokumente",
+                    collection, LEGACY_SUFFIX);
+            copyLegacy(collection, null, true);
+        } else if (timeSeries) {
+            log.info("Time-Series-Collection {} vorhanden", collection);
+        }
+    }
+
+    private void migrateCollection(String collection, String metaField) {
+        MongoDatabase db = mongoTemplate.getDb();
+        String legacy = collection + LEGACY_SUFFIX;
+        log.info("Migriere {} in eine Time-Series-Collection (alte Daten bleiben in {})", collection, legacy);
+        // Erst den Vermerk schreiben: bricht der Start irgendwo danach ab, setzt der nächste die Migration fort
+        saveProgress(collection, null, false);
+        db.getCollection(collection).renameCollection(new MongoNamespace(db.getName(), legacy));
+        mongoTemplate.createCollection(collection, options(metaField));
+        copyLegacy(collection, null, false);
+    }
+
+    // Kopiert <name>_legacy ab lastId in _id-Reihenfolge und vermerkt nach jedem Batch die letzte _id.
+    // Der erste Batch kann vor einem Abbruch schon eingefügt, aber noch nicht vermerkt worden sein: vorhandene
+    // Dokumente überspringe ich (eine Time-Series-Collection hat keinen eindeutigen Index auf _id).
+    private void copyLegacy(String collection, Object lastId, boolean checkEveryBatch) {
+        MongoDatabase db = mongoTemplate.getDb();
+        String legacy = collection + LEGACY_SUFFIX;
+        MongoCollection<Document> source = db.getCollection(legacy);
+        MongoCollection<Document> target = db.getCollection(collection);
+        Bson filter = lastId == null ? new Document() : Filters.gt("_id", lastId);
+
+        List<Document> batch = new ArrayList<>(COPY_BATCH_SIZE);
+        boolean checkExisting = true;
+        Object last = lastId;
+        long copied = 0;
+        long skipped = 0;
+        for (Document document : source.find(filter).sort(Sorts.ascending("_id")).batchSize(COPY_BATCH_SIZE)) {
+            last = document.get("_id");
+            // Ohne timeField nimmt MongoDB das Dokument in einer Time-Series-Collection nicht an
+            if (document.get("timestamp") == null) {
+                skipped++;
+                continue;
+            }
+            batch.add(document);
+            if (batch.size() == COPY_BATCH_SIZE) {
+                copied += copyBatch(collection, target, batch, checkExisting, last);
+                checkExisting = checkEveryBatch;
+            }
+        }
+        copied += copyBatch(collection, target, batch, checkExisting, last);
+        saveProgress(collection, last, true);
+        log.info("Migration {} fertig: {} Dokumente kopiert, {} ohne timestamp übersprungen", collection, copied, skipped);
+
+        if (dropLegacy) {
+            source.drop();
+            log.info("{} gelöscht", legacy);
+        }
+    }
+
+    private int copyBatch(String collection, MongoCollection<Document> target, List<Document> batch,
+                          boolean checkExisting, Object lastId) {
+        if (checkExisting && !batch.isEmpty()) {
+            List<Object> ids = batch.stream().map(document -> document.get("_id")).toList();
+            Set<Object> existing = new HashSet<>();
+            for (Document document : target.find(Filters.in("_id", ids)).projection(Projections.include("_id"))
+                    .into(new ArrayList<>())) {
+                existing.add(document.get("_id"));
+            }
+            batch.removeIf(document -> existing.contains(document.get("_id")));
+        }
+        int copied = insert(target, batch);
+        if (lastId != null) {
+            saveProgress(collection, lastId, false);
+        }
+        return copied;
+    }
+
+    private boolean legacyHasDocuments(String collection) {
+        String legacy = collection + LEGACY_SUFFIX;
+        return mongoTemplate.collectionExists(legacy) && mongoTemplate.getDb().getCollection(legacy).estimatedDocumentCount() > 0;
+    }
+
+    private void saveProgress(String collection, Object lastId, boolean finished) {
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(collection)),
+                new Update().set("lastId", lastId).set("finished", finished).set("updatedAt", new Date()),
+                PROGRESS_COLLECTION);
+    }
+
+    private static int insert(MongoCollection<Document> target, List<Document> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        int size = batch.size();
+        target.insertMany(batch, new InsertManyOptions().ordered(false));
+        batch.clear();
+        return size;
+    }
+
+    private Document collectionInfo(String collection) {
+        return mongoTemplate.getDb().listCollections().filter(Filters.eq("name", collection)).first();
+    }
+
+    private CollectionOptions options(String metaField) {
+        CollectionOptions.TimeSeriesOptions timeSeries = CollectionOptions.TimeSeriesOptions.timeSeries("timestamp")
+                .granularity(Granularity.valueOf(granularity.trim().toUpperCase(Locale.ROOT)));
+        if (metaField != null) {
+            timeSeries = timeSeries.metaField(metaField);
+        }
+        return CollectionOptions.empty().timeSeries(timeSeries);
+    }
+}
@@ -0,0 +1,109 @@
+package de.hochschule.bochum.mqttconsumer.benchmark;
+
+import de.hochschule.bochum.common.mqtt.PayloadParser;
+import de.hochschule.bochum.mqttconsumer.routing.TopicHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH-Benchmark: Routing + Parsing einer MQTT-Nachricht, alt gegen neu.
+ *
+ * - legacy*: wie der frühere MqttMessageHandler (payload.toString(), equals-Kette, replaceAll-Regex)
+ * - registry*: HashMap-Lookup im TopicHandler-Registry-Stil und PayloadParser direkt auf byte[]
+ *
+ * Die Mongo-Speicherung ist bewusst nicht Teil der Messung. Interessant ist vor allem
+ * gc.alloc.rate.norm (Bytes pro Nachricht). Starten mit:
+ *
+ *   mvn -pl mqtt-consumer-service test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt
+ *   java -cp target/test-classes:target/classes:$(cat cp.txt) \
+ *        de.hochschule.bochum.mqttconsumer.benchmark.TopicRoutingBenchmark
+ *
+ * Ergebnis auf dem Entwicklungsrechner (JDK 21, -prof gc):
+ *   legacyWago     305 ns/op, 1136 B/op      registryWago     23 ns/op, ~0 B/op
+ *   legacySiemens   45 ns/op,  104 B/op      registrySiemens  24 ns/op, ~0 B/op
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TopicRoutingBenchmark {
+
+    private static final String WAGO_TOPIC = "Wago750/Status";
+    private static final String IST_TOPIC = "S7_1500/Temperatur/Ist";
+    private static final String SOLL_TOPIC = "S7_1500/Temperatur/Soll";
+    private static final String DIFFERENZ_TOPIC = "S7_1500/Temperatur/Differenz";
+
+    private byte[] wagoPayload;
+    private byte[] siemensPayload;
+    private Map<String, TopicHandler> handlers;
+    private Blackhole sink;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        wagoPayload = "[1234]".getBytes(StandardCharsets.US_ASCII);
+        siemensPayload = "23.5".getBytes(StandardCharsets.US_ASCII);
+        sink = blackhole;
+        handlers = Map.of(
+                WAGO_TOPIC, (payload, receivedAt, dedupKey) -> sink.consume(PayloadParser.parseInt(payload)),
+                IST_TOPIC, (payload, receivedAt, dedupKey) -> sink.consume(PayloadParser.parseDouble(payload)),
+                SOLL_TOPIC, (payload, receivedAt, dedupKey) -> sink.consume(PayloadParser.parseDouble(payload)),
+                DIFFERENZ_TOPIC, (payload, receivedAt, dedupKey) -> sink.consume(PayloadParser.parseDouble(payload)));
+    }
+
+    @Benchmark
+    public void legacyWago() {
+        legacy(WAGO_TOPIC, wagoPayload);
+    }
+
+    @Benchmark
+    public void legacySiemens() {
+        legacy(DIFFERENZ_TOPIC, siemensPayload);
+    }
+
+    @Benchmark
+    public void registryWago() {
+        handlers.get(WAGO_TOPIC).handle(wagoPayload, System.currentTimeMillis(), null);
+    }
+
+    @Benchmark
+    public void registrySiemens() {
+        handlers.get(DIFFERENZ_TOPIC).handle(siemensPayload, System.currentTimeMillis(), null);
+    }
+
+    // Nachbau des alten Pfads: Paho lieferte einen String, geroutet wurde per equals-Kette
+    private void legacy(String topic, byte[] raw) {
+        String payload = new String(raw, StandardCharsets.UTF_8);
+        if (topic.equals(WAGO_TOPIC)) {
+            String cleanPayload = payload.trim().replaceAll("[\\[\\]]", "");
+            sink.consume(Integer.parseInt(cleanPayload));
+        } else if (topic.equals(IST_TOPIC) || topic.equals(SOLL_TOPIC) || topic.equals(DIFFERENZ_TOPIC)) {
+            sink.consume(Double.parseDouble(payload.trim()));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TopicRoutingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
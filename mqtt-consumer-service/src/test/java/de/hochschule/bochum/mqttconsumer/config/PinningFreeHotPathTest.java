@@ -0,0 +1,36 @@
+package de.hochschule.bochum.mqttconsumer.config;
+
+import de.hochschule.bochum.common.diagnostics.SynchronizedSourceScan;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Prüft den Quellcode der heißen Pfade auf synchronized (Suche: SynchronizedSourceScan aus common).
+ *
+ * Mit spring.threads.virtual.enabled läuft die Verarbeitung auf virtuellen Threads. Ein synchronized-Block um
+ * eine blockierende Operation (MongoDB, Queue) pinnt den virtuellen Thread an seinen Träger-Thread (Java 21).
+ * Deshalb sollen Ingest, Routing, Storage und Services nur ReentrantLock und Co. verwenden.
+ */
+class PinningFreeHotPathTest {
+
+    private static final Path SOURCES = Path.of("src/main/java/de/hochschule/bochum/mqttconsumer");
+    private static final List<String> HOT_PATHS = List.of("ingest", "routing", "storage", "service");
+
+    @Test
+    void testHotPaths_ShouldNotUseSynchronized() throws IOException {
+        // **Was mache ich?**
+        // Alle Java-Dateien der heißen Pakete lesen, Kommentare und Strings entfernen, nach synchronized suchen.
+        SynchronizedSourceScan.Result result = SynchronizedSourceScan.scan(SOURCES, HOT_PATHS);
+
+        // **Was erwarte ich?**
+        // - Es wurden überhaupt Dateien gefunden (sonst stimmt der Pfad nicht)
+        // - Keine davon verwendet synchronized
+        assertTrue(result.scanned() > 0);
+        assertEquals(List.of(), result.offenders(), "synchronized pinnt virtuelle Threads, ReentrantLock verwenden");
+    }
+}
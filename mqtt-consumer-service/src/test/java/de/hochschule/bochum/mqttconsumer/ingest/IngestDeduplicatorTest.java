@@ -0,0 +1,120 @@
+package de.hochschule.bochum.mqttconsumer.ingest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit-Tests für den IngestDeduplicator.
+ *
+ * Geprüft wird das Fenster selbst: Wiederholungen werden erkannt, QoS-0-Nachrichten nie,
+ * und das Fenster vergisst alte Einträge nach Zeit bzw. bei voller Größe. MongoDB wird
+ * nur für den Unique-Index gebraucht und ist hier ein Mock.
+ */
+@ExtendWith(MockitoExtension.class)
+class IngestDeduplicatorTest {
+
+    private static final String TOPIC = "Wago750/Status";
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private IngestDeduplicator deduplicator;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        deduplicator = new IngestDeduplicator(mongoTemplate, meterRegistry);
+        ReflectionTestUtils.setField(deduplicator, "enabled", true);
+        ReflectionTestUtils.setField(deduplicator, "windowSize", 2);
+        ReflectionTestUtils.setField(deduplicator, "windowMs", 60_000L);
+    }
+
+    @Test
+    void testIsDuplicate_ShouldDetectSameIdAndPayload() {
+        // **Was erwarte ich?**
+        // - Erste Nachricht geht durch, die Wiederholung ist ein Duplikat und wird gezählt
+        // - Gleiche ID mit anderer Payload ist kein Duplikat
+        assertFalse(deduplicator.isDuplicate(TOPIC, 5, bytes("1")));
+        assertTrue(deduplicator.isDuplicate(TOPIC, 5, bytes("1")));
+        assertFalse(deduplicator.isDuplicate(TOPIC, 5, bytes("2")));
+        assertEquals(1.0, meterRegistry.get("mqtt.ingest.duplicates").tag("topic", TOPIC).counter().count());
+    }
+
+    @Test
+    void testIsDuplicate_ShouldIgnoreQos0Messages() {
+        // **Was erwarte ich?**
+        // - Message-ID 0 ist nicht eindeutig, gleiche Werte dürfen beliebig oft kommen
+        assertFalse(deduplicator.isDuplicate(TOPIC, 0, bytes("1")));
+        assertFalse(deduplicator.isDuplicate(TOPIC, 0, bytes("1")));
+    }
+
+    @Test
+    void testWindow_ShouldForgetOldestWhenFull() {
+        // **Was mache ich?**
+        // Fenstergröße 2, drei verschiedene Nachrichten, dann die erste erneut.
+        deduplicator.isDuplicate(TOPIC, 1, bytes("1"));
+        deduplicator.isDuplicate(TOPIC, 2, bytes("1"));
+        deduplicator.isDuplicate(TOPIC, 3, bytes("1"));
+
+        // **Was erwarte ich?**
+        // - Die erste ist aus dem Fenster gefallen, die dritte noch drin
+        assertFalse(deduplicator.isDuplicate(TOPIC, 1, bytes("1")));
+        assertTrue(deduplicator.isDuplicate(TOPIC, 3, bytes("1")));
+    }
+
+    @Test
+    void testWindow_ShouldExpireAfterWindowMs() throws InterruptedException {
+        // **Was mache ich?**
+        // Zeitfenster 10 ms, Wiederholung kommt erst danach.
+        ReflectionTestUtils.setField(deduplicator, "windowMs", 10L);
+        deduplicator.isDuplicate(TOPIC, 9, bytes("1"));
+        Thread.sleep(30);
+
+        // **Was erwarte ich?**
+        // - Die Message-ID gilt wieder als neu (der Broker darf IDs wiederverwenden)
+        assertFalse(deduplicator.isDuplicate(TOPIC, 9, bytes("1")));
+    }
+
+    @Test
+    void testDocumentKey_ShouldOnlyBeSetWithUniqueIndex() {
+        // **Was erwarte ich?**
+        // - Ohne Unique-Index kein dedupKey im Dokument
+        // - Mit Unique-Index ein stabiler Schlüssel aus Topic, ID, Payload-Hash und Zeitfenster der Empfangszeit
+        assertNull(deduplicator.documentKey(TOPIC, 5, 1000L, bytes("1")));
+
+        ReflectionTestUtils.setField(deduplicator, "uniqueIndex", true);
+        String key = deduplicator.documentKey(TOPIC, 5, 1000L, bytes("1"));
+        assertNotNull(key);
+        assertEquals(key, deduplicator.documentKey(TOPIC, 5, 1000L, bytes("1")));
+        assertNotEquals(key, deduplicator.documentKey(TOPIC, 5, 1000L, bytes("2")));
+    }
+
+    @Test
+    void testDocumentKey_RedeliveryWithNewReceiveTime_ShouldMatchOriginal() {
+        // **Was mache ich?**
+        // Der Broker liefert dieselbe Nachricht 2 s später erneut aus (neue Empfangszeit, Fenster 60 s).
+        ReflectionTestUtils.setField(deduplicator, "uniqueIndex", true);
+        String original = deduplicator.documentKey(TOPIC, 5, 61_000L, bytes("1"));
+
+        // **Was erwarte ich?**
+        // - Gleicher Schlüssel, der Unique-Index lehnt die Wiederholung also ab
+        // - Dieselbe Message-ID mit gleicher Payload ein Fenster später ist eine neue Nachricht
+        assertEquals(original, deduplicator.documentKey(TOPIC, 5, 63_000L, bytes("1")));
+        assertNotEquals(original, deduplicator.documentKey(TOPIC, 5, 125_000L, bytes("1")));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
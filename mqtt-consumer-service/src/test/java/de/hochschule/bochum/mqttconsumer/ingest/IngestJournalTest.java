@@ -0,0 +1,129 @@
+package de.hochschule.bochum.mqttconsumer.ingest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit-Tests für das IngestJournal.
+ *
+ * Die Segmente landen in einem temporären Verzeichnis. Geprüft wird, dass Einträge
+ * unverändert wieder gelesen werden, dass der Checkpoint einen Neustart übersteht
+ * (nur Ungespeichertes wird erneut geliefert) und dass volle Segmente korrekt gewechselt
+ * und nach dem Commit gelöscht werden.
+ */
+class IngestJournalTest {
+
+    @TempDir
+    Path journalDir;
+
+    @Test
+    void testAppendAndRead_ShouldReturnEntriesInOrder() throws IOException {
+        // **Was mache ich?**
+        // Zwei Nachrichten anhängen und ab Checkpoint lesen.
+
+        IngestJournal journal = openJournal(1024 * 1024);
+        journal.append("Wago750/Status", 42, bytes("5"));
+        journal.append("S7_1500/Temperatur/Ist", 0, bytes("23.5"));
+
+        List<IngestJournal.Entry> entries = journal.read(journal.getCheckpoint(), 10);
+
+        // **Was erwarte ich?**
+        // - Beide Einträge in Reihenfolge, Topic, Message-ID und Payload unverändert
+        assertEquals(2, entries.size());
+        assertEquals("Wago750/Status", entries.get(0).topic());
+        assertArrayEquals(bytes("5"), entries.get(0).payload());
+        assertEquals(42, entries.get(0).messageId());
+        assertEquals("S7_1500/Temperatur/Ist", entries.get(1).topic());
+        assertArrayEquals(bytes("23.5"), entries.get(1).payload());
+        assertEquals(journal.getHead(), entries.get(1).next());
+    }
+
+    @Test
+    void testRestart_ShouldReplayOnlyUncommittedEntries() throws IOException {
+        // **Was mache ich?**
+        // Drei Einträge schreiben, den ersten committen, Journal schließen und neu öffnen (= Neustart).
+
+        IngestJournal journal = openJournal(1024 * 1024);
+        journal.append("Wago750/Status", 0, bytes("1"));
+        journal.append("Wago750/Status", 0, bytes("2"));
+        journal.append("Wago750/Status", 0, bytes("3"));
+        journal.commit(journal.read(journal.getCheckpoint(), 1).get(0).next());
+        journal.close();
+
+        IngestJournal restarted = openJournal(1024 * 1024);
+        List<IngestJournal.Entry> entries = restarted.read(restarted.getCheckpoint(), 10);
+
+        // **Was erwarte ich?**
+        // - Nur die zwei noch nicht gespeicherten Einträge kommen erneut
+        // - Neue Einträge werden hinter den alten angehängt
+        assertEquals(2, entries.size());
+        assertArrayEquals(bytes("2"), entries.get(0).payload());
+        assertArrayEquals(bytes("3"), entries.get(1).payload());
+
+        restarted.append("Wago750/Status", 0, bytes("4"));
+        assertEquals(3, restarted.read(restarted.getCheckpoint(), 10).size());
+    }
+
+    @Test
+    void testSegmentRoll_ShouldContinueInNextSegmentAndDeleteOldOnCommit() throws IOException {
+        // **Was mache ich?**
+        // Sehr kleine Segmente, damit nach wenigen Einträgen ein neues Segment begonnen wird.
+
+        IngestJournal journal = openJournal(128);
+        for (int i = 0; i < 10; i++) {
+            journal.append("Wago750/Status", 0, bytes(String.valueOf(i)));
+        }
+        assertTrue(countSegments() > 1);
+
+        List<IngestJournal.Entry> entries = journal.read(journal.getCheckpoint(), 100);
+        journal.commit(entries.get(entries.size() - 1).next());
+
+        // **Was erwarte ich?**
+        // - Alle 10 Einträge über Segmentgrenzen hinweg in Reihenfolge
+        // - Nach dem Commit ist nur noch das aktuelle Segment übrig, der Rückstand ist 0
+        assertEquals(10, entries.size());
+        for (int i = 0; i < 10; i++) {
+            assertArrayEquals(bytes(String.valueOf(i)), entries.get(i).payload());
+        }
+        assertEquals(1, countSegments());
+        assertEquals(0, journal.getLagBytes());
+    }
+
+    @Test
+    void testAppend_ShouldRejectMessagesLargerThanSegment() throws IOException {
+        // **Was erwarte ich?**
+        // - Eine Nachricht, die in kein Segment passt, wird abgelehnt
+        IngestJournal journal = openJournal(128);
+        assertThrows(IllegalArgumentException.class, () -> journal.append("Wago750/Status", 0, new byte[200]));
+    }
+
+    private IngestJournal openJournal(int segmentSize) throws IOException {
+        IngestJournal journal = new IngestJournal(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(journal, "enabled", true);
+        ReflectionTestUtils.setField(journal, "directory", journalDir.toString());
+        ReflectionTestUtils.setField(journal, "segmentSize", segmentSize);
+        journal.open();
+        return journal;
+    }
+
+    private long countSegments() throws IOException {
+        try (Stream<Path> files = Files.list(journalDir)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("segment-")).count();
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
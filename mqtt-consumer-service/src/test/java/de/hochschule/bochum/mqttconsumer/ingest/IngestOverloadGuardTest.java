@@ -0,0 +1,154 @@
+package de.hochschule.bochum.mqttconsumer.ingest;
+
+import de.hochschule.bochum.common.model.WagoData;
+import de.hochschule.bochum.mqttconsumer.routing.TopicHandlerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit-Tests für den IngestOverloadGuard.
+ *
+ * Der Rückstau kommt aus einem gemockten WriteBehindBuffer (ohne Stripes). Geprüft wird,
+ * dass unter der High-Watermark alles durchgeht und darüber jede Policy wie beschrieben
+ * verwirft bzw. wartet. Die Shed-Counter laufen gegen eine SimpleMeterRegistry.
+ */
+@ExtendWith(MockitoExtension.class)
+class IngestOverloadGuardTest {
+
+    private static final String WAGO_TOPIC = "Wago750/Status";
+
+    @Mock
+    private WriteBehindBuffer writeBuffer;
+
+    @Mock
+    private TopicHandlerRegistry topicHandlers;
+
+    @Mock
+    private ObjectProvider<StripedIngestExecutor> stripedIngestExecutor;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testAdmit_BelowHighWatermark_ShouldAcceptEverything() {
+        // **Was mache ich?**
+        // Rückstau 5 bei High-Watermark 10, Policy drop-newest.
+        IngestOverloadGuard guard = createGuard("drop-newest");
+        when(writeBuffer.getPendingCount()).thenReturn(5);
+
+        // **Was erwarte ich?**
+        // - Nachricht wird angenommen, nichts wird gezählt
+        assertTrue(guard.admit(WAGO_TOPIC));
+        assertNull(meterRegistry.find("mqtt.ingest.shed").counter());
+    }
+
+    @Test
+    void testAdmit_DropNewest_ShouldShedAndCountPerTopic() {
+        // **Was mache ich?**
+        // Rückstau über der High-Watermark, zwei Nachrichten auf demselben Topic.
+        IngestOverloadGuard guard = createGuard("drop-newest");
+        when(writeBuffer.getPendingCount()).thenReturn(10);
+
+        // **Was erwarte ich?**
+        // - Beide werden verworfen und mit Topic und Policy gezählt
+        assertFalse(guard.admit(WAGO_TOPIC));
+        assertFalse(guard.admit(WAGO_TOPIC));
+        assertEquals(2.0, shedCount(WAGO_TOPIC, "drop-newest"));
+    }
+
+    @Test
+    void testAdmit_DropOldest_ShouldEvictBufferedDocumentAndAcceptNewOne() {
+        // **Was mache ich?**
+        // Im Puffer wartet ein altes WagoData, eine neue Nachricht kommt rein.
+        IngestOverloadGuard guard = createGuard("drop-oldest");
+        WagoData oldest = new WagoData(1);
+        when(writeBuffer.getPendingCount()).thenReturn(10);
+        when(writeBuffer.evictOldest()).thenReturn(oldest);
+        when(topicHandlers.topicOf(oldest)).thenReturn(WAGO_TOPIC);
+
+        // **Was erwarte ich?**
+        // - Die neue Nachricht wird angenommen
+        // - Das alte Dokument wurde verworfen und unter seinem Topic gezählt
+        assertTrue(guard.admit("S7_1500/Temperatur/Ist"));
+        verify(writeBuffer).evictOldest();
+        assertEquals(1.0, shedCount(WAGO_TOPIC, "drop-oldest"));
+    }
+
+    @Test
+    void testAdmit_Sample_ShouldAcceptEveryNthMessagePerTopic() {
+        // **Was mache ich?**
+        // sample-every=3, sechs Nachrichten auf einem Topic und eine auf einem anderen.
+        IngestOverloadGuard guard = createGuard("sample");
+        ReflectionTestUtils.setField(guard, "sampleEvery", 3);
+        when(writeBuffer.getPendingCount()).thenReturn(10);
+
+        int accepted = 0;
+        for (int i = 0; i < 6; i++) {
+            if (guard.admit(WAGO_TOPIC)) {
+                accepted++;
+            }
+        }
+
+        // **Was erwarte ich?**
+        // - Zwei von sechs angenommen, vier verworfen
+        // - Das andere Topic hat einen eigenen Zähler, seine erste Nachricht geht durch
+        assertEquals(2, accepted);
+        assertEquals(4.0, shedCount(WAGO_TOPIC, "sample"));
+        assertTrue(guard.admit("S7_1500/Temperatur/Ist"));
+    }
+
+    @Test
+    void testAdmit_Block_ShouldWaitUntilBacklogDrops() {
+        // **Was mache ich?**
+        // Der Rückstau ist zweimal zu hoch und sinkt dann.
+        IngestOverloadGuard guard = createGuard("block");
+        when(writeBuffer.getPendingCount()).thenReturn(10, 10, 10, 0);
+
+        // **Was erwarte ich?**
+        // - Die Nachricht wird nach dem Warten angenommen, nichts wird verworfen
+        assertTrue(guard.admit(WAGO_TOPIC));
+        assertNull(meterRegistry.find("mqtt.ingest.shed").counter());
+        assertEquals(1, meterRegistry.get("mqtt.ingest.blocked").timer().count());
+    }
+
+    @Test
+    void testAdmit_BlockTimeout_ShouldShedAfterMaxBlock() {
+        // **Was mache ich?**
+        // Der Rückstau bleibt hoch, max-block-ms ist 20.
+        IngestOverloadGuard guard = createGuard("block");
+        ReflectionTestUtils.setField(guard, "maxBlockMs", 20L);
+        when(writeBuffer.getPendingCount()).thenReturn(10);
+
+        // **Was erwarte ich?**
+        // - Nach Ablauf der Wartezeit wird verworfen und gezählt
+        assertFalse(guard.admit(WAGO_TOPIC));
+        assertEquals(1.0, shedCount(WAGO_TOPIC, "block"));
+    }
+
+    private IngestOverloadGuard createGuard(String policy) {
+        IngestOverloadGuard guard = new IngestOverloadGuard(writeBuffer, topicHandlers, meterRegistry, stripedIngestExecutor);
+        ReflectionTestUtils.setField(guard, "policyName", policy);
+        ReflectionTestUtils.setField(guard, "highWatermark", 10);
+        ReflectionTestUtils.setField(guard, "sampleEvery", 10);
+        ReflectionTestUtils.setField(guard, "maxBlockMs", 0L);
+        guard.init();
+        return guard;
+    }
+
+    private double shedCount(String topic, String policy) {
+        return meterRegistry.get("mqtt.ingest.shed").tag("topic", topic).tag("policy", policy).counter().count();
+    }
+}
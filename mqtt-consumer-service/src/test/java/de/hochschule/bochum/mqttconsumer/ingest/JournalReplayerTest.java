@@ -0,0 +1,283 @@
+package de.hochschule.bochum.mqttconsumer.ingest;
+
+import de.hochschule.bochum.common.model.Rollup;
+import de.hochschule.bochum.common.model.WagoData;
+import de.hochschule.bochum.common.model.WagoTransition;
+import de.hochschule.bochum.mqttconsumer.repository.MqttSiemensDataRepository;
+import de.hochschule.bochum.mqttconsumer.repository.MqttSiemensSnapshotRepository;
+import de.hochschule.bochum.mqttconsumer.repository.MqttWagoDataRepository;
+import de.hochschule.bochum.mqttconsumer.repository.MqttWagoTransitionRepository;
+import de.hochschule.bochum.mqttconsumer.routing.TopicHandlerRegistry;
+import de.hochschule.bochum.mqttconsumer.service.MqttMessageHandler;
+import de.hochschule.bochum.mqttconsumer.storage.RollupWriter;
+import de.hochschule.bochum.mqttconsumer.storage.SiemensBucketWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit-Tests für den JournalReplayer.
+ *
+ * Journal, MqttMessageHandler, TopicHandlerRegistry, IngestSink, WagoTransitionTracker und RollupWriter sind echt,
+ * gemockt sind Repositories, MongoDB und der Write-Behind-Puffer (dessen flush() ich scheitern lassen kann).
+ * Geprüft wird, dass nachgeholte Werte ihren ursprünglichen Empfangszeitpunkt behalten, dass der Checkpoint erst
+ * nach erfolgreichem Flush weitergeht und dass ein gescheiterter Batch genau so wiederholt wird, als wäre der erste
+ * Versuch nie passiert: der Wago-Wechsel geht nicht verloren, Rollups zählen den Wert nur einmal.
+ * Beides einmal direkt und einmal über den StripedIngestExecutor.
+ */
+@ExtendWith(MockitoExtension.class)
+class JournalReplayerTest {
+
+    private static final String WAGO_TOPIC = "Wago750/Status";
+
+    @TempDir
+    Path journalDir;
+
+    @Mock
+    private MqttWagoDataRepository wagoRepository;
+
+    @Mock
+    private MqttSiemensDataRepository siemensRepository;
+
+    @Mock
+    private MqttWagoTransitionRepository transitionRepository;
+
+    @Mock
+    private MqttSiemensSnapshotRepository snapshotRepository;
+
+    @Mock
+    private WriteBehindBuffer writeBuffer;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @Mock
+    private ObjectProvider<StripedIngestExecutor> stripedIngestExecutor;
+
+    private SimpleMeterRegistry meterRegistry;
+    private IngestJournal journal;
+    private JournalReplayer replayer;
+    private TopicHandlerRegistry topicHandlers;
+    private MqttMessageHandler messageHandler;
+    private StripedIngestExecutor executor;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        meterRegistry = new SimpleMeterRegistry();
+        journal = new IngestJournal(meterRegistry);
+        ReflectionTestUtils.setField(journal, "enabled", true);
+        ReflectionTestUtils.setField(journal, "directory", journalDir.toString());
+        ReflectionTestUtils.setField(journal, "segmentSize", 1024 * 1024);
+        journal.open();
+
+        // Write-Behind an (gemockt), Wago vollständig und als Wechsel, Rollups an und vom Replayer geflusht
+        when(writeBuffer.isEnabled()).thenReturn(true);
+        when(writeBuffer.checkpoint()).thenReturn(() -> { });
+        WagoTransitionTracker transitionTracker = new WagoTransitionTracker(transitionRepository, mongoTemplate);
+        ReflectionTestUtils.setField(transitionTracker, "storageModeName", "both");
+        ReflectionTestUtils.setField(transitionTracker, "storageMode", WagoStorageMode.BOTH);
+        RollupWriter rollupWriter = new RollupWriter(mongoTemplate, meterRegistry);
+        ReflectionTestUtils.setField(rollupWriter, "enabled", true);
+        ReflectionTestUtils.setField(rollupWriter, "flushedByReplayer", true);
+        lenient().when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Rollup.class)).thenReturn(bulkOperations);
+        SiemensCompressor compressor = new SiemensCompressor(meterRegistry);
+        SiemensSnapshotAggregator snapshotAggregator = new SiemensSnapshotAggregator(snapshotRepository, writeBuffer, meterRegistry);
+
+        IngestSink sink = new IngestSink(wagoRepository, siemensRepository, transitionRepository, writeBuffer,
+                compressor, transitionTracker, new SiemensBucketWriter(mongoTemplate, meterRegistry), snapshotAggregator, rollupWriter);
+        topicHandlers = new TopicHandlerRegistry(sink);
+        ReflectionTestUtils.setField(topicHandlers, "wagoStatusTopic", WAGO_TOPIC);
+        ReflectionTestUtils.setField(topicHandlers, "siemensIstTopic", "S7_1500/Temperatur/Ist");
+        ReflectionTestUtils.setField(topicHandlers, "siemensSollTopic", "S7_1500/Temperatur/Soll");
+        ReflectionTestUtils.setField(topicHandlers, "siemensDifferenzTopic", "S7_1500/Temperatur/Differenz");
+        ReflectionTestUtils.setField(topicHandlers, "testTopic", "Random/Integer");
+        topicHandlers.init();
+        messageHandler = new MqttMessageHandler(topicHandlers, meterRegistry, journal,
+                new IngestDeduplicator(mongoTemplate, meterRegistry));
+
+        replayer = new JournalReplayer(journal, messageHandler, writeBuffer, transitionTracker, compressor,
+                snapshotAggregator, rollupWriter, meterRegistry, stripedIngestExecutor);
+        ReflectionTestUtils.setField(replayer, "batchSize", 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (executor != null) {
+            executor.stop();
+        }
+        journal.close();
+    }
+
+    @Test
+    void testReplayOnce_Direct_ShouldKeepOriginalReceiveTime() throws Exception {
+        // **Was mache ich?**
+        // Ein Wago-Status steht im Journal, etwas später wird er nachgeholt.
+        journal.append(WAGO_TOPIC, 0, bytes("5"));
+        long receivedAt = journal.read(journal.getCheckpoint(), 1).get(0).receivedAt();
+        Thread.sleep(20);
+
+        replayer.replayOnce();
+
+        // **Was erwarte ich?**
+        // - WagoData und Wechsel tragen den Empfangszeitpunkt aus dem Journal, nicht die Zeit des Nachholens
+        assertReceiveTimeKept(receivedAt);
+    }
+
+    @Test
+    void testReplayOnce_Striped_ShouldKeepOriginalReceiveTime() throws Exception {
+        // **Was mache ich?**
+        // Wie oben, aber die Einträge laufen über die Stripes.
+        useStripedExecutor();
+        journal.append(WAGO_TOPIC, 0, bytes("5"));
+        long receivedAt = journal.read(journal.getCheckpoint(), 1).get(0).receivedAt();
+        Thread.sleep(20);
+
+        replayer.replayOnce();
+
+        // **Was erwarte ich?**
+        // - Auch hier der ursprüngliche Empfangszeitpunkt
+        assertReceiveTimeKept(receivedAt);
+    }
+
+    @Test
+    void testReplayOnce_Direct_FlushFails_ShouldKeepCheckpointAndRetrySameBatch() {
+        assertFailedBatchIsRetriedCleanly();
+    }
+
+    @Test
+    void testReplayOnce_Striped_FlushFails_ShouldKeepCheckpointAndRetrySameBatch() {
+        useStripedExecutor();
+        assertFailedBatchIsRetriedCleanly();
+    }
+
+    @Test
+    void testReplayOnce_JournalAppendFailsDuringFailingReplay_ShouldNotProcessOutsideReplayer() {
+        // **Was mache ich?**
+        // Status 5 steht im Journal, der Flush des Batches scheitert. Während der Replay läuft, kommen zwei
+        // Nachrichten über MQTT: Status 6 landet normal im Journal, bei Status 7 scheitert das Anhängen dauerhaft.
+        IngestJournal failingJournal = spy(journal);
+        doThrow(new IllegalStateException("disk full")).when(failingJournal).append(anyString(), anyInt(), any(byte[].class));
+        MqttMessageHandler failingHandler = new MqttMessageHandler(topicHandlers, meterRegistry, failingJournal,
+                new IngestDeduplicator(mongoTemplate, meterRegistry));
+        ReflectionTestUtils.setField(failingHandler, "appendRetryMs", 1L);
+        doAnswer(invocation -> {
+            assertThrows(IllegalStateException.class,
+                    () -> failingHandler.handleMessage(MessageBuilder.withPayload("7").build(), WAGO_TOPIC));
+            messageHandler.handleMessage(MessageBuilder.withPayload("6").build(), WAGO_TOPIC);
+            throw new DataAccessResourceFailureException("Mongo weg");
+        }).doNothing().when(writeBuffer).flush();
+        journal.append(WAGO_TOPIC, 0, bytes("5"));
+
+        assertThrows(DataAccessResourceFailureException.class, () -> replayer.replayOnce());
+        assertDoesNotThrow(() -> replayer.replayOnce());
+        assertDoesNotThrow(() -> replayer.replayOnce());
+
+        // **Was erwarte ich?**
+        // - Status 7 wird nicht an der Verarbeitung vorbei gespeichert, das Rollback kann ihn also nicht wegräumen;
+        //   die Nachricht geht als Fehler an Paho zurück und wird nicht bestätigt
+        // - Status 6 kommt über das Journal nach dem wiederholten Batch an, alles ist committet
+        ArgumentCaptor<Object> buffered = ArgumentCaptor.forClass(Object.class);
+        verify(writeBuffer, atLeastOnce()).add(buffered.capture());
+        List<Integer> statuses = buffered.getAllValues().stream()
+                .filter(WagoData.class::isInstance).map(data -> ((WagoData) data).getStatus()).toList();
+        assertEquals(List.of(5, 5, 6), statuses);
+        assertEquals(journal.getHead(), journal.getCheckpoint());
+    }
+
+    private void assertFailedBatchIsRetriedCleanly() {
+        // **Was mache ich?**
+        // Status 5 steht im Journal. Der erste Flush scheitert (MongoDB weg), der zweite klappt.
+        // Zwischen den Versuchen kommt Status 6 dazu.
+        doThrow(new DataAccessResourceFailureException("Mongo weg")).doNothing().when(writeBuffer).flush();
+        journal.append(WAGO_TOPIC, 0, bytes("5"));
+        IngestJournal.Position before = journal.getCheckpoint();
+
+        assertThrows(DataAccessResourceFailureException.class, () -> replayer.replayOnce());
+        IngestJournal.Position afterFailure = journal.getCheckpoint();
+        journal.append(WAGO_TOPIC, 0, bytes("6"));
+        int retried = assertDoesNotThrow(() -> replayer.replayOnce());
+        int next = assertDoesNotThrow(() -> replayer.replayOnce());
+
+        // **Was erwarte ich?**
+        // - Nach dem Fehler steht der Checkpoint noch vorne, danach geht er Batch für Batch weiter
+        // - Wiederholt wird genau der alte Batch (nur Status 5), Status 6 kommt erst im nächsten
+        // - Der Wechsel auf 5 wird beim Wiederholen erneut erzeugt statt verschluckt, danach 5 -> 6 mit Maske 3
+        // - Der Minuten-Rollup zählt Status 5 einmal, nicht zweimal, und merkt sich den Batch
+        assertEquals(before, afterFailure);
+        assertEquals(1, retried);
+        assertEquals(1, next);
+        assertEquals(journal.getHead(), journal.getCheckpoint());
+
+        ArgumentCaptor<Object> buffered = ArgumentCaptor.forClass(Object.class);
+        verify(writeBuffer, atLeastOnce()).add(buffered.capture());
+        List<WagoTransition> transitions = buffered.getAllValues().stream()
+                .filter(WagoTransition.class::isInstance).map(WagoTransition.class::cast).toList();
+        assertEquals(List.of(5, 5, 6), transitions.stream().map(WagoTransition::getStatus).toList());
+        assertEquals(WagoTransition.FULL_MASK, transitions.get(1).getChangedMask());
+        assertEquals(3, transitions.get(2).getChangedMask());
+
+        Document firstMinute = rollupUpdates().stream()
+                .filter(update -> ((Document) update.get("$set")).get("last").equals(5.0))
+                .filter(update -> "1m".equals(((Document) update.get("$setOnInsert")).get("tier")))
+                .findFirst().orElseThrow();
+        assertEquals(1L, ((Document) firstMinute.get("$inc")).get("count"));
+        assertNotNull(((Document) firstMinute.get("$set")).get("lastBatch"));
+    }
+
+    private void assertReceiveTimeKept(long receivedAt) {
+        ArgumentCaptor<Object> buffered = ArgumentCaptor.forClass(Object.class);
+        verify(writeBuffer, times(2)).add(buffered.capture());
+        WagoTransition transition = (WagoTransition) buffered.getAllValues().get(0);
+        WagoData wagoData = (WagoData) buffered.getAllValues().get(1);
+        assertEquals(IngestSink.toDateTime(receivedAt), wagoData.getTimestamp());
+        assertEquals(IngestSink.toDateTime(receivedAt), transition.getTimestamp());
+        assertEquals(journal.getHead(), journal.getCheckpoint());
+    }
+
+    private List<Document> rollupUpdates() {
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations, atLeastOnce()).upsert(any(Query.class), updates.capture());
+        return updates.getAllValues().stream().map(Update::getUpdateObject).toList();
+    }
+
+    private void useStripedExecutor() {
+        executor = new StripedIngestExecutor(meterRegistry);
+        ReflectionTestUtils.setField(executor, "stripeCount", 2);
+        ReflectionTestUtils.setField(executor, "queueCapacity", 100);
+        executor.start();
+        when(stripedIngestExecutor.getIfAvailable()).thenReturn(executor);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,129 @@
+package de.hochschule.bochum.mqttconsumer.ingest;
+
+import de.hochschule.bochum.common.model.SiemensData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit-Tests für den SiemensCompressor.
+ *
+ * Die Zeit wird als Millisekunden direkt übergeben, damit die Tests nicht von der Uhr abhängen.
+ * Geprüft werden Deadband (absolut und relativ), Swinging-Door auf einer Rampe mit Knick,
+ * der Heartbeat und die Kompressionsrate als Gauge.
+ */
+class SiemensCompressorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private SiemensCompressor compressor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        compressor = new SiemensCompressor(meterRegistry);
+        ReflectionTestUtils.setField(compressor, "enabled", true);
+        ReflectionTestUtils.setField(compressor, "heartbeatSeconds", 60L);
+        ReflectionTestUtils.setField(compressor, "istMode", "swinging-door");
+        ReflectionTestUtils.setField(compressor, "istDeviation", 0.1);
+        ReflectionTestUtils.setField(compressor, "sollMode", "deadband");
+        ReflectionTestUtils.setField(compressor, "sollDeviation", 0.5);
+        ReflectionTestUtils.setField(compressor, "differenzMode", "deadband-relative");
+        ReflectionTestUtils.setField(compressor, "differenzDeviation", 0.1);
+        compressor.init();
+    }
+
+    @Test
+    void testDeadband_ShouldOnlyStoreSignificantChanges() {
+        // **Was mache ich?**
+        // SOLL bleibt fast konstant und springt dann um 1 Grad.
+        List<Double> stored = offerAll("SOLL", 0, 1000, 25.0, 25.2, 24.8, 25.4, 26.0);
+
+        // **Was erwarte ich?**
+        // - Erster Wert und der Sprung über 0.5 werden gespeichert, der Rest nicht
+        assertEquals(List.of(25.0, 26.0), stored);
+        assertEquals(2.5, meterRegistry.get("mqtt.compression.ratio").tag("type", "SOLL").gauge().value());
+    }
+
+    @Test
+    void testDeadbandRelative_ShouldScaleWithValue() {
+        // **Was mache ich?**
+        // 10 % Toleranz: bei 10 Grad also 1 Grad.
+        List<Double> stored = offerAll("DIFFERENZ", 0, 1000, 10.0, 10.9, 11.1);
+
+        // **Was erwarte ich?**
+        // - 10.9 liegt im Band, 11.1 nicht mehr
+        assertEquals(List.of(10.0, 11.1), stored);
+    }
+
+    @Test
+    void testSwingingDoor_ShouldStoreOnlyCornersOfRamp() {
+        // **Was mache ich?**
+        // IST steigt linear (1 Grad pro Sekunde) und bleibt ab 5 s konstant.
+        List<SiemensData> stored = new ArrayList<>();
+        double[] values = {20, 21, 22, 23, 24, 25, 25, 25, 25};
+        for (int i = 0; i < values.length; i++) {
+            stored.addAll(compressor.offer(new SiemensData(values[i], "IST"), values[i], i * 1000L));
+        }
+
+        // **Was erwarte ich?**
+        // - Gespeichert werden der Start und der Knick bei 25 Grad (der zurückgehaltene Punkt),
+        //   die Punkte auf den Geraden dazwischen nicht
+        assertEquals(List.of(20.0, 25.0), stored.stream().map(SiemensCompressorTest::valueOf).toList());
+    }
+
+    @Test
+    void testHeartbeat_ShouldStoreUnchangedValuePeriodically() {
+        // **Was mache ich?**
+        // SOLL ist konstant, Werte kommen alle 30 s (Heartbeat 60 s).
+        List<Double> stored = offerAll("SOLL", 0, 30_000, 25.0, 25.0, 25.0, 25.0, 25.0);
+
+        // **Was erwarte ich?**
+        // - Bei 0 s, 60 s und 120 s wird trotzdem gespeichert
+        assertEquals(3, stored.size());
+    }
+
+    @Test
+    void testHeartbeat_DuringSlowRamp_ShouldStoreHeldPointFirst() {
+        // **Was mache ich?**
+        // IST steigt langsam (0.01 Grad alle 20 s), die Tür bleibt offen. Bei 60 s schlägt der Heartbeat zu.
+        List<Double> stored = offerAll("IST", 0, 20_000, 20.00, 20.01, 20.02, 20.03);
+
+        // **Was erwarte ich?**
+        // - Start, dann der zurückgehaltene Punkt von 40 s und erst danach der Heartbeat-Wert von 60 s
+        assertEquals(List.of(20.00, 20.02, 20.03), stored);
+    }
+
+    @Test
+    void testDisabled_ShouldPassEverythingThrough() {
+        // **Was erwarte ich?**
+        // - Ohne Kompression wird jeder Wert unverändert zurückgegeben
+        SiemensCompressor disabled = new SiemensCompressor(meterRegistry);
+        SiemensData data = new SiemensData(25.0, "SOLL");
+        assertEquals(List.of(data), disabled.offer(data, 25.0, 0));
+        assertEquals(List.of(data), disabled.offer(data, 25.0, 1));
+    }
+
+    private List<Double> offerAll(String type, long start, long step, double... values) {
+        List<Double> stored = new ArrayList<>();
+        for (int i = 0; i < values.length; i++) {
+            for (SiemensData data : compressor.offer(new SiemensData(values[i], type), values[i], start + i * step)) {
+                stored.add(valueOf(data));
+            }
+        }
+        return stored;
+    }
+
+    private static Double valueOf(SiemensData data) {
+        return switch (data.getType()) {
+            case "IST" -> data.getIstTemperatur();
+            case "SOLL" -> data.getSollTemperatur();
+            default -> data.getDifferenzTemperatur();
+        };
+    }
+}
@@ -0,0 +1,125 @@
+package de.hochschule.bochum.mqttconsumer.ingest;
+
+import de.hochschule.bochum.common.model.SiemensSnapshot;
+import de.hochschule.bochum.mqttconsumer.repository.MqttSiemensSnapshotRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit-Tests für den SiemensSnapshotAggregator.
+ *
+ * Die Zeit wird als Millisekunden-Wert übergeben, damit das Fenster ohne Warten geprüft werden kann.
+ * Geprüft wird, dass drei Werte im Fenster genau einen vollständigen Snapshot ergeben und dass
+ * unvollständige Snapshots bei Fensterende bzw. doppeltem Typ gespeichert oder verworfen werden.
+ */
+@ExtendWith(MockitoExtension.class)
+class SiemensSnapshotAggregatorTest {
+
+    @Mock
+    private MqttSiemensSnapshotRepository snapshotRepository;
+
+    @Mock
+    private WriteBehindBuffer writeBuffer;
+
+    private SimpleMeterRegistry meterRegistry;
+    private SiemensSnapshotAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        aggregator = new SiemensSnapshotAggregator(snapshotRepository, writeBuffer, meterRegistry);
+        ReflectionTestUtils.setField(aggregator, "enabled", true);
+        // Großes Fenster, damit der Timer-Thread im Test nichts selbst schließt
+        ReflectionTestUtils.setField(aggregator, "windowMs", 60_000L);
+        ReflectionTestUtils.setField(aggregator, "writePartial", true);
+        aggregator.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        aggregator.stop();
+    }
+
+    @Test
+    void testOffer_AllThreeTypesInWindow_ShouldSaveOneCompleteSnapshot() {
+        // **Was mache ich?**
+        // IST, SOLL und DIFFERENZ kommen kurz hintereinander.
+        aggregator.offer("IST", 21.5, 1_000);
+        aggregator.offer("SOLL", 25.0, 1_100);
+        aggregator.offer("DIFFERENZ", 3.5, 1_200);
+
+        // **Was erwarte ich?**
+        // - Genau ein gespeichertes Dokument mit allen drei Werten, als vollständig markiert
+        List<SiemensSnapshot> saved = savedSnapshots(1);
+        SiemensSnapshot snapshot = saved.get(0);
+        assertEquals(21.5, snapshot.getIstTemperatur());
+        assertEquals(25.0, snapshot.getSollTemperatur());
+        assertEquals(3.5, snapshot.getDifferenzTemperatur());
+        assertTrue(snapshot.isComplete());
+        assertNotNull(snapshot.getTimestamp());
+    }
+
+    @Test
+    void testOffer_SameTypeTwice_ShouldCloseSnapshotAsPartial() {
+        // **Was mache ich?**
+        // IST kommt zweimal, bevor SOLL und DIFFERENZ da sind.
+        aggregator.offer("IST", 21.5, 1_000);
+        aggregator.offer("IST", 21.7, 1_500);
+
+        // **Was erwarte ich?**
+        // - Der erste Snapshot wird unvollständig gespeichert, der neue Wert beginnt einen neuen
+        SiemensSnapshot snapshot = savedSnapshots(1).get(0);
+        assertEquals(21.5, snapshot.getIstTemperatur());
+        assertNull(snapshot.getSollTemperatur());
+        assertFalse(snapshot.isComplete());
+    }
+
+    @Test
+    void testExpire_AfterWindow_ShouldWritePartialSnapshot() {
+        // **Was mache ich?**
+        // Nur IST und SOLL kommen, danach läuft das Fenster ab.
+        aggregator.offer("IST", 21.5, 1_000);
+        aggregator.offer("SOLL", 25.0, 1_100);
+        aggregator.expire(1_000 + 60_001);
+
+        // **Was erwarte ich?**
+        // - Ein unvollständiger Snapshot ohne Differenz, gezählt mit complete=false
+        SiemensSnapshot snapshot = savedSnapshots(1).get(0);
+        assertNull(snapshot.getDifferenzTemperatur());
+        assertFalse(snapshot.isComplete());
+        assertEquals(1.0, meterRegistry.get("mqtt.snapshot.written").tag("complete", "false").counter().count());
+    }
+
+    @Test
+    void testExpire_PartialDisabled_ShouldDropSnapshot() {
+        // **Was mache ich?**
+        // write-partial ist aus, nur ein Wert kommt, dann läuft das Fenster ab.
+        ReflectionTestUtils.setField(aggregator, "writePartial", false);
+        aggregator.offer("IST", 21.5, 1_000);
+        aggregator.expire(1_000 + 60_001);
+
+        // **Was erwarte ich?**
+        // - Nichts gespeichert, aber als verworfen gezählt
+        verify(snapshotRepository, never()).save(any());
+        assertEquals(1.0, meterRegistry.get("mqtt.snapshot.dropped").counter().count());
+    }
+
+    private List<SiemensSnapshot> savedSnapshots(int expected) {
+        ArgumentCaptor<SiemensSnapshot> captor = ArgumentCaptor.forClass(SiemensSnapshot.class);
+        verify(snapshotRepository, times(expected)).save(captor.capture());
+        return captor.getAllValues();
+    }
+}
@@ -0,0 +1,158 @@
+package de.hochschule.bochum.mqttconsumer.ingest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit-Tests für den StripedIngestExecutor.
+ *
+ * Ich prüfe, dass Aufgaben mit demselben Topic strikt in Reihenfolge laufen,
+ * dass ein blockiertes Topic andere Topics nicht aufhält und dass die
+ * Queue-Tiefe pro Stripe als Gauge registriert wird.
+ */
+class StripedIngestExecutorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private StripedIngestExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        executor = new StripedIngestExecutor(meterRegistry);
+        ReflectionTestUtils.setField(executor, "stripeCount", 4);
+        ReflectionTestUtils.setField(executor, "queueCapacity", 100);
+        executor.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.stop();
+    }
+
+    @Test
+    void testExecute_ShouldKeepOrderWithinTopic() throws InterruptedException {
+        // **Was mache ich?**
+        // 50 Aufgaben für dasselbe Topic einreihen und die Ausführungsreihenfolge mitschreiben.
+
+        List<Integer> seen = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(50);
+        for (int i = 0; i < 50; i++) {
+            int value = i;
+            executor.execute("Wago750/Status", () -> {
+                seen.add(value);
+                done.countDown();
+            });
+        }
+
+        // **Was erwarte ich?**
+        // - Alle Aufgaben laufen, und zwar exakt in Einreihungsreihenfolge
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i, seen.get(i));
+        }
+    }
+
+    @Test
+    void testExecute_SlowTopicShouldNotBlockOtherTopic() throws InterruptedException {
+        // **Was mache ich?**
+        // Zwei Topics, die in unterschiedlichen Stripes landen. Das erste blockiert, bis das zweite fertig ist.
+
+        String slowTopic = "S7_1500/Temperatur/Ist";
+        String fastTopic = findTopicInOtherStripe(slowTopic);
+        CountDownLatch fastDone = new CountDownLatch(1);
+        CountDownLatch slowDone = new CountDownLatch(1);
+
+        executor.execute(slowTopic, () -> {
+            try {
+                fastDone.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            slowDone.countDown();
+        });
+        executor.execute(fastTopic, fastDone::countDown);
+
+        // **Was erwarte ich?**
+        // - Das schnelle Topic wird trotz blockiertem Stripe bearbeitet (sonst Deadlock bis Timeout)
+        assertTrue(fastDone.await(2, TimeUnit.SECONDS));
+        assertTrue(slowDone.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testStart_ShouldRegisterQueueDepthGauges() {
+        // **Was erwarte ich?**
+        // - Pro Stripe gibt es eine Gauge mqtt.ingest.queue.depth, anfangs alle 0
+        assertEquals(4, meterRegistry.get("mqtt.ingest.queue.depth").gauges().size());
+        assertEquals(0, executor.getBacklog());
+    }
+
+    @Test
+    void testStop_ShouldDrainQueuedTasks() throws InterruptedException {
+        // **Was mache ich?**
+        // Aufgaben einreihen und sofort stoppen.
+
+        List<Integer> seen = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            int value = i;
+            executor.execute("Random/Integer", () -> seen.add(value));
+        }
+        executor.stop();
+
+        // **Was erwarte ich?**
+        // - Auch nach stop() wurden alle eingereihten Aufgaben noch ausgeführt
+        assertEquals(20, seen.size());
+        assertFalse(executor.isRunning());
+    }
+
+    @Test
+    void testEvictOldest_ShouldDropHeadOfStripe() throws InterruptedException {
+        // **Was mache ich?**
+        // Den Stripe mit einer blockierenden Aufgabe belegen, zwei weitere einreihen und die älteste wartende verwerfen.
+
+        String topic = "Wago750/Status";
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        List<String> seen = new CopyOnWriteArrayList<>();
+        executor.execute(topic, () -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        executor.execute(topic, () -> seen.add("alt"));
+        executor.execute(topic, () -> seen.add("neu"));
+
+        String evicted = executor.evictOldest(topic);
+        release.countDown();
+        executor.stop();
+
+        // **Was erwarte ich?**
+        // - Verworfen wurde die älteste wartende Aufgabe, gemeldet mit ihrem Topic
+        // - Die neuere läuft trotzdem
+        assertEquals(topic, evicted);
+        assertEquals(List.of("neu"), seen);
+    }
+
+    private String findTopicInOtherStripe(String topic) {
+        int stripe = executor.stripeOf(topic);
+        for (int i = 0; ; i++) {
+            String candidate = "Wago750/Status/" + i;
+            if (executor.stripeOf(candidate) != stripe) {
+                return candidate;
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package de.hochschule.bochum.mqttconsumer.ingest;
+
+import de.hochschule.bochum.common.model.WagoTransition;
+import de.hochschule.bochum.mqttconsumer.repository.MqttWagoTransitionRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit-Tests für den WagoTransitionTracker.
+ *
+ * Geprüft wird, dass nur echte Wechsel einen Eintrag erzeugen, dass die Maske genau die
+ * geänderten Bits enthält und dass nach einem Neustart vom letzten gespeicherten Status
+ * aus weiter verglichen wird.
+ */
+@ExtendWith(MockitoExtension.class)
+class WagoTransitionTrackerTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 5, 1, 13, 0);
+
+    @Mock
+    private MqttWagoTransitionRepository transitionRepository;
+
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    private MongoTemplate mongoTemplate;
+
+    @Test
+    void testTrack_ShouldOnlyEmitChanges() {
+        // **Was mache ich?**
+        // Leere Datenbank, dann Status 5, 5, 4.
+        when(transitionRepository.findTopByOrderByTimestampDesc()).thenReturn(Optional.empty());
+        WagoTransitionTracker tracker = createTracker("transitions");
+
+        WagoTransition first = tracker.track(5, NOW);
+        WagoTransition unchanged = tracker.track(5, NOW);
+        WagoTransition changed = tracker.track(4, NOW);
+
+        // **Was erwarte ich?**
+        // - Der erste Wert ist ein vollständiger Startpunkt (alle Bits gelten als geändert)
+        // - Ein unveränderter Wert erzeugt nichts
+        // - Von 101 auf 100 hat sich nur Bit 0 geändert
+        assertEquals(WagoTransition.FULL_MASK, first.getChangedMask());
+        assertNull(unchanged);
+        assertEquals(1, changed.getChangedMask());
+        assertEquals(4, changed.getStatus());
+        assertEquals(NOW, changed.getTimestamp());
+        assertFalse(tracker.isStoringFull());
+    }
+
+    @Test
+    void testInit_ShouldContinueFromLastStoredStatus() {
+        // **Was mache ich?**
+        // In der Datenbank steht als letzter Wechsel Status 3, danach kommt wieder 3 und dann 1.
+        when(transitionRepository.findTopByOrderByTimestampDesc()).thenReturn(Optional.of(new WagoTransition(3, 3)));
+        WagoTransitionTracker tracker = createTracker("both");
+
+        // **Was erwarte ich?**
+        // - Kein neuer Startpunkt nach dem Neustart, nur der echte Wechsel (Bit 1) wird erzeugt
+        assertNull(tracker.track(3, NOW));
+        assertEquals(2, tracker.track(1, NOW).getChangedMask());
+        assertTrue(tracker.isStoringFull());
+    }
+
+    @Test
+    void testTrack_FullMode_ShouldNotEmitTransitions() {
+        // **Was erwarte ich?**
+        // - Im Modus full gibt es keine Wechsel-Einträge und keinen Datenbankzugriff beim Start
+        WagoTransitionTracker tracker = createTracker("full");
+        assertNull(tracker.track(7, NOW));
+        verifyNoInteractions(transitionRepository);
+    }
+
+    private WagoTransitionTracker createTracker(String mode) {
+        WagoTransitionTracker tracker = new WagoTransitionTracker(transitionRepository, mongoTemplate);
+        ReflectionTestUtils.setField(tracker, "storageModeName", mode);
+        tracker.init();
+        return tracker;
+    }
+}
@@ -0,0 +1,150 @@
+package de.hochschule.bochum.mqttconsumer.ingest;
+
+import com.mongodb.bulk.BulkWriteError;
+import de.hochschule.bochum.common.model.SiemensData;
+import de.hochschule.bochum.common.model.WagoData;
+import de.hochschule.bochum.mqttconsumer.storage.SiemensBucketWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit-Tests für den WriteBehindBuffer.
+ *
+ * Geprüft wird, dass gepufferte Werte per Bulk-Insert (UNORDERED) geschrieben werden,
+ * dass große Mengen in Batches der konfigurierten Größe aufgeteilt werden und dass
+ * beim Shutdown nichts verloren geht. Die Metriken laufen gegen eine SimpleMeterRegistry.
+ */
+@ExtendWith(MockitoExtension.class)
+class WriteBehindBufferTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    private SimpleMeterRegistry meterRegistry;
+    private WriteBehindBuffer writeBuffer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        writeBuffer = new WriteBehindBuffer(mongoTemplate, meterRegistry, new SiemensBucketWriter(mongoTemplate, meterRegistry));
+        ReflectionTestUtils.setField(writeBuffer, "enabled", true);
+        ReflectionTestUtils.setField(writeBuffer, "maxBatchSize", 2);
+        // Großes Intervall, damit im Test nur explizite Flushes laufen
+        ReflectionTestUtils.setField(writeBuffer, "flushIntervalMs", 60_000L);
+        writeBuffer.start();
+
+        lenient().when(mongoTemplate.bulkOps(eq(BulkOperations.BulkMode.UNORDERED), any(Class.class)))
+                .thenReturn(bulkOperations);
+        lenient().when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+    }
+
+    @AfterEach
+    void tearDown() {
+        writeBuffer.drain();
+    }
+
+    @Test
+    void testFlush_ShouldBulkInsertPerCollection() {
+        // **Was mache ich?**
+        // Ein Wago- und ein Siemens-Wert werden gepuffert und dann geflusht.
+
+        writeBuffer.add(new WagoData(3));
+        writeBuffer.add(new SiemensData(21.0, "IST"));
+        writeBuffer.flush();
+
+        // **Was erwarte ich?**
+        // - Pro Collection genau ein UNORDERED-Bulk-Insert
+        // - Puffer ist danach leer und die Flush-Größe wurde als Metrik erfasst
+        verify(mongoTemplate).bulkOps(BulkOperations.BulkMode.UNORDERED, WagoData.class);
+        verify(mongoTemplate).bulkOps(BulkOperations.BulkMode.UNORDERED, SiemensData.class);
+        verify(bulkOperations, times(2)).execute();
+        assertEquals(0, writeBuffer.getPendingCount());
+        assertEquals(1, meterRegistry.get("mqtt.persistence.flush.size").summary().count());
+        assertEquals(1, meterRegistry.get("mqtt.persistence.flush.latency").timer().count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFlush_ShouldSplitIntoBatchesOfMaxSize() {
+        // **Was mache ich?**
+        // Drei Siemens-Werte bei maxBatchSize = 2 (ohne laufenden Flusher, damit nichts dazwischenfunkt).
+
+        writeBuffer.drain();
+        for (int i = 0; i < 3; i++) {
+            writeBuffer.add(new SiemensData(20.0 + i, "IST"));
+        }
+        writeBuffer.flush();
+
+        // **Was erwarte ich?**
+        // - Zwei Bulk-Inserts: einer mit 2 und einer mit 1 Dokument
+        ArgumentCaptor<List<SiemensData>> captor = ArgumentCaptor.forClass(List.class);
+        verify(bulkOperations, times(2)).insert(captor.capture());
+        assertEquals(2, captor.getAllValues().get(0).size());
+        assertEquals(1, captor.getAllValues().get(1).size());
+    }
+
+    @Test
+    void testDrain_ShouldWriteRemainingData() {
+        // **Was mache ich?**
+        // Ein Wert liegt im Puffer, dann wird der Service heruntergefahren.
+
+        writeBuffer.add(new WagoData(1));
+        writeBuffer.drain();
+
+        // **Was erwarte ich?**
+        // - Der Wert wurde vor dem Shutdown noch geschrieben
+        verify(bulkOperations, atLeastOnce()).execute();
+        assertEquals(0, writeBuffer.getPendingCount());
+    }
+
+    @Test
+    void testAdd_ShouldRejectUnknownType() {
+        // **Was mache ich?**
+        // Ein beliebiges Objekt soll gepuffert werden – das ist nicht erlaubt.
+
+        // **Was erwarte ich?**
+        // - IllegalArgumentException, der Puffer bleibt leer
+        assertThrows(IllegalArgumentException.class, () -> writeBuffer.add("kein Messwert"));
+        assertEquals(0, writeBuffer.getPendingCount());
+    }
+
+    @Test
+    void testFlush_ShouldIgnoreDuplicateKeyErrors() {
+        // **Was mache ich?**
+        // MongoDB lehnt ein Dokument wegen des Unique-Index (dedupKey) ab.
+
+        BulkOperationException duplicate = mock(BulkOperationException.class);
+        when(duplicate.getErrors()).thenReturn(List.of(new BulkWriteError(11000, "duplicate key", new BsonDocument(), 0)));
+        when(bulkOperations.execute()).thenThrow(duplicate);
+
+        writeBuffer.add(new WagoData(4));
+
+        // **Was erwarte ich?**
+        // - Kein Fehler nach außen, das Duplikat wird nur gezählt
+        assertDoesNotThrow(() -> writeBuffer.flush());
+        assertEquals(1.0, meterRegistry.get("mqtt.persistence.duplicates").counter().count());
+        assertEquals(0, writeBuffer.getFailedFlushCount());
+    }
+}
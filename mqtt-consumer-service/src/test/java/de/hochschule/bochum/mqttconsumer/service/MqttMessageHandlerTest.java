@@ -2,24 +2,39 @@ package de.hochschule.bochum.mqttconsumer.service;
 
 import de.hochschule.bochum.common.model.SiemensData;
 import de.hochschule.bochum.common.model.WagoData;
+import de.hochschule.bochum.mqttconsumer.ingest.IngestDeduplicator;
+import de.hochschule.bochum.mqttconsumer.ingest.IngestJournal;
+import de.hochschule.bochum.mqttconsumer.ingest.IngestSink;
+import de.hochschule.bochum.mqttconsumer.ingest.SiemensCompressor;
+import de.hochschule.bochum.mqttconsumer.ingest.SiemensSnapshotAggregator;
+import de.hochschule.bochum.mqttconsumer.ingest.WagoTransitionTracker;
+import de.hochschule.bochum.mqttconsumer.ingest.WriteBehindBuffer;
 import de.hochschule.bochum.mqttconsumer.repository.MqttSiemensDataRepository;
+import de.hochschule.bochum.mqttconsumer.repository.MqttSiemensSnapshotRepository;
 import de.hochschule.bochum.mqttconsumer.repository.MqttWagoDataRepository;
+import de.hochschule.bochum.mqttconsumer.repository.MqttWagoTransitionRepository;
+import de.hochschule.bochum.mqttconsumer.routing.TopicHandlerRegistry;
+import de.hochschule.bochum.mqttconsumer.storage.RollupWriter;
+import de.hochschule.bochum.mqttconsumer.storage.SiemensBucketWriter;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.integration.mqtt.support.MqttHeaders;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -32,6 +47,7 @@ import static org.mockito.Mockito.*;
  * - Das Micrometer-Counter-Monitoring wird immer hochgezählt.
  *
  * Die Properties (Topics) werden mit Reflection gesetzt, damit sie wie in der echten Anwendung vorhanden sind.
+ * TopicHandlerRegistry und IngestSink sind echt, gemockt sind nur Repositories, Puffer und Metriken.
  */
 
 @ExtendWith(MockitoExtension.class)
@@ -43,22 +59,56 @@ class MqttMessageHandlerTest {
     @Mock
     private MqttSiemensDataRepository siemensRepository;
 
+    @Mock
+    private MqttWagoTransitionRepository transitionRepository;
+
+    @Mock
+    private MqttSiemensSnapshotRepository snapshotRepository;
+
     @Mock
     private MeterRegistry meterRegistry;
 
     @Mock
     private Counter counter;
 
-    @InjectMocks
+    @Mock
+    private WriteBehindBuffer writeBuffer;
+
+    @Mock
+    private IngestJournal journal;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
     private MqttMessageHandler mqttMessageHandler;
 
     @BeforeEach
     void setUp() {
+        // Kompression, Snapshots und Rollups sind aus und Wago wird vollständig gespeichert (Standard), jeder Wert landet im Repository
+        WagoTransitionTracker transitionTracker = new WagoTransitionTracker(transitionRepository, mongoTemplate);
+        ReflectionTestUtils.setField(transitionTracker, "storageModeName", "full");
+        transitionTracker.init();
+        IngestSink sink = new IngestSink(wagoRepository, siemensRepository, transitionRepository, writeBuffer,
+                new SiemensCompressor(meterRegistry), transitionTracker, new SiemensBucketWriter(mongoTemplate, meterRegistry),
+                new SiemensSnapshotAggregator(snapshotRepository, writeBuffer, meterRegistry),
+                new RollupWriter(mongoTemplate, meterRegistry));
+        TopicHandlerRegistry topicHandlers = new TopicHandlerRegistry(sink);
+
         // Setze die @Value Properties wie sie auch bei Spring gesetzt werden würden
-        ReflectionTestUtils.setField(mqttMessageHandler, "wagoStatusTopic", "Wago750/Status");
-        ReflectionTestUtils.setField(mqttMessageHandler, "siemensIstTopic", "S7_1500/Temperatur/Ist");
-        ReflectionTestUtils.setField(mqttMessageHandler, "siemensSollTopic", "S7_1500/Temperatur/Soll");
-        ReflectionTestUtils.setField(mqttMessageHandler, "siemensDifferenzTopic", "S7_1500/Temperatur/Differenz");
+        ReflectionTestUtils.setField(topicHandlers, "wagoStatusTopic", "Wago750/Status");
+        ReflectionTestUtils.setField(topicHandlers, "siemensIstTopic", "S7_1500/Temperatur/Ist");
+        ReflectionTestUtils.setField(topicHandlers, "siemensSollTopic", "S7_1500/Temperatur/Soll");
+        ReflectionTestUtils.setField(topicHandlers, "siemensDifferenzTopic", "S7_1500/Temperatur/Differenz");
+        ReflectionTestUtils.setField(topicHandlers, "testTopic", "Random/Integer");
+        topicHandlers.init();
+
+        // Deduplizierung ist echt und aktiv, aber ohne Unique-Index (kein MongoDB-Zugriff)
+        IngestDeduplicator deduplicator = new IngestDeduplicator(mongoTemplate, meterRegistry);
+        ReflectionTestUtils.setField(deduplicator, "enabled", true);
+        ReflectionTestUtils.setField(deduplicator, "windowSize", 100);
+        ReflectionTestUtils.setField(deduplicator, "windowMs", 60_000L);
+
+        mqttMessageHandler = new MqttMessageHandler(topicHandlers, meterRegistry, journal, deduplicator);
 
         // Mock für Counter von Micrometer
         when(meterRegistry.counter(anyString(), anyString(), anyString())).thenReturn(counter);
@@ -192,4 +242,121 @@ class MqttMessageHandlerTest {
         verify(siemensRepository, never()).save(any(SiemensData.class));
         verify(counter, times(1)).increment();
     }
+
+    @Test
+    void testHandleWagoMessage_WithWriteBehind_ShouldBufferInsteadOfSave() {
+        // **Was mache ich?**
+        // Aktiviere den Write-Behind-Puffer und simuliere eine gültige Wago-Nachricht.
+
+        when(writeBuffer.isEnabled()).thenReturn(true);
+        Message<String> message = MessageBuilder.withPayload("[7]").build();
+
+        mqttMessageHandler.handleMessage(message, "Wago750/Status");
+
+        // **Was erwarte ich?**
+        // - Der Wert landet im Puffer (inkl. entfernter Klammern)
+        // - Es gibt KEINEN Einzel-Save mehr auf dem Repository
+        ArgumentCaptor<Object> bufferCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(writeBuffer, times(1)).add(bufferCaptor.capture());
+        assertEquals(Integer.valueOf(7), ((WagoData) bufferCaptor.getValue()).getStatus());
+        verify(wagoRepository, never()).save(any(WagoData.class));
+        verify(counter, times(1)).increment();
+    }
+
+    @Test
+    void testHandleSiemensMessage_WithRawBytePayload_ShouldSaveSiemensData() {
+        // **Was mache ich?**
+        // Paho liefert die Payload als byte[] – genau so simuliere ich hier einen Soll-Wert.
+
+        Message<byte[]> message = MessageBuilder.withPayload(" 25.25\n".getBytes()).build();
+        when(siemensRepository.save(any(SiemensData.class))).thenReturn(new SiemensData(25.25, "SOLL"));
+
+        mqttMessageHandler.handleMessage(message, "S7_1500/Temperatur/Soll");
+
+        // **Was erwarte ich?**
+        // - Der Wert wird direkt aus den Bytes gelesen (inkl. Whitespace) und als SOLL gespeichert
+        ArgumentCaptor<SiemensData> siemensCaptor = ArgumentCaptor.forClass(SiemensData.class);
+        verify(siemensRepository, times(1)).save(siemensCaptor.capture());
+        assertEquals("SOLL", siemensCaptor.getValue().getType());
+        assertEquals(Double.valueOf(25.25), siemensCaptor.getValue().getSollTemperatur());
+    }
+
+    @Test
+    void testHandleMessage_WithJournal_ShouldOnlyAppendToJournal() {
+        // **Was mache ich?**
+        // Journal ist aktiv: Die Nachricht darf nur angehängt werden, gespeichert wird später vom Replayer.
+
+        when(journal.isEnabled()).thenReturn(true);
+        Message<String> message = MessageBuilder.withPayload("23.5").build();
+
+        mqttMessageHandler.handleMessage(message, "S7_1500/Temperatur/Ist");
+
+        // **Was erwarte ich?**
+        // - Genau ein Journal-Eintrag mit Topic und Roh-Bytes
+        // - Kein direkter Zugriff auf MongoDB
+        verify(journal, times(1)).append(eq("S7_1500/Temperatur/Ist"), eq(0), eq("23.5".getBytes()));
+        verify(siemensRepository, never()).save(any(SiemensData.class));
+        verify(counter, times(1)).increment();
+    }
+
+    @Test
+    void testHandleMessage_WhenJournalFailsOnce_ShouldRetryAppend() {
+        // **Was mache ich?**
+        // Das Journal wirft beim ersten Anhängen, der zweite Versuch klappt.
+
+        when(journal.isEnabled()).thenReturn(true);
+        doThrow(new IllegalStateException("busy")).doNothing().when(journal).append(anyString(), anyInt(), any(byte[].class));
+
+        mqttMessageHandler.handleMessage(MessageBuilder.withPayload("3").build(), "Wago750/Status");
+
+        // **Was erwarte ich?**
+        // - Zwei Versuche, danach steht die Nachricht im Journal; direkt gespeichert wird nichts
+        verify(journal, times(2)).append(eq("Wago750/Status"), eq(0), eq("3".getBytes()));
+        verify(wagoRepository, never()).save(any(WagoData.class));
+    }
+
+    @Test
+    void testHandleMessage_WhenJournalKeepsFailing_ShouldFailMessageInsteadOfProcessingDirectly() {
+        // **Was mache ich?**
+        // Das Journal wirft bei jedem Versuch (z.B. Platte voll).
+
+        when(journal.isEnabled()).thenReturn(true);
+        when(meterRegistry.counter("mqtt.journal.append.failed")).thenReturn(counter);
+        ReflectionTestUtils.setField(mqttMessageHandler, "appendRetryMs", 1L);
+        doThrow(new IllegalStateException("disk full")).when(journal).append(anyString(), anyInt(), any(byte[].class));
+
+        // **Was erwarte ich?**
+        // - Die Exception geht an Paho zurück, die Nachricht wird also nicht bestätigt
+        // - Sie wird nicht am JournalReplayer vorbei gespeichert (dessen Rollback würde sie sonst mit wegräumen)
+        assertThrows(IllegalStateException.class,
+                () -> mqttMessageHandler.handleMessage(MessageBuilder.withPayload("3").build(), "Wago750/Status"));
+        verify(journal, times(4)).append(anyString(), anyInt(), any(byte[].class));
+        verify(wagoRepository, never()).save(any(WagoData.class));
+        verify(writeBuffer, never()).add(any());
+    }
+
+    @Test
+    void testHandleMessage_QosRedelivery_ShouldBeStoredOnlyOnce() {
+        // **Was mache ich?**
+        // Dieselbe QoS-1-Nachricht (gleiche Message-ID, gleiche Payload) kommt zweimal an, z.B. nach einem Reconnect.
+        // Danach eine neue Nachricht mit gleicher Payload, aber anderer Message-ID.
+
+        when(wagoRepository.save(any(WagoData.class))).thenReturn(new WagoData(7));
+        Message<String> first = MessageBuilder.withPayload("7").setHeader(MqttHeaders.ID, 17).build();
+        Message<String> redelivery = MessageBuilder.withPayload("7")
+                .setHeader(MqttHeaders.ID, 17)
+                .setHeader(MqttHeaders.DUPLICATE, true)
+                .build();
+        Message<String> next = MessageBuilder.withPayload("7").setHeader(MqttHeaders.ID, 18).build();
+
+        mqttMessageHandler.handleMessage(first, "Wago750/Status");
+        mqttMessageHandler.handleMessage(redelivery, "Wago750/Status");
+        mqttMessageHandler.handleMessage(next, "Wago750/Status");
+
+        // **Was erwarte ich?**
+        // - Die Wiederholung wird verworfen, die neue Nachricht gespeichert: 2 Inserts statt 3
+        // - Das Duplikat wird über mqtt.ingest.duplicates gezählt
+        verify(wagoRepository, times(2)).save(any(WagoData.class));
+        verify(meterRegistry).counter("mqtt.ingest.duplicates", "topic", "Wago750/Status");
+    }
 }
@@ -0,0 +1,150 @@
+package de.hochschule.bochum.mqttconsumer.storage;
+
+import com.mongodb.client.result.DeleteResult;
+import de.hochschule.bochum.common.model.Rollup;
+import de.hochschule.bochum.common.model.SiemensData;
+import de.hochschule.bochum.common.model.SiemensHourBucket;
+import de.hochschule.bochum.common.model.SiemensSnapshot;
+import de.hochschule.bochum.common.model.WagoData;
+import de.hochschule.bochum.common.model.WagoTransition;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit-Tests für den RetentionManager.
+ *
+ * MongoTemplate, Index-Operationen und TimeSeriesStorage sind gemockt. Ich prüfe, welche TTLs beim Start
+ * gesetzt werden und dass die Compaction nur die Typen und Rollup-Stufen batchweise löscht, die der TTL-Index nicht abdeckt.
+ */
+@ExtendWith(MockitoExtension.class)
+class RetentionManagerTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private TimeSeriesStorage timeSeriesStorage;
+
+    @Mock
+    private IndexOperations indexOperations;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private RetentionManager manager;
+
+    @BeforeEach
+    void setUp() {
+        manager = new RetentionManager(mongoTemplate, meterRegistry, timeSeriesStorage);
+        ReflectionTestUtils.setField(manager, "enabled", true);
+        ReflectionTestUtils.setField(manager, "deleteBatchSize", 2);
+        ReflectionTestUtils.setField(manager, "istDays", 30);
+        ReflectionTestUtils.setField(manager, "sollDays", 30);
+        ReflectionTestUtils.setField(manager, "differenzDays", 7);
+        lenient().when(mongoTemplate.getCollectionName(SiemensData.class)).thenReturn("siemens_data");
+        lenient().when(mongoTemplate.getCollectionName(WagoData.class)).thenReturn("wago_data");
+        lenient().when(mongoTemplate.getCollectionName(WagoTransition.class)).thenReturn("wago_transitions");
+        lenient().when(mongoTemplate.getCollectionName(SiemensSnapshot.class)).thenReturn("siemens_snapshots");
+        lenient().when(mongoTemplate.getCollectionName(SiemensHourBucket.class)).thenReturn("siemens_hour_buckets");
+        lenient().when(mongoTemplate.getCollectionName(Rollup.class)).thenReturn("rollups");
+        lenient().when(mongoTemplate.indexOps(anyString())).thenReturn(indexOperations);
+    }
+
+    @Test
+    void testApplyTtls_NormalCollections_ShouldCreateTtlIndexWithLongestSiemensRetention() {
+        // **Was mache ich?**
+        // Siemens 30/30/7 Tage, Buckets 365 Tage, alles andere unbegrenzt (0).
+        ReflectionTestUtils.setField(manager, "bucketsDays", 365);
+
+        manager.applyTtls();
+
+        // **Was erwarte ich?**
+        // - siemens_data bekommt 30 Tage auf timestamp, die Buckets 365 Tage auf hour
+        // - Collections mit 0 Tagen bleiben unangetastet
+        ArgumentCaptor<Index> index = ArgumentCaptor.forClass(Index.class);
+        verify(indexOperations, times(2)).ensureIndex(index.capture());
+        Document siemens = index.getAllValues().get(0).getIndexOptions();
+        assertEquals(30L * 24 * 3600, siemens.get("expireAfterSeconds"));
+        assertEquals("ttl_timestamp", siemens.get("name"));
+        assertEquals(new Document("hour", 1), index.getAllValues().get(1).getIndexKeys());
+        verify(mongoTemplate).indexOps("siemens_data");
+        verify(mongoTemplate).indexOps("siemens_hour_buckets");
+        verify(mongoTemplate, never()).indexOps("wago_data");
+    }
+
+    @Test
+    void testApplyTtl_ExistingIndexAndTimeSeries_ShouldUseCollMod() {
+        // **Was mache ich?**
+        // wago_transitions hat schon einen normalen Index auf timestamp, wago_data ist eine Time-Series-Collection.
+        when(timeSeriesStorage.isTimeSeries("wago_transitions")).thenReturn(false);
+        when(timeSeriesStorage.isTimeSeries("wago_data")).thenReturn(true);
+        doThrow(new DataIntegrityViolationException("Index already exists with different options"))
+                .when(indexOperations).ensureIndex(any(Index.class));
+
+        manager.applyTtl("wago_transitions", "timestamp", 90);
+        manager.applyTtl("wago_data", "timestamp", 14);
+
+        // **Was erwarte ich?**
+        // - Der vorhandene Index wird per collMod zum TTL-Index umgestellt
+        // - Die Time-Series-Collection bekommt expireAfterSeconds direkt, ohne Index
+        ArgumentCaptor<Document> commands = ArgumentCaptor.forClass(Document.class);
+        verify(mongoTemplate, times(2)).executeCommand(commands.capture());
+        Document transitions = commands.getAllValues().get(0);
+        assertEquals("wago_transitions", transitions.get("collMod"));
+        assertEquals(new Document("keyPattern", new Document("timestamp", 1)).append("expireAfterSeconds", 90L * 24 * 3600),
+                transitions.get("index"));
+        Document wago = commands.getAllValues().get(1);
+        assertEquals("wago_data", wago.get("collMod"));
+        assertEquals(14L * 24 * 3600, wago.get("expireAfterSeconds"));
+        verify(mongoTemplate, never()).indexOps("wago_data");
+    }
+
+    @Test
+    void testCompact_ShouldDeleteShorterTypesAndRollupTiersInBatches() {
+        // **Was mache ich?**
+        // DIFFERENZ hat 7 statt 30 Tage, 1m-Rollups 2 Tage. Für DIFFERENZ gibt es drei alte Dokumente (Batchgröße 2).
+        ReflectionTestUtils.setField(manager, "rollupMinuteDays", 2);
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("siemens_data")))
+                .thenReturn(List.of(new Document("_id", "a"), new Document("_id", "b")))
+                .thenReturn(List.of(new Document("_id", "c")));
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("rollups"))).thenReturn(List.of());
+        when(mongoTemplate.remove(any(Query.class), eq("siemens_data")))
+                .thenReturn(DeleteResult.acknowledged(2), DeleteResult.acknowledged(1));
+
+        long deleted = manager.compact();
+
+        // **Was erwarte ich?**
+        // - Zwei Löschungen über die _id, zusammen 3 Dokumente, gezählt pro Collection
+        // - Gesucht wird nur nach DIFFERENZ (IST/SOLL erledigt der TTL-Index) und nach 1m-Rollups
+        assertEquals(3, deleted);
+        assertEquals(3.0, meterRegistry.counter("mqtt.retention.deleted", "collection", "siemens_data").count());
+        ArgumentCaptor<Query> finds = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).find(finds.capture(), eq(Document.class), eq("siemens_data"));
+        assertEquals("DIFFERENZ", finds.getValue().getQueryObject().get("type"));
+        ArgumentCaptor<Query> rollups = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(rollups.capture(), eq(Document.class), eq("rollups"));
+        assertEquals("1m", rollups.getValue().getQueryObject().get("tier"));
+        ArgumentCaptor<Query> removes = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).remove(removes.capture(), eq("siemens_data"));
+        assertEquals(new Document("$in", List.of("a", "b")), removes.getAllValues().get(0).getQueryObject().get("_id"));
+        assertEquals(1L, meterRegistry.timer("mqtt.retention.compaction").count());
+    }
+}
@@ -0,0 +1,147 @@
+package de.hochschule.bochum.mqttconsumer.storage;
+
+import de.hochschule.bochum.common.model.Rollup;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit-Tests für den RollupWriter.
+ *
+ * MongoTemplate und Bulk-Operationen sind gemockt. Ich prüfe, dass Messwerte nur im Speicher gesammelt
+ * und beim Flush als ein Upsert pro Rollup (Reihe, Stufe, Intervall) geschrieben werden.
+ */
+@ExtendWith(MockitoExtension.class)
+class RollupWriterTest {
+
+    private static final LocalDateTime MINUTE = LocalDateTime.of(2024, 5, 1, 13, 7);
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    private RollupWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        writer = new RollupWriter(mongoTemplate, new SimpleMeterRegistry());
+        // Ohne start(): kein Flush-Thread, geflusht wird im Test von Hand
+        ReflectionTestUtils.setField(writer, "enabled", true);
+    }
+
+    @Test
+    void testFlush_SameMinute_ShouldUpsertOneRollupPerTier() {
+        // **Was mache ich?**
+        // Drei IST-Werte in derselben Minute, dann ein Flush.
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Rollup.class)).thenReturn(bulkOperations);
+        writer.record("IST", 21.0, MINUTE.plusSeconds(1));
+        writer.record("IST", 19.0, MINUTE.plusSeconds(20));
+        writer.record("IST", 23.0, MINUTE.plusSeconds(40));
+
+        writer.flush();
+
+        // **Was erwarte ich?**
+        // - Drei Upserts in einem Bulk (1m, 1h, 1d), danach ist nichts mehr offen
+        // - Der Minuten-Rollup zählt alle drei Werte, first/last nach Empfangsreihenfolge
+        Map<String, Document> updates = capturedUpdates(3);
+        assertEquals(0, writer.getPendingCount());
+        assertEquals(List.of("IST:1d:2024-05-01T00:00", "IST:1h:2024-05-01T13:00", "IST:1m:2024-05-01T13:07"),
+                updates.keySet().stream().sorted().toList());
+        Document minute = updates.get("IST:1m:2024-05-01T13:07");
+        assertEquals(3L, ((Document) minute.get("$inc")).get("count"));
+        assertEquals(63.0, ((Document) minute.get("$inc")).get("sum"));
+        assertEquals(19.0, ((Document) minute.get("$min")).get("min"));
+        assertEquals(23.0, ((Document) minute.get("$max")).get("max"));
+        assertEquals(21.0, ((Document) minute.get("$setOnInsert")).get("first"));
+        assertEquals("1m", ((Document) minute.get("$setOnInsert")).get("tier"));
+        assertEquals(23.0, ((Document) minute.get("$set")).get("last"));
+        verify(bulkOperations).execute();
+    }
+
+    @Test
+    void testFlush_TwoMinutes_ShouldShareHourAndDayRollup() {
+        // **Was mache ich?**
+        // Je ein WAGO-Status in zwei aufeinanderfolgenden Minuten.
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Rollup.class)).thenReturn(bulkOperations);
+        writer.record("WAGO", 3, MINUTE);
+        writer.record("WAGO", 7, MINUTE.plusMinutes(1));
+
+        writer.flush();
+
+        // **Was erwarte ich?**
+        // - Zwei Minuten-Rollups, aber nur ein Stunden- und ein Tages-Rollup mit count 2
+        Map<String, Document> updates = capturedUpdates(4);
+        assertEquals(2L, ((Document) updates.get("WAGO:1h:2024-05-01T13:00").get("$inc")).get("count"));
+        assertEquals(7.0, ((Document) updates.get("WAGO:1d:2024-05-01T00:00").get("$set")).get("last"));
+    }
+
+    @Test
+    void testFlush_MongoDown_ShouldKeepValuesAndMergeWithNewOnes() {
+        // **Was mache ich?**
+        // Der erste Flush scheitert, danach kommt ein weiterer Wert und der zweite Flush klappt.
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Rollup.class)).thenReturn(bulkOperations);
+        doThrow(new DataAccessResourceFailureException("Mongo weg")).doReturn(null).when(bulkOperations).execute();
+        writer.record("SOLL", 25.0, MINUTE);
+        assertThrows(DataAccessResourceFailureException.class, () -> writer.flush());
+        writer.record("SOLL", 26.0, MINUTE.plusSeconds(30));
+        clearInvocations(bulkOperations);
+
+        writer.flush();
+
+        // **Was erwarte ich?**
+        // - Nichts verloren: count 2, first vom alten, last vom neuen Wert
+        Document minute = capturedUpdates(3).get("SOLL:1m:2024-05-01T13:07");
+        assertEquals(2L, ((Document) minute.get("$inc")).get("count"));
+        assertEquals(25.0, ((Document) minute.get("$setOnInsert")).get("first"));
+        assertEquals(26.0, ((Document) minute.get("$set")).get("last"));
+    }
+
+    @Test
+    void testRecord_Disabled_ShouldNotTouchMongo() {
+        // **Was mache ich?**
+        // Rollups sind aus (Standard).
+        ReflectionTestUtils.setField(writer, "enabled", false);
+        writer.record("IST", 21.0, MINUTE);
+
+        writer.flush();
+
+        // **Was erwarte ich?**
+        // - Nichts gesammelt, kein Zugriff auf MongoDB
+        assertEquals(0, writer.getPendingCount());
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    // Upserts aus dem Bulk, Schlüssel ist die Rollup-ID
+    private Map<String, Document> capturedUpdates(int expected) {
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations, times(expected)).upsert(queries.capture(), updates.capture());
+        Map<String, Document> byId = new HashMap<>();
+        for (int i = 0; i < expected; i++) {
+            byId.put((String) queries.getAllValues().get(i).getQueryObject().get("_id"),
+                    updates.getAllValues().get(i).getUpdateObject());
+        }
+        return byId;
+    }
+}
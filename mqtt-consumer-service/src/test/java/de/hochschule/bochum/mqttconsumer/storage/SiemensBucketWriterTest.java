@@ -0,0 +1,185 @@
+package de.hochschule.bochum.mqttconsumer.storage;
+
+import de.hochschule.bochum.common.model.SiemensData;
+import de.hochschule.bochum.common.model.SiemensHourBucket;
+import com.mongodb.bulk.BulkWriteError;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit-Tests für den SiemensBucketWriter.
+ *
+ * MongoTemplate ist gemockt, geprüft werden die erzeugten Upserts: Bucket-ID aus Typ und Stunde,
+ * $push auf die parallelen Arrays, die vorberechneten count/sum/min/max, ein Bulk-Write pro Batch
+ * und dass ein wiederholter Batch über seinen Schlüssel erkannt wird, gleiche Zeitstempel aber nicht.
+ */
+@ExtendWith(MockitoExtension.class)
+class SiemensBucketWriterTest {
+
+    private static final LocalDateTime HOUR = LocalDateTime.of(2024, 5, 1, 13, 0);
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private IndexOperations indexOperations;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private SiemensBucketWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        writer = new SiemensBucketWriter(mongoTemplate, meterRegistry);
+        ReflectionTestUtils.setField(writer, "layoutName", "buckets");
+        when(mongoTemplate.indexOps(SiemensHourBucket.class)).thenReturn(indexOperations);
+        lenient().when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SiemensHourBucket.class)).thenReturn(bulkOperations);
+        writer.init();
+    }
+
+    @Test
+    void testInit_BucketsLayout_ShouldWriteOnlyBuckets() {
+        // **Was erwarte ich?**
+        // - Nur Buckets, keine Einzeldokumente, und der Index auf Typ + Stunde wurde angelegt
+        assertTrue(writer.isWritingBuckets());
+        assertFalse(writer.isWritingDocuments());
+        verify(indexOperations).ensureIndex(any());
+    }
+
+    @Test
+    void testAppendAll_SameHour_ShouldUpsertOneBucketWithAggregates() {
+        // **Was mache ich?**
+        // Drei IST-Werte aus derselben Stunde als ein Batch anhängen.
+        writer.appendAll(List.of(ist(20.0, 5), ist(22.5, 10), ist(21.0, 59)));
+
+        // **Was erwarte ich?**
+        // - Genau ein Upsert auf den Bucket "IST:2024-05-01T13:00", nur wenn der Bucket diesen Batch noch nicht kennt
+        // - Werte und Zeitstempel per $push/$each in Empfangsreihenfolge, dazu count/sum/min/max und lastTs
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations).upsert(query.capture(), update.capture());
+        verify(bulkOperations).execute();
+
+        assertEquals("IST:2024-05-01T13:00", query.getValue().getQueryObject().get("_id"));
+        assertNotNull(query.getValue().getQueryObject().get("recentBatches"));
+        Document updateObject = update.getValue().getUpdateObject();
+        Update.Modifiers pushed = (Update.Modifiers) updateObject.get("$push", Document.class).get("values");
+        Update.Modifier each = pushed.getModifiers().iterator().next();
+        assertEquals("$each", each.getKey());
+        assertArrayEquals(new Object[]{20.0, 22.5, 21.0}, (Object[]) each.getValue());
+        assertEquals(3, updateObject.get("$inc", Document.class).get("count"));
+        assertEquals(63.5, updateObject.get("$inc", Document.class).get("sum"));
+        assertEquals(20.0, updateObject.get("$min", Document.class).get("min"));
+        assertEquals(22.5, updateObject.get("$max", Document.class).get("max"));
+        assertEquals(HOUR, updateObject.get("$setOnInsert", Document.class).get("hour"));
+        assertEquals(HOUR.plusMinutes(59), updateObject.get("$max", Document.class).get("lastTs"));
+    }
+
+    @Test
+    void testAppendAll_DifferentTypesAndHours_ShouldUpsertSeparateBuckets() {
+        // **Was mache ich?**
+        // IST aus zwei Stunden und ein SOLL-Wert.
+        SiemensData nextHour = ist(19.0, 0);
+        nextHour.setTimestamp(HOUR.plusHours(1));
+        SiemensData soll = new SiemensData(25.0, "SOLL");
+        soll.setTimestamp(HOUR);
+
+        writer.appendAll(List.of(ist(20.0, 1), nextHour, soll));
+
+        // **Was erwarte ich?**
+        // - Drei Buckets, jeder mit einem eigenen Upsert, aber zusammen in einem Bulk-Write
+        verify(bulkOperations, times(3)).upsert(any(Query.class), any(Update.class));
+        verify(bulkOperations, times(1)).execute();
+    }
+
+    @Test
+    void testAppendAll_BatchRepeated_ShouldBeSkippedAndCounted() {
+        // **Was mache ich?**
+        // Derselbe Batch kommt ein zweites Mal (Journal-Replay), der Bucket kennt seinen Schlüssel schon
+        // und der Upsert scheitert deshalb am _id.
+        BulkOperationException duplicate = mock(BulkOperationException.class);
+        when(duplicate.getErrors()).thenReturn(List.of(new BulkWriteError(11000, "duplicate key", new BsonDocument(), 0)));
+        when(bulkOperations.execute()).thenThrow(duplicate);
+
+        writer.appendAll(List.of(ist(20.0, 5), ist(22.5, 10)));
+
+        // **Was erwarte ich?**
+        // - Kein weiterer Schreibversuch, kein Fehler nach außen, die übersprungenen Werte sind gezählt
+        verify(mongoTemplate, never()).upsert(any(Query.class), any(Update.class), eq(SiemensHourBucket.class));
+        assertEquals(2.0, meterRegistry.get("mqtt.persistence.bucket.skipped").counter().count());
+    }
+
+    @Test
+    void testAppendAll_EqualTimestamps_ShouldAppendEveryValue() {
+        // **Was mache ich?**
+        // Zwei Batches nacheinander, deren Werte alle denselben Zeitstempel wie der letzte Wert im Bucket haben.
+        writer.appendAll(List.of(ist(20.0, 10)));
+        writer.appendAll(List.of(ist(21.0, 10), ist(22.0, 10)));
+
+        // **Was erwarte ich?**
+        // - Beide Upserts hängen alle Werte an (kein Filter auf den Zeitstempel)
+        // - Die Schlüssel unterscheiden sich, der zweite Batch wird also nicht als Wiederholung abgelehnt
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations, times(2)).upsert(query.capture(), update.capture());
+        assertEquals(2, update.getAllValues().get(1).getUpdateObject().get("$inc", Document.class).get("count"));
+        Object firstKey = ((Document) query.getAllValues().get(0).getQueryObject().get("recentBatches")).get("$ne");
+        Object secondKey = ((Document) query.getAllValues().get(1).getQueryObject().get("recentBatches")).get("$ne");
+        assertNotEquals(firstKey, secondKey);
+    }
+
+    @Test
+    void testBatchKeyOf_SameValues_ShouldBeStable() {
+        // **Was erwarte ich?**
+        // - Gleiche Werte in gleicher Reihenfolge = gleicher Schlüssel, ein anderer Wert beim gleichen Zeitstempel nicht
+        assertEquals(SiemensBucketWriter.batchKeyOf(List.of(ist(20.0, 5), ist(21.0, 5))),
+                SiemensBucketWriter.batchKeyOf(List.of(ist(20.0, 5), ist(21.0, 5))));
+        assertNotEquals(SiemensBucketWriter.batchKeyOf(List.of(ist(20.0, 5))),
+                SiemensBucketWriter.batchKeyOf(List.of(ist(20.5, 5))));
+    }
+
+    @Test
+    void testAppendAll_UnknownType_ShouldBeSkipped() {
+        // **Was mache ich?**
+        // Ein Dokument ohne bekannten Typ (kein Wert ermittelbar).
+        SiemensData unknown = new SiemensData(1.0, "UNBEKANNT");
+
+        writer.appendAll(List.of(unknown));
+
+        // **Was erwarte ich?**
+        // - Kein Schreibzugriff
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(SiemensHourBucket.class));
+    }
+
+    private static SiemensData ist(double value, int minute) {
+        SiemensData data = new SiemensData(value, "IST");
+        data.setTimestamp(HOUR.plusMinutes(minute));
+        return data;
+    }
+}
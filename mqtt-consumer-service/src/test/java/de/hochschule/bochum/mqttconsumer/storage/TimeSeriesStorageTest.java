@@ -0,0 +1,242 @@
+package de.hochschule.bochum.mqttconsumer.storage;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.ListCollectionsIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.InsertManyOptions;
+import de.hochschule.bochum.common.model.SiemensData;
+import de.hochschule.bochum.common.model.WagoData;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.timeseries.Granularity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit-Tests für TimeSeriesStorage.
+ *
+ * MongoTemplate und die Collection-Liste der Datenbank sind gemockt. Geprüft wird,
+ * dass fehlende Collections als Time-Series-Collections mit den richtigen Feldern angelegt,
+ * vorhandene normale Collections ohne Migrations-Flag nicht angefasst und abgebrochene
+ * Migrationen ab der zuletzt vermerkten _id fortgesetzt werden.
+ */
+@ExtendWith(MockitoExtension.class)
+class TimeSeriesStorageTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private MongoDatabase database;
+
+    @Mock
+    private ListCollectionsIterable<Document> collections;
+
+    @Mock
+    private MongoCollection<Document> legacyCollection;
+
+    @Mock
+    private MongoCollection<Document> targetCollection;
+
+    @Mock
+    private FindIterable<Document> legacyFind;
+
+    @Mock
+    private FindIterable<Document> existingFind;
+
+    @Mock
+    private MongoCursor<Document> legacyCursor;
+
+    // _ids, die wirklich in die Time-Series-Collection eingefügt wurden
+    private final List<Object> inserted = new ArrayList<>();
+
+    private TimeSeriesStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new TimeSeriesStorage(mongoTemplate);
+        ReflectionTestUtils.setField(storage, "enabled", true);
+        ReflectionTestUtils.setField(storage, "granularity", "seconds");
+        lenient().when(mongoTemplate.getDb()).thenReturn(database);
+        lenient().when(database.listCollections()).thenReturn(collections);
+        lenient().when(collections.filter(any(Bson.class))).thenReturn(collections);
+        lenient().when(mongoTemplate.getCollectionName(SiemensData.class)).thenReturn("siemens_data");
+        lenient().when(mongoTemplate.getCollectionName(WagoData.class)).thenReturn("wago_data");
+    }
+
+    @Test
+    void testInit_MissingCollections_ShouldCreateTimeSeries() {
+        // **Was mache ich?**
+        // Keine der beiden Collections existiert.
+        when(collections.first()).thenReturn(null);
+
+        storage.init();
+
+        // **Was erwarte ich?**
+        // - Beide werden mit timeField timestamp angelegt
+        // - siemens_data bekommt type als metaField, wago_data keins
+        ArgumentCaptor<CollectionOptions> siemens = ArgumentCaptor.forClass(CollectionOptions.class);
+        ArgumentCaptor<CollectionOptions> wago = ArgumentCaptor.forClass(CollectionOptions.class);
+        verify(mongoTemplate).createCollection(eq("siemens_data"), siemens.capture());
+        verify(mongoTemplate).createCollection(eq("wago_data"), wago.capture());
+
+        CollectionOptions.TimeSeriesOptions siemensOptions = siemens.getValue().getTimeSeriesOptions().orElseThrow();
+        assertEquals("timestamp", siemensOptions.getTimeField());
+        assertEquals("type", siemensOptions.getMetaField());
+        assertEquals(Granularity.SECONDS, siemensOptions.getGranularity());
+        assertNull(wago.getValue().getTimeSeriesOptions().orElseThrow().getMetaField());
+    }
+
+    @Test
+    void testInit_ExistingTimeSeries_ShouldDoNothing() {
+        // **Was mache ich?**
+        // Beide Collections sind bereits Time-Series-Collections.
+        when(collections.first()).thenReturn(new Document("name", "x").append("type", "timeseries"));
+
+        storage.init();
+
+        // **Was erwarte ich?**
+        // - Es wird nichts angelegt
+        verify(mongoTemplate, never()).createCollection(anyString(), any(CollectionOptions.class));
+    }
+
+    @Test
+    void testInit_ExistingRegularCollectionWithoutMigrate_ShouldLeaveItAlone() {
+        // **Was mache ich?**
+        // Die Collections existieren als normale Collections, migrate ist aus.
+        when(collections.first()).thenReturn(new Document("name", "x").append("type", "collection"));
+
+        storage.init();
+
+        // **Was erwarte ich?**
+        // - Weder angelegt noch umbenannt, die Daten bleiben unangetastet
+        verify(mongoTemplate, never()).createCollection(anyString(), any(CollectionOptions.class));
+        verify(database, never()).getCollection(anyString());
+    }
+
+    @Test
+    void testInit_Migrate_ShouldRecordProgressBeforeRenameAndFinish() {
+        // **Was mache ich?**
+        // siemens_data ist eine normale Collection mit einem Dokument, migrate ist an (wago_data ist schon umgestellt).
+        ReflectionTestUtils.setField(storage, "migrate", true);
+        when(collections.first()).thenReturn(new Document("name", "x").append("type", "collection"),
+                new Document("name", "x").append("type", "timeseries"));
+        when(database.getName()).thenReturn("test");
+        stubCopy(List.of(sample(1)), List.of());
+
+        storage.init();
+
+        // **Was erwarte ich?**
+        // - Der Vermerk (noch nicht fertig) steht, bevor umbenannt wird; danach wird angelegt und kopiert
+        // - Am Ende ist die Migration mit der letzten _id als fertig vermerkt
+        InOrder order = inOrder(mongoTemplate, targetCollection);
+        order.verify(mongoTemplate).upsert(any(Query.class), any(Update.class), eq(TimeSeriesStorage.PROGRESS_COLLECTION));
+        order.verify(targetCollection).renameCollection(any(MongoNamespace.class));
+        order.verify(mongoTemplate).createCollection(eq("siemens_data"), any(CollectionOptions.class));
+        assertEquals(List.of(1), inserted);
+        Document last = lastProgress();
+        assertEquals(true, last.get("finished"));
+        assertEquals(1, last.get("lastId"));
+    }
+
+    @Test
+    void testInit_InterruptedMigration_ShouldResumeAfterLastCopiedId() {
+        // **Was mache ich?**
+        // siemens_data ist schon eine Time-Series-Collection, aber die Migration brach nach _id 5 ab.
+        // Dokument 6 war noch eingefügt, aber nicht mehr vermerkt; 8 hat keinen timestamp. migrate ist inzwischen aus.
+        when(collections.first()).thenReturn(new Document("name", "x").append("type", "timeseries"));
+        when(mongoTemplate.findById("siemens_data", Document.class, TimeSeriesStorage.PROGRESS_COLLECTION))
+                .thenReturn(new Document("_id", "siemens_data").append("lastId", 5).append("finished", false));
+        stubCopy(List.of(sample(6), sample(7), new Document("_id", 8)), List.of(new Document("_id", 6)));
+
+        storage.init();
+
+        // **Was erwarte ich?**
+        // - Gelesen wird nur nach _id 5, nichts wird neu angelegt oder umbenannt
+        // - 6 steht schon in der Ziel-Collection und wird nicht doppelt eingefügt, nur 7 kommt dazu
+        // - Danach ist die Migration bis _id 8 als fertig vermerkt
+        ArgumentCaptor<Bson> filter = ArgumentCaptor.forClass(Bson.class);
+        verify(legacyCollection).find(filter.capture());
+        assertEquals(new Document("_id", new Document("$gt", 5)).toJson(), filter.getValue().toBsonDocument().toJson());
+        verify(mongoTemplate, never()).createCollection(anyString(), any(CollectionOptions.class));
+        verify(targetCollection, never()).renameCollection(any(MongoNamespace.class));
+        assertEquals(List.of(7), inserted);
+        Document last = lastProgress();
+        assertEquals(true, last.get("finished"));
+        assertEquals(8, last.get("lastId"));
+    }
+
+    @Test
+    void testInit_Disabled_ShouldNotTouchMongo() {
+        // **Was mache ich?**
+        // Time-Series-Modus ist aus.
+        ReflectionTestUtils.setField(storage, "enabled", false);
+
+        storage.init();
+
+        // **Was erwarte ich?**
+        // - Kein Zugriff auf die Datenbank
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    // Quelle siemens_data_legacy liefert die Dokumente, in siemens_data stehen schon "existing"
+    private void stubCopy(List<Document> legacy, List<Document> existing) {
+        when(database.getCollection("siemens_data_legacy")).thenReturn(legacyCollection);
+        when(database.getCollection("siemens_data")).thenReturn(targetCollection);
+        when(legacyCollection.find(any(Bson.class))).thenReturn(legacyFind);
+        when(legacyFind.sort(any(Bson.class))).thenReturn(legacyFind);
+        when(legacyFind.batchSize(anyInt())).thenReturn(legacyFind);
+        when(legacyFind.iterator()).thenReturn(legacyCursor);
+        List<Document> remaining = new ArrayList<>(legacy);
+        when(legacyCursor.hasNext()).thenAnswer(invocation -> !remaining.isEmpty());
+        when(legacyCursor.next()).thenAnswer(invocation -> remaining.remove(0));
+        when(targetCollection.find(any(Bson.class))).thenReturn(existingFind);
+        when(existingFind.projection(any(Bson.class))).thenReturn(existingFind);
+        when(existingFind.into(anyList())).thenAnswer(invocation -> {
+            List<Document> result = invocation.getArgument(0);
+            result.addAll(existing);
+            return result;
+        });
+        when(targetCollection.insertMany(anyList(), any(InsertManyOptions.class))).thenAnswer(invocation -> {
+            List<Document> batch = invocation.getArgument(0);
+            batch.forEach(document -> inserted.add(document.get("_id")));
+            return null;
+        });
+    }
+
+    // Zuletzt geschriebener Migrationsvermerk ($set der letzten Update-Operation)
+    private Document lastProgress() {
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, atLeastOnce()).upsert(any(Query.class), updates.capture(), eq(TimeSeriesStorage.PROGRESS_COLLECTION));
+        return (Document) updates.getValue().getUpdateObject().get("$set");
+    }
+
+    private static Document sample(int id) {
+        return new Document("_id", id).append("timestamp", LocalDateTime.of(2024, 5, 1, 12, 0).plusSeconds(id));
+    }
+}
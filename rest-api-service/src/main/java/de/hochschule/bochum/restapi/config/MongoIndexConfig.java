@@ -0,0 +1,36 @@
+package de.hochschule.bochum.restapi.config;
+
+import de.hochschule.bochum.common.model.SiemensData;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+
+// Hier lege ich die Indizes für die Verlaufsabfragen der REST-API an.
+// Die Keyset-Pagination auf /all filtert nach Typ und sortiert nach (timestamp, _id) absteigend;
+// mit passendem Index liest MongoDB pro Seite nur limit Einträge statt den ganzen Typ zu sortieren.
+// Der Index für die Stunden-Buckets (type_hour) kommt vom Consumer, der die Buckets schreibt.
+@Slf4j
+@Configuration
+@RequiredArgsConstructor
+public class MongoIndexConfig {
+
+    private final MongoTemplate mongoTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureHistoryIndexes() {
+        try {
+            mongoTemplate.indexOps(SiemensData.class).ensureIndex(new Index()
+                    .on("type", Sort.Direction.ASC)
+                    .on("timestamp", Sort.Direction.DESC)
+                    .on("_id", Sort.Direction.DESC)
+                    .named("type_timestamp_id"));
+        } catch (RuntimeException e) {
+            log.warn("! Index für den Siemens-Verlauf konnte nicht angelegt werden: {}", e.getMessage());
+        }
+    }
+}
@@ -2,17 +2,21 @@ package de.hochschule.bochum.restapi.config;
 
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.integration.annotation.ServiceActivator;
 import org.springframework.integration.channel.DirectChannel;
 import org.springframework.integration.mqtt.core.DefaultMqttPahoClientFactory;
 import org.springframework.integration.mqtt.core.MqttPahoClientFactory;
+import org.springframework.integration.mqtt.inbound.MqttPahoMessageDrivenChannelAdapter;
 import org.springframework.integration.mqtt.outbound.MqttPahoMessageHandler;
+import org.springframework.integration.mqtt.support.DefaultPahoMessageConverter;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.MessageHandler;
 
-// Hier konfiguriere ich MQTT für meinen REST-API-Service (nur für Outbound/Publish!)
+// Hier konfiguriere ich MQTT für meinen REST-API-Service: Publish der Steuerbefehle und
+// (bei cache.latest.enabled oder control.tracking.enabled) ein Abo der Messwert-Topics für den LatestValueCache
 @Configuration
 public class MqttApiConfig {
 
@@ -25,6 +29,17 @@ public class MqttApiConfig {
     private String password;
     @Value("${mqtt.broker.client-id}")
     private String clientId;
+    @Value("${mqtt.topics.wago.status}")
+    private String wagoStatusTopic;
+    @Value("${mqtt.topics.siemens.ist}")
+    private String siemensIstTopic;
+    @Value("${mqtt.topics.siemens.soll}")
+    private String siemensSollTopic;
+    @Value("${mqtt.topics.siemens.differenz}")
+    private String siemensDifferenzTopic;
+    // Paho lässt standardmäßig 10 unbestätigte Publishes zu; das In-Flight-Fenster der Befehls-Queue passt sonst nicht hinein
+    @Value("${control.queue.max-in-flight:10}")
+    private int maxInFlight;
 
     // MQTT-Client für Outbound-Kommunikation (Steuerbefehle an Wago)
     @Bean
@@ -36,6 +51,7 @@ public class MqttApiConfig {
         options.setPassword(password.toCharArray());
         options.setCleanSession(true);
         options.setAutomaticReconnect(true);
+        options.setMaxInflight(Math.max(10, maxInFlight));
         factory.setConnectionOptions(options);
         return factory;
     }
@@ -53,7 +69,34 @@ public class MqttApiConfig {
         MqttPahoMessageHandler messageHandler =
                 new MqttPahoMessageHandler(clientId, mqttApiClientFactory());
         messageHandler.setAsync(true);
+        // Sent-/Delivered-Events für das In-Flight-Fenster der OutboundCommandQueue
+        messageHandler.setAsyncEvents(true);
         messageHandler.setDefaultQos(1);
         return messageHandler;
     }
+
+    // Channel für eingehende Messwerte, die der LatestValueCache übernimmt
+    @Bean
+    public MessageChannel mqttLatestValueChannel() {
+        return new DirectChannel();
+    }
+
+    // Abo auf dieselben Topics wie der Consumer; QoS 0 reicht, der nächste Wert kommt ohnehin gleich.
+    // Auch die Befehlsverfolgung (ControlCommandTracker) hört hier auf Wago750/Status mit.
+    @Bean
+    @ConditionalOnExpression("${cache.latest.enabled:false} or ${control.tracking.enabled:false}")
+    public MqttPahoMessageDrivenChannelAdapter mqttLatestValueInbound() {
+        MqttPahoMessageDrivenChannelAdapter adapter = new MqttPahoMessageDrivenChannelAdapter(
+                clientId + "-latest",
+                mqttApiClientFactory(),
+                wagoStatusTopic, siemensIstTopic, siemensSollTopic, siemensDifferenzTopic);
+        adapter.setCompletionTimeout(5000);
+        // Payload als byte[], der LatestValueCache parst direkt auf den Bytes (siehe PayloadParser)
+        DefaultPahoMessageConverter converter = new DefaultPahoMessageConverter();
+        converter.setPayloadAsBytes(true);
+        adapter.setConverter(converter);
+        adapter.setQos(0);
+        adapter.setOutputChannel(mqttLatestValueChannel());
+        return adapter;
+    }
 }
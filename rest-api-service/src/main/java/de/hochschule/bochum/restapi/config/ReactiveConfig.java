@@ -0,0 +1,24 @@
+package de.hochschule.bochum.restapi.config;
+
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.repository.config.EnableReactiveMongoRepositories;
+
+// Hier schalte ich das Profil "reactive" zusammen (application-reactive.yml stellt auf WebFlux um):
+// - Netty statt Tomcat: ohne eigene Factory würde Spring Boot WebFlux auf dem ebenfalls vorhandenen Tomcat starten
+// - die Reactive*Repositories auf dem reaktiven MongoDB-Treiber; dessen Auto-Konfiguration ist in application.yml
+//   ausgeschlossen (kein zweiter MongoClient im Servlet-Betrieb) und wird erst in application-reactive.yml freigegeben
+// Controller-Methoden ohne Mono/Flux als Rückgabe (z.B. Dashboard, Health, Rollups) führt Spring Boot
+// auf dem applicationTaskExecutor aus, nicht auf dem Event-Loop (mit spring.threads.virtual.enabled virtuell).
+@Configuration
+@Profile("reactive")
+@EnableReactiveMongoRepositories(basePackages = "de.hochschule.bochum.restapi.repository")
+public class ReactiveConfig {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
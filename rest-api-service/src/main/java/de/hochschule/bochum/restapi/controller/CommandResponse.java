@@ -0,0 +1,35 @@
+package de.hochschule.bochum.restapi.controller;
+
+import de.hochschule.bochum.restapi.service.TrackedCommand;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.net.URI;
+
+// Hier baue ich die Antworten von POST /api/wago/control (für WagoController und ReactiveWagoController gleich).
+// Ohne ?waitMs= bleibt die alte Antwort 200 "Command sent: N", solange der Befehl nicht verfolgt wird (SENT).
+// Sonst kommt der Zustand als JSON: noch offen = 202 mit Location auf GET /api/wago/control/{id},
+// in der Queue ersetzt (COALESCED) = 202, von der Queue verworfen (REJECTED) = 429, sonst 200.
+final class CommandResponse {
+
+    static final String STATUS_PATH = "/api/wago/control/";
+
+    private CommandResponse() {
+    }
+
+    static ResponseEntity<?> of(TrackedCommand command) {
+        if (command.state() == TrackedCommand.State.SENT) {
+            return ResponseEntity.ok("Command sent: " + command.command());
+        }
+        return tracked(command);
+    }
+
+    static ResponseEntity<TrackedCommand> tracked(TrackedCommand command) {
+        return switch (command.state()) {
+            case PENDING -> ResponseEntity.accepted().location(URI.create(STATUS_PATH + command.id())).body(command);
+            case COALESCED -> ResponseEntity.accepted().body(command);
+            case REJECTED -> ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(command);
+            default -> ResponseEntity.ok(command);
+        };
+    }
+}
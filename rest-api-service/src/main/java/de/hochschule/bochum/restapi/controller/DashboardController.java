@@ -0,0 +1,31 @@
+package de.hochschule.bochum.restapi.controller;
+
+import de.hochschule.bochum.common.dto.DashboardLatest;
+import de.hochschule.bochum.restapi.service.DashboardService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+// Ein Endpunkt für das Dashboard statt vier einzelner Polls (Wago + drei Siemens-Werte)
+@Slf4j
+@RestController
+@RequestMapping("/api/dashboard")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*", exposedHeaders = "ETag")
+public class DashboardController {
+
+    private final DashboardService dashboardService;
+
+    // Alle aktuellen Werte in einem Payload; das ETag ändert sich, sobald sich einer der vier Werte ändert
+    @GetMapping("/latest")
+    public ResponseEntity<DashboardLatest> getLatest() {
+        log.debug("GET /api/dashboard/latest aufgerufen");
+        return LatestResponse.of(dashboardService.getLatest(), latest -> LatestResponse.combinedEtag(
+                latest.getWagoTimestamp(), latest.getIstTimestamp(),
+                latest.getSollTimestamp(), latest.getDifferenzTimestamp()));
+    }
+}
@@ -0,0 +1,92 @@
+package de.hochschule.bochum.restapi.controller;
+
+import de.hochschule.bochum.restapi.service.ExportFormat;
+import de.hochschule.bochum.restapi.service.HistoryExportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
+// Hier biete ich den Massen-Export des Verlaufs für Auswertungen an (NDJSON oder CSV, optional gzip).
+// Die Antwort wird während des Lesens geschrieben, es wird nichts vorab gesammelt.
+// Nur mit Spring MVC (StreamingResponseBody), im Profil "reactive" gibt es den Export nicht.
+@Slf4j
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/export")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class ExportController {
+
+    // Ohne from/to wird alles exportiert
+    private static final LocalDateTime EXPORT_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime EXPORT_END = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    private final HistoryExportService exportService;
+
+    // z.B. /api/export/siemens?type=IST&type=SOLL&from=2024-05-01T00:00:00&format=csv&gzip=true
+    @GetMapping("/siemens")
+    public ResponseEntity<StreamingResponseBody> exportSiemens(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) List<String> type,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        LocalDateTime start = from != null ? from : EXPORT_START;
+        LocalDateTime end = to != null ? to : EXPORT_END;
+        List<String> types = type == null || type.isEmpty() ? HistoryExportService.SIEMENS_TYPES
+                : type.stream().map(t -> t.trim().toUpperCase(Locale.ROOT)).distinct().toList();
+        ExportFormat exportFormat = parseFormat(format);
+        if (exportFormat == null || start.isAfter(end) || !HistoryExportService.SIEMENS_TYPES.containsAll(types)) {
+            return ResponseEntity.badRequest().build();
+        }
+        log.info("GET /api/export/siemens aufgerufen – {} {} bis {} als {}", types, start, end, exportFormat);
+        return download("siemens", exportFormat, gzip,
+                out -> exportService.exportSiemens(out, exportFormat, gzip, types, start, end));
+    }
+
+    @GetMapping("/wago")
+    public ResponseEntity<StreamingResponseBody> exportWago(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        LocalDateTime start = from != null ? from : EXPORT_START;
+        LocalDateTime end = to != null ? to : EXPORT_END;
+        ExportFormat exportFormat = parseFormat(format);
+        if (exportFormat == null || start.isAfter(end)) {
+            return ResponseEntity.badRequest().build();
+        }
+        log.info("GET /api/export/wago aufgerufen – {} bis {} als {}", start, end, exportFormat);
+        return download("wago", exportFormat, gzip,
+                out -> exportService.exportWago(out, exportFormat, gzip, start, end));
+    }
+
+    // Mit gzip=true kommt eine .gz-Datei (für Skripte einfacher als Content-Encoding)
+    private static ResponseEntity<StreamingResponseBody> download(String name, ExportFormat format, boolean gzip,
+                                                                  StreamingResponseBody body) {
+        String filename = name + '.' + format.getExtension() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
+
+    private static ExportFormat parseFormat(String format) {
+        try {
+            return ExportFormat.fromProperty(format);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
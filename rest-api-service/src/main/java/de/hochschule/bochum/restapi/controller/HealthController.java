@@ -1,47 +1,29 @@
 package de.hochschule.bochum.restapi.controller;
 
+import de.hochschule.bochum.restapi.service.HealthSnapshotService;
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
-// Health-Endpoint, um den Status von Datenbank & Service zu prüfen (wichtig z.B. für Monitoring)
-@Slf4j
+// Health-Endpoint, um den Status von Datenbank & Service zu prüfen (wichtig z.B. für Monitoring).
+// Liefert nur den zuletzt im Hintergrund geprüften Snapshot aus dem Speicher, fragt selbst nie MongoDB.
 @RestController
 @RequestMapping("/api/health")
 @RequiredArgsConstructor
 public class HealthController {
 
-    private final MongoTemplate mongoTemplate;
+    private final HealthSnapshotService healthSnapshotService;
 
     @GetMapping
     public Map<String, Object> health() {
-        log.info("GET /api/health aufgerufen");
-        Map<String, Object> status = new HashMap<>();
+        Map<String, Object> status = new LinkedHashMap<>();
         status.put("status", "UP");
         status.put("service", "REST API Service");
-
-        try {
-            // Hier prüfe ich, ob Mongo erreichbar ist und wie viele Datensätze es gibt
-            long wagoCount = mongoTemplate.getCollection("wago_data").countDocuments();
-            long siemensCount = mongoTemplate.getCollection("siemens_data").countDocuments();
-
-            status.put("database", "CONNECTED");
-            status.put("wagoDataCount", wagoCount);
-            status.put("siemensDataCount", siemensCount);
-
-            log.info("Health-Check: Datenbank CONNECTED, wagoDataCount={}, siemensDataCount={}", wagoCount, siemensCount);
-        } catch (Exception e) {
-            status.put("database", "DISCONNECTED");
-            status.put("error", e.getMessage());
-            log.error("Health-Check: Datenbank DISCONNECTED, Fehler: {}", e.getMessage());
-        }
-
+        status.putAll(healthSnapshotService.getSnapshot().toMap());
         return status;
     }
 }
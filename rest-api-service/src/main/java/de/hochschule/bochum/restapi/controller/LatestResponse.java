@@ -0,0 +1,66 @@
+package de.hochschule.bochum.restapi.controller;
+
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.function.Function;
+
+// Hier baue ich die Antworten der /latest-Endpunkte mit starkem ETag aus ID und Zeitstempel des Werts.
+// Schickt der Client das ETag als If-None-Match zurück und der Wert ist derselbe, antwortet Spring
+// (HttpEntityMethodProcessor, im Profil "reactive" der ResponseEntityResultHandler) direkt mit 304 ohne Body:
+// der Wert wird gar nicht erst zu JSON serialisiert.
+// Der Wert selbst kommt aus dem Latest-Cache, bei einem Treffer wird auch MongoDB nicht gefragt.
+final class LatestResponse {
+
+    private LatestResponse() {
+    }
+
+    static <T> ResponseEntity<T> of(Optional<T> value, Function<T, String> id, Function<T, LocalDateTime> timestamp) {
+        return of(value, current -> etag(id.apply(current), timestamp.apply(current)));
+    }
+
+    static <T> ResponseEntity<T> of(Optional<T> value, Function<T, String> etagOf) {
+        if (value.isEmpty()) {
+            return ResponseEntity.noContent().build();
+        }
+        String etag = etagOf.apply(value.get());
+        if (etag == null) {
+            return ResponseEntity.ok(value.get());
+        }
+        return ResponseEntity.ok().eTag(etag).body(value.get());
+    }
+
+    // Dasselbe für die reaktiven Controller: leerer Mono = 204
+    static <T> Mono<ResponseEntity<T>> of(Mono<T> value, Function<T, String> id, Function<T, LocalDateTime> timestamp) {
+        return value.map(current -> of(Optional.of(current), id, timestamp))
+                .defaultIfEmpty(ResponseEntity.noContent().build());
+    }
+
+    // Für zusammengesetzte Antworten: ein ETag aus mehreren Zeitstempeln (fehlende Werte als "-")
+    static String combinedEtag(LocalDateTime... timestamps) {
+        StringBuilder tag = new StringBuilder("\"");
+        for (int i = 0; i < timestamps.length; i++) {
+            if (i > 0) {
+                tag.append('_');
+            }
+            tag.append(timestamps[i] == null ? "-" : version(timestamps[i]));
+        }
+        return tag.append('"').toString();
+    }
+
+    // Werte aus MQTT haben noch keine ID, dort reicht der Empfangszeitpunkt (auf die Nanosekunde)
+    static String etag(String id, LocalDateTime timestamp) {
+        if (timestamp == null) {
+            return id == null ? null : "\"" + id + "\"";
+        }
+        String version = version(timestamp);
+        return "\"" + (id == null ? version : id + "-" + version) + "\"";
+    }
+
+    private static String version(LocalDateTime timestamp) {
+        return Long.toString(timestamp.toEpochSecond(ZoneOffset.UTC), 36) + "." + timestamp.getNano();
+    }
+}
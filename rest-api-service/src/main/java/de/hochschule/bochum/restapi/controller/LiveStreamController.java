@@ -0,0 +1,37 @@
+package de.hochschule.bochum.restapi.controller;
+
+import de.hochschule.bochum.restapi.service.LiveValueBroadcaster;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+// Hier können Clients die Live-Werte abonnieren, statt vier Endpunkte jede Sekunde zu pollen.
+// Events: "wago" (WagoData), "ist", "soll", "differenz" (SiemensData) – jeweils sobald ein neuer Wert da ist.
+// Nur mit Spring MVC (SseEmitter), im Profil "reactive" gibt es den Stream nicht.
+@Slf4j
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/stream")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class LiveStreamController {
+
+    private final LiveValueBroadcaster broadcaster;
+
+    // Server-Sent Events, z.B. im Browser per new EventSource("/api/stream")
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream() {
+        SseEmitter emitter = broadcaster.subscribe();
+        if (emitter == null) {
+            log.warn("! /api/stream abgelehnt: maximale Anzahl Clients erreicht");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        log.debug("GET /api/stream – {} Clients verbunden", broadcaster.getSubscriberCount());
+        return ResponseEntity.ok(emitter);
+    }
+}
@@ -0,0 +1,150 @@
+package de.hochschule.bochum.restapi.controller;
+
+import de.hochschule.bochum.common.dto.SiemensSeries;
+import de.hochschule.bochum.common.model.SiemensData;
+import de.hochschule.bochum.common.model.SiemensSnapshot;
+import de.hochschule.bochum.restapi.service.HistoryCursor;
+import de.hochschule.bochum.restapi.service.ReactiveSiemensService;
+import de.hochschule.bochum.restapi.service.SeriesMode;
+import de.hochschule.bochum.restapi.service.SiemensSeriesService;
+import de.hochschule.bochum.restapi.service.SiemensService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
+// Die Siemens-Endpunkte des SiemensController für das Profil "reactive" (WebFlux), gleiche URLs und Antworten.
+// /latest und der Verlauf (/all) lesen über den reaktiven MongoDB-Treiber. Mit Accept: application/x-ndjson
+// kommt der Verlauf als Stream ohne Seitengröße: ein JSON-Objekt pro Zeile, direkt aus dem MongoDB-Cursor.
+// /series und /snapshot/latest geben kein Mono zurück; WebFlux führt sie auf dem applicationTaskExecutor aus.
+@Slf4j
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/siemens")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*", exposedHeaders = "ETag")
+public class ReactiveSiemensController {
+
+    private final ReactiveSiemensService reactiveSiemensService;
+    private final SiemensService siemensService;
+    private final SiemensSeriesService seriesService;
+
+    @Value("${history.default-limit:1000}")
+    private int defaultLimit;
+
+    @Value("${history.max-limit:10000}")
+    private int maxLimit;
+
+    @Value("${series.default-points:500}")
+    private int defaultSeriesPoints;
+
+    @Value("${series.max-points:5000}")
+    private int maxSeriesPoints;
+
+    // /temperatur/ist/latest, /soll/latest, /differenz/latest (mit ETag, unverändert per If-None-Match: 304)
+    @GetMapping("/temperatur/{type:ist|soll|differenz}/latest")
+    public Mono<ResponseEntity<SiemensData>> getLatestTemperatur(@PathVariable String type) {
+        log.info("GET /api/siemens/temperatur/{}/latest aufgerufen", type);
+        return LatestResponse.of(reactiveSiemensService.getLatestByType(type.toUpperCase(Locale.ROOT)),
+                SiemensData::getId, SiemensData::getTimestamp);
+    }
+
+    // Eine Seite des Verlaufs als JSON-Array, neueste zuerst; Cursor der nächsten Seite im Header X-Next-Cursor
+    @GetMapping("/temperatur/{type:ist|soll|differenz}/all")
+    public Mono<ResponseEntity<List<SiemensData>>> getHistory(
+            @PathVariable String type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        log.info("GET /api/siemens/temperatur/{}/all aufgerufen", type);
+        LocalDateTime start = from != null ? from : SiemensController.HISTORY_START;
+        LocalDateTime end = to != null ? to : SiemensController.HISTORY_END;
+        if (start.isAfter(end) || (limit != null && limit <= 0)) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        int pageSize = Math.min(limit != null ? limit : defaultLimit, maxLimit);
+        try {
+            return reactiveSiemensService.getHistory(type.toUpperCase(Locale.ROOT), start, end, pageSize, decode(cursor))
+                    .map(page -> {
+                        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+                        if (page.nextCursor() != null) {
+                            response.header(SiemensController.NEXT_CURSOR_HEADER, page.nextCursor());
+                        }
+                        return response.body(page.items());
+                    });
+        } catch (IllegalArgumentException e) {
+            log.warn("! Ungültiger Cursor für {}: {}", type, cursor);
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+    }
+
+    // Derselbe Verlauf als NDJSON-Stream, ohne max-limit; ?limit= begrenzt ihn optional, ?cursor= setzt fort
+    @GetMapping(value = "/temperatur/{type:ist|soll|differenz}/all", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Flux<SiemensData>> streamHistory(
+            @PathVariable String type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        log.info("GET /api/siemens/temperatur/{}/all aufgerufen (Stream)", type);
+        LocalDateTime start = from != null ? from : SiemensController.HISTORY_START;
+        LocalDateTime end = to != null ? to : SiemensController.HISTORY_END;
+        if (start.isAfter(end) || (limit != null && limit <= 0)) {
+            return ResponseEntity.badRequest().build();
+        }
+        Flux<SiemensData> history;
+        try {
+            history = reactiveSiemensService.streamHistory(type.toUpperCase(Locale.ROOT), start, end, decode(cursor));
+        } catch (IllegalArgumentException e) {
+            log.warn("! Ungültiger Cursor für {}: {}", type, cursor);
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(limit != null ? history.take(limit) : history);
+    }
+
+    // Verlauf für Diagramme, wie im SiemensController (Aggregation über den blockierenden MongoTemplate)
+    @GetMapping("/temperatur/{type}/series")
+    public ResponseEntity<SiemensSeries> getSeries(
+            @PathVariable String type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer points,
+            @RequestParam(defaultValue = "minmax") String mode) {
+        String seriesType = type.trim().toUpperCase(Locale.ROOT);
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(1);
+        log.info("GET /api/siemens/temperatur/{}/series aufgerufen – {} bis {}, {} Punkte ({})", type, start, end, points, mode);
+        SeriesMode seriesMode;
+        try {
+            seriesMode = SeriesMode.fromProperty(mode);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!SiemensController.SERIES_TYPES.contains(seriesType) || !start.isBefore(end) || (points != null && points < 2)) {
+            return ResponseEntity.badRequest().build();
+        }
+        int pointCount = Math.min(points != null ? points : defaultSeriesPoints, maxSeriesPoints);
+        return ResponseEntity.ok(seriesService.getSeries(seriesType, start, end, pointCount, seriesMode));
+    }
+
+    @GetMapping("/snapshot/latest")
+    public ResponseEntity<SiemensSnapshot> getLatestSnapshot() {
+        log.info("GET /api/siemens/snapshot/latest aufgerufen");
+        return LatestResponse.of(siemensService.getLatestSnapshot(), SiemensSnapshot::getId, SiemensSnapshot::getTimestamp);
+    }
+
+    private static HistoryCursor decode(String cursor) {
+        return cursor != null ? HistoryCursor.decode(cursor) : null;
+    }
+}
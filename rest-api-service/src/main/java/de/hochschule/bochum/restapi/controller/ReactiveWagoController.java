@@ -0,0 +1,63 @@
+package de.hochschule.bochum.restapi.controller;
+
+import de.hochschule.bochum.common.dto.ControlCommand;
+import de.hochschule.bochum.common.model.WagoData;
+import de.hochschule.bochum.restapi.service.ControlCommandTracker;
+import de.hochschule.bochum.restapi.service.ReactiveWagoService;
+import de.hochschule.bochum.restapi.service.TrackedCommand;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+// Die Wago-Endpunkte des WagoController für das Profil "reactive" (WebFlux), gleiche URLs und Antworten
+@Slf4j
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/wago")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*", exposedHeaders = {"ETag", "Location"})
+public class ReactiveWagoController {
+
+    private final ReactiveWagoService reactiveWagoService;
+    private final ControlCommandTracker commandTracker;
+
+    // Aktuellster Status der Lampen (mit ETag, unverändert per If-None-Match: 304)
+    @GetMapping("/status/latest")
+    public Mono<ResponseEntity<WagoData>> getLatestStatus() {
+        log.info("GET /api/wago/status/latest aufgerufen");
+        return LatestResponse.of(reactiveWagoService.getLatestStatus(), WagoData::getId, WagoData::getTimestamp);
+    }
+
+    @GetMapping("/status/latest/binary")
+    public Mono<ResponseEntity<WagoData>> getLatestStatusWithBinary() {
+        log.info("GET /api/wago/status/latest/binary aufgerufen");
+        return LatestResponse.of(reactiveWagoService.getLatestStatus(), WagoData::getId, WagoData::getTimestamp);
+    }
+
+    // Das Senden kann blockieren (Paho baut die Verbindung beim ersten Publish auf), deshalb auf boundedElastic
+    // statt auf dem Event-Loop; das Warten (waitMs) auf die Bestätigung belegt danach keinen Thread.
+    // Antworten wie im WagoController: ohne waitMs und ohne Verfolgung 200 "Command sent: N", mit waitMs immer JSON
+    @PostMapping("/control")
+    public Mono<ResponseEntity<?>> sendControlCommand(
+            @RequestBody ControlCommand command,
+            @RequestParam(required = false) Long waitMs) {
+        log.info("POST /api/wago/control aufgerufen – Command: {}", command.getCommand());
+        Mono<TrackedCommand> sent = Mono.fromCallable(() -> commandTracker.submit(command.getCommand()))
+                .subscribeOn(Schedulers.boundedElastic());
+        if (waitMs == null) {
+            return sent.map(CommandResponse::of);
+        }
+        return sent.flatMap(tracked -> Mono.fromFuture(commandTracker.await(tracked, waitMs)))
+                .<ResponseEntity<?>>map(CommandResponse::tracked);
+    }
+
+    // Zustand eines verfolgten Befehls (404, wenn unbekannt)
+    @GetMapping("/control/{id}")
+    public ResponseEntity<TrackedCommand> getControlCommand(@PathVariable String id) {
+        return ResponseEntity.of(commandTracker.get(id));
+    }
+}
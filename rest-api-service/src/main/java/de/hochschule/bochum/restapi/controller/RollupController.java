@@ -0,0 +1,60 @@
+package de.hochschule.bochum.restapi.controller;
+
+import de.hochschule.bochum.common.model.Rollup;
+import de.hochschule.bochum.common.model.RollupTier;
+import de.hochschule.bochum.restapi.service.RollupService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
+// Hier biete ich die Rollups (count/sum/min/max/first/last je Intervall) für lange Zeiträume an
+@Slf4j
+@RestController
+@RequestMapping("/api/rollups")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class RollupController {
+
+    static final String TIER_HEADER = "X-Rollup-Tier";
+    private static final List<String> SERIES = List.of("IST", "SOLL", "DIFFERENZ", "WAGO");
+
+    private final RollupService rollupService;
+
+    @Value("${series.default-points:500}")
+    private int defaultPoints;
+
+    // z.B. /api/rollups/ist?from=2024-01-01T00:00:00&to=2024-12-31T23:59:59 (ohne tier: gröbste passende Stufe
+    // für höchstens points Intervalle, ohne from/to: die letzten 24 h). Die Stufe steht im Header X-Rollup-Tier.
+    @GetMapping("/{series}")
+    public ResponseEntity<List<Rollup>> getRollups(
+            @PathVariable String series,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String tier,
+            @RequestParam(required = false) Integer points) {
+        String rollupSeries = series.trim().toUpperCase(Locale.ROOT);
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(1);
+        if (!SERIES.contains(rollupSeries) || !start.isBefore(end) || (points != null && points <= 0)) {
+            return ResponseEntity.badRequest().build();
+        }
+        RollupTier rollupTier;
+        try {
+            rollupTier = tier != null ? RollupTier.fromCode(tier)
+                    : rollupService.pickTier(start, end, points != null ? points : defaultPoints);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        log.info("GET /api/rollups/{} aufgerufen – {} bis {}, Stufe {}", series, start, end, rollupTier.getCode());
+        return ResponseEntity.ok()
+                .header(TIER_HEADER, rollupTier.getCode())
+                .body(rollupService.getRollups(rollupSeries, rollupTier, start, end));
+    }
+}
@@ -1,68 +1,166 @@
 package de.hochschule.bochum.restapi.controller;
 
+import de.hochschule.bochum.common.dto.SiemensSeries;
 import de.hochschule.bochum.common.model.SiemensData;
+import de.hochschule.bochum.common.model.SiemensSnapshot;
+import de.hochschule.bochum.restapi.service.HistoryCursor;
+import de.hochschule.bochum.restapi.service.HistoryPage;
+import de.hochschule.bochum.restapi.service.SeriesMode;
+import de.hochschule.bochum.restapi.service.SiemensSeriesService;
 import de.hochschule.bochum.restapi.service.SiemensService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Locale;
 
-// Hier stelle ich alle REST-Endpunkte für Siemens S7-1500 Daten bereit
+// Hier stelle ich alle REST-Endpunkte für Siemens S7-1500 Daten bereit (im Profil "reactive": ReactiveSiemensController)
 @Slf4j
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/siemens")
 @RequiredArgsConstructor
-@CrossOrigin(origins = "*") // Für Entwicklung/Freies Frontend, im Produktivbetrieb anpassen!
+@CrossOrigin(origins = "*", exposedHeaders = "ETag") // Für Entwicklung/Freies Frontend, im Produktivbetrieb anpassen!
 public class SiemensController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    // Ohne from/to gilt der gesamte Verlauf
+    static final LocalDateTime HISTORY_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+    static final LocalDateTime HISTORY_END = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    static final List<String> SERIES_TYPES = List.of("IST", "SOLL", "DIFFERENZ");
+
     private final SiemensService siemensService;
+    private final SiemensSeriesService seriesService;
+
+    // Seitengröße ohne ?limit=, und die Obergrenze auch mit ?limit=
+    @Value("${history.default-limit:1000}")
+    private int defaultLimit;
+
+    @Value("${history.max-limit:10000}")
+    private int maxLimit;
+
+    // Punkte ohne ?points= bzw. höchstens erlaubte Punkte für /series
+    @Value("${series.default-points:500}")
+    private int defaultSeriesPoints;
+
+    @Value("${series.max-points:5000}")
+    private int maxSeriesPoints;
 
-    // Liefert den letzten Ist-Wert als JSON zurück
+    // Liefert den letzten Ist-Wert als JSON zurück (alle /latest mit ETag, unverändert per If-None-Match: 304)
     @GetMapping("/temperatur/ist/latest")
     public ResponseEntity<SiemensData> getLatestIstTemperatur() {
         log.info("GET /api/siemens/temperatur/ist/latest aufgerufen");
-        return siemensService.getLatestByType("IST")
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.noContent().build());
+        return LatestResponse.of(siemensService.getLatestByType("IST"), SiemensData::getId, SiemensData::getTimestamp);
     }
 
     // Liefert den letzten Soll-Wert als JSON zurück
     @GetMapping("/temperatur/soll/latest")
     public ResponseEntity<SiemensData> getLatestSollTemperatur() {
         log.info("GET /api/siemens/temperatur/soll/latest aufgerufen");
-        return siemensService.getLatestByType("SOLL")
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.noContent().build());
+        return LatestResponse.of(siemensService.getLatestByType("SOLL"), SiemensData::getId, SiemensData::getTimestamp);
     }
 
     // Liefert den letzten Differenz-Wert als JSON zurück
     @GetMapping("/temperatur/differenz/latest")
     public ResponseEntity<SiemensData> getLatestDifferenzTemperatur() {
         log.info("GET /api/siemens/temperatur/differenz/latest aufgerufen");
-        return siemensService.getLatestByType("DIFFERENZ")
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.noContent().build());
+        return LatestResponse.of(siemensService.getLatestByType("DIFFERENZ"), SiemensData::getId, SiemensData::getTimestamp);
     }
 
-    // Gibt alle Ist-Werte zurück
+    // Gibt die Ist-Werte zurück (seitenweise, siehe getHistory)
     @GetMapping("/temperatur/ist/all")
-    public ResponseEntity<List<SiemensData>> getAllIstTemperatur() {
+    public ResponseEntity<List<SiemensData>> getAllIstTemperatur(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
         log.info("GET /api/siemens/temperatur/ist/all aufgerufen");
-        return ResponseEntity.ok(siemensService.getAllByType("IST"));
+        return getHistory("IST", from, to, limit, cursor);
     }
 
-    // Gibt alle Soll-Werte zurück
+    // Gibt die Soll-Werte zurück (seitenweise, siehe getHistory)
     @GetMapping("/temperatur/soll/all")
-    public ResponseEntity<List<SiemensData>> getAllSollTemperatur() {
+    public ResponseEntity<List<SiemensData>> getAllSollTemperatur(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
         log.info("GET /api/siemens/temperatur/soll/all aufgerufen");
-        return ResponseEntity.ok(siemensService.getAllByType("SOLL"));
+        return getHistory("SOLL", from, to, limit, cursor);
     }
 
-    // Gibt alle Differenz-Werte zurück
+    // Gibt die Differenz-Werte zurück (seitenweise, siehe getHistory)
     @GetMapping("/temperatur/differenz/all")
-    public ResponseEntity<List<SiemensData>> getAllDifferenzTemperatur() {
+    public ResponseEntity<List<SiemensData>> getAllDifferenzTemperatur(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
         log.info("GET /api/siemens/temperatur/differenz/all aufgerufen");
-        return ResponseEntity.ok(siemensService.getAllByType("DIFFERENZ"));
+        return getHistory("DIFFERENZ", from, to, limit, cursor);
+    }
+
+    // Eine Seite des Verlaufs, neueste zuerst. Die Antwort bleibt ein JSON-Array; gibt es weitere Einträge,
+    // steht der Cursor für die nächste Seite im Header X-Next-Cursor (als ?cursor=... zurückschicken).
+    private ResponseEntity<List<SiemensData>> getHistory(String type, LocalDateTime from, LocalDateTime to,
+                                                         Integer limit, String cursor) {
+        LocalDateTime start = from != null ? from : HISTORY_START;
+        LocalDateTime end = to != null ? to : HISTORY_END;
+        if (start.isAfter(end) || (limit != null && limit <= 0)) {
+            return ResponseEntity.badRequest().build();
+        }
+        int pageSize = Math.min(limit != null ? limit : defaultLimit, maxLimit);
+        HistoryPage<SiemensData> page;
+        try {
+            page = siemensService.getHistory(type, start, end, pageSize,
+                    cursor != null ? HistoryCursor.decode(cursor) : null);
+        } catch (IllegalArgumentException e) {
+            log.warn("! Ungültiger Cursor für {}: {}", type, cursor);
+            return ResponseEntity.badRequest().build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.items());
+    }
+
+    // Verlauf für Diagramme, serverseitig auf höchstens points Punkte reduziert (ohne from/to: die letzten 24 h).
+    // mode=minmax liefert Intervalle mit min/max/avg, mode=lttb ausgewählte echte Messpunkte.
+    @GetMapping("/temperatur/{type}/series")
+    public ResponseEntity<SiemensSeries> getSeries(
+            @PathVariable String type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer points,
+            @RequestParam(defaultValue = "minmax") String mode) {
+        String seriesType = type.trim().toUpperCase(Locale.ROOT);
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(1);
+        log.info("GET /api/siemens/temperatur/{}/series aufgerufen – {} bis {}, {} Punkte ({})", type, start, end, points, mode);
+        SeriesMode seriesMode;
+        try {
+            seriesMode = SeriesMode.fromProperty(mode);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!SERIES_TYPES.contains(seriesType) || !start.isBefore(end) || (points != null && points < 2)) {
+            return ResponseEntity.badRequest().build();
+        }
+        int pointCount = Math.min(points != null ? points : defaultSeriesPoints, maxSeriesPoints);
+        return ResponseEntity.ok(seriesService.getSeries(seriesType, start, end, pointCount, seriesMode));
+    }
+
+    // Liefert IST, SOLL und DIFFERENZ des letzten Messzyklus in einem Dokument
+    @GetMapping("/snapshot/latest")
+    public ResponseEntity<SiemensSnapshot> getLatestSnapshot() {
+        log.info("GET /api/siemens/snapshot/latest aufgerufen");
+        return LatestResponse.of(siemensService.getLatestSnapshot(), SiemensSnapshot::getId, SiemensSnapshot::getTimestamp);
     }
 }
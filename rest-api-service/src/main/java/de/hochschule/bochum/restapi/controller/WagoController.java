@@ -2,45 +2,66 @@ package de.hochschule.bochum.restapi.controller;
 
 import de.hochschule.bochum.common.dto.ControlCommand;
 import de.hochschule.bochum.common.model.WagoData;
+import de.hochschule.bochum.restapi.service.ControlCommandTracker;
+import de.hochschule.bochum.restapi.service.TrackedCommand;
 import de.hochschule.bochum.restapi.service.WagoService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-// Hier biete ich Endpunkte für die Wago 750 SPS an – Status abrufen & steuern
+import java.util.concurrent.CompletableFuture;
+
+// Hier biete ich Endpunkte für die Wago 750 SPS an – Status abrufen & steuern (im Profil "reactive": ReactiveWagoController)
 @Slf4j
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/wago")
 @RequiredArgsConstructor
-@CrossOrigin(origins = "*") // Frontend darf zugreifen, ggf. für Prod anpassen
+@CrossOrigin(origins = "*", exposedHeaders = {"ETag", "Location"}) // Frontend darf zugreifen (und das ETag lesen), ggf. für Prod anpassen
 public class WagoController {
 
     private final WagoService wagoService;
+    private final ControlCommandTracker commandTracker;
 
-    // Liefert den aktuellsten Status der Lampen zurück
+    // Liefert den aktuellsten Status der Lampen zurück (mit ETag, unverändert per If-None-Match: 304)
     @GetMapping("/status/latest")
     public ResponseEntity<WagoData> getLatestStatus() {
         log.info("GET /api/wago/status/latest aufgerufen");
-        return wagoService.getLatestStatus()
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.noContent().build());
+        return LatestResponse.of(wagoService.getLatestStatus(), WagoData::getId, WagoData::getTimestamp);
     }
 
     // Liefert den aktuellen Status + Binary (hier gleich wie oben, kann noch erweitert werden)
     @GetMapping("/status/latest/binary")
     public ResponseEntity<WagoData> getLatestStatusWithBinary() {
         log.info("GET /api/wago/status/latest/binary aufgerufen");
-        return wagoService.getLatestStatus()
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.noContent().build());
+        return LatestResponse.of(wagoService.getLatestStatus(), WagoData::getId, WagoData::getTimestamp);
     }
 
-    // Nimmt Steuerbefehle vom Frontend an und sendet diese via MQTT an die SPS
+    // Nimmt Steuerbefehle vom Frontend an und sendet diese via MQTT an die SPS.
+    // Ohne Verfolgung wie bisher 200 "Command sent: N"; mit Verfolgung 202 + Location auf den Befehl
     @PostMapping("/control")
-    public ResponseEntity<String> sendControlCommand(@RequestBody ControlCommand command) {
-        log.info("POST /api/wago/control aufgerufen – Command: {}", command.getCommand());
-        wagoService.sendControlCommand(command.getCommand());
-        return ResponseEntity.ok("Command sent: " + command.getCommand());
+    public ResponseEntity<?> sendControlCommand(@RequestBody ControlCommand command) {
+        log.info("POST /api/wago/control aufgerufen – Command: {}", command.getCommand());
+        return CommandResponse.of(commandTracker.submit(command.getCommand()));
+    }
+
+    // Mit ?waitMs= wartet die Anfrage (asynchron, ohne Servlet-Thread) bis zur Bestätigung durch die SPS und
+    // antwortet immer mit dem Zustand als JSON (200 bei CONFIRMED, TIMED_OUT oder SENT, sonst 202)
+    @PostMapping(value = "/control", params = "waitMs")
+    public CompletableFuture<ResponseEntity<TrackedCommand>> sendControlCommandAndWait(
+            @RequestBody ControlCommand command,
+            @RequestParam long waitMs) {
+        log.info("POST /api/wago/control?waitMs={} aufgerufen – Command: {}", waitMs, command.getCommand());
+        TrackedCommand sent = commandTracker.submit(command.getCommand());
+        return commandTracker.await(sent, waitMs).thenApply(CommandResponse::tracked);
+    }
+
+    // Zustand eines verfolgten Befehls (404, wenn unbekannt oder schon länger als keep-ms abgeschlossen)
+    @GetMapping("/control/{id}")
+    public ResponseEntity<TrackedCommand> getControlCommand(@PathVariable String id) {
+        log.info("GET /api/wago/control/{} aufgerufen", id);
+        return ResponseEntity.of(commandTracker.get(id));
     }
 }
@@ -0,0 +1,48 @@
+package de.hochschule.bochum.restapi.controller;
+
+import de.hochschule.bochum.common.dto.WagoOnDurations;
+import de.hochschule.bochum.common.dto.WagoState;
+import de.hochschule.bochum.restapi.service.WagoHistoryService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Hier biete ich den Verlauf der Wago-Lampen an – rekonstruiert aus den gespeicherten Statuswechseln
+@Slf4j
+@RestController
+@RequestMapping("/api/wago/history")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class WagoHistoryController {
+
+    private final WagoHistoryService historyService;
+
+    // Zustand zu einem Zeitpunkt (ohne Parameter: jetzt), z.B. ?at=2024-05-01T12:00:00
+    @GetMapping("/state")
+    public ResponseEntity<WagoState> getStateAt(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        LocalDateTime instant = at != null ? at : LocalDateTime.now();
+        log.info("GET /api/wago/history/state aufgerufen – at: {}", instant);
+        return historyService.getStateAt(instant)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.noContent().build());
+    }
+
+    // Einschaltdauer pro Bit im Zeitraum (ohne Parameter: heute bis jetzt)
+    @GetMapping("/on-durations")
+    public ResponseEntity<WagoOnDurations> getOnDurations(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : LocalDate.now().atStartOfDay();
+        log.info("GET /api/wago/history/on-durations aufgerufen – {} bis {}", start, end);
+        if (!start.isBefore(end)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(historyService.getOnDurations(start, end));
+    }
+}
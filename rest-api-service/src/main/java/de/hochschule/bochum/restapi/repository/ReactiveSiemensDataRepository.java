@@ -0,0 +1,27 @@
+package de.hochschule.bochum.restapi.repository;
+
+import de.hochschule.bochum.common.model.SiemensData;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import java.time.LocalDateTime;
+
+// Reaktives Gegenstück zum SiemensDataRepository (Profil "reactive"), gleiche Abfragen, aber ohne blockierenden Thread
+@Repository
+public interface ReactiveSiemensDataRepository extends ReactiveMongoRepository<SiemensData, String> {
+    // Neuester Eintrag eines bestimmten Typs (IST, SOLL, DIFFERENZ)
+    Mono<SiemensData> findTopByTypeOrderByTimestampDesc(String type);
+
+    // Erste Seite eines Zeitraums, neueste zuerst; mit Limit.unlimited() der ganze Zeitraum als Stream
+    @Query(value = "{ 'type': ?0, 'timestamp': { $gte: ?1, $lte: ?2 } }", sort = "{ 'timestamp': -1, '_id': -1 }")
+    Flux<SiemensData> findPage(String type, LocalDateTime from, LocalDateTime to, Limit limit);
+
+    // Alles, was in der Sortierung nach dem Cursor (Zeitstempel, ID) kommt
+    @Query(value = "{ 'type': ?0, 'timestamp': { $gte: ?1 }, $or: [ { 'timestamp': { $lt: ?2 } }, { 'timestamp': ?2, '_id': { $lt: ?3 } } ] }",
+            sort = "{ 'timestamp': -1, '_id': -1 }")
+    Flux<SiemensData> findPageAfter(String type, LocalDateTime from, LocalDateTime cursorTimestamp, ObjectId cursorId, Limit limit);
+}
@@ -0,0 +1,20 @@
+package de.hochschule.bochum.restapi.repository;
+
+import de.hochschule.bochum.common.model.SiemensHourBucket;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import java.time.LocalDateTime;
+
+// Reaktives Gegenstück zum SiemensHourBucketRepository (Profil "reactive", storage.siemens.layout: buckets|both)
+@Repository
+public interface ReactiveSiemensHourBucketRepository extends ReactiveMongoRepository<SiemensHourBucket, String> {
+    // Jüngster Bucket eines Typs, sein letzter Wert ist der aktuellste Messwert
+    Mono<SiemensHourBucket> findTopByTypeOrderByHourDesc(String type);
+
+    // Buckets eines Stundenbereichs (inklusive), neueste zuerst; gelesen wird nur, was der Subscriber anfordert
+    @Query(value = "{ 'type': ?0, 'hour': { $gte: ?1, $lte: ?2 } }", sort = "{ 'hour': -1 }")
+    Flux<SiemensHourBucket> findByTypeAndHourRange(String type, LocalDateTime fromHour, LocalDateTime toHour);
+}
@@ -0,0 +1,12 @@
+package de.hochschule.bochum.restapi.repository;
+
+import de.hochschule.bochum.common.model.WagoData;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+// Reaktives Gegenstück zum WagoDataRepository (Profil "reactive")
+@Repository
+public interface ReactiveWagoDataRepository extends ReactiveMongoRepository<WagoData, String> {
+    Mono<WagoData> findTopByOrderByTimestampDesc();
+}
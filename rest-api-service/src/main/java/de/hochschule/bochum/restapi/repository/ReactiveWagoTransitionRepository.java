@@ -0,0 +1,12 @@
+package de.hochschule.bochum.restapi.repository;
+
+import de.hochschule.bochum.common.model.WagoTransition;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+// Reaktives Gegenstück zum WagoTransitionRepository (Profil "reactive"), nur für den aktuellen Status
+@Repository
+public interface ReactiveWagoTransitionRepository extends ReactiveMongoRepository<WagoTransition, String> {
+    Mono<WagoTransition> findTopByOrderByTimestampDesc();
+}
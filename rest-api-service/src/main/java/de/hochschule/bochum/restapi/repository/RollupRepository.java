@@ -0,0 +1,16 @@
+package de.hochschule.bochum.restapi.repository;
+
+import de.hochschule.bochum.common.model.Rollup;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Repository für die Rollups (vom Consumer fortgeschrieben, hier nur gelesen)
+@Repository
+public interface RollupRepository extends MongoRepository<Rollup, String> {
+    // Rollups einer Reihe und Stufe, deren Intervall im Zeitraum beginnt (inklusive), älteste zuerst
+    @Query(value = "{ 'series': ?0, 'tier': ?1, 'start': { $gte: ?2, $lte: ?3 } }", sort = "{ 'start': 1 }")
+    List<Rollup> findRange(String series, String tier, LocalDateTime from, LocalDateTime to);
+}
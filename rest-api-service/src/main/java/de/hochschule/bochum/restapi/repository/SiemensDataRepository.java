@@ -1,17 +1,27 @@
 package de.hochschule.bochum.restapi.repository;
 
 import de.hochschule.bochum.common.model.SiemensData;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
-// Repository für Siemens-Daten – bietet spezielle Abfragen, die ich fürs Frontend brauche
+// Repository für Siemens-Daten – bietet spezielle Abfragen, die ich fürs Frontend brauche
 @Repository
 public interface SiemensDataRepository extends MongoRepository<SiemensData, String> {
     // Neuester Eintrag eines bestimmten Typs (IST, SOLL, DIFFERENZ)
     Optional<SiemensData> findTopByTypeOrderByTimestampDesc(String type);
 
-    // Alle Einträge eines Typs, sortiert nach Zeit
-    List<SiemensData> findByTypeOrderByTimestampDesc(String type);
+    // Erste Seite eines Zeitraums (Keyset-Pagination, nutzt den Index type_timestamp_id)
+    @Query(value = "{ 'type': ?0, 'timestamp': { $gte: ?1, $lte: ?2 } }", sort = "{ 'timestamp': -1, '_id': -1 }")
+    List<SiemensData> findPage(String type, LocalDateTime from, LocalDateTime to, Limit limit);
+
+    // Folgeseite: alles, was in der Sortierung nach dem Cursor (Zeitstempel, ID) kommt
+    @Query(value = "{ 'type': ?0, 'timestamp': { $gte: ?1 }, $or: [ { 'timestamp': { $lt: ?2 } }, { 'timestamp': ?2, '_id': { $lt: ?3 } } ] }",
+            sort = "{ 'timestamp': -1, '_id': -1 }")
+    List<SiemensData> findPageAfter(String type, LocalDateTime from, LocalDateTime cursorTimestamp, ObjectId cursorId, Limit limit);
 }
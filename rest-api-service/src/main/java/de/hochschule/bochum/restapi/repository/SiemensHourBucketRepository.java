@@ -0,0 +1,20 @@
+package de.hochschule.bochum.restapi.repository;
+
+import de.hochschule.bochum.common.model.SiemensHourBucket;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Repository für die Stunden-Buckets der Siemens-Werte (ein Dokument pro Typ und Stunde)
+@Repository
+public interface SiemensHourBucketRepository extends MongoRepository<SiemensHourBucket, String> {
+    // Jüngster Bucket eines Typs, sein letzter Wert ist der aktuellste Messwert
+    Optional<SiemensHourBucket> findTopByTypeOrderByHourDesc(String type);
+
+    // Buckets eines Stundenbereichs (inklusive), neueste zuerst; als Stream, gelesen wird nur bis die Seite voll ist
+    @Query(value = "{ 'type': ?0, 'hour': { $gte: ?1, $lte: ?2 } }", sort = "{ 'hour': -1 }")
+    Stream<SiemensHourBucket> streamByTypeAndHourRange(String type, LocalDateTime fromHour, LocalDateTime toHour);
+}
@@ -0,0 +1,13 @@
+package de.hochschule.bochum.restapi.repository;
+
+import de.hochschule.bochum.common.model.SiemensSnapshot;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+import java.util.Optional;
+
+// Repository für die Siemens-Snapshots (IST, SOLL und DIFFERENZ in einem Dokument)
+@Repository
+public interface SiemensSnapshotRepository extends MongoRepository<SiemensSnapshot, String> {
+    // Jüngster Snapshot – damit braucht das Dashboard nur noch einen Request statt drei
+    Optional<SiemensSnapshot> findTopByOrderByTimestampDesc();
+}
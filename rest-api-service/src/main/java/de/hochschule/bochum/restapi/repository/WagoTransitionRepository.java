@@ -0,0 +1,21 @@
+package de.hochschule.bochum.restapi.repository;
+
+import de.hochschule.bochum.common.model.WagoTransition;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Repository für die Wago-Statuswechsel – Grundlage für den Verlauf (Zustand zu einem Zeitpunkt, Einschaltdauern)
+@Repository
+public interface WagoTransitionRepository extends MongoRepository<WagoTransition, String> {
+    Optional<WagoTransition> findTopByOrderByTimestampDesc();
+
+    // Letzter Wechsel bis einschließlich zum Zeitpunkt = der Zustand, der dann galt
+    Optional<WagoTransition> findTopByTimestampLessThanEqualOrderByTimestampDesc(LocalDateTime at);
+
+    // Alle Wechsel im Zeitraum (from, to], aufsteigend; als Stream, damit nicht alles im Speicher liegt
+    Stream<WagoTransition> findByTimestampGreaterThanAndTimestampLessThanEqualOrderByTimestampAsc(
+            LocalDateTime from, LocalDateTime to);
+}
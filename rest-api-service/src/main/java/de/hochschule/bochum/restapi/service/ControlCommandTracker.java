@@ -0,0 +1,253 @@
+package de.hochschule.bochum.restapi.service;
+
+import de.hochschule.bochum.common.concurrent.BackgroundThreads;
+import de.hochschule.bochum.common.model.WagoData;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Hier verfolge ich jeden Steuerbefehl, bis die SPS ihn über Wago750/Status bestätigt.
+// Die Wago schickt keine Korrelations-ID zurück: jeder Befehl bekommt eine eigene ID, und bestätigt ist er durch
+// den ersten Status nach dem Senden, der dem in expected-status für diesen Befehl eingetragenen Wert entspricht.
+// Stand die SPS schon vor dem Senden auf diesem Wert (Befehl ändert nichts), gilt er mit dem Veröffentlichen als bestätigt.
+// Ein bestätigter Befehl überholt ältere offene Befehle (SUPERSEDED), deren Status ist dann nicht mehr zu sehen.
+// Befehle ohne Eintrag kann ich keinem Status zuordnen: sie werden nur gesendet und bleiben SENT.
+// Die Status kommen über das MQTT-Abo des LatestValueCache; die Round-Trip-Zeit (inklusive Wartezeit in der
+// OutboundCommandQueue) landet als Histogramm in api.wago.command.roundtrip. Ein Hintergrund-Thread setzt offene
+// Befehle nach timeout-ms auf TIMED_OUT und vergisst abgeschlossene nach keep-ms.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ControlCommandTracker {
+
+    private final WagoService wagoService;
+    private final LatestValueCache latestCache;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${control.tracking.enabled:false}")
+    private boolean enabled;
+
+    @Value("${control.tracking.timeout-ms:10000}")
+    private long timeoutMs;
+
+    // So lange ist ein abgeschlossener Befehl noch per GET /api/wago/control/{id} abrufbar
+    @Value("${control.tracking.keep-ms:600000}")
+    private long keepMs;
+
+    @Value("${control.tracking.max-wait-ms:30000}")
+    private long maxWaitMs;
+
+    // Befehl=Status, kommagetrennt (z.B. "0=0,1=255"); Befehle ohne Eintrag werden nicht bestätigt (SENT)
+    @Value("${control.tracking.expected-status:}")
+    private String expectedStatusConfig;
+
+    // Hintergrund-Thread virtuell, wenn die ganze Anwendung auf virtuellen Threads läuft
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private final Map<String, Pending> commands = new ConcurrentHashMap<>();
+    private Map<Integer, Integer> expectedStatus = Map.of();
+    private Timer roundTrip;
+    private volatile ScheduledExecutorService sweeper;
+
+    // Ein verfolgter Befehl; abgeschlossen ist er, sobald result fertig ist (Bestätigung, Timeout oder Queue, wer zuerst kommt)
+    private record Pending(TrackedCommand sent, Integer expected, Integer baseline, long sentNanos,
+                           CompletableFuture<TrackedCommand> result) {
+
+        TrackedCommand current() {
+            return result.getNow(sent);
+        }
+
+        // Befehle ohne Änderung bestätigt schon das Veröffentlichen, nicht der nächste (unveränderte) Status
+        boolean matches(int status) {
+            return expected != null && expected == status && !expected.equals(baseline);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        expectedStatus = parseExpectedStatus(expectedStatusConfig);
+        roundTrip = Timer.builder("api.wago.command.roundtrip")
+                .description("Zeit vom Senden eines Steuerbefehls bis zum passenden Status der SPS")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        meterRegistry.gauge("api.wago.command.pending", commands,
+                map -> map.values().stream().filter(pending -> !pending.result().isDone()).count());
+        latestCache.addListener(this::onValue);
+
+        long interval = Math.max(100, Math.min(1000, timeoutMs / 10));
+        sweeper = BackgroundThreads.newScheduler("command-sweeper", virtualThreads);
+        sweeper.scheduleWithFixedDelay(this::sweep, interval, interval, TimeUnit.MILLISECONDS);
+        if (expectedStatus.isEmpty()) {
+            log.warn("! Befehlsverfolgung ohne control.tracking.expected-status: kein Befehl kann bestätigt werden");
+        }
+        log.info("Befehlsverfolgung aktiv: timeoutMs={}, erwartete Status {}", timeoutMs, expectedStatus);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Veröffentlicht den Befehl; ohne Verfolgung nur senden. Dann warte ich auf das Ergebnis der Queue (höchstens
+    // max-queue-ms), damit ein ersetzter oder verworfener Befehl nicht als SENT beim Client ankommt.
+    // Ohne Queue (Standard) ist das Ergebnis sofort da und der Request-Thread wartet nicht
+    public TrackedCommand submit(Integer command) {
+        String id = UUID.randomUUID().toString();
+        if (!enabled) {
+            TrackedCommand.State state = switch (wagoService.sendControlCommand(command).join()) {
+                case SENT -> TrackedCommand.State.SENT;
+                case COALESCED -> TrackedCommand.State.COALESCED;
+                case REJECTED -> TrackedCommand.State.REJECTED;
+            };
+            return new TrackedCommand(id, command, state, LocalDateTime.now(), null, null, null);
+        }
+        Integer baseline = latestCache.current(LatestValueCache.WAGO, WagoData.class).map(WagoData::getStatus).orElse(null);
+        TrackedCommand sent = new TrackedCommand(id, command, TrackedCommand.State.PENDING, LocalDateTime.now(), null, null, null);
+        // Erst eintragen, dann senden: die Antwort der SPS kann schneller da sein als der Rücksprung aus send()
+        Pending pending = new Pending(sent, expectedStatus.get(command), baseline, System.nanoTime(), new CompletableFuture<>());
+        commands.put(id, pending);
+        CompletableFuture<OutboundCommandQueue.Outcome> outcome;
+        try {
+            outcome = wagoService.sendControlCommand(command);
+        } catch (RuntimeException e) {
+            commands.remove(id);
+            throw e;
+        }
+        // Nie gesendete Befehle gleich abschließen, statt sie in den Timeout laufen zu lassen
+        outcome.whenComplete((result, error) -> {
+            if (error != null || result == OutboundCommandQueue.Outcome.REJECTED) {
+                finish(pending, TrackedCommand.State.REJECTED, "rejected");
+            } else if (result == OutboundCommandQueue.Outcome.COALESCED) {
+                finish(pending, TrackedCommand.State.COALESCED, "coalesced");
+            } else if (pending.expected() == null) {
+                finish(pending, TrackedCommand.State.SENT, "untracked");
+            } else if (pending.expected().equals(baseline)) {
+                confirm(pending, baseline, LocalDateTime.now(), false);
+            }
+        });
+        log.debug("Befehl {} ({}) gesendet, Status vorher {}, erwartet {}", id, command, baseline, pending.expected());
+        // Ohne Queue steht das Ergebnis des Sendens schon fest (z.B. SENT ohne erwarteten Status)
+        return pending.current();
+    }
+
+    public Optional<TrackedCommand> get(String id) {
+        return Optional.ofNullable(commands.get(id)).map(Pending::current);
+    }
+
+    // Wartet höchstens waitMs (gekürzt auf max-wait-ms) auf Bestätigung oder Timeout, sonst kommt der offene Zustand
+    public CompletableFuture<TrackedCommand> await(TrackedCommand command, long waitMs) {
+        Pending pending = commands.get(command.id());
+        if (pending == null || waitMs <= 0) {
+            return CompletableFuture.completedFuture(pending == null ? command : pending.current());
+        }
+        return pending.result().copy().completeOnTimeout(pending.current(), Math.min(waitMs, maxWaitMs), TimeUnit.MILLISECONDS);
+    }
+
+    // Listener am LatestValueCache, läuft im MQTT-Thread: nur offene Befehle prüfen
+    void onValue(String key, Object value) {
+        if (!LatestValueCache.WAGO.equals(key) || !(value instanceof WagoData data) || data.getStatus() == null) {
+            return;
+        }
+        long newestConfirmed = Long.MIN_VALUE;
+        for (Pending pending : commands.values()) {
+            if (!pending.result().isDone() && pending.matches(data.getStatus())
+                    && confirm(pending, data.getStatus(), data.getTimestamp(), true)) {
+                newestConfirmed = Math.max(newestConfirmed, pending.sentNanos());
+            }
+        }
+        if (newestConfirmed == Long.MIN_VALUE) {
+            return;
+        }
+        // Ältere offene Befehle sind überholt: die SPS zeigt schon den Status eines später gesendeten Befehls
+        for (Pending pending : commands.values()) {
+            if (pending.expected() != null && pending.sentNanos() - newestConfirmed < 0) {
+                finish(pending, TrackedCommand.State.SUPERSEDED, "superseded");
+            }
+        }
+    }
+
+    // Nur ein echter Statuswechsel zählt als Round-Trip; ein Befehl ohne Änderung landet nicht im Histogramm
+    private boolean confirm(Pending pending, int status, LocalDateTime confirmedAt, boolean roundTripSample) {
+        long latencyNanos = System.nanoTime() - pending.sentNanos();
+        TrackedCommand sent = pending.sent();
+        TrackedCommand confirmed = new TrackedCommand(sent.id(), sent.command(), TrackedCommand.State.CONFIRMED,
+                sent.sentAt(), confirmedAt, TimeUnit.NANOSECONDS.toMillis(latencyNanos), status);
+        if (!pending.result().complete(confirmed)) {
+            return false;
+        }
+        if (roundTripSample) {
+            roundTrip.record(latencyNanos, TimeUnit.NANOSECONDS);
+        }
+        meterRegistry.counter("api.wago.command", "result", roundTripSample ? "confirmed" : "unchanged").increment();
+        log.debug("Befehl {} ({}) nach {} ms bestätigt, Status {}", sent.id(), sent.command(), confirmed.latencyMs(), status);
+        return true;
+    }
+
+    private void finish(Pending pending, TrackedCommand.State state, String result) {
+        TrackedCommand sent = pending.sent();
+        if (pending.result().complete(new TrackedCommand(sent.id(), sent.command(), state, sent.sentAt(), null, null, null))) {
+            meterRegistry.counter("api.wago.command", "result", result).increment();
+            log.debug("Befehl {} ({}) abgeschlossen ohne Bestätigung: {}", sent.id(), sent.command(), state);
+        }
+    }
+
+    // Offene Befehle nach timeout-ms abschließen, abgeschlossene nach keep-ms vergessen
+    void sweep() {
+        long now = System.nanoTime();
+        commands.values().removeIf(pending -> {
+            long age = TimeUnit.NANOSECONDS.toMillis(now - pending.sentNanos());
+            if (!pending.result().isDone() && age > timeoutMs) {
+                TrackedCommand sent = pending.sent();
+                TrackedCommand timedOut = new TrackedCommand(sent.id(), sent.command(), TrackedCommand.State.TIMED_OUT,
+                        sent.sentAt(), null, null, null);
+                if (pending.result().complete(timedOut)) {
+                    meterRegistry.counter("api.wago.command", "result", "timeout").increment();
+                    log.warn("! Befehl {} ({}) nach {} ms nicht bestätigt", sent.id(), sent.command(), timeoutMs);
+                }
+            }
+            return pending.result().isDone() && age > keepMs;
+        });
+    }
+
+    static Map<Integer, Integer> parseExpectedStatus(String config) {
+        Map<Integer, Integer> expected = new HashMap<>();
+        if (config == null || config.isBlank()) {
+            return expected;
+        }
+        for (String pair : config.split(",")) {
+            String[] parts = pair.split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("control.tracking.expected-status: erwartet Befehl=Status, nicht '" + pair + "'");
+            }
+            expected.put(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+        }
+        return expected;
+    }
+
+    @PreDestroy
+    public void stop() {
+        ScheduledExecutorService current = sweeper;
+        if (current != null) {
+            sweeper = null;
+            current.shutdownNow();
+        }
+    }
+}
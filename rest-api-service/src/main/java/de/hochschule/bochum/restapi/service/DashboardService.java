@@ -0,0 +1,40 @@
+package de.hochschule.bochum.restapi.service;
+
+import de.hochschule.bochum.common.dto.DashboardLatest;
+import de.hochschule.bochum.common.model.SiemensData;
+import de.hochschule.bochum.common.model.WagoData;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+// Hier stelle ich alles zusammen, was das Dashboard pro Poll braucht: Wago-Status plus IST, SOLL und DIFFERENZ.
+// Gelesen wird über denselben Weg wie bei den einzelnen /latest-Endpunkten (Latest-Cache, MongoDB nur wenn kalt
+// oder veraltet), bei einem Treffer kommen also alle vier Werte aus dem Speicher statt aus vier Requests und Queries.
+@Service
+@RequiredArgsConstructor
+public class DashboardService {
+
+    private final WagoService wagoService;
+    private final SiemensService siemensService;
+
+    // Leer nur, wenn es noch gar keinen Wert gibt
+    public Optional<DashboardLatest> getLatest() {
+        Optional<WagoData> wago = wagoService.getLatestStatus();
+        Optional<SiemensData> ist = siemensService.getLatestByType("IST");
+        Optional<SiemensData> soll = siemensService.getLatestByType("SOLL");
+        Optional<SiemensData> differenz = siemensService.getLatestByType("DIFFERENZ");
+        if (wago.isEmpty() && ist.isEmpty() && soll.isEmpty() && differenz.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(new DashboardLatest(
+                wago.map(WagoData::getStatus).orElse(null),
+                wago.map(WagoData::getTimestamp).orElse(null),
+                ist.map(SiemensData::getIstTemperatur).orElse(null),
+                ist.map(SiemensData::getTimestamp).orElse(null),
+                soll.map(SiemensData::getSollTemperatur).orElse(null),
+                soll.map(SiemensData::getTimestamp).orElse(null),
+                differenz.map(SiemensData::getDifferenzTemperatur).orElse(null),
+                differenz.map(SiemensData::getTimestamp).orElse(null)));
+    }
+}
@@ -0,0 +1,32 @@
+package de.hochschule.bochum.restapi.service;
+
+import java.util.Locale;
+
+// Ausgabeformate des Verlaufs-Exports
+public enum ExportFormat {
+
+    // Ein JSON-Objekt pro Zeile, gleiche Felder wie bei den REST-Endpunkten
+    NDJSON("application/x-ndjson", "ndjson"),
+    // Kopfzeile plus eine Zeile pro Messwert
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static ExportFormat fromProperty(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+}
@@ -0,0 +1,192 @@
+package de.hochschule.bochum.restapi.service;
+
+import de.hochschule.bochum.common.concurrent.BackgroundThreads;
+import de.hochschule.bochum.common.model.SiemensData;
+import de.hochschule.bochum.common.model.WagoData;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Hier halte ich den Health-Zustand als fertigen Snapshot im Speicher, damit /api/health und /actuator/health
+// nie selbst auf MongoDB warten. Ein Hintergrund-Thread erneuert ihn alle refresh-interval-ms:
+// Ping-Latenz, geschätzte Dokumentzahlen (aus den Metadaten, kein Scan wie countDocuments),
+// Connection-Pool aus den Micrometer-Metriken des Treibers und der Ingest-Lag (Alter des jüngsten Siemens-Werts).
+// Als HealthIndicator ("healthSnapshot") hängt derselbe Snapshot auch im Actuator.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HealthSnapshotService implements HealthIndicator {
+
+    private static final List<String> SIEMENS_TYPES = List.of("IST", "SOLL", "DIFFERENZ");
+
+    private final MongoTemplate mongoTemplate;
+    private final SiemensService siemensService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${health.refresh-interval-ms:5000}")
+    private long refreshIntervalMs;
+
+    // Kommt länger kein neuer Siemens-Wert an, steht ingest auf STALE
+    @Value("${health.max-ingest-lag-seconds:300}")
+    private long maxIngestLagSeconds;
+
+    // Wird nur als Ganzes ersetzt, Leser sehen immer einen vollständigen Snapshot
+    private volatile Snapshot snapshot = Snapshot.PENDING;
+
+    // Hintergrund-Thread virtuell, wenn die ganze Anwendung auf virtuellen Threads läuft
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private volatile ScheduledExecutorService refresher;
+
+    // Ergebnis einer Prüfung; checkedAt null = noch keine Prüfung gelaufen
+    public record Snapshot(LocalDateTime checkedAt, boolean databaseUp, Double pingMillis,
+                           Long wagoDataCount, Long siemensDataCount, Map<String, Double> pool,
+                           LocalDateTime lastIngest, Long ingestLagSeconds, String error) {
+
+        static final Snapshot PENDING = new Snapshot(null, false, null, null, null, Map.of(), null, null, null);
+
+        // Felder für /api/health und die Actuator-Details, leere Werte fallen weg
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("database", checkedAt == null ? "UNKNOWN" : databaseUp ? "CONNECTED" : "DISCONNECTED");
+            putIfPresent(map, "wagoDataCount", wagoDataCount);
+            putIfPresent(map, "siemensDataCount", siemensDataCount);
+            putIfPresent(map, "pingMillis", pingMillis);
+            if (!pool.isEmpty()) {
+                map.put("pool", pool);
+            }
+            putIfPresent(map, "lastIngest", lastIngest);
+            putIfPresent(map, "ingestLagSeconds", ingestLagSeconds);
+            putIfPresent(map, "checkedAt", checkedAt);
+            putIfPresent(map, "error", error);
+            return map;
+        }
+
+        private static void putIfPresent(Map<String, Object> map, String key, Object value) {
+            if (value != null) {
+                map.put(key, value);
+            }
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        Gauge.builder("api.health.ingest.lag", this, service -> {
+                    Long lag = service.snapshot.ingestLagSeconds();
+                    return lag == null ? Double.NaN : lag;
+                })
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        refresher = BackgroundThreads.newScheduler("health-refresher", virtualThreads);
+        refresher.scheduleWithFixedDelay(this::refresh, 0, refreshIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    // Eine Prüfung gegen MongoDB; Fehler landen im Snapshot statt beim Aufrufer
+    void refresh() {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            long start = System.nanoTime();
+            mongoTemplate.executeCommand(new Document("ping", 1));
+            double pingMillis = (System.nanoTime() - start) / 1_000_000.0;
+
+            long wagoCount = mongoTemplate.getCollection(mongoTemplate.getCollectionName(WagoData.class))
+                    .estimatedDocumentCount();
+            long siemensCount = mongoTemplate.getCollection(mongoTemplate.getCollectionName(SiemensData.class))
+                    .estimatedDocumentCount();
+            LocalDateTime lastIngest = lastIngest();
+            Long lag = lastIngest == null ? null : Math.max(0, Duration.between(lastIngest, now).toSeconds());
+
+            snapshot = new Snapshot(now, true, pingMillis, wagoCount, siemensCount, poolStats(),
+                    lastIngest, lag, null);
+            log.debug("Health-Check: ping {} ms, wago~{}, siemens~{}, Ingest-Lag {} s", pingMillis, wagoCount, siemensCount, lag);
+        } catch (Exception e) {
+            // Nur beim Wechsel auf DISCONNECTED laut loggen, nicht bei jeder Prüfung
+            if (snapshot.databaseUp() || snapshot.checkedAt() == null) {
+                log.error("X Health-Check: Datenbank DISCONNECTED, Fehler: {}", e.getMessage());
+            }
+            snapshot = new Snapshot(now, false, null, null, null, poolStats(), null, null, e.getMessage());
+        }
+    }
+
+    // Jüngster gespeicherter Siemens-Wert über alle Typen (pro Typ ein Indexzugriff)
+    private LocalDateTime lastIngest() {
+        LocalDateTime newest = null;
+        for (String type : SIEMENS_TYPES) {
+            Optional<LocalDateTime> timestamp = siemensService.loadLatestByType(type).map(SiemensData::getTimestamp);
+            if (timestamp.isPresent() && (newest == null || timestamp.get().isAfter(newest))) {
+                newest = timestamp.get();
+            }
+        }
+        return newest;
+    }
+
+    // Der Treiber meldet seinen Pool über Micrometer (Spring Boot hängt den Listener automatisch an)
+    private Map<String, Double> poolStats() {
+        Map<String, Double> pool = new LinkedHashMap<>();
+        poolGauge(pool, "size", "mongodb.driver.pool.size");
+        poolGauge(pool, "checkedOut", "mongodb.driver.pool.checkedout");
+        poolGauge(pool, "waitQueueSize", "mongodb.driver.pool.waitqueuesize");
+        return pool;
+    }
+
+    private void poolGauge(Map<String, Double> pool, String key, String meter) {
+        var gauges = meterRegistry.find(meter).gauges();
+        if (!gauges.isEmpty()) {
+            // Ein Gauge pro Server, für den Überblick reicht die Summe
+            pool.put(key, gauges.stream().mapToDouble(Gauge::value).sum());
+        }
+    }
+
+    @Override
+    public Health health() {
+        Snapshot current = snapshot;
+        Health.Builder builder;
+        if (current.checkedAt() == null) {
+            builder = Health.unknown();
+        } else if (!current.databaseUp()) {
+            builder = Health.down();
+        } else if (Duration.between(current.checkedAt(), LocalDateTime.now()).toMillis() > 3 * refreshIntervalMs) {
+            // Der Refresher hängt: dann lieber UNKNOWN als einen alten Zustand als aktuell melden
+            builder = Health.unknown().withDetail("stale", true);
+        } else {
+            builder = Health.up();
+        }
+        Long lag = current.ingestLagSeconds();
+        if (lag != null) {
+            builder.withDetail("ingest", lag > maxIngestLagSeconds ? "STALE" : "OK");
+        }
+        return builder.withDetails(current.toMap()).build();
+    }
+
+    @PreDestroy
+    public void stop() {
+        ScheduledExecutorService current = refresher;
+        if (current != null) {
+            refresher = null;
+            current.shutdownNow();
+        }
+    }
+}
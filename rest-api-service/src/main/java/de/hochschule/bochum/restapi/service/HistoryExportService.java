@@ -0,0 +1,240 @@
+package de.hochschule.bochum.restapi.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import de.hochschule.bochum.common.model.SiemensData;
+import de.hochschule.bochum.common.model.SiemensHourBucket;
+import de.hochschule.bochum.common.model.WagoData;
+import de.hochschule.bochum.common.model.WagoTransition;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+// Hier exportiere ich den kompletten Verlauf als NDJSON oder CSV, direkt aus einem MongoDB-Cursor in den Response.
+// Im Heap liegt dabei nie mehr als ein Cursor-Batch plus der Schreibpuffer, egal wie viele Monate exportiert werden.
+// Gegendruck kommt vom Client: Ist dessen Socket voll, blockiert write(), und der nächste Batch wird erst dann geholt.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HistoryExportService {
+
+    public static final List<String> SIEMENS_TYPES = List.of("IST", "SOLL", "DIFFERENZ");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Ein Stunden-Bucket hält bis zu einige tausend Werte, deshalb nur wenige Buckets pro Batch
+    private static final int BUCKET_BATCH_SIZE = 4;
+    private static final String SIEMENS_CSV_HEADER = "timestamp,type,value,id";
+    private static final String WAGO_CSV_HEADER = "timestamp,status,id";
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    // Muss zum Speicherlayout des Consumers passen (wie im SiemensService)
+    @Value("${storage.siemens.layout:documents}")
+    private String layout;
+
+    // Dokumente pro Cursor-Batch aus MongoDB
+    @Value("${export.batch-size:1000}")
+    private int batchSize;
+
+    // Nach so vielen Zeilen geht der Puffer an den Client, dazwischen wird nur gesammelt
+    @Value("${export.flush-rows:1000}")
+    private int flushRows;
+
+    // Siemens-Werte der angegebenen Typen im Zeitraum [from, to], pro Typ aufsteigend nach Zeit
+    public void exportSiemens(OutputStream out, ExportFormat format, boolean gzip, List<String> types,
+                              LocalDateTime from, LocalDateTime to) throws IOException {
+        RowWriter writer = new RowWriter(out, format, gzip, SIEMENS_CSV_HEADER);
+        for (String type : types) {
+            if (readsBuckets()) {
+                writeBuckets(writer, type, from, to);
+            } else {
+                writeDocuments(writer, type, from, to);
+            }
+        }
+        writer.finish("siemens");
+    }
+
+    // Wago-Status im Zeitraum [from, to] aufsteigend nach Zeit. Speichert der Consumer nur Wechsel
+    // (wago_transitions), werden diese mit wago_data zusammengeführt, wie beim letzten Status im WagoService.
+    public void exportWago(OutputStream out, ExportFormat format, boolean gzip,
+                           LocalDateTime from, LocalDateTime to) throws IOException {
+        RowWriter writer = new RowWriter(out, format, gzip, WAGO_CSV_HEADER);
+        try (Stream<WagoData> data = mongoTemplate.stream(timeRange(from, to), WagoData.class);
+             Stream<WagoTransition> transitions = mongoTemplate.stream(timeRange(from, to), WagoTransition.class)) {
+            Iterator<WagoData> left = data.iterator();
+            Iterator<WagoData> right = transitions.map(WagoService::toWagoData).iterator();
+            WagoData nextLeft = left.hasNext() ? left.next() : null;
+            WagoData nextRight = right.hasNext() ? right.next() : null;
+            // Beide Cursor sind nach Zeit sortiert: immer den früheren Eintrag zuerst schreiben
+            while (nextLeft != null || nextRight != null) {
+                if (nextRight == null
+                        || nextLeft != null && !nextLeft.getTimestamp().isAfter(nextRight.getTimestamp())) {
+                    writer.wago(nextLeft);
+                    nextLeft = left.hasNext() ? left.next() : null;
+                } else {
+                    writer.wago(nextRight);
+                    nextRight = right.hasNext() ? right.next() : null;
+                }
+            }
+        }
+        writer.finish("wago");
+    }
+
+    private void writeDocuments(RowWriter writer, String type, LocalDateTime from, LocalDateTime to) throws IOException {
+        Query query = timeRange(from, to).addCriteria(Criteria.where("type").is(type));
+        try (Stream<SiemensData> rows = mongoTemplate.stream(query, SiemensData.class)) {
+            Iterator<SiemensData> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                writer.siemens(iterator.next());
+            }
+        }
+    }
+
+    private void writeBuckets(RowWriter writer, String type, LocalDateTime from, LocalDateTime to) throws IOException {
+        Query query = new Query(Criteria.where("type").is(type)
+                .and("hour").gte(SiemensHourBucket.hourOf(from)).lte(SiemensHourBucket.hourOf(to)))
+                .with(Sort.by(Sort.Direction.ASC, "hour"))
+                .cursorBatchSize(BUCKET_BATCH_SIZE);
+        try (Stream<SiemensHourBucket> buckets = mongoTemplate.stream(query, SiemensHourBucket.class)) {
+            Iterator<SiemensHourBucket> iterator = buckets.iterator();
+            while (iterator.hasNext()) {
+                SiemensHourBucket bucket = iterator.next();
+                for (int i = 0; i < bucket.getValues().size(); i++) {
+                    LocalDateTime timestamp = bucket.getTimestamps().get(i);
+                    if (!timestamp.isBefore(from) && !timestamp.isAfter(to)) {
+                        writer.siemens(SiemensService.toSiemensData(bucket, i));
+                    }
+                }
+            }
+        }
+    }
+
+    // Zeitraum, sortiert nach (timestamp, _id) aufsteigend; bei Siemens rückwärts gelesen der Index type_timestamp_id
+    private Query timeRange(LocalDateTime from, LocalDateTime to) {
+        return new Query(Criteria.where("timestamp").gte(from).lte(to))
+                .with(Sort.by(Sort.Order.asc("timestamp"), Sort.Order.asc("_id")))
+                .cursorBatchSize(batchSize);
+    }
+
+    private boolean readsBuckets() {
+        return "buckets".equalsIgnoreCase(layout) || "both".equalsIgnoreCase(layout);
+    }
+
+    private static Double valueOf(SiemensData data) {
+        return switch (data.getType()) {
+            case "IST" -> data.getIstTemperatur();
+            case "SOLL" -> data.getSollTemperatur();
+            case "DIFFERENZ" -> data.getDifferenzTemperatur();
+            default -> null;
+        };
+    }
+
+    // Schreibt Zeilen gepuffert (optional gzip-komprimiert) und flusht alle flushRows Zeilen
+    private final class RowWriter {
+
+        private final ExportFormat format;
+        private final GZIPOutputStream gzip;
+        private final Writer writer;
+        private final JsonGenerator json;
+        private final ObjectWriter jsonWriter;
+        private long rows;
+
+        private RowWriter(OutputStream out, ExportFormat format, boolean compress, String csvHeader) throws IOException {
+            this.format = format;
+            // syncFlush: jeder Flush schickt auch die bis dahin komprimierten Daten raus
+            this.gzip = compress ? new GZIPOutputStream(out, BUFFER_SIZE, true) : null;
+            this.writer = new BufferedWriter(new OutputStreamWriter(compress ? gzip : out, StandardCharsets.UTF_8), BUFFER_SIZE);
+            if (format == ExportFormat.NDJSON) {
+                json = objectMapper.getFactory().createGenerator(writer);
+                // Zeilen trenne ich selbst, Jackson soll kein Leerzeichen zwischen die Objekte setzen
+                json.setRootValueSeparator(null);
+                jsonWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            } else {
+                json = null;
+                jsonWriter = null;
+                writer.write(csvHeader);
+                writer.write('\n');
+            }
+        }
+
+        private void siemens(SiemensData data) throws IOException {
+            if (format == ExportFormat.NDJSON) {
+                writeJson(data);
+            } else {
+                writer.write(String.valueOf(data.getTimestamp()));
+                writer.write(',');
+                writer.write(data.getType());
+                writer.write(',');
+                writer.write(String.valueOf(valueOf(data)));
+                writer.write(',');
+                writer.write(String.valueOf(data.getId()));
+                writer.write('\n');
+            }
+            rowWritten();
+        }
+
+        private void wago(WagoData data) throws IOException {
+            if (format == ExportFormat.NDJSON) {
+                writeJson(data);
+            } else {
+                writer.write(String.valueOf(data.getTimestamp()));
+                writer.write(',');
+                writer.write(String.valueOf(data.getStatus()));
+                writer.write(',');
+                writer.write(String.valueOf(data.getId()));
+                writer.write('\n');
+            }
+            rowWritten();
+        }
+
+        private void writeJson(Object row) throws IOException {
+            jsonWriter.writeValue(json, row);
+            json.writeRaw('\n');
+        }
+
+        private void rowWritten() throws IOException {
+            if (++rows % flushRows == 0) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            if (json != null) {
+                json.flush();
+            }
+            writer.flush();
+        }
+
+        private void finish(String kind) throws IOException {
+            flush();
+            if (gzip != null) {
+                gzip.finish();
+                gzip.flush();
+            }
+            meterRegistry.counter("api.export.rows", "kind", kind).increment(rows);
+            log.info("Export {} abgeschlossen: {} Zeilen ({}{})", kind, rows, format, gzip != null ? ", gzip" : "");
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package de.hochschule.bochum.restapi.service;
+
+import java.util.List;
+
+// Eine Seite eines Verlaufs; nextCursor ist null, wenn es keine weiteren Einträge gibt
+public record HistoryPage<T>(List<T> items, String nextCursor) {
+}
@@ -0,0 +1,175 @@
+package de.hochschule.bochum.restapi.service;
+
+import de.hochschule.bochum.common.model.SiemensData;
+import de.hochschule.bochum.common.model.WagoData;
+import de.hochschule.bochum.common.mqtt.PayloadParser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.integration.annotation.ServiceActivator;
+import org.springframework.integration.mqtt.support.MqttHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+// Hier halte ich den jeweils letzten Wert für alle /latest-Endpunkte im Speicher.
+// Die Werte kommen direkt über MQTT (gleiche Topics wie beim Consumer); MongoDB wird nur gefragt,
+// wenn noch nichts im Cache steht (kalt) oder der Eintrag älter als max-age-ms ist (z.B. MQTT getrennt).
+// Lesen ist lock-frei: ein Zugriff auf die ConcurrentHashMap und ein unveränderlicher Eintrag.
+// Achtung: Werte aus MQTT haben (noch) keine id, und ihr timestamp ist der Empfangszeitpunkt hier in der REST-API,
+// nicht der des Consumers. Er weicht daher um die Laufzeit zwischen beiden Abos vom gespeicherten Dokument ab.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LatestValueCache {
+
+    public static final String WAGO = "WAGO";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${cache.latest.enabled:false}")
+    private boolean enabled;
+
+    @Value("${cache.latest.max-age-ms:5000}")
+    private long maxAgeMs;
+
+    @Value("${mqtt.topics.wago.status:Wago750/Status}")
+    private String wagoStatusTopic;
+    @Value("${mqtt.topics.siemens.ist:S7_1500/Temperatur/Ist}")
+    private String siemensIstTopic;
+    @Value("${mqtt.topics.siemens.soll:S7_1500/Temperatur/Soll}")
+    private String siemensSollTopic;
+    @Value("${mqtt.topics.siemens.differenz:S7_1500/Temperatur/Differenz}")
+    private String siemensDifferenzTopic;
+
+    // Schlüssel: WAGO bzw. der Siemens-Typ (IST, SOLL, DIFFERENZ)
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    // Werden bei jedem neuen Wert aus MQTT benachrichtigt (z.B. der Live-Stream)
+    private final List<BiConsumer<String, Object>> listeners = new CopyOnWriteArrayList<>();
+
+    // Unveränderlich, damit ein Leser nie einen halb geschriebenen Eintrag sieht
+    private record Entry(Object value, long storedAt) {
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Liefert den Wert aus dem Cache oder lädt ihn über den Loader (MongoDB) nach
+    public <T> Optional<T> get(String key, Class<T> type, Supplier<Optional<T>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        Entry entry = entries.get(key);
+        if (entry != null && System.currentTimeMillis() - entry.storedAt() <= maxAgeMs) {
+            count(key, "hit");
+            return Optional.of(type.cast(entry.value()));
+        }
+        count(key, "miss");
+        Optional<T> loaded = loader.get();
+        if (loaded.isPresent()) {
+            refresh(key, entry, loaded.get());
+            return loaded;
+        }
+        // MongoDB hat (noch) nichts, ein alter Wert aus MQTT ist dann immer noch besser als keiner
+        return entry == null ? Optional.empty() : Optional.of(type.cast(entry.value()));
+    }
+
+    // Wie get, für das Profil "reactive": der Loader liefert einen Mono und wird nur bei kaltem oder veraltetem Eintrag abonniert
+    public <T> Mono<T> getReactive(String key, Class<T> type, Supplier<Mono<T>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        Entry entry = entries.get(key);
+        if (entry != null && System.currentTimeMillis() - entry.storedAt() <= maxAgeMs) {
+            count(key, "hit");
+            return Mono.just(type.cast(entry.value()));
+        }
+        count(key, "miss");
+        Mono<T> loaded = loader.get().doOnNext(value -> refresh(key, entry, value));
+        return entry == null ? loaded : loaded.defaultIfEmpty(type.cast(entry.value()));
+    }
+
+    // Neuer Wert aus MQTT: ersetzt den Eintrag immer
+    public void put(String key, Object value) {
+        entries.put(key, new Entry(value, System.currentTimeMillis()));
+    }
+
+    // Letzter Wert aus MQTT für einen Schlüssel, auch wenn er veraltet ist (ohne MongoDB)
+    public <T> Optional<T> current(String key, Class<T> type) {
+        Entry entry = entries.get(key);
+        return entry == null ? Optional.empty() : Optional.of(type.cast(entry.value()));
+    }
+
+    // Aktuelle Werte aller Schlüssel (auch veraltete), z.B. als Startzustand für neue Stream-Clients
+    public Map<String, Object> currentValues() {
+        Map<String, Object> values = new HashMap<>();
+        entries.forEach((key, entry) -> values.put(key, entry.value()));
+        return values;
+    }
+
+    public void addListener(BiConsumer<String, Object> listener) {
+        listeners.add(listener);
+    }
+
+    // Wert aus MongoDB: nur übernehmen, wenn MQTT den Eintrag inzwischen nicht schon erneuert hat
+    private void refresh(String key, Entry seen, Object value) {
+        Entry fresh = new Entry(value, System.currentTimeMillis());
+        if (seen == null) {
+            entries.putIfAbsent(key, fresh);
+        } else {
+            entries.replace(key, seen, fresh);
+        }
+    }
+
+    // Eingehende MQTT-Nachrichten (Adapter siehe MqttApiConfig, nur bei cache.latest.enabled)
+    @ServiceActivator(inputChannel = "mqttLatestValueChannel")
+    public void onMqttMessage(Message<?> message) {
+        String topic = message.getHeaders().get(MqttHeaders.RECEIVED_TOPIC, String.class);
+        byte[] payload = payloadAsBytes(message.getPayload());
+        // Gleiche Parser wie im Consumer, damit z.B. "[5]" von der Wago auch hier ankommt
+        try {
+            if (wagoStatusTopic.equals(topic)) {
+                update(WAGO, new WagoData(PayloadParser.parseInt(payload)));
+            } else if (siemensIstTopic.equals(topic)) {
+                update("IST", new SiemensData(PayloadParser.parseDouble(payload), "IST"));
+            } else if (siemensSollTopic.equals(topic)) {
+                update("SOLL", new SiemensData(PayloadParser.parseDouble(payload), "SOLL"));
+            } else if (siemensDifferenzTopic.equals(topic)) {
+                update("DIFFERENZ", new SiemensData(PayloadParser.parseDouble(payload), "DIFFERENZ"));
+            }
+        } catch (NumberFormatException e) {
+            log.warn("! Ungültiger Wert auf Topic {} für den Latest-Cache: {}", topic,
+                    new String(payload, StandardCharsets.UTF_8));
+        }
+    }
+
+    private void update(String key, Object value) {
+        put(key, value);
+        for (BiConsumer<String, Object> listener : listeners) {
+            listener.accept(key, value);
+        }
+    }
+
+    private static byte[] payloadAsBytes(Object payload) {
+        return payload instanceof byte[] bytes ? bytes : String.valueOf(payload).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void count(String key, String result) {
+        counters.computeIfAbsent(key + ':' + result,
+                k -> meterRegistry.counter("api.latest.cache", "key", key, "result", result)).increment();
+    }
+}
@@ -0,0 +1,196 @@
+package de.hochschule.bochum.restapi.service;
+
+import de.hochschule.bochum.common.concurrent.BackgroundThreads;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Hier verteile ich neue Werte aus dem LatestValueCache per Server-Sent Events an alle Stream-Clients.
+// Pro Client gibt es nur den jeweils neuesten Wert je Schlüssel (WAGO, IST, SOLL, DIFFERENZ): kommt ein
+// neuer Wert, bevor der alte gesendet wurde, wird der alte überschrieben. Ein langsamer Client bekommt
+// so weniger Events, aber nie veraltete, und hält niemanden sonst auf.
+// Gesendet wird auf einem begrenzten Pool von Plattform-Threads (stream.sender-threads), nicht auf virtuellen:
+// ResponseBodyEmitter.send ist in Spring 6.1 synchronized und würde den Carrier für den ganzen Socket-Write pinnen.
+// Pro Client läuft höchstens ein Sende-Auftrag (auch der Heartbeat geht darüber), ein hängender Client belegt
+// also höchstens einen Pool-Thread, die übrigen bedienen weiter alle anderen.
+// Wie der LiveStreamController nur mit Spring MVC (nicht im Profil "reactive").
+@Slf4j
+@Service
+@Profile("!reactive")
+@RequiredArgsConstructor
+public class LiveValueBroadcaster {
+
+    private final LatestValueCache latestCache;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${stream.max-subscribers:10000}")
+    private int maxSubscribers;
+
+    // Danach beendet der Server die Verbindung, EventSource verbindet sich selbst neu
+    @Value("${stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    // Kommentar-Event, damit Proxies eine ruhige Verbindung nicht schließen
+    @Value("${stream.heartbeat-seconds:15}")
+    private long heartbeatSeconds;
+
+    // So viele Clients können gleichzeitig blockieren, ohne dass die anderen warten müssen
+    @Value("${stream.sender-threads:16}")
+    private int senderThreads;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private ExecutorService senders;
+
+    // Hintergrund-Thread virtuell, wenn die ganze Anwendung auf virtuellen Threads läuft
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private ScheduledExecutorService heartbeat;
+    private Counter coalesced;
+
+    @PostConstruct
+    public void start() {
+        senders = Executors.newFixedThreadPool(senderThreads, BackgroundThreads.factory("sse-sender", false));
+        coalesced = meterRegistry.counter("api.stream.coalesced");
+        meterRegistry.gaugeCollectionSize("api.stream.subscribers", Tags.empty(), subscribers);
+        latestCache.addListener(this::publish);
+        if (!latestCache.isEnabled()) {
+            log.info("Live-Stream ohne cache.latest.enabled: /api/stream bekommt keine Werte aus MQTT");
+        }
+        if (heartbeatSeconds > 0) {
+            heartbeat = BackgroundThreads.newScheduler("sse-heartbeat", virtualThreads);
+            heartbeat.scheduleAtFixedRate(this::sendHeartbeats, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    // Neuer Client: bekommt sofort die aktuellen Werte und danach jede Änderung.
+    // null, wenn schon maxSubscribers Clients verbunden sind.
+    public SseEmitter subscribe() {
+        if (subscribers.size() >= maxSubscribers) {
+            return null;
+        }
+        return register(new SseEmitter(timeoutMs));
+    }
+
+    SseEmitter register(SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        latestCache.currentValues().forEach(subscriber::offer);
+        schedule(subscriber);
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    // Wird vom LatestValueCache für jeden neuen MQTT-Wert aufgerufen
+    void publish(String key, Object value) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.offer(key, value)) {
+                coalesced.increment();
+            }
+            schedule(subscriber);
+        }
+    }
+
+    // Höchstens ein Sende-Lauf pro Client gleichzeitig
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.sending.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        do {
+            try {
+                if (subscriber.heartbeatDue.getAndSet(false)) {
+                    subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                }
+                Iterator<Map.Entry<String, Object>> pending = subscriber.pending.entrySet().iterator();
+                while (pending.hasNext()) {
+                    Map.Entry<String, Object> next = pending.next();
+                    // remove(key, value): wurde der Wert inzwischen ersetzt, geht der neue im nächsten Durchlauf raus
+                    subscriber.pending.remove(next.getKey(), next.getValue());
+                    subscriber.emitter.send(SseEmitter.event()
+                            .name(next.getKey().toLowerCase(Locale.ROOT))
+                            .data(next.getValue()));
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client weg: abmelden, keine weiteren Versuche
+                subscribers.remove(subscriber);
+                subscriber.emitter.completeWithError(e);
+                log.debug("SSE-Client getrennt: {}", e.getMessage());
+                return;
+            } finally {
+                subscriber.sending.set(false);
+            }
+            // Während des Sendens neu angekommene Werte nicht liegen lassen
+        } while (subscriber.hasWork() && subscriber.sending.compareAndSet(false, true));
+    }
+
+    // Kein eigener Auftrag pro Heartbeat: bei einem hängenden Client würden sich die sonst im Pool stapeln
+    void sendHeartbeats() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.heartbeatDue.set(true);
+            schedule(subscriber);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (heartbeat != null) {
+            heartbeat.shutdownNow();
+        }
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+        if (senders != null) {
+            senders.shutdownNow();
+        }
+    }
+
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+        // Neuester noch nicht gesendeter Wert je Schlüssel
+        private final Map<String, Object> pending = new ConcurrentHashMap<>();
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicBoolean heartbeatDue = new AtomicBoolean();
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        // true, wenn dabei ein noch nicht gesendeter Wert überschrieben wurde
+        private boolean offer(String key, Object value) {
+            return pending.put(key, value) != null;
+        }
+
+        private boolean hasWork() {
+            return !pending.isEmpty() || heartbeatDue.get();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package de.hochschule.bochum.restapi.service;
+
+import de.hochschule.bochum.common.dto.SiemensSeries;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+// Largest-Triangle-Three-Buckets (Steinarsson 2013): behält den ersten und letzten Punkt und wählt aus jedem
+// Abschnitt dazwischen den Punkt, der mit dem zuletzt gewählten Punkt und dem Mittel des nächsten Abschnitts
+// das größte Dreieck bildet. Spitzen bleiben so erhalten, die ein reiner Mittelwert wegglätten würde.
+final class Lttb {
+
+    private Lttb() {
+    }
+
+    // data muss aufsteigend nach Zeit sortiert sein und darf keine null-Werte enthalten
+    static List<SiemensSeries.Point> downsample(List<SiemensSeries.Point> data, int threshold) {
+        int size = data.size();
+        if (threshold >= size) {
+            return data;
+        }
+        if (threshold < 3) {
+            return threshold <= 1 ? data.subList(0, Math.max(threshold, 0)) : List.of(data.get(0), data.get(size - 1));
+        }
+        double[] x = new double[size];
+        double[] y = new double[size];
+        for (int i = 0; i < size; i++) {
+            x[i] = data.get(i).getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli();
+            y[i] = data.get(i).getValue();
+        }
+        List<SiemensSeries.Point> sampled = new ArrayList<>(threshold);
+        sampled.add(data.get(0));
+        double every = (double) (size - 2) / (threshold - 2);
+        int selected = 0;
+        for (int i = 0; i < threshold - 2; i++) {
+            // Mittelpunkt des nächsten Abschnitts als dritte Ecke
+            int nextStart = (int) Math.floor((i + 1) * every) + 1;
+            int nextEnd = Math.min((int) Math.floor((i + 2) * every) + 1, size);
+            double avgX = 0;
+            double avgY = 0;
+            for (int j = nextStart; j < nextEnd; j++) {
+                avgX += x[j];
+                avgY += y[j];
+            }
+            avgX /= nextEnd - nextStart;
+            avgY /= nextEnd - nextStart;
+
+            int start = (int) Math.floor(i * every) + 1;
+            int end = (int) Math.floor((i + 1) * every) + 1;
+            double maxArea = -1;
+            int best = start;
+            for (int j = start; j < end; j++) {
+                double area = Math.abs((x[selected] - avgX) * (y[j] - y[selected])
+                        - (x[selected] - x[j]) * (avgY - y[selected]));
+                if (area > maxArea) {
+                    maxArea = area;
+                    best = j;
+                }
+            }
+            sampled.add(data.get(best));
+            selected = best;
+        }
+        sampled.add(data.get(size - 1));
+        return sampled;
+    }
+}
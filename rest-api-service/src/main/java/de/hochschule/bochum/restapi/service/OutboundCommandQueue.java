@@ -0,0 +1,261 @@
+package de.hochschule.bochum.restapi.service;
+
+import de.hochschule.bochum.common.concurrent.BackgroundThreads;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.integration.mqtt.event.MqttConnectionFailedEvent;
+import org.springframework.integration.mqtt.event.MqttMessageDeliveredEvent;
+import org.springframework.integration.mqtt.event.MqttMessageSentEvent;
+import org.springframework.integration.mqtt.outbound.MqttPahoMessageHandler;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Hier puffere ich ausgehende Steuerbefehle pro Ziel (MQTT-Topic), bevor sie an mqttApiOutbound gehen.
+// Pro Ziel wartet höchstens ein Befehl: ein neuer ersetzt einen noch nicht gesendeten (last-write-wins, COALESCED),
+// denn für die SPS zählt nur der letzte Wunsch. Ein einzelner Dispatcher-Thread sendet, solange das Ziel noch
+// Tokens hat (Token-Bucket: rate-per-second, burst) und weniger als max-in-flight QoS-1-Publishes an dieses Ziel auf
+// ihr PUBACK warten; ein langsames Ziel hält also die anderen nicht auf. Wer länger als max-queue-ms warten müsste,
+// wird verworfen (REJECTED), damit die Steuerlatenz auch bei Klick-Salven begrenzt bleibt.
+// Die In-Flight-Publishes kommen aus den Sent-/Delivered-Events des MqttPahoMessageHandler.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OutboundCommandQueue {
+
+    public enum Outcome { SENT, COALESCED, REJECTED }
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${control.queue.enabled:false}")
+    private boolean enabled;
+
+    // Ohne Befehlsverfolgung wartet POST /api/wago/control synchron auf das Ergebnis der Queue
+    @Value("${control.tracking.enabled:false}")
+    private boolean trackingEnabled;
+
+    @Value("${control.queue.rate-per-second:5}")
+    private double ratePerSecond;
+
+    @Value("${control.queue.burst:3}")
+    private int burst;
+
+    @Value("${control.queue.max-in-flight:10}")
+    private int maxInFlight;
+
+    @Value("${control.queue.max-queue-ms:2000}")
+    private long maxQueueMs;
+
+    // Kommt für einen Publish nie ein PUBACK (Verbindung weg), zählt er danach nicht mehr als in-flight
+    @Value("${control.queue.in-flight-timeout-ms:10000}")
+    private long inFlightTimeoutMs;
+
+    @Value("${control.queue.dispatch-interval-ms:20}")
+    private long dispatchIntervalMs;
+
+    // Hintergrund-Thread virtuell, wenn die ganze Anwendung auf virtuellen Threads läuft
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private final Map<String, Target> targets = new ConcurrentHashMap<>();
+    // Message-ID des Publish -> Ziel und Sendezeitpunkt, bis das PUBACK kommt (das Delivered-Event kennt nur die ID).
+    // Die Events kommen asynchron, das PUBACK kann also vor dem Sent-Event da sein: dann steht hier bis zum
+    // Sent-Event ein Eintrag ohne Ziel, und der Publish wird gar nicht erst als in-flight gezählt
+    private final Map<Integer, InFlight> inFlight = new ConcurrentHashMap<>();
+    private volatile ScheduledExecutorService dispatcher;
+
+    private record Queued(Runnable publish, long queuedNanos, CompletableFuture<Outcome> result) {
+    }
+
+    private record InFlight(String target, long sentNanos) {
+
+        // PUBACK vor dem Sent-Event
+        static InFlight deliveredEarly(long now) {
+            return new InFlight(null, now);
+        }
+
+        boolean isDeliveredEarly() {
+            return target == null;
+        }
+    }
+
+    // Wartender Befehl und Token-Bucket eines Ziels; tokens und refilledAt ändert nur der Dispatcher-Thread
+    private static final class Target {
+        final AtomicReference<Queued> next = new AtomicReference<>();
+        double tokens;
+        long refilledAt;
+
+        Target(int burst, long now) {
+            this.tokens = burst;
+            this.refilledAt = now;
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        meterRegistry.gauge("api.command.queue.inflight", this, OutboundCommandQueue::inFlightCount);
+        dispatcher = BackgroundThreads.newScheduler("command-dispatcher", virtualThreads);
+        dispatcher.scheduleWithFixedDelay(this::drainQuietly, dispatchIntervalMs, dispatchIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Befehls-Queue aktiv: {}/s, burst={}, maxInFlight={}, maxQueueMs={}",
+                ratePerSecond, burst, maxInFlight, maxQueueMs);
+        if (!trackingEnabled) {
+            log.warn("! Befehls-Queue ohne control.tracking.enabled: POST /api/wago/control belegt bis zu {} ms einen Request-Thread",
+                    maxQueueMs);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Stellt einen Publish für das Ziel ein. Ohne Queue wird direkt gesendet (Fehler kommen dann beim Aufrufer an).
+    public CompletableFuture<Outcome> submit(String target, Runnable publish) {
+        if (!enabled) {
+            publish.run();
+            return CompletableFuture.completedFuture(Outcome.SENT);
+        }
+        long now = System.nanoTime();
+        Queued queued = new Queued(publish, now, new CompletableFuture<>());
+        Queued superseded = targets.computeIfAbsent(target, key -> new Target(burst, now)).next.getAndSet(queued);
+        count(target, "queued");
+        if (superseded != null && superseded.result().complete(Outcome.COALESCED)) {
+            count(target, "coalesced");
+            log.debug("Befehl für {} durch neueren ersetzt", target);
+        }
+        ScheduledExecutorService current = dispatcher;
+        if (current != null) {
+            // Nicht auf den nächsten Takt warten, wenn gerade Tokens und In-Flight-Plätze frei sind
+            current.execute(this::drainQuietly);
+        }
+        return queued.result();
+    }
+
+    // Ein Durchlauf des Dispatchers über alle Ziele; läuft immer nur im Dispatcher-Thread
+    void drain(long now) {
+        inFlight.values().removeIf(publish -> TimeUnit.NANOSECONDS.toMillis(now - publish.sentNanos()) > inFlightTimeoutMs);
+        targets.forEach((name, target) -> {
+            Queued queued = target.next.get();
+            if (queued == null) {
+                return;
+            }
+            if (TimeUnit.NANOSECONDS.toMillis(now - queued.queuedNanos()) > maxQueueMs) {
+                if (target.next.compareAndSet(queued, null) && queued.result().complete(Outcome.REJECTED)) {
+                    count(name, "rejected");
+                    log.warn("! Befehl für {} nach {} ms nicht gesendet (Rate-Limit oder In-Flight voll), verworfen", name, maxQueueMs);
+                }
+                return;
+            }
+            refill(target, now);
+            if (target.tokens < 1 || inFlightCount(name) >= maxInFlight || !target.next.compareAndSet(queued, null)) {
+                return;
+            }
+            target.tokens -= 1;
+            try {
+                queued.publish().run();
+                count(name, "sent");
+                queued.result().complete(Outcome.SENT);
+            } catch (RuntimeException e) {
+                count(name, "rejected");
+                log.error("X Befehl für {} konnte nicht veröffentlicht werden: {}", name, e.getMessage());
+                queued.result().completeExceptionally(e);
+            }
+        });
+    }
+
+    private void refill(Target target, long now) {
+        if (now <= target.refilledAt) {
+            return;
+        }
+        double elapsedSeconds = (now - target.refilledAt) / 1_000_000_000.0;
+        target.tokens = Math.min(burst, target.tokens + elapsedSeconds * ratePerSecond);
+        target.refilledAt = now;
+    }
+
+    private void drainQuietly() {
+        try {
+            drain(System.nanoTime());
+        } catch (Exception e) {
+            log.error("X Dispatcher der Befehls-Queue fehlgeschlagen", e);
+        }
+    }
+
+    // Der Outbound-Handler meldet Publish und PUBACK per Event (setAsyncEvents in MqttApiConfig)
+    @EventListener
+    public void onSent(MqttMessageSentEvent event) {
+        // mqttApiOutbound sendet mit QoS 1, jeder Publish wartet also auf sein PUBACK
+        if (enabled) {
+            InFlight sent = new InFlight(event.getTopic(), System.nanoTime());
+            inFlight.compute(event.getMessageId(), (id, known) -> known != null && known.isDeliveredEarly() ? null : sent);
+        }
+    }
+
+    @EventListener
+    public void onDelivered(MqttMessageDeliveredEvent event) {
+        if (!enabled) {
+            return;
+        }
+        InFlight delivered = InFlight.deliveredEarly(System.nanoTime());
+        inFlight.compute(event.getMessageId(), (id, known) -> known == null ? delivered : null);
+    }
+
+    // Bei cleanSession gehen offene Publishes mit der Verbindung verloren, auf ihr PUBACK muss niemand mehr warten
+    @EventListener
+    public void onConnectionFailed(MqttConnectionFailedEvent event) {
+        if (event.getSource() instanceof MqttPahoMessageHandler) {
+            inFlight.clear();
+        }
+    }
+
+    int inFlightCount() {
+        int count = 0;
+        for (InFlight publish : inFlight.values()) {
+            if (!publish.isDeliveredEarly()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // max-in-flight ist klein, ein Durchlauf über alle offenen Publishes ist billiger als ein eigener Zähler pro Ziel
+    int inFlightCount(String target) {
+        int count = 0;
+        for (InFlight publish : inFlight.values()) {
+            if (target.equals(publish.target())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void count(String target, String result) {
+        meterRegistry.counter("api.command.queue", "target", target, "result", result).increment();
+    }
+
+    @PreDestroy
+    public void stop() {
+        ScheduledExecutorService current = dispatcher;
+        if (current != null) {
+            dispatcher = null;
+            current.shutdownNow();
+        }
+        targets.values().forEach(target -> {
+            Queued queued = target.next.getAndSet(null);
+            if (queued != null) {
+                queued.result().complete(Outcome.REJECTED);
+            }
+        });
+    }
+}
@@ -0,0 +1,101 @@
+package de.hochschule.bochum.restapi.service;
+
+import de.hochschule.bochum.common.model.SiemensData;
+import de.hochschule.bochum.common.model.SiemensHourBucket;
+import de.hochschule.bochum.restapi.repository.ReactiveSiemensDataRepository;
+import de.hochschule.bochum.restapi.repository.ReactiveSiemensHourBucketRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Reaktive Variante des SiemensService für das Profil "reactive". Der Verlauf kommt als Flux direkt aus dem
+// MongoDB-Cursor: gelesen wird nur so schnell, wie der Client abnimmt (Backpressure), und kein Thread wartet dabei.
+// Seiten, Cursor und Bucket-IDs sind dieselben wie im SiemensService, beide Varianten sind austauschbar.
+@Service
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveSiemensService {
+
+    private final ReactiveSiemensDataRepository siemensRepository;
+    private final ReactiveSiemensHourBucketRepository bucketRepository;
+    private final LatestValueCache latestCache;
+
+    // documents = Einzeldokumente lesen, buckets/both = aus den Stunden-Buckets lesen (wie im Consumer konfiguriert)
+    @Value("${storage.siemens.layout:documents}")
+    private String layout;
+
+    // Aktuellster Eintrag eines Typs (aus dem Latest-Cache, MongoDB nur wenn kalt oder veraltet)
+    public Mono<SiemensData> getLatestByType(String type) {
+        return latestCache.getReactive(type, SiemensData.class, () -> loadLatestByType(type));
+    }
+
+    private Mono<SiemensData> loadLatestByType(String type) {
+        if (readsBuckets()) {
+            return bucketRepository.findTopByTypeOrderByHourDesc(type)
+                    .filter(bucket -> !bucket.getValues().isEmpty())
+                    .map(bucket -> SiemensService.toSiemensData(bucket, bucket.getValues().size() - 1));
+        }
+        return siemensRepository.findTopByTypeOrderByTimestampDesc(type);
+    }
+
+    // Eine Seite wie SiemensService.getHistory. Sie wird gesammelt, weil der Cursor der nächsten Seite
+    // als Header vor dem Body stehen muss; mehr als limit + 1 Einträge werden nie gelesen.
+    public Mono<HistoryPage<SiemensData>> getHistory(String type, LocalDateTime from, LocalDateTime to,
+                                                     int limit, HistoryCursor cursor) {
+        return history(type, from, to, Limit.of(limit + 1), cursor)
+                .collectList()
+                .map(items -> SiemensService.toPage(items, limit));
+    }
+
+    // Der ganze Zeitraum [from, to] (bzw. ab dem Cursor), neueste zuerst, ohne Seitengröße
+    public Flux<SiemensData> streamHistory(String type, LocalDateTime from, LocalDateTime to, HistoryCursor cursor) {
+        return history(type, from, to, Limit.unlimited(), cursor);
+    }
+
+    // Ein ungültiger Cursor fällt sofort auf (IllegalArgumentException), nicht erst beim Abonnieren
+    private Flux<SiemensData> history(String type, LocalDateTime from, LocalDateTime to, Limit limit, HistoryCursor cursor) {
+        if (readsBuckets()) {
+            Flux<SiemensData> entries = historyFromBuckets(type, from, to, cursor);
+            return limit.isLimited() ? entries.take(limit.max()) : entries;
+        }
+        if (cursor == null) {
+            return siemensRepository.findPage(type, from, to, limit);
+        }
+        return siemensRepository.findPageAfter(type, from, cursor.timestamp(), SiemensService.objectIdOf(cursor), limit);
+    }
+
+    // Buckets werden nacheinander ausgepackt; bricht der Client ab (oder ist die Seite voll), endet auch der Cursor
+    private Flux<SiemensData> historyFromBuckets(String type, LocalDateTime from, LocalDateTime to, HistoryCursor cursor) {
+        LocalDateTime upper = cursor != null && cursor.timestamp().isBefore(to) ? cursor.timestamp() : to;
+        String cursorBucket = cursor == null ? null : SiemensService.bucketIdOf(cursor.id());
+        int cursorIndex = cursor == null ? -1 : SiemensService.bucketIndexOf(cursor.id());
+        return bucketRepository.findByTypeAndHourRange(type, SiemensHourBucket.hourOf(from), SiemensHourBucket.hourOf(upper))
+                .concatMapIterable(bucket -> entries(bucket, from, upper, cursorBucket, cursorIndex));
+    }
+
+    // Einträge eines Buckets im Zeitraum, neueste zuerst (im Cursor-Bucket erst nach dem Cursor)
+    private static List<SiemensData> entries(SiemensHourBucket bucket, LocalDateTime from, LocalDateTime upper,
+                                             String cursorBucket, int cursorIndex) {
+        int start = bucket.getId().equals(cursorBucket) ? cursorIndex - 1 : bucket.getValues().size() - 1;
+        List<SiemensData> result = new ArrayList<>(Math.max(start + 1, 0));
+        for (int i = start; i >= 0; i--) {
+            LocalDateTime timestamp = bucket.getTimestamps().get(i);
+            if (!timestamp.isBefore(from) && !timestamp.isAfter(upper)) {
+                result.add(SiemensService.toSiemensData(bucket, i));
+            }
+        }
+        return result;
+    }
+
+    private boolean readsBuckets() {
+        return "buckets".equalsIgnoreCase(layout) || "both".equalsIgnoreCase(layout);
+    }
+}
@@ -0,0 +1,36 @@
+package de.hochschule.bochum.restapi.service;
+
+import de.hochschule.bochum.common.model.WagoData;
+import de.hochschule.bochum.restapi.repository.ReactiveWagoDataRepository;
+import de.hochschule.bochum.restapi.repository.ReactiveWagoTransitionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+
+// Reaktive Variante des WagoService für das Profil "reactive": gleicher Latest-Cache, MongoDB über den reaktiven Treiber.
+// Steuerbefehle gehen weiter über den WagoService (ein MQTT-Publish, kein Datenbankzugriff).
+@Service
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveWagoService {
+
+    private final ReactiveWagoDataRepository wagoRepository;
+    private final ReactiveWagoTransitionRepository transitionRepository;
+    private final LatestValueCache latestCache;
+
+    // Letzter Status der Lampen; leer, wenn es noch keinen gibt
+    public Mono<WagoData> getLatestStatus() {
+        return latestCache.getReactive(LatestValueCache.WAGO, WagoData.class, this::loadLatestStatus);
+    }
+
+    // Beide Abfragen laufen parallel, entschieden wird wie im WagoService
+    private Mono<WagoData> loadLatestStatus() {
+        return Mono.zip(
+                        wagoRepository.findTopByOrderByTimestampDesc().map(Optional::of).defaultIfEmpty(Optional.empty()),
+                        transitionRepository.findTopByOrderByTimestampDesc().map(Optional::of).defaultIfEmpty(Optional.empty()))
+                .flatMap(latest -> Mono.justOrEmpty(WagoService.newest(latest.getT1(), latest.getT2())));
+    }
+}
@@ -0,0 +1,32 @@
+package de.hochschule.bochum.restapi.service;
+
+import de.hochschule.bochum.common.model.Rollup;
+import de.hochschule.bochum.common.model.RollupTier;
+import de.hochschule.bochum.restapi.repository.RollupRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Service für die Rollups (1 Minute, 1 Stunde, 1 Tag), die der Consumer beim Empfang fortschreibt.
+// Für einen Zeitraum wird die gröbste Stufe gewählt, die noch mindestens "points" Intervalle liefert;
+// ein Jahr liest so ~365 Tages-Dokumente statt Millionen Rohwerte.
+@Service
+@RequiredArgsConstructor
+public class RollupService {
+
+    private final RollupRepository rollupRepository;
+
+    // Gröbste Stufe mit höchstens (to - from) / points pro Intervall; bei sehr kurzen Zeiträumen 1 Minute
+    public RollupTier pickTier(LocalDateTime from, LocalDateTime to, int points) {
+        RollupTier tier = RollupTier.coarsestWithin(Duration.between(from, to).dividedBy(points));
+        return tier != null ? tier : RollupTier.MINUTE;
+    }
+
+    // Rollups im Zeitraum; das Intervall, in das "from" fällt, gehört dazu
+    public List<Rollup> getRollups(String series, RollupTier tier, LocalDateTime from, LocalDateTime to) {
+        return rollupRepository.findRange(series, tier.getCode(), tier.startOf(from), to);
+    }
+}
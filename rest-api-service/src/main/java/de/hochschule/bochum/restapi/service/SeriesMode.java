@@ -0,0 +1,16 @@
+package de.hochschule.bochum.restapi.service;
+
+import java.util.Locale;
+
+// Wie /series den Verlauf auf wenige Punkte reduziert
+public enum SeriesMode {
+
+    // Feste Intervalle mit min/max/avg, komplett in MongoDB aggregiert
+    MINMAX,
+    // Largest-Triangle-Three-Buckets: echte Messpunkte, die die Form der Kurve erhalten
+    LTTB;
+
+    public static SeriesMode fromProperty(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+}
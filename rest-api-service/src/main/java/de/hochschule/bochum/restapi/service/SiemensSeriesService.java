@@ -0,0 +1,214 @@
+package de.hochschule.bochum.restapi.service;
+
+import de.hochschule.bochum.common.dto.SiemensSeries;
+import de.hochschule.bochum.common.model.Rollup;
+import de.hochschule.bochum.common.model.RollupTier;
+import de.hochschule.bochum.common.model.SiemensData;
+import de.hochschule.bochum.common.model.SiemensHourBucket;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+// Hier reduziere ich den Verlauf eines Siemens-Typs serverseitig auf höchstens N Punkte für Diagramme.
+// minmax: MongoDB teilt den Zeitraum in N gleich lange Intervalle und liefert je Intervall min/max/avg/count.
+// lttb: MongoDB liefert je Intervall (ratio * N Intervalle) den kleinsten und größten echten Messpunkt,
+// daraus wählt Largest-Triangle-Three-Buckets die N Punkte aus. In beiden Fällen kommen höchstens
+// einige tausend Dokumente aus der Datenbank, egal wie viele Rohwerte im Zeitraum liegen.
+// Mit storage.rollups.enabled rechnet minmax aus den Rollups (1m/1h/1d) statt aus den Rohwerten.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SiemensSeriesService {
+
+    private final MongoTemplate mongoTemplate;
+
+    // Muss zum Speicherlayout des Consumers passen (wie im SiemensService)
+    @Value("${storage.siemens.layout:documents}")
+    private String layout;
+
+    // minmax aus den Rollups des Consumers rechnen, sobald ein Intervall mindestens eine Minute lang ist
+    @Value("${storage.rollups.enabled:false}")
+    private boolean rollupsEnabled;
+
+    // Vorauswahl für lttb: so viele Intervalle pro Zielpunkt
+    @Value("${series.lttb-preselect-ratio:4}")
+    private int preselectRatio;
+
+    public SiemensSeries getSeries(String type, LocalDateTime from, LocalDateTime to, int points, SeriesMode mode) {
+        int intervals = mode == SeriesMode.LTTB ? points * preselectRatio : points;
+        long rangeMillis = Duration.between(from, to).toMillis();
+        // Aufrunden, damit es nie mehr als "intervals" Intervalle werden
+        long intervalMillis = Math.max(1, (rangeMillis + intervals - 1) / intervals);
+
+        RollupTier tier = RollupTier.coarsestWithin(Duration.ofMillis(intervalMillis));
+        if (mode == SeriesMode.MINMAX && rollupsEnabled && tier != null) {
+            return fromRollups(type, from, to, intervalMillis, tier);
+        }
+
+        List<Document> pipeline = new ArrayList<>(source(type, from, to));
+        pipeline.add(new Document("$match", new Document("v", new Document("$ne", null))));
+        Document index = intervalIndex("$t", from, intervalMillis);
+        if (mode == SeriesMode.MINMAX) {
+            pipeline.add(new Document("$group", new Document("_id", index)
+                    .append("min", new Document("$min", "$v"))
+                    .append("max", new Document("$max", "$v"))
+                    .append("avg", new Document("$avg", "$v"))
+                    .append("count", new Document("$sum", 1))));
+        } else {
+            pipeline.add(new Document("$group", new Document("_id", index)
+                    .append("low", extreme(1))
+                    .append("high", extreme(-1))));
+        }
+        pipeline.add(new Document("$sort", new Document("_id", 1)));
+
+        List<Document> rows = aggregate(pipeline, readsBuckets() ? SiemensHourBucket.class : SiemensData.class);
+        List<SiemensSeries.Point> result = mode == SeriesMode.MINMAX
+                ? intervalPoints(rows, from, intervalMillis)
+                : Lttb.downsample(extremePoints(rows), points);
+        log.debug("Series {} {} bis {}: {} Intervalle -> {} Punkte ({})", type, from, to, rows.size(), result.size(), mode);
+        return new SiemensSeries(type, from, to, mode.name().toLowerCase(Locale.ROOT), intervalMillis, result);
+    }
+
+    // minmax über die Rollups der gröbsten passenden Stufe: MongoDB liest pro Intervall nur wenige
+    // vorverdichtete Dokumente statt aller Rohwerte. Ein Rollup zählt zu dem Intervall, in dem es beginnt.
+    private SiemensSeries fromRollups(String type, LocalDateTime from, LocalDateTime to,
+                                      long intervalMillis, RollupTier tier) {
+        List<Document> pipeline = List.of(
+                new Document("$match", new Document("series", type).append("tier", tier.getCode()).append("start",
+                        new Document("$gte", toDate(tier.startOf(from))).append("$lte", toDate(to)))),
+                // Das erste Rollup kann vor "from" beginnen, es zählt dann zum ersten Intervall
+                new Document("$group", new Document("_id", new Document("$max", List.of(0, intervalIndex("$start", from, intervalMillis))))
+                        .append("min", new Document("$min", "$min"))
+                        .append("max", new Document("$max", "$max"))
+                        .append("sum", new Document("$sum", "$sum"))
+                        .append("count", new Document("$sum", "$count"))),
+                new Document("$sort", new Document("_id", 1)));
+        List<Document> rows = aggregate(pipeline, Rollup.class);
+        List<SiemensSeries.Point> result = new ArrayList<>(rows.size());
+        for (Document row : rows) {
+            long count = number(row, "count").longValue();
+            result.add(new SiemensSeries.Point(
+                    from.plus(Duration.ofMillis(number(row, "_id").longValue() * intervalMillis)),
+                    count == 0 ? null : number(row, "sum").doubleValue() / count,
+                    number(row, "min").doubleValue(),
+                    number(row, "max").doubleValue(),
+                    count));
+        }
+        log.debug("Series {} {} bis {} aus Rollups {}: {} Punkte", type, from, to, tier.getCode(), result.size());
+        return new SiemensSeries(type, from, to, SeriesMode.MINMAX.name().toLowerCase(Locale.ROOT), intervalMillis, result);
+    }
+
+    // Nummer des Intervalls, in das der Zeitstempel im Feld "field" fällt
+    private static Document intervalIndex(String field, LocalDateTime from, long intervalMillis) {
+        return new Document("$floor", new Document("$divide", List.of(
+                new Document("$subtract", List.of(field, toDate(from))), intervalMillis)));
+    }
+
+    // Liefert Dokumente der Form { t: Zeitstempel, v: Wert } für den Typ im Zeitraum
+    private List<Document> source(String type, LocalDateTime from, LocalDateTime to) {
+        Document range = new Document("$gte", toDate(from)).append("$lte", toDate(to));
+        if (!readsBuckets()) {
+            return List.of(
+                    new Document("$match", new Document("type", type).append("timestamp", range)),
+                    new Document("$project", new Document("_id", 0).append("t", "$timestamp").append("v", "$" + valueField(type))));
+        }
+        // Buckets: parallele Arrays zu Paaren zusammenlegen und auspacken
+        return List.of(
+                new Document("$match", new Document("type", type).append("hour",
+                        new Document("$gte", toDate(SiemensHourBucket.hourOf(from))).append("$lte", toDate(to)))),
+                new Document("$project", new Document("_id", 0).append("p",
+                        new Document("$zip", new Document("inputs", List.of("$timestamps", "$values"))))),
+                new Document("$unwind", "$p"),
+                new Document("$project", new Document("t", new Document("$arrayElemAt", List.of("$p", 0)))
+                        .append("v", new Document("$arrayElemAt", List.of("$p", 1)))),
+                new Document("$match", new Document("t", range)));
+    }
+
+    // Kleinster (order 1) bzw. größter (order -1) Messpunkt eines Intervalls als [t, v]
+    private static Document extreme(int order) {
+        return new Document("$top", new Document("sortBy", new Document("v", order))
+                .append("output", List.of("$t", "$v")));
+    }
+
+    private List<Document> aggregate(List<Document> pipeline, Class<?> inputType) {
+        List<AggregationOperation> operations = new ArrayList<>(pipeline.size());
+        for (Document stage : pipeline) {
+            operations.add(context -> stage);
+        }
+        return mongoTemplate.aggregate(Aggregation.newAggregation(operations), inputType, Document.class)
+                .getMappedResults();
+    }
+
+    private static List<SiemensSeries.Point> intervalPoints(List<Document> rows, LocalDateTime from, long intervalMillis) {
+        List<SiemensSeries.Point> points = new ArrayList<>(rows.size());
+        for (Document row : rows) {
+            long index = number(row, "_id").longValue();
+            points.add(new SiemensSeries.Point(
+                    from.plus(Duration.ofMillis(index * intervalMillis)),
+                    number(row, "avg").doubleValue(),
+                    number(row, "min").doubleValue(),
+                    number(row, "max").doubleValue(),
+                    number(row, "count").longValue()));
+        }
+        return points;
+    }
+
+    // Pro Intervall Minimum und Maximum in zeitlicher Reihenfolge (nur einmal, wenn es derselbe Punkt ist)
+    private static List<SiemensSeries.Point> extremePoints(List<Document> rows) {
+        List<SiemensSeries.Point> points = new ArrayList<>(rows.size() * 2);
+        for (Document row : rows) {
+            SiemensSeries.Point low = point(row.getList("low", Object.class));
+            SiemensSeries.Point high = point(row.getList("high", Object.class));
+            if (low.getTimestamp().equals(high.getTimestamp())) {
+                points.add(low);
+            } else if (low.getTimestamp().isBefore(high.getTimestamp())) {
+                points.add(low);
+                points.add(high);
+            } else {
+                points.add(high);
+                points.add(low);
+            }
+        }
+        return points;
+    }
+
+    private static SiemensSeries.Point point(List<Object> pair) {
+        LocalDateTime timestamp = LocalDateTime.ofInstant(((Date) pair.get(0)).toInstant(), ZoneId.systemDefault());
+        return new SiemensSeries.Point(timestamp, ((Number) pair.get(1)).doubleValue(), null, null, null);
+    }
+
+    private static Number number(Document row, String key) {
+        return (Number) row.get(key);
+    }
+
+    // Spring Data speichert LocalDateTime als Date in der Zeitzone des Systems, genauso rechne ich hier um
+    private static Date toDate(LocalDateTime timestamp) {
+        return Date.from(timestamp.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static String valueField(String type) {
+        return switch (type) {
+            case "IST" -> "istTemperatur";
+            case "SOLL" -> "sollTemperatur";
+            case "DIFFERENZ" -> "differenzTemperatur";
+            default -> throw new IllegalArgumentException("Unknown type: " + type);
+        };
+    }
+
+    private boolean readsBuckets() {
+        return "buckets".equalsIgnoreCase(layout) || "both".equalsIgnoreCase(layout);
+    }
+}
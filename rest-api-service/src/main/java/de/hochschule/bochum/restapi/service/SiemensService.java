@@ -1,26 +1,163 @@
 package de.hochschule.bochum.restapi.service;
 
 import de.hochschule.bochum.common.model.SiemensData;
+import de.hochschule.bochum.common.model.SiemensHourBucket;
+import de.hochschule.bochum.common.model.SiemensSnapshot;
 import de.hochschule.bochum.restapi.repository.SiemensDataRepository;
+import de.hochschule.bochum.restapi.repository.SiemensHourBucketRepository;
+import de.hochschule.bochum.restapi.repository.SiemensSnapshotRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 // Service-Klasse, die die Siemens-Datenbankabfragen kapselt (wird im Controller verwendet)
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class SiemensService {
 
     private final SiemensDataRepository siemensRepository;
+    private final SiemensHourBucketRepository bucketRepository;
+    private final SiemensSnapshotRepository snapshotRepository;
+    private final LatestValueCache latestCache;
 
-    // Holt den aktuellsten Eintrag eines bestimmten Typs
+    // documents = Einzeldokumente lesen, buckets/both = aus den Stunden-Buckets lesen (wie im Consumer konfiguriert)
+    @Value("${storage.siemens.layout:documents}")
+    private String layout;
+
+    // Füllt den Latest-Cache beim Start für alle drei Typen
+    @EventListener(ApplicationReadyEvent.class)
+    public void primeLatestCache() {
+        if (!latestCache.isEnabled()) {
+            return;
+        }
+        for (String type : List.of("IST", "SOLL", "DIFFERENZ")) {
+            try {
+                getLatestByType(type);
+            } catch (RuntimeException e) {
+                log.warn("! Latest-Cache für Siemens {} konnte nicht vorgeladen werden: {}", type, e.getMessage());
+            }
+        }
+    }
+
+    // Holt den aktuellsten Eintrag eines bestimmten Typs (aus dem Latest-Cache, MongoDB nur wenn kalt oder veraltet)
     public Optional<SiemensData> getLatestByType(String type) {
+        return latestCache.get(type, SiemensData.class, () -> loadLatestByType(type));
+    }
+
+    // Jüngster gespeicherter Eintrag direkt aus MongoDB, ohne Cache (z.B. für den Ingest-Lag im Health-Check)
+    public Optional<SiemensData> loadLatestByType(String type) {
+        if (readsBuckets()) {
+            return bucketRepository.findTopByTypeOrderByHourDesc(type)
+                    .filter(bucket -> !bucket.getValues().isEmpty())
+                    .map(bucket -> toSiemensData(bucket, bucket.getValues().size() - 1));
+        }
         return siemensRepository.findTopByTypeOrderByTimestampDesc(type);
     }
 
-    // Holt alle Einträge eines bestimmten Typs
-    public List<SiemensData> getAllByType(String type) {
-        return siemensRepository.findByTypeOrderByTimestampDesc(type);
+    // Eine Seite des Verlaufs eines Typs im Zeitraum [from, to], neueste zuerst (Keyset-Pagination).
+    // Ohne Cursor beginnt die Seite bei "to", mit Cursor direkt nach dem zuletzt gelieferten Eintrag.
+    // Es werden nie mehr als limit Einträge geladen, egal wie groß der Verlauf ist.
+    public HistoryPage<SiemensData> getHistory(String type, LocalDateTime from, LocalDateTime to,
+                                               int limit, HistoryCursor cursor) {
+        List<SiemensData> items = readsBuckets()
+                ? historyFromBuckets(type, from, to, limit + 1, cursor)
+                : historyFromDocuments(type, from, to, limit + 1, cursor);
+        return toPage(items, limit);
+    }
+
+    // Einen Eintrag mehr geladen als nötig: so weiß ich ohne count(), ob es weitergeht
+    static HistoryPage<SiemensData> toPage(List<SiemensData> items, int limit) {
+        if (items.size() <= limit) {
+            return new HistoryPage<>(items, null);
+        }
+        List<SiemensData> page = items.subList(0, limit);
+        SiemensData last = page.get(limit - 1);
+        return new HistoryPage<>(page, new HistoryCursor(last.getTimestamp(), last.getId()).encode());
+    }
+
+    private List<SiemensData> historyFromDocuments(String type, LocalDateTime from, LocalDateTime to,
+                                                   int limit, HistoryCursor cursor) {
+        if (cursor == null) {
+            return siemensRepository.findPage(type, from, to, Limit.of(limit));
+        }
+        return siemensRepository.findPageAfter(type, from, cursor.timestamp(), objectIdOf(cursor), Limit.of(limit));
+    }
+
+    // Einzeldokumente haben eine ObjectId, alles andere kann nicht von uns stammen
+    static ObjectId objectIdOf(HistoryCursor cursor) {
+        if (!ObjectId.isValid(cursor.id())) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return new ObjectId(cursor.id());
+    }
+
+    // Buckets werden als Stream gelesen und nur so weit ausgepackt, bis die Seite voll ist
+    private List<SiemensData> historyFromBuckets(String type, LocalDateTime from, LocalDateTime to,
+                                                 int limit, HistoryCursor cursor) {
+        LocalDateTime upper = cursor != null && cursor.timestamp().isBefore(to) ? cursor.timestamp() : to;
+        String cursorBucket = cursor == null ? null : bucketIdOf(cursor.id());
+        int cursorIndex = cursor == null ? -1 : bucketIndexOf(cursor.id());
+        List<SiemensData> result = new ArrayList<>(limit);
+        try (Stream<SiemensHourBucket> buckets = bucketRepository.streamByTypeAndHourRange(
+                type, SiemensHourBucket.hourOf(from), SiemensHourBucket.hourOf(upper))) {
+            Iterator<SiemensHourBucket> iterator = buckets.iterator();
+            while (iterator.hasNext() && result.size() < limit) {
+                SiemensHourBucket bucket = iterator.next();
+                int start = bucket.getId().equals(cursorBucket) ? cursorIndex - 1 : bucket.getValues().size() - 1;
+                for (int i = start; i >= 0 && result.size() < limit; i--) {
+                    LocalDateTime timestamp = bucket.getTimestamps().get(i);
+                    if (!timestamp.isBefore(from) && !timestamp.isAfter(upper)) {
+                        result.add(toSiemensData(bucket, i));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    // Bucket-Einträge haben die ID "<Bucket-ID>#<Index>"
+    static String bucketIdOf(String entryId) {
+        int separator = entryId.lastIndexOf('#');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return entryId.substring(0, separator);
+    }
+
+    static int bucketIndexOf(String entryId) {
+        try {
+            return Integer.parseInt(entryId.substring(entryId.lastIndexOf('#') + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    // Holt den jüngsten Snapshot mit IST, SOLL und DIFFERENZ aus demselben Zeitfenster
+    public Optional<SiemensSnapshot> getLatestSnapshot() {
+        return snapshotRepository.findTopByOrderByTimestampDesc();
+    }
+
+    private boolean readsBuckets() {
+        return "buckets".equalsIgnoreCase(layout) || "both".equalsIgnoreCase(layout);
+    }
+
+    // Baut aus einem Bucket-Eintrag wieder das gewohnte SiemensData für die bestehenden Endpunkte
+    static SiemensData toSiemensData(SiemensHourBucket bucket, int index) {
+        SiemensData data = new SiemensData(bucket.getValues().get(index), bucket.getType());
+        data.setId(bucket.getId() + '#' + index);
+        data.setTimestamp(bucket.getTimestamps().get(index));
+        return data;
     }
 }
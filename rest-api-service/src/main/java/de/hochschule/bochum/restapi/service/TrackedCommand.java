@@ -0,0 +1,19 @@
+package de.hochschule.bochum.restapi.service;
+
+import java.time.LocalDateTime;
+
+// Zustand eines Steuerbefehls für POST /api/wago/control und GET /api/wago/control/{id}.
+// confirmedAt, latencyMs und status sind erst gesetzt, wenn die SPS den Befehl über Wago750/Status bestätigt hat.
+public record TrackedCommand(String id, int command, State state, LocalDateTime sentAt,
+                             LocalDateTime confirmedAt, Long latencyMs, Integer status) {
+
+    public enum State {
+        SENT,       // nur veröffentlicht: Verfolgung aus oder kein erwarteter Status für den Befehl (expected-status)
+        PENDING,    // veröffentlicht, wartet auf den passenden Status
+        CONFIRMED,  // passender Status ist angekommen
+        TIMED_OUT,  // innerhalb von timeout-ms kam kein passender Status
+        SUPERSEDED, // gesendet, aber ein später gesendeter Befehl wurde zuerst bestätigt
+        COALESCED,  // in der OutboundCommandQueue durch einen neueren Befehl ersetzt, nie gesendet
+        REJECTED    // von der OutboundCommandQueue verworfen oder nicht veröffentlicht
+    }
+}
@@ -0,0 +1,41 @@
+package de.hochschule.bochum.restapi.service;
+
+import de.hochschule.bochum.common.dto.WagoOnDurations;
+import de.hochschule.bochum.common.dto.WagoState;
+import de.hochschule.bochum.common.model.WagoTransition;
+import de.hochschule.bochum.restapi.repository.WagoTransitionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Service für den Wago-Verlauf auf Basis der gespeicherten Statuswechsel (wago_transitions)
+@Service
+@RequiredArgsConstructor
+public class WagoHistoryService {
+
+    private final WagoTransitionRepository transitionRepository;
+
+    // Zustand zu einem beliebigen Zeitpunkt = Status des letzten Wechsels davor
+    public Optional<WagoState> getStateAt(LocalDateTime at) {
+        return transitionRepository.findTopByTimestampLessThanEqualOrderByTimestampDesc(at)
+                .map(transition -> new WagoState(at, transition.getStatus(), transition.getTimestamp()));
+    }
+
+    // Einschaltdauer pro Bit im Zeitraum [from, to]; vor dem ersten bekannten Wechsel gilt alles als aus
+    public WagoOnDurations getOnDurations(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        int initialStatus = transitionRepository.findTopByTimestampLessThanEqualOrderByTimestampDesc(from)
+                .map(WagoTransition::getStatus)
+                .orElse(0);
+        WagoOnDurationAccumulator accumulator = new WagoOnDurationAccumulator(initialStatus, from);
+        try (Stream<WagoTransition> transitions =
+                     transitionRepository.findByTimestampGreaterThanAndTimestampLessThanEqualOrderByTimestampAsc(from, to)) {
+            transitions.forEach(accumulator::apply);
+        }
+        return accumulator.result(to);
+    }
+}
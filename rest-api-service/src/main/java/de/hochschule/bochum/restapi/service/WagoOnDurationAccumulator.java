@@ -0,0 +1,57 @@
+package de.hochschule.bochum.restapi.service;
+
+import de.hochschule.bochum.common.dto.WagoOnDurations;
+import de.hochschule.bochum.common.model.WagoTransition;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Zählt pro Bit die Einschaltdauer mit, während die Wechsel der Reihe nach durchlaufen werden.
+// Jeder Wechsel kostet nur die Bits, die gerade an sind – der Aufwand hängt also nur von der
+// Anzahl der Wechsel ab, nicht von der Anzahl der empfangenen Nachrichten.
+class WagoOnDurationAccumulator {
+
+    private static final int BITS = 16;
+
+    private final long[] onMillis = new long[BITS];
+    private final LocalDateTime from;
+    private int status;
+    private LocalDateTime since;
+    private long transitions;
+
+    WagoOnDurationAccumulator(int initialStatus, LocalDateTime from) {
+        this.status = initialStatus;
+        this.from = from;
+        this.since = from;
+    }
+
+    // Ein Wechsel: bis zu seinem Zeitpunkt galt noch der alte Status
+    void apply(WagoTransition transition) {
+        advanceTo(transition.getTimestamp());
+        status = transition.getStatus();
+        transitions++;
+    }
+
+    // Schreibt die Zeit seit dem letzten Schritt allen Bits gut, die gerade an sind
+    void advanceTo(LocalDateTime time) {
+        long millis = Duration.between(since, time).toMillis();
+        if (millis <= 0) {
+            return;
+        }
+        for (int bits = status & WagoTransition.FULL_MASK; bits != 0; bits &= bits - 1) {
+            onMillis[Integer.numberOfTrailingZeros(bits)] += millis;
+        }
+        since = time;
+    }
+
+    WagoOnDurations result(LocalDateTime to) {
+        advanceTo(to);
+        List<WagoOnDurations.BitDuration> bits = new ArrayList<>(BITS);
+        for (int bit = 0; bit < BITS; bit++) {
+            bits.add(new WagoOnDurations.BitDuration(bit, onMillis[bit]));
+        }
+        return new WagoOnDurations(from, to, transitions, bits);
+    }
+}
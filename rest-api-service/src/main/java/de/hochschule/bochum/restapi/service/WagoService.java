@@ -1,45 +1,103 @@
 package de.hochschule.bochum.restapi.service;
 
 import de.hochschule.bochum.common.model.WagoData;
+import de.hochschule.bochum.common.model.WagoTransition;
 import de.hochschule.bochum.restapi.repository.WagoDataRepository;
+import de.hochschule.bochum.restapi.repository.WagoTransitionRepository;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.integration.mqtt.support.MqttHeaders;
+import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Service;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 // Service für alle Wago-bezogenen Datenbank- und MQTT-Operationen
+@Slf4j
 @Service
 public class WagoService {
 
     private final WagoDataRepository wagoRepository;
+    private final WagoTransitionRepository transitionRepository;
     private final MessageChannel mqttOutboundChannel;
+    private final LatestValueCache latestCache;
+    private final OutboundCommandQueue outboundQueue;
+
+    @Value("${mqtt.topics.wago.control:Wago750/Control}")
+    private String controlTopic;
 
     // mqttOutboundChannel wird per Qualifier injiziert (kommt aus der MqttApiConfig)
     public WagoService(
             WagoDataRepository wagoRepository,
-            @Qualifier("mqttOutboundChannel") MessageChannel mqttOutboundChannel
+            WagoTransitionRepository transitionRepository,
+            @Qualifier("mqttOutboundChannel") MessageChannel mqttOutboundChannel,
+            LatestValueCache latestCache,
+            OutboundCommandQueue outboundQueue
     ) {
         this.wagoRepository = wagoRepository;
+        this.transitionRepository = transitionRepository;
         this.mqttOutboundChannel = mqttOutboundChannel;
+        this.latestCache = latestCache;
+        this.outboundQueue = outboundQueue;
+    }
+
+    // Füllt den Latest-Cache beim Start, damit schon der erste Poll nicht auf MongoDB geht
+    @EventListener(ApplicationReadyEvent.class)
+    public void primeLatestCache() {
+        if (!latestCache.isEnabled()) {
+            return;
+        }
+        try {
+            getLatestStatus();
+        } catch (RuntimeException e) {
+            log.warn("! Latest-Cache für Wago konnte nicht vorgeladen werden: {}", e.getMessage());
+        }
     }
 
-    // Gibt den letzten Status der Lampen zurück
+    // Gibt den letzten Status der Lampen zurück (aus dem Latest-Cache, MongoDB nur wenn kalt oder veraltet)
     public Optional<WagoData> getLatestStatus() {
-        return wagoRepository.findTopByOrderByTimestampDesc();
+        return latestCache.get(LatestValueCache.WAGO, WagoData.class, this::loadLatestStatus);
+    }
+
+    // Speichert der Consumer nur Wechsel (ingest.wago.storage: transitions),
+    // ist der letzte Wechsel neuer als das letzte WagoData.
+    private Optional<WagoData> loadLatestStatus() {
+        return newest(wagoRepository.findTopByOrderByTimestampDesc(), transitionRepository.findTopByOrderByTimestampDesc());
+    }
+
+    // Der jüngere von letztem Status und letztem Wechsel (auch für den ReactiveWagoService)
+    static Optional<WagoData> newest(Optional<WagoData> latest, Optional<WagoTransition> lastTransition) {
+        if (lastTransition.isEmpty()
+                || latest.isPresent() && !latest.get().getTimestamp().isBefore(lastTransition.get().getTimestamp())) {
+            return latest;
+        }
+        return lastTransition.map(WagoService::toWagoData);
+    }
+
+    // Ein Wechsel sieht für das Frontend aus wie ein normaler Status (inkl. statusBinary)
+    static WagoData toWagoData(WagoTransition transition) {
+        WagoData data = new WagoData(transition.getStatus());
+        data.setId(transition.getId());
+        data.setTimestamp(transition.getTimestamp());
+        return data;
     }
 
-    // Sendet einen Steuerbefehl (0-3) an die Wago SPS via MQTT
-    public void sendControlCommand(Integer command) {
+    // Sendet einen Steuerbefehl (0-3) an die Wago SPS via MQTT (ob er ankommt, verfolgt der ControlCommandTracker).
+    // Mit control.queue geht er über die OutboundCommandQueue: das Ergebnis sagt, ob er gesendet, durch einen
+    // neueren ersetzt oder verworfen wurde.
+    public CompletableFuture<OutboundCommandQueue.Outcome> sendControlCommand(Integer command) {
         if (command < 0 || command > 3) {
             throw new IllegalArgumentException("Command must be between 0 and 3");
         }
 
-        mqttOutboundChannel.send(
-                MessageBuilder.withPayload(command.toString())
-                        .setHeader(MqttHeaders.TOPIC, "Wago750/Control")
-                        .build()
-        );
+        Message<String> message = MessageBuilder.withPayload(command.toString())
+                .setHeader(MqttHeaders.TOPIC, controlTopic)
+                .build();
+        return outboundQueue.submit(controlTopic, () -> mqttOutboundChannel.send(message));
     }
 }
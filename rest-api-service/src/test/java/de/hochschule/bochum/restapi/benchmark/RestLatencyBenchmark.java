@@ -0,0 +1,130 @@
+package de.hochschule.bochum.restapi.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lastgenerator: Durchsatz und Latenz (p50/p99/max) der REST-Endpoints unter vielen gleichzeitigen Clients.
+ *
+ * Gedacht für den Vergleich Plattform-Threads gegen virtuelle Threads in Tomcat. Dafür den REST-API-Service
+ * (mit MongoDB) einmal normal und einmal mit virtuellen Threads starten und jeweils den Benchmark laufen lassen:
+ *
+ *   java -jar rest-api-service/target/rest-api-service-*.jar --spring.threads.virtual.enabled=false
+ *   java -jar rest-api-service/target/rest-api-service-*.jar --spring.threads.virtual.enabled=true
+ *
+ *   mvn -pl rest-api-service test-compile
+ *   java -cp rest-api-service/target/test-classes \
+ *        de.hochschule.bochum.restapi.benchmark.RestLatencyBenchmark [baseUrl] [clients] [sekunden] [pfad...]
+ *
+ * Standard: http://localhost:8080, 500 Clients, 30 s Messung nach 5 s Warmup, Dashboard + die /latest-Endpoints.
+ * Jeder Client ist ein virtueller Thread, der ohne Pause Requests schickt (geschlossenes Modell).
+ * Bei 500 Clients und 200 Tomcat-Threads sieht man mit Plattform-Threads die Warteschlange direkt im p99.
+ */
+public class RestLatencyBenchmark {
+
+    private static final List<String> DEFAULT_PATHS = List.of(
+            "/api/dashboard/latest",
+            "/api/wago/status/latest",
+            "/api/siemens/temperatur/ist/latest");
+
+    private static final Duration WARMUP = Duration.ofSeconds(5);
+
+    // Latenzen pro Endpoint; jeder Client misst in sein eigenes Array und legt es erst am Ende ab
+    private record Endpoint(String path, URI uri, Queue<long[]> samples, LongAdder errors) {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        Duration duration = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 30);
+        List<String> paths = args.length > 3 ? Arrays.asList(args).subList(3, args.length) : DEFAULT_PATHS;
+
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        List<Endpoint> endpoints = paths.stream()
+                .map(path -> new Endpoint(path, URI.create(baseUrl + path), new ConcurrentLinkedQueue<>(), new LongAdder()))
+                .toList();
+
+        System.out.printf("Ziel %s, %d Clients, %d s Warmup, %d s Messung%n",
+                baseUrl, clients, WARMUP.toSeconds(), duration.toSeconds());
+        long measureFrom = System.nanoTime() + WARMUP.toNanos();
+        long measureUntil = measureFrom + duration.toNanos();
+
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                // Clients gleichmäßig auf die Endpoints verteilen
+                Endpoint endpoint = endpoints.get(i % endpoints.size());
+                workers.submit(() -> endpoint.samples().add(run(client, endpoint, measureFrom, measureUntil)));
+            }
+        }
+
+        System.out.printf("%-40s %10s %10s %10s %10s %8s%n", "Endpoint", "req/s", "p50 ms", "p99 ms", "max ms", "Fehler");
+        for (Endpoint endpoint : endpoints) {
+            long[] all = endpoint.samples().stream().flatMapToLong(Arrays::stream).sorted().toArray();
+            double throughput = all.length / (double) duration.toSeconds();
+            System.out.printf("%-40s %10.0f %10.2f %10.2f %10.2f %8d%n", endpoint.path(), throughput,
+                    millis(percentile(all, 0.50)), millis(percentile(all, 0.99)),
+                    millis(all.length == 0 ? 0 : all[all.length - 1]), endpoint.errors().sum());
+        }
+    }
+
+    // Ein Client: Requests bis zum Ende, Latenzen erst nach dem Warmup aufzeichnen
+    private static long[] run(HttpClient client, Endpoint endpoint, long measureFrom, long measureUntil) {
+        HttpRequest request = HttpRequest.newBuilder(endpoint.uri()).timeout(Duration.ofSeconds(10)).GET().build();
+        long[] buffer = new long[1 << 16];
+        int count = 0;
+        while (true) {
+            long start = System.nanoTime();
+            if (start >= measureUntil) {
+                break;
+            }
+            boolean ok;
+            try {
+                HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                // 404 heißt nur "noch keine Daten", der Request selbst ist trotzdem durchgelaufen
+                ok = response.statusCode() < 500;
+            } catch (Exception e) {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                ok = false;
+            }
+            if (start < measureFrom) {
+                continue;
+            }
+            if (!ok) {
+                endpoint.errors().increment();
+                continue;
+            }
+            if (count == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            buffer[count++] = System.nanoTime() - start;
+        }
+        return Arrays.copyOf(buffer, count);
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
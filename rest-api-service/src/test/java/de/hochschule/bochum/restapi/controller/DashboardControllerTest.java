@@ -0,0 +1,114 @@
+package de.hochschule.bochum.restapi.controller;
+
+import de.hochschule.bochum.common.model.SiemensData;
+import de.hochschule.bochum.common.model.WagoData;
+import de.hochschule.bochum.restapi.service.DashboardService;
+import de.hochschule.bochum.restapi.service.SiemensService;
+import de.hochschule.bochum.restapi.service.WagoService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Unit-Tests für DashboardController und DashboardService.
+ *
+ * Wago- und Siemens-Service sind gemockt, der Controller läuft in einem Standalone-MockMvc.
+ * Geprüft wird der gemeinsame Payload, das ETag über alle vier Werte und die Antwort ohne Daten.
+ */
+@ExtendWith(MockitoExtension.class)
+class DashboardControllerTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    @Mock
+    private WagoService wagoService;
+
+    @Mock
+    private SiemensService siemensService;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        DashboardController controller = new DashboardController(new DashboardService(wagoService, siemensService));
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void testGetLatest_ShouldCombineAllValuesAndAnswer304WhenUnchanged() throws Exception {
+        // **Was mache ich?**
+        // Wago-Status 5, IST und SOLL vorhanden, DIFFERENZ noch nicht. Danach ein zweiter Aufruf mit dem ETag.
+        WagoData wago = new WagoData(5);
+        wago.setTimestamp(NOW);
+        when(wagoService.getLatestStatus()).thenReturn(Optional.of(wago));
+        when(siemensService.getLatestByType(anyString())).thenReturn(Optional.empty());
+        when(siemensService.getLatestByType("IST")).thenReturn(Optional.of(siemens(21.5, "IST", NOW.minusSeconds(1))));
+        when(siemensService.getLatestByType("SOLL")).thenReturn(Optional.of(siemens(22.0, "SOLL", NOW.minusSeconds(2))));
+
+        MvcResult first = mockMvc.perform(get("/api/dashboard/latest"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.wagoStatus").value(5))
+                .andExpect(jsonPath("$.ist").value(21.5))
+                .andExpect(jsonPath("$.soll").value(22.0))
+                .andExpect(jsonPath("$.differenz").doesNotExist())
+                .andExpect(jsonPath("$.sollTimestamp").exists())
+                .andReturn();
+        String etag = first.getResponse().getHeader("ETag");
+
+        // **Was erwarte ich?**
+        // - Ein Payload mit allen Werten, fehlende als null
+        // - Gleicher Stand beim zweiten Poll: 304 ohne Body
+        assertNotNull(etag);
+        mockMvc.perform(get("/api/dashboard/latest").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void testGetLatest_NoValuesYet_ShouldReturnNoContent() throws Exception {
+        // **Was mache ich?**
+        // Weder Wago noch Siemens haben schon einen Wert.
+        when(wagoService.getLatestStatus()).thenReturn(Optional.empty());
+        when(siemensService.getLatestByType(anyString())).thenReturn(Optional.empty());
+
+        // **Was erwarte ich?**
+        // - 204 wie bei den einzelnen /latest-Endpunkten
+        mockMvc.perform(get("/api/dashboard/latest"))
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    void testCombinedEtag_ShouldChangeWhenAnyTimestampChanges() {
+        // **Was mache ich?**
+        // ETags für denselben Stand und für einen Stand mit neuerem DIFFERENZ-Wert.
+        String before = LatestResponse.combinedEtag(NOW, NOW, NOW, null);
+        String same = LatestResponse.combinedEtag(NOW, NOW, NOW, null);
+        String after = LatestResponse.combinedEtag(NOW, NOW, NOW, NOW.plusNanos(1));
+
+        // **Was erwarte ich?**
+        // - Gleicher Stand, gleiches ETag; jede Änderung ergibt ein anderes
+        assertEquals(before, same);
+        assertNotEquals(before, after);
+        assertTrue(before.startsWith("\"") && before.endsWith("\""));
+    }
+
+    private static SiemensData siemens(double value, String type, LocalDateTime timestamp) {
+        SiemensData data = new SiemensData(value, type);
+        data.setTimestamp(timestamp);
+        return data;
+    }
+}
@@ -0,0 +1,194 @@
+package de.hochschule.bochum.restapi.controller;
+
+import de.hochschule.bochum.common.model.SiemensData;
+import de.hochschule.bochum.common.model.SiemensHourBucket;
+import de.hochschule.bochum.restapi.repository.ReactiveSiemensDataRepository;
+import de.hochschule.bochum.restapi.repository.ReactiveSiemensHourBucketRepository;
+import de.hochschule.bochum.restapi.service.HistoryCursor;
+import de.hochschule.bochum.restapi.service.LatestValueCache;
+import de.hochschule.bochum.restapi.service.ReactiveSiemensService;
+import de.hochschule.bochum.restapi.service.SiemensSeriesService;
+import de.hochschule.bochum.restapi.service.SiemensService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit-Tests für ReactiveSiemensController und ReactiveSiemensService (Profil "reactive").
+ *
+ * Die reaktiven Repositories sind gemockt, der Controller läuft in einem WebTestClient ohne Server.
+ * Geprüft wird, dass URLs, Header und Statuscodes dieselben sind wie im SiemensController
+ * und dass der Verlauf per NDJSON ohne Seitengröße gestreamt wird.
+ */
+@ExtendWith(MockitoExtension.class)
+class ReactiveSiemensControllerTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2024, 5, 1, 0, 0);
+    private static final LocalDateTime TO = LocalDateTime.of(2024, 5, 2, 0, 0);
+
+    @Mock
+    private ReactiveSiemensDataRepository siemensRepository;
+
+    @Mock
+    private ReactiveSiemensHourBucketRepository bucketRepository;
+
+    @Mock
+    private SiemensService siemensService;
+
+    @Mock
+    private SiemensSeriesService seriesService;
+
+    private ReactiveSiemensService reactiveSiemensService;
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        // Latest-Cache ausgeschaltet: jeder Aufruf geht an das (gemockte) Repository
+        reactiveSiemensService = new ReactiveSiemensService(siemensRepository, bucketRepository,
+                new LatestValueCache(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(reactiveSiemensService, "layout", "documents");
+        ReactiveSiemensController controller = new ReactiveSiemensController(reactiveSiemensService, siemensService, seriesService);
+        ReflectionTestUtils.setField(controller, "defaultLimit", 1000);
+        ReflectionTestUtils.setField(controller, "maxLimit", 10000);
+        client = WebTestClient.bindToController(controller).build();
+    }
+
+    @Test
+    void testGetHistory_Json_ShouldReturnPageWithNextCursorHeader() {
+        // **Was mache ich?**
+        // Eine Seite mit limit 2 als JSON, das Repository liefert (wie angefragt) limit + 1 Einträge.
+        List<SiemensData> rows = List.of(
+                history("665f1c000000000000000003", TO.minusMinutes(1)),
+                history("665f1c000000000000000002", TO.minusMinutes(2)),
+                history("665f1c000000000000000001", TO.minusMinutes(3)));
+        when(siemensRepository.findPage("IST", FROM, TO, Limit.of(3))).thenReturn(Flux.fromIterable(rows));
+
+        List<SiemensData> page = client.get()
+                .uri("/api/siemens/temperatur/ist/all?from={from}&to={to}&limit=2", FROM, TO)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().value(SiemensController.NEXT_CURSOR_HEADER, cursor ->
+                        assertEquals(rows.get(1).getId(), HistoryCursor.decode(cursor).id()))
+                .expectBodyList(SiemensData.class)
+                .returnResult().getResponseBody();
+
+        // **Was erwarte ich?**
+        // - Ein JSON-Array mit zwei Einträgen, der Cursor zeigt auf den zweiten (wie im SiemensController)
+        assertNotNull(page);
+        assertEquals(List.of(rows.get(0).getId(), rows.get(1).getId()), page.stream().map(SiemensData::getId).toList());
+    }
+
+    @Test
+    void testStreamHistory_Ndjson_ShouldStreamAllBucketEntriesWithoutPageLimit() {
+        // **Was mache ich?**
+        // Layout "buckets", Accept: application/x-ndjson, zwei Stunden-Buckets; der erste Wert liegt vor "from".
+        ReflectionTestUtils.setField(reactiveSiemensService, "layout", "buckets");
+        LocalDateTime hour = LocalDateTime.of(2024, 5, 1, 13, 0);
+        LocalDateTime from = hour.plusMinutes(1);
+        when(bucketRepository.findByTypeAndHourRange(eq("IST"), eq(hour), any()))
+                .thenReturn(Flux.just(bucket(hour.plusHours(1), 22.0, 23.0), bucket(hour, 20.0, 21.0)));
+
+        List<SiemensData> streamed = client.get()
+                .uri("/api/siemens/temperatur/ist/all?from={from}", from)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectHeader().doesNotExist(SiemensController.NEXT_CURSOR_HEADER)
+                .returnResult(SiemensData.class)
+                .getResponseBody().collectList().block();
+
+        // **Was erwarte ich?**
+        // - Alle Werte ab "from" in einem Stream, neueste zuerst, ohne Seiten und ohne Cursor
+        assertNotNull(streamed);
+        assertEquals(List.of(23.0, 22.0, 21.0), streamed.stream().map(SiemensData::getIstTemperatur).toList());
+        verifyNoInteractions(siemensRepository);
+    }
+
+    @Test
+    void testGetHistory_InvalidCursor_ShouldReturnBadRequestForJsonAndStream() {
+        // **Was mache ich?**
+        // Ein Cursor, dessen ID keine ObjectId ist, einmal als JSON-Seite und einmal als Stream.
+        String cursor = new HistoryCursor(TO, "kaputt").encode();
+
+        // **Was erwarte ich?**
+        // - Beide Male 400, keine Datenbankabfrage
+        client.get().uri("/api/siemens/temperatur/soll/all?cursor={cursor}", cursor)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+        client.get().uri("/api/siemens/temperatur/soll/all?cursor={cursor}", cursor)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+        verifyNoInteractions(siemensRepository, bucketRepository);
+    }
+
+    @Test
+    void testGetLatest_ShouldAnswer304ForSameEtagAnd204WithoutValue() {
+        // **Was mache ich?**
+        // IST hat einen Wert, DIFFERENZ (noch) nicht. IST wird zweimal abgefragt, beim zweiten Mal mit dem ETag.
+        SiemensData ist = history("665f1c000000000000000001", TO);
+        when(siemensRepository.findTopByTypeOrderByTimestampDesc("IST")).thenReturn(Mono.just(ist));
+        when(siemensRepository.findTopByTypeOrderByTimestampDesc("DIFFERENZ")).thenReturn(Mono.empty());
+
+        String etag = client.get().uri("/api/siemens/temperatur/ist/latest")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(SiemensData.class).value(body -> assertEquals(ist.getId(), body.getId()))
+                .returnResult().getResponseHeaders().getETag();
+
+        // **Was erwarte ich?**
+        // - Dasselbe ETag wie im Servlet-Betrieb, unverändert 304 ohne Body, ohne Wert 204
+        assertEquals(LatestResponse.etag(ist.getId(), ist.getTimestamp()), etag);
+        client.get().uri("/api/siemens/temperatur/ist/latest")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.NOT_MODIFIED)
+                .expectBody().isEmpty();
+        client.get().uri("/api/siemens/temperatur/differenz/latest")
+                .exchange()
+                .expectStatus().isNoContent();
+    }
+
+    private static SiemensData history(String id, LocalDateTime timestamp) {
+        SiemensData data = new SiemensData(23.5, "IST");
+        data.setId(id);
+        data.setTimestamp(timestamp);
+        return data;
+    }
+
+    // Bucket mit aufeinanderfolgenden Werten im Minutenabstand ab Stundenbeginn
+    private static SiemensHourBucket bucket(LocalDateTime hour, double... values) {
+        SiemensHourBucket bucket = new SiemensHourBucket();
+        bucket.setId(SiemensHourBucket.idOf("IST", hour));
+        bucket.setType("IST");
+        bucket.setHour(hour);
+        for (int i = 0; i < values.length; i++) {
+            bucket.getTimestamps().add(hour.plusMinutes(i));
+            bucket.getValues().add(values[i]);
+        }
+        bucket.setCount(values.length);
+        return bucket;
+    }
+}
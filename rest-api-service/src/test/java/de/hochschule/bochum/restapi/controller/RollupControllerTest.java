@@ -0,0 +1,109 @@
+package de.hochschule.bochum.restapi.controller;
+
+import de.hochschule.bochum.common.model.Rollup;
+import de.hochschule.bochum.restapi.repository.RollupRepository;
+import de.hochschule.bochum.restapi.service.RollupService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Unit-Tests für den RollupController.
+ *
+ * Der Controller läuft mit echtem RollupService in einem Standalone-MockMvc, nur das RollupRepository ist gemockt.
+ * Geprüft werden die gewählte Stufe im Header X-Rollup-Tier, die Abfragegrenzen und die 400-Antworten
+ * bei ungültigen Parametern.
+ */
+@ExtendWith(MockitoExtension.class)
+class RollupControllerTest {
+
+    @Mock
+    private RollupRepository rollupRepository;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        RollupController controller = new RollupController(new RollupService(rollupRepository));
+        ReflectionTestUtils.setField(controller, "defaultPoints", 500);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void testGetRollups_WithoutTier_ShouldPickTierAndSendHeader() throws Exception {
+        // **Was mache ich?**
+        // Ein Jahr IST-Werte (kleingeschrieben) ohne tier und points abfragen.
+        Rollup rollup = new Rollup();
+        rollup.setSeries("IST");
+        rollup.setTier("1h");
+        rollup.setCount(60L);
+        when(rollupRepository.findRange(anyString(), anyString(), any(), any())).thenReturn(List.of(rollup));
+
+        // **Was erwarte ich?**
+        // - 500 Punkte auf ein Jahr ergeben Stunden, die Stufe steht im Header
+        // - Abgefragt wird die Reihe IST ab dem Beginn der Stunde, in die from fällt
+        mockMvc.perform(get("/api/rollups/ist")
+                        .param("from", "2024-01-01T00:30:00")
+                        .param("to", "2025-01-01T00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(RollupController.TIER_HEADER, "1h"))
+                .andExpect(jsonPath("$[0].count").value(60));
+        verify(rollupRepository).findRange("IST", "1h",
+                LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2025, 1, 1, 0, 0));
+    }
+
+    @Test
+    void testGetRollups_ExplicitTier_ShouldOverrideChoice() throws Exception {
+        // **Was mache ich?**
+        // Derselbe Zeitraum, aber tier=1d und points=10000 (würde sonst Minuten ergeben).
+
+        // **Was erwarte ich?**
+        // - Die angegebene Stufe gewinnt
+        mockMvc.perform(get("/api/rollups/soll")
+                        .param("from", "2024-01-01T00:00:00")
+                        .param("to", "2025-01-01T00:00:00")
+                        .param("tier", "1d")
+                        .param("points", "10000"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(RollupController.TIER_HEADER, "1d"));
+        verify(rollupRepository).findRange("SOLL", "1d",
+                LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2025, 1, 1, 0, 0));
+    }
+
+    @Test
+    void testGetRollups_InvalidParameters_ShouldReturnBadRequest() throws Exception {
+        // **Was erwarte ich?**
+        // - Unbekannte Reihe, from nicht vor to, points <= 0 und unbekannte Stufe: jeweils 400, MongoDB wird nie gefragt
+        mockMvc.perform(get("/api/rollups/druck"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/rollups/ist")
+                        .param("from", "2024-05-01T12:00:00")
+                        .param("to", "2024-05-01T12:00:00"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/rollups/ist")
+                        .param("from", "2024-05-02T00:00:00")
+                        .param("to", "2024-05-01T00:00:00"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/rollups/ist").param("points", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/rollups/ist").param("points", "-5"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/rollups/ist").param("tier", "1w"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(rollupRepository);
+    }
+}
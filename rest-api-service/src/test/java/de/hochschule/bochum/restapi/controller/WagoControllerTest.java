@@ -4,6 +4,8 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import de.hochschule.bochum.common.dto.ControlCommand;
 import de.hochschule.bochum.common.model.WagoData;
+import de.hochschule.bochum.restapi.service.ControlCommandTracker;
+import de.hochschule.bochum.restapi.service.TrackedCommand;
 import de.hochschule.bochum.restapi.service.WagoService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,11 +14,27 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
  * Unit-Tests für WagoController.
@@ -33,6 +51,9 @@ class WagoControllerTest {
     @Mock
     private WagoService wagoService; // Wird für alle Tests als Mock verwendet
 
+    @Mock
+    private ControlCommandTracker commandTracker;
+
     @InjectMocks
     private WagoController wagoController; // Hiermit teste ich die Controller-Logik
 
@@ -108,21 +129,178 @@ class WagoControllerTest {
     }
 
     @Test
-    void testSendControlCommand_ShouldReturnOkWithSuccessMessage() {
+    void testGetLatestStatus_ShouldSendStrongETagFromIdAndTimestamp() {
         // **Was mache ich?**
-        // Sende einen gültigen Steuerbefehl.
-        // Der Service wird so gemockt, dass nichts passiert (doNothing).
+        // Ich gebe dem Status einen festen Zeitstempel und rufe den Endpunkt zweimal auf.
+        testWagoData.setTimestamp(LocalDateTime.of(2024, 5, 1, 12, 0, 0, 123_000_000));
+        when(wagoService.getLatestStatus()).thenReturn(Optional.of(testWagoData));
 
-        doNothing().when(wagoService).sendControlCommand(1);
+        ResponseEntity<WagoData> first = wagoController.getLatestStatus();
+        ResponseEntity<WagoData> second = wagoController.getLatestStatus();
 
-        ResponseEntity<String> response = wagoController.sendControlCommand(controlCommand);
+        // **Was erwarte ich?**
+        // - Ein starkes ETag (ohne W/) mit der ID, bei gleichem Wert beide Male dasselbe
+        String etag = first.getHeaders().getETag();
+        assertNotNull(etag);
+        assertTrue(etag.startsWith("\"controller-test-123-"));
+        assertEquals(etag, second.getHeaders().getETag());
+    }
+
+    @Test
+    void testGetLatestStatus_IfNoneMatch_ShouldReturnNotModifiedWithoutBody() throws Exception {
+        // **Was mache ich?**
+        // Ich schicke das ETag des aktuellen Werts als If-None-Match, danach ändert sich der Wert.
+        testWagoData.setTimestamp(LocalDateTime.of(2024, 5, 1, 12, 0));
+        WagoData newer = new WagoData(3);
+        newer.setId("controller-test-456");
+        when(wagoService.getLatestStatus()).thenReturn(Optional.of(testWagoData), Optional.of(newer));
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(wagoController).build();
+        String etag = LatestResponse.etag(testWagoData.getId(), testWagoData.getTimestamp());
 
         // **Was erwarte ich?**
-        // - Status 200 OK
-        // - Rückgabewert enthält die Bestätigung für den Command
+        // - Gleicher Wert: 304 mit leerem Body (nichts serialisiert), ETag wieder dabei
+        // - Neuer Wert: 200 mit Body und neuem ETag
+        mockMvc.perform(get("/api/wago/status/latest").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/api/wago/status/latest").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", LatestResponse.etag(newer.getId(), newer.getTimestamp())));
+    }
+
+    @Test
+    void testSendControlCommand_WithoutTracking_ShouldReturnOkWithSuccessMessage() {
+        // **Was mache ich?**
+        // Sende einen gültigen Steuerbefehl ohne waitMs, die Verfolgung ist aus: der Tracker meldet nur SENT.
+
+        when(commandTracker.submit(1)).thenReturn(command(TrackedCommand.State.SENT));
+
+        ResponseEntity<?> response = wagoController.sendControlCommand(controlCommand);
+
+        // **Was erwarte ich?**
+        // - Status 200 OK mit der bisherigen Antwort "Command sent: 1"
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertTrue(response.getBody().contains("Command sent: 1"));
-        verify(wagoService, times(1)).sendControlCommand(1);
+        assertEquals("Command sent: 1", response.getBody());
+        verify(commandTracker, times(1)).submit(1);
+        verify(commandTracker, never()).await(any(), anyLong());
+    }
+
+    @Test
+    void testSendControlCommand_WithoutWaitMs_ShouldAnswerSynchronously() throws Exception {
+        // **Was mache ich?**
+        // Über MockMvc ohne ?waitMs=, wie die bisherigen Clients (und Aufgabe9bIntegrationTest) aufrufen.
+
+        when(commandTracker.submit(1)).thenReturn(command(TrackedCommand.State.SENT));
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(wagoController).build();
+
+        // **Was erwarte ich?**
+        // - Keine asynchrone Verarbeitung, direkt 200 mit "Command sent: 1"
+        mockMvc.perform(post("/api/wago/control")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"command\":1}"))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isOk())
+                .andExpect(content().string("Command sent: 1"));
+    }
+
+    @Test
+    void testSendControlCommand_CoalescedOrRejected_ShouldNotReportSent() {
+        // **Was mache ich?**
+        // Die Queue hat Befehl 1 durch einen neueren ersetzt und Befehl 2 verworfen (Rate-Limit).
+
+        ControlCommand second = new ControlCommand();
+        second.setCommand(2);
+        when(commandTracker.submit(1)).thenReturn(command(TrackedCommand.State.COALESCED));
+        when(commandTracker.submit(2)).thenReturn(new TrackedCommand("cmd-2", 2, TrackedCommand.State.REJECTED,
+                LocalDateTime.of(2024, 5, 1, 12, 0), null, null, null));
+
+        ResponseEntity<?> coalesced = wagoController.sendControlCommand(controlCommand);
+        ResponseEntity<?> rejected = wagoController.sendControlCommand(second);
+
+        // **Was erwarte ich?**
+        // - 202 ACCEPTED mit Zustand COALESCED bzw. 429 TOO MANY REQUESTS mit Zustand REJECTED, kein "Command sent"
+        assertEquals(HttpStatus.ACCEPTED, coalesced.getStatusCode());
+        assertEquals(TrackedCommand.State.COALESCED, ((TrackedCommand) coalesced.getBody()).state());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getStatusCode());
+        assertEquals(TrackedCommand.State.REJECTED, ((TrackedCommand) rejected.getBody()).state());
+    }
+
+    @Test
+    void testSendControlCommand_WaitWithoutTracking_ShouldReturnSentAsJson() {
+        // **Was mache ich?**
+        // Wie oben, aber mit waitMs (so ruft das Frontend auf).
+
+        TrackedCommand sent = command(TrackedCommand.State.SENT);
+        when(commandTracker.submit(1)).thenReturn(sent);
+        when(commandTracker.await(sent, 3000)).thenReturn(CompletableFuture.completedFuture(sent));
+
+        ResponseEntity<TrackedCommand> response = wagoController.sendControlCommandAndWait(controlCommand, 3000).join();
+
+        // **Was erwarte ich?**
+        // - Status 200 OK, im Body der Befehl mit Zustand SENT
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(TrackedCommand.State.SENT, response.getBody().state());
+        assertEquals(1, response.getBody().command());
+    }
+
+    @Test
+    void testSendControlCommand_Pending_ShouldReturnAcceptedWithStatusUrl() {
+        // **Was mache ich?**
+        // Die SPS hat innerhalb von waitMs noch nicht geantwortet, der Befehl ist offen.
+
+        TrackedCommand pending = command(TrackedCommand.State.PENDING);
+        when(commandTracker.submit(1)).thenReturn(pending);
+        when(commandTracker.await(pending, 2000)).thenReturn(CompletableFuture.completedFuture(pending));
+
+        ResponseEntity<TrackedCommand> response = wagoController.sendControlCommandAndWait(controlCommand, 2000).join();
+
+        // **Was erwarte ich?**
+        // - Status 202 ACCEPTED mit Location auf GET /api/wago/control/{id}
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals("/api/wago/control/cmd-1", response.getHeaders().getLocation().toString());
+        assertEquals(TrackedCommand.State.PENDING, response.getBody().state());
+    }
+
+    @Test
+    void testSendControlCommand_Confirmed_ShouldReturnOkWithLatency() throws Exception {
+        // **Was mache ich?**
+        // Über MockMvc mit ?waitMs=: der Tracker bestätigt den Befehl, bevor die Wartezeit um ist.
+
+        TrackedCommand pending = command(TrackedCommand.State.PENDING);
+        TrackedCommand confirmed = new TrackedCommand("cmd-1", 1, TrackedCommand.State.CONFIRMED,
+                pending.sentAt(), pending.sentAt().plusNanos(180_000_000), 180L, 255);
+        when(commandTracker.submit(1)).thenReturn(pending);
+        when(commandTracker.await(pending, 5000)).thenReturn(CompletableFuture.completedFuture(confirmed));
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(wagoController).build();
+
+        MvcResult result = mockMvc.perform(post("/api/wago/control?waitMs=5000")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"command\":1}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // **Was erwarte ich?**
+        // - Status 200 mit Zustand CONFIRMED, der Latenz und dem Status der SPS
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("CONFIRMED"))
+                .andExpect(jsonPath("$.latencyMs").value(180))
+                .andExpect(jsonPath("$.status").value(255));
+    }
+
+    @Test
+    void testGetControlCommand_Unknown_ShouldReturnNotFound() {
+        // **Was mache ich?**
+        // Frage einen Befehl ab, den der Tracker nicht (mehr) kennt.
+
+        when(commandTracker.get("weg")).thenReturn(Optional.empty());
+
+        ResponseEntity<TrackedCommand> response = wagoController.getControlCommand("weg");
+
+        // **Was erwarte ich?**
+        // - Status 404 NOT FOUND
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
     }
 
     @Test
@@ -134,7 +312,7 @@ class WagoControllerTest {
         invalidCommand.setCommand(5); // Invalid command
 
         doThrow(new IllegalArgumentException("Command must be between 0 and 3"))
-                .when(wagoService).sendControlCommand(5);
+                .when(commandTracker).submit(5);
 
         // **Was erwarte ich?**
         // - Der Controller wirft die Exception weiter (in einer echten Anwendung könnte hier ein @ExceptionHandler greifen)
@@ -142,6 +320,11 @@ class WagoControllerTest {
             wagoController.sendControlCommand(invalidCommand);
         });
 
-        verify(wagoService, times(1)).sendControlCommand(5);
+        verify(commandTracker, times(1)).submit(5);
+        verify(commandTracker, never()).await(any(), anyLong());
+    }
+
+    private static TrackedCommand command(TrackedCommand.State state) {
+        return new TrackedCommand("cmd-1", 1, state, LocalDateTime.of(2024, 5, 1, 12, 0), null, null, null);
     }
 }
@@ -0,0 +1,310 @@
+package de.hochschule.bochum.restapi.service;
+
+import de.hochschule.bochum.common.model.WagoData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.integration.mqtt.support.MqttHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit-Tests für den ControlCommandTracker.
+ *
+ * Der WagoService (das eigentliche Senden) ist gemockt, die Antworten der SPS kommen als MQTT-Nachrichten
+ * auf Wago750/Status über einen echten LatestValueCache. Geprüft wird, wann ein Befehl als bestätigt gilt
+ * (nur durch seinen erwarteten Status, auch ohne Änderung und bei mehreren gleichzeitigen Befehlen),
+ * dass die Round-Trip-Zeit im Histogramm landet und dass offene Befehle nach dem Timeout abgeschlossen werden.
+ */
+@ExtendWith(MockitoExtension.class)
+class ControlCommandTrackerTest {
+
+    @Mock
+    private WagoService wagoService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private LatestValueCache latestCache;
+    private ControlCommandTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        latestCache = new LatestValueCache(meterRegistry);
+        ReflectionTestUtils.setField(latestCache, "wagoStatusTopic", "Wago750/Status");
+        tracker = new ControlCommandTracker(wagoService, latestCache, meterRegistry);
+        ReflectionTestUtils.setField(tracker, "enabled", true);
+        ReflectionTestUtils.setField(tracker, "timeoutMs", 60_000L);
+        ReflectionTestUtils.setField(tracker, "keepMs", 600_000L);
+        ReflectionTestUtils.setField(tracker, "maxWaitMs", 30_000L);
+        ReflectionTestUtils.setField(tracker, "expectedStatusConfig", "0=0, 1=255, 2=12, 3=48");
+        // Ohne Queue gilt jeder Befehl sofort als gesendet
+        lenient().when(wagoService.sendControlCommand(anyInt()))
+                .thenReturn(CompletableFuture.completedFuture(OutboundCommandQueue.Outcome.SENT));
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracker.stop();
+    }
+
+    @Test
+    void testSubmit_StatusChange_ShouldConfirmAndRecordRoundTrip() {
+        // **Was mache ich?**
+        // Vor dem Befehl steht die SPS auf 3, Befehl 2 soll 12 ergeben. Danach kommt erst noch einmal 3, dann 12.
+        tracker.start();
+        status("3");
+        TrackedCommand sent = tracker.submit(2);
+        CompletableFuture<TrackedCommand> result = tracker.await(sent, 5000);
+        status("3");
+        assertFalse(result.isDone());
+        status("12");
+
+        // **Was erwarte ich?**
+        // - Gesendet wurde über den WagoService, der erste Zustand ist PENDING
+        // - Erst die Änderung auf 12 bestätigt den Befehl, die Latenz steht im Timer (genau ein Wert)
+        verify(wagoService).sendControlCommand(2);
+        assertEquals(TrackedCommand.State.PENDING, sent.state());
+        TrackedCommand confirmed = result.join();
+        assertEquals(TrackedCommand.State.CONFIRMED, confirmed.state());
+        assertEquals(12, confirmed.status());
+        assertNotNull(confirmed.latencyMs());
+        assertEquals(confirmed, tracker.get(sent.id()).orElseThrow());
+        assertEquals(1, meterRegistry.get("api.wago.command.roundtrip").timer().count());
+        assertEquals(1.0, meterRegistry.get("api.wago.command").tag("result", "confirmed").counter().count());
+    }
+
+    @Test
+    void testSubmit_ExpectedStatus_ShouldIgnoreOtherChanges() {
+        // **Was mache ich?**
+        // Für Befehl 1 ist Status 255 eingetragen. Nach dem Senden kommen 7 und dann 255.
+        ReflectionTestUtils.setField(tracker, "expectedStatusConfig", "0=0, 1=255");
+        tracker.start();
+        TrackedCommand sent = tracker.submit(1);
+        status("7");
+        TrackedCommand afterOtherChange = tracker.get(sent.id()).orElseThrow();
+        status("255");
+
+        // **Was erwarte ich?**
+        // - 7 ist zwar eine Änderung, aber nicht der erwartete Status: weiter PENDING
+        // - 255 bestätigt
+        assertEquals(TrackedCommand.State.PENDING, afterOtherChange.state());
+        assertEquals(TrackedCommand.State.CONFIRMED, tracker.get(sent.id()).orElseThrow().state());
+    }
+
+    @Test
+    void testSubmit_UnknownBaseline_ShouldNotConfirmOnOtherStatus() {
+        // **Was mache ich?**
+        // Vor dem Befehl kam noch kein Status (Cache kalt). Danach meldet die SPS 3, erst später 12.
+        tracker.start();
+        TrackedCommand sent = tracker.submit(2);
+        status("3");
+        TrackedCommand afterFirstStatus = tracker.get(sent.id()).orElseThrow();
+        status("12");
+
+        // **Was erwarte ich?**
+        // - Der erste Status nach dem Senden bestätigt nicht automatisch, nur der erwartete Wert 12
+        assertEquals(TrackedCommand.State.PENDING, afterFirstStatus.state());
+        assertEquals(TrackedCommand.State.CONFIRMED, tracker.get(sent.id()).orElseThrow().state());
+    }
+
+    @Test
+    void testSubmit_StatusAlreadyExpected_ShouldConfirmWhenPublished() {
+        // **Was mache ich?**
+        // Die SPS steht schon auf 12, Befehl 2 ändert also nichts. Der Befehl wartet in der Queue,
+        // inzwischen kommt noch einmal 12, dann wird er veröffentlicht.
+        tracker.start();
+        status("12");
+        CompletableFuture<OutboundCommandQueue.Outcome> queued = new CompletableFuture<>();
+        when(wagoService.sendControlCommand(2)).thenReturn(queued);
+        TrackedCommand sent = tracker.submit(2);
+        status("12");
+        TrackedCommand beforePublish = tracker.get(sent.id()).orElseThrow();
+        queued.complete(OutboundCommandQueue.Outcome.SENT);
+
+        // **Was erwarte ich?**
+        // - Kein Timeout: mit dem Veröffentlichen ist der Befehl bestätigt (Status 12), vorher nicht
+        // - Gezählt als "unchanged", ohne Wert im Round-Trip-Timer (es gab keinen Statuswechsel)
+        assertEquals(TrackedCommand.State.PENDING, beforePublish.state());
+        TrackedCommand confirmed = tracker.get(sent.id()).orElseThrow();
+        assertEquals(TrackedCommand.State.CONFIRMED, confirmed.state());
+        assertEquals(12, confirmed.status());
+        assertEquals(1.0, meterRegistry.get("api.wago.command").tag("result", "unchanged").counter().count());
+        assertEquals(0, meterRegistry.get("api.wago.command.roundtrip").timer().count());
+    }
+
+    @Test
+    void testSubmit_ConcurrentCommands_ShouldConfirmOnlyTheMatchingOne() {
+        // **Was mache ich?**
+        // SPS steht auf 3. Befehl 1 (erwartet 255) und direkt danach Befehl 2 (erwartet 12) sind gleichzeitig offen.
+        // Die SPS meldet erst 255, dann 12.
+        tracker.start();
+        status("3");
+        TrackedCommand first = tracker.submit(1);
+        TrackedCommand second = tracker.submit(2);
+        status("255");
+        TrackedCommand secondAfter255 = tracker.get(second.id()).orElseThrow();
+        status("12");
+
+        // **Was erwarte ich?**
+        // - 255 bestätigt nur Befehl 1, Befehl 2 bleibt offen, bis 12 kommt
+        assertEquals(TrackedCommand.State.CONFIRMED, tracker.get(first.id()).orElseThrow().state());
+        assertEquals(255, tracker.get(first.id()).orElseThrow().status());
+        assertEquals(TrackedCommand.State.PENDING, secondAfter255.state());
+        assertEquals(TrackedCommand.State.CONFIRMED, tracker.get(second.id()).orElseThrow().state());
+        assertEquals(12, tracker.get(second.id()).orElseThrow().status());
+        assertEquals(2, meterRegistry.get("api.wago.command.roundtrip").timer().count());
+    }
+
+    @Test
+    void testSubmit_NewerCommandConfirmed_ShouldSupersedeOlderPending() {
+        // **Was mache ich?**
+        // SPS steht auf 3. Befehl 1 (erwartet 255) und danach Befehl 2 (erwartet 12); die SPS springt direkt auf 12.
+        tracker.start();
+        status("3");
+        TrackedCommand older = tracker.submit(1);
+        TrackedCommand newer = tracker.submit(2);
+        status("12");
+        status("255");
+
+        // **Was erwarte ich?**
+        // - Der neuere Befehl ist bestätigt, der ältere überholt (SUPERSEDED) und wird auch durch ein spätes 255
+        //   nicht mehr bestätigt
+        assertEquals(TrackedCommand.State.CONFIRMED, tracker.get(newer.id()).orElseThrow().state());
+        assertEquals(TrackedCommand.State.SUPERSEDED, tracker.get(older.id()).orElseThrow().state());
+        assertEquals(1, meterRegistry.get("api.wago.command.roundtrip").timer().count());
+    }
+
+    @Test
+    void testSubmit_NoExpectedStatus_ShouldOnlySend() {
+        // **Was mache ich?**
+        // Verfolgung an, aber für keinen Befehl ist ein erwarteter Status eingetragen. Danach ändert sich der Status.
+        ReflectionTestUtils.setField(tracker, "expectedStatusConfig", "");
+        tracker.start();
+        status("3");
+        TrackedCommand sent = tracker.submit(1);
+        status("7");
+
+        // **Was erwarte ich?**
+        // - Der Befehl ist nur gesendet (SENT), eine beliebige Statusänderung bestätigt ihn nicht
+        assertEquals(TrackedCommand.State.SENT, sent.state());
+        assertEquals(TrackedCommand.State.SENT, tracker.get(sent.id()).orElseThrow().state());
+        assertEquals(0, meterRegistry.get("api.wago.command.roundtrip").timer().count());
+    }
+
+    @Test
+    void testSweep_NoMatchingStatus_ShouldTimeOutOnce() {
+        // **Was mache ich?**
+        // Timeout -1 ms: jeder offene Befehl ist sofort überfällig. Danach kommt doch noch ein neuer Status.
+        ReflectionTestUtils.setField(tracker, "timeoutMs", -1L);
+        tracker.start();
+        TrackedCommand sent = tracker.submit(0);
+        tracker.sweep();
+        tracker.sweep();
+        status("1");
+
+        // **Was erwarte ich?**
+        // - TIMED_OUT, genau einmal gezählt; der späte Status ändert daran nichts und landet nicht im Timer
+        assertEquals(TrackedCommand.State.TIMED_OUT, tracker.get(sent.id()).orElseThrow().state());
+        assertEquals(1.0, meterRegistry.get("api.wago.command").tag("result", "timeout").counter().count());
+        assertEquals(0, meterRegistry.get("api.wago.command.roundtrip").timer().count());
+    }
+
+    @Test
+    void testAwait_NoAnswerWithinWait_ShouldReturnPendingState() {
+        // **Was mache ich?**
+        // Ich warte 50 ms auf einen Befehl, auf den die SPS nicht antwortet.
+        tracker.start();
+        TrackedCommand sent = tracker.submit(3);
+
+        TrackedCommand afterWait = tracker.await(sent, 50).join();
+
+        // **Was erwarte ich?**
+        // - Nach der Wartezeit kommt der offene Zustand zurück, verfolgt wird der Befehl weiter
+        assertEquals(TrackedCommand.State.PENDING, afterWait.state());
+        assertTrue(tracker.get(sent.id()).isPresent());
+    }
+
+    @Test
+    void testSubmit_InvalidCommand_ShouldNotTrack() {
+        // **Was mache ich?**
+        // Der WagoService lehnt den Befehl ab (z.B. 5).
+        tracker.start();
+        doThrow(new IllegalArgumentException("Command must be between 0 and 3")).when(wagoService).sendControlCommand(5);
+
+        // **Was erwarte ich?**
+        // - Die Exception kommt beim Aufrufer an, es bleibt kein offener Befehl zurück
+        assertThrows(IllegalArgumentException.class, () -> tracker.submit(5));
+        assertEquals(0.0, meterRegistry.get("api.wago.command.pending").gauge().value());
+    }
+
+    @Test
+    void testSubmit_CoalescedInQueue_ShouldBeCoalescedAndNotConfirmed() {
+        // **Was mache ich?**
+        // Befehl 1 wartet in der OutboundCommandQueue und wird dort durch einen neueren ersetzt; danach ändert sich der Status.
+        tracker.start();
+        CompletableFuture<OutboundCommandQueue.Outcome> queued = new CompletableFuture<>();
+        when(wagoService.sendControlCommand(1)).thenReturn(queued);
+        TrackedCommand sent = tracker.submit(1);
+        queued.complete(OutboundCommandQueue.Outcome.COALESCED);
+        status("9");
+
+        // **Was erwarte ich?**
+        // - COALESCED statt CONFIRMED, kein Wert im Round-Trip-Timer
+        assertEquals(TrackedCommand.State.COALESCED, tracker.get(sent.id()).orElseThrow().state());
+        assertEquals(1.0, meterRegistry.get("api.wago.command").tag("result", "coalesced").counter().count());
+        assertEquals(0, meterRegistry.get("api.wago.command.roundtrip").timer().count());
+    }
+
+    @Test
+    void testSubmit_TrackingDisabled_ShouldOnlySend() {
+        // **Was mache ich?**
+        // Verfolgung aus, ein Befehl wird gesendet.
+        ReflectionTestUtils.setField(tracker, "enabled", false);
+        tracker.start();
+
+        TrackedCommand sent = tracker.submit(1);
+
+        // **Was erwarte ich?**
+        // - Zustand SENT wie früher "Command sent", nichts wird gespeichert
+        verify(wagoService).sendControlCommand(1);
+        assertEquals(TrackedCommand.State.SENT, sent.state());
+        assertTrue(tracker.get(sent.id()).isEmpty());
+    }
+
+    @Test
+    void testSubmit_TrackingDisabled_ShouldReportQueueOutcome() {
+        // **Was mache ich?**
+        // Verfolgung aus; die Queue ersetzt Befehl 1 durch einen neueren und verwirft Befehl 2 (Rate-Limit).
+        ReflectionTestUtils.setField(tracker, "enabled", false);
+        tracker.start();
+        when(wagoService.sendControlCommand(1))
+                .thenReturn(CompletableFuture.completedFuture(OutboundCommandQueue.Outcome.COALESCED));
+        when(wagoService.sendControlCommand(2))
+                .thenReturn(CompletableFuture.completedFuture(OutboundCommandQueue.Outcome.REJECTED));
+
+        TrackedCommand coalesced = tracker.submit(1);
+        TrackedCommand rejected = tracker.submit(2);
+
+        // **Was erwarte ich?**
+        // - Nicht SENT, sondern das Ergebnis der Queue: COALESCED bzw. REJECTED
+        assertEquals(TrackedCommand.State.COALESCED, coalesced.state());
+        assertEquals(TrackedCommand.State.REJECTED, rejected.state());
+    }
+
+    // Status der SPS so, wie er per MQTT im LatestValueCache ankommt
+    private void status(String payload) {
+        latestCache.onMqttMessage(MessageBuilder.withPayload(payload)
+                .setHeader(MqttHeaders.RECEIVED_TOPIC, "Wago750/Status")
+                .build());
+    }
+}
@@ -0,0 +1,131 @@
+package de.hochschule.bochum.restapi.service;
+
+import com.mongodb.client.MongoCollection;
+import de.hochschule.bochum.common.model.SiemensData;
+import de.hochschule.bochum.common.model.WagoData;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit-Tests für HealthSnapshotService.
+ *
+ * MongoTemplate und SiemensService sind gemockt, refresh() rufe ich von Hand auf (ohne Hintergrund-Thread).
+ * Geprüft wird, dass nur geschätzte Zahlen gelesen werden und health() allein aus dem Snapshot antwortet.
+ */
+@ExtendWith(MockitoExtension.class)
+class HealthSnapshotServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private SiemensService siemensService;
+
+    @Mock
+    private MongoCollection<Document> wagoCollection;
+
+    @Mock
+    private MongoCollection<Document> siemensCollection;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private HealthSnapshotService healthService;
+
+    @BeforeEach
+    void setUp() {
+        healthService = new HealthSnapshotService(mongoTemplate, siemensService, meterRegistry);
+        ReflectionTestUtils.setField(healthService, "refreshIntervalMs", 5000L);
+        ReflectionTestUtils.setField(healthService, "maxIngestLagSeconds", 300L);
+        lenient().when(mongoTemplate.getCollectionName(WagoData.class)).thenReturn("wago_data");
+        lenient().when(mongoTemplate.getCollectionName(SiemensData.class)).thenReturn("siemens_data");
+        lenient().when(mongoTemplate.getCollection("wago_data")).thenReturn(wagoCollection);
+        lenient().when(mongoTemplate.getCollection("siemens_data")).thenReturn(siemensCollection);
+    }
+
+    @Test
+    void testHealth_BeforeFirstRefresh_ShouldBeUnknownWithoutTouchingMongo() {
+        // **Was mache ich?**
+        // health() wird aufgerufen, bevor der Hintergrund-Thread einmal gelaufen ist.
+        Health health = healthService.health();
+
+        // **Was erwarte ich?**
+        // - Status UNKNOWN, Datenbank UNKNOWN, kein Zugriff auf MongoDB
+        assertEquals(Status.UNKNOWN, health.getStatus());
+        assertEquals("UNKNOWN", health.getDetails().get("database"));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void testRefresh_DatabaseUp_ShouldUseEstimatedCountsPoolAndIngestLag() {
+        // **Was mache ich?**
+        // MongoDB antwortet, der jüngste Siemens-Wert (SOLL) ist 10 Minuten alt, der Treiber meldet zwei Pools.
+        when(wagoCollection.estimatedDocumentCount()).thenReturn(1200L);
+        when(siemensCollection.estimatedDocumentCount()).thenReturn(45000L);
+        LocalDateTime newest = LocalDateTime.now().minusMinutes(10);
+        when(siemensService.loadLatestByType(anyString())).thenReturn(Optional.empty());
+        when(siemensService.loadLatestByType("SOLL")).thenReturn(Optional.of(siemens(newest)));
+        Gauge.builder("mongodb.driver.pool.size", () -> 3).tag("server.address", "a").register(meterRegistry);
+        Gauge.builder("mongodb.driver.pool.size", () -> 2).tag("server.address", "b").register(meterRegistry);
+
+        healthService.refresh();
+        Health health = healthService.health();
+
+        // **Was erwarte ich?**
+        // - UP mit geschätzten Zahlen, nie countDocuments
+        // - Pool-Größe als Summe über beide Server, Ingest-Lag ~600 s und damit STALE (> 300 s)
+        assertEquals(Status.UP, health.getStatus());
+        assertEquals("CONNECTED", health.getDetails().get("database"));
+        assertEquals(1200L, health.getDetails().get("wagoDataCount"));
+        assertEquals(45000L, health.getDetails().get("siemensDataCount"));
+        assertEquals(5.0, ((Map<?, ?>) health.getDetails().get("pool")).get("size"));
+        assertEquals(newest, health.getDetails().get("lastIngest"));
+        assertTrue((Long) health.getDetails().get("ingestLagSeconds") >= 600);
+        assertEquals("STALE", health.getDetails().get("ingest"));
+        verify(siemensCollection, never()).countDocuments();
+        verify(mongoTemplate).executeCommand(new Document("ping", 1));
+    }
+
+    @Test
+    void testRefresh_DatabaseDown_ShouldServeDownSnapshot() {
+        // **Was mache ich?**
+        // Der Ping scheitert.
+        when(mongoTemplate.executeCommand(any(Document.class))).thenThrow(new DataAccessResourceFailureException("Mongo weg"));
+
+        healthService.refresh();
+
+        // **Was erwarte ich?**
+        // - DOWN mit Fehlermeldung, das Controller-Format meldet DISCONNECTED
+        // - Keine Zählung und kein Ingest-Lag versucht
+        assertEquals(Status.DOWN, healthService.health().getStatus());
+        Map<String, Object> map = healthService.getSnapshot().toMap();
+        assertEquals("DISCONNECTED", map.get("database"));
+        assertEquals("Mongo weg", map.get("error"));
+        assertFalse(map.containsKey("siemensDataCount"));
+        verifyNoInteractions(siemensService);
+    }
+
+    private static SiemensData siemens(LocalDateTime timestamp) {
+        SiemensData data = new SiemensData(25.0, "SOLL");
+        data.setTimestamp(timestamp);
+        return data;
+    }
+}
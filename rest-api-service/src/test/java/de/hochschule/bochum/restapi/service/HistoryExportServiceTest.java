@@ -0,0 +1,154 @@
+package de.hochschule.bochum.restapi.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.hochschule.bochum.common.model.SiemensData;
+import de.hochschule.bochum.common.model.SiemensHourBucket;
+import de.hochschule.bochum.common.model.WagoData;
+import de.hochschule.bochum.common.model.WagoTransition;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit-Tests für HistoryExportService.
+ *
+ * MongoDB wird gemockt und liefert Streams, ich prüfe nur, was im OutputStream landet:
+ * eine Zeile pro Messwert (NDJSON bzw. CSV mit Kopfzeile), gzip und die Reihenfolge beim Wago-Export.
+ */
+@ExtendWith(MockitoExtension.class)
+class HistoryExportServiceTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2024, 5, 1, 0, 0);
+    private static final LocalDateTime TO = LocalDateTime.of(2024, 5, 2, 0, 0);
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private HistoryExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new HistoryExportService(mongoTemplate, objectMapper, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(exportService, "layout", "documents");
+        ReflectionTestUtils.setField(exportService, "batchSize", 1000);
+        // Kleiner Flush-Abstand, damit auch der Zwischen-Flush durchlaufen wird
+        ReflectionTestUtils.setField(exportService, "flushRows", 2);
+    }
+
+    @Test
+    void testExportSiemens_Ndjson_ShouldWriteOneJsonObjectPerLine() throws Exception {
+        // **Was mache ich?**
+        // Drei IST-Dokumente im Zeitraum, Export als NDJSON.
+        when(mongoTemplate.stream(any(Query.class), eq(SiemensData.class))).thenReturn(Stream.of(
+                siemens("a", 20.0, FROM.plusMinutes(1)),
+                siemens("b", 21.0, FROM.plusMinutes(2)),
+                siemens("c", 22.0, FROM.plusMinutes(3))));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.exportSiemens(out, ExportFormat.NDJSON, false, List.of("IST"), FROM, TO);
+
+        // **Was erwarte ich?**
+        // - Drei Zeilen, jede für sich gültiges JSON mit den gewohnten Feldern, abschließender Zeilenumbruch
+        String text = out.toString(StandardCharsets.UTF_8);
+        assertTrue(text.endsWith("\n"));
+        String[] lines = text.split("\n");
+        assertEquals(3, lines.length);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertEquals("a", first.get("id").asText());
+        assertEquals("IST", first.get("type").asText());
+        assertEquals(20.0, first.get("istTemperatur").asDouble());
+        assertEquals(22.0, objectMapper.readTree(lines[2]).get("istTemperatur").asDouble());
+    }
+
+    @Test
+    void testExportSiemens_CsvGzipFromBuckets_ShouldExpandBucketsWithinRange() throws Exception {
+        // **Was mache ich?**
+        // Layout "buckets": ein Bucket mit drei Werten, der letzte liegt hinter "to". Export als CSV mit gzip.
+        ReflectionTestUtils.setField(exportService, "layout", "buckets");
+        LocalDateTime hour = TO.minusHours(1);
+        SiemensHourBucket bucket = new SiemensHourBucket();
+        bucket.setId(SiemensHourBucket.idOf("SOLL", hour));
+        bucket.setType("SOLL");
+        bucket.setHour(hour);
+        bucket.getTimestamps().addAll(List.of(hour.plusMinutes(1), hour.plusMinutes(2), TO.plusMinutes(1)));
+        bucket.getValues().addAll(List.of(25.0, 25.5, 26.0));
+        when(mongoTemplate.stream(any(Query.class), eq(SiemensHourBucket.class))).thenReturn(Stream.of(bucket));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.exportSiemens(out, ExportFormat.CSV, true, List.of("SOLL"), FROM, TO);
+
+        // **Was erwarte ich?**
+        // - Gültiges gzip, Kopfzeile plus die zwei Werte im Zeitraum, kein Zugriff auf siemens_data
+        String text;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        assertEquals(List.of(
+                "timestamp,type,value,id",
+                hour.plusMinutes(1) + ",SOLL,25.0," + bucket.getId() + "#0",
+                hour.plusMinutes(2) + ",SOLL,25.5," + bucket.getId() + "#1"), text.lines().toList());
+        verify(mongoTemplate, never()).stream(any(Query.class), eq(SiemensData.class));
+    }
+
+    @Test
+    void testExportWago_ShouldMergeDataAndTransitionsByTime() throws Exception {
+        // **Was mache ich?**
+        // wago_data und wago_transitions liefern je zwei Einträge, die zeitlich ineinandergreifen.
+        when(mongoTemplate.stream(any(Query.class), eq(WagoData.class))).thenReturn(Stream.of(
+                wago("d1", 1, FROM.plusMinutes(1)),
+                wago("d2", 3, FROM.plusMinutes(3))));
+        when(mongoTemplate.stream(any(Query.class), eq(WagoTransition.class))).thenReturn(Stream.of(
+                transition("t1", 2, FROM.plusMinutes(2)),
+                transition("t2", 4, FROM.plusMinutes(4))));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.exportWago(out, ExportFormat.CSV, false, FROM, TO);
+
+        // **Was erwarte ich?**
+        // - Alle vier Einträge, aufsteigend nach Zeit
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(5, lines.size());
+        assertEquals(List.of("d1", "t1", "d2", "t2"),
+                lines.subList(1, 5).stream().map(line -> line.substring(line.lastIndexOf(',') + 1)).toList());
+    }
+
+    private static SiemensData siemens(String id, double value, LocalDateTime timestamp) {
+        SiemensData data = new SiemensData(value, "IST");
+        data.setId(id);
+        data.setTimestamp(timestamp);
+        return data;
+    }
+
+    private static WagoData wago(String id, int status, LocalDateTime timestamp) {
+        WagoData data = new WagoData(status);
+        data.setId(id);
+        data.setTimestamp(timestamp);
+        return data;
+    }
+
+    private static WagoTransition transition(String id, int status, LocalDateTime timestamp) {
+        WagoTransition transition = new WagoTransition(status, WagoTransition.FULL_MASK);
+        transition.setId(id);
+        transition.setTimestamp(timestamp);
+        return transition;
+    }
+}
@@ -0,0 +1,192 @@
+package de.hochschule.bochum.restapi.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.hochschule.bochum.common.model.SiemensData;
+import de.hochschule.bochum.common.model.WagoData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.integration.mqtt.support.MqttHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit-Tests für den LatestValueCache.
+ *
+ * Als "MongoDB" dient ein Loader, der mitzählt, wie oft er gefragt wurde. Geprüft wird,
+ * dass nur ein kalter oder veralteter Cache nachlädt und dass MQTT-Nachrichten den Cache füllen.
+ */
+class LatestValueCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private LatestValueCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new LatestValueCache(meterRegistry);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxAgeMs", 60_000L);
+        ReflectionTestUtils.setField(cache, "wagoStatusTopic", "Wago750/Status");
+        ReflectionTestUtils.setField(cache, "siemensIstTopic", "S7_1500/Temperatur/Ist");
+        ReflectionTestUtils.setField(cache, "siemensSollTopic", "S7_1500/Temperatur/Soll");
+        ReflectionTestUtils.setField(cache, "siemensDifferenzTopic", "S7_1500/Temperatur/Differenz");
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void testGet_ColdCache_ShouldLoadOnceAndThenHit() {
+        // **Was mache ich?**
+        // Zehnmal hintereinander den Wago-Status abfragen.
+        WagoData fromMongo = new WagoData(5);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(Optional.of(fromMongo), cache.get(LatestValueCache.WAGO, WagoData.class, loader(fromMongo)));
+        }
+
+        // **Was erwarte ich?**
+        // - Nur die erste Abfrage geht an MongoDB, die anderen neun sind Treffer
+        assertEquals(1, loads.get());
+        assertEquals(9.0, meterRegistry.get("api.latest.cache").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void testGet_StaleEntry_ShouldReloadFromMongo() {
+        // **Was mache ich?**
+        // max-age negativ, damit der Wert aus MQTT sofort als veraltet gilt.
+        ReflectionTestUtils.setField(cache, "maxAgeMs", -1L);
+        cache.put("IST", new SiemensData(20.0, "IST"));
+        SiemensData fromMongo = new SiemensData(21.0, "IST");
+
+        Optional<SiemensData> result = cache.get("IST", SiemensData.class, loader(fromMongo));
+
+        // **Was erwarte ich?**
+        // - MongoDB wurde gefragt und ihr Wert geliefert
+        assertEquals(1, loads.get());
+        assertEquals(Double.valueOf(21.0), result.orElseThrow().getIstTemperatur());
+    }
+
+    @Test
+    void testOnMqttMessage_ShouldFillCacheWithoutMongo() {
+        // **Was mache ich?**
+        // Eine Wago- und eine Siemens-Nachricht kommen über MQTT, danach wird abgefragt.
+        cache.onMqttMessage(MessageBuilder.withPayload("6")
+                .setHeader(MqttHeaders.RECEIVED_TOPIC, "Wago750/Status").build());
+        cache.onMqttMessage(MessageBuilder.withPayload(" 24.5 ")
+                .setHeader(MqttHeaders.RECEIVED_TOPIC, "S7_1500/Temperatur/Soll").build());
+
+        Optional<WagoData> wago = cache.get(LatestValueCache.WAGO, WagoData.class, loader(new WagoData(1)));
+        Optional<SiemensData> soll = cache.get("SOLL", SiemensData.class, loader(new SiemensData(0.0, "SOLL")));
+
+        // **Was erwarte ich?**
+        // - Beide Werte kommen aus MQTT, MongoDB wurde nie gefragt
+        assertEquals(Integer.valueOf(6), wago.orElseThrow().getStatus());
+        assertEquals(Double.valueOf(24.5), soll.orElseThrow().getSollTemperatur());
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    void testOnMqttMessage_BracketedBytePayload_ShouldBeParsedLikeConsumer() {
+        // **Was mache ich?**
+        // Die Wago schickt ihr Statuswort als "[5]", der Adapter liefert die Payload als byte[].
+        cache.onMqttMessage(MessageBuilder.withPayload(" [5]\n".getBytes(StandardCharsets.UTF_8))
+                .setHeader(MqttHeaders.RECEIVED_TOPIC, "Wago750/Status").build());
+
+        Optional<WagoData> wago = cache.get(LatestValueCache.WAGO, WagoData.class, loader(new WagoData(1)));
+
+        // **Was erwarte ich?**
+        // - Der Wert landet im Cache (wie beim PayloadParser im Consumer), MongoDB wird nicht gefragt
+        // - Der Eintrag hat keine id und den Empfangszeitpunkt der REST-API
+        assertEquals(Integer.valueOf(5), wago.orElseThrow().getStatus());
+        assertNull(wago.get().getId());
+        assertNotNull(wago.get().getTimestamp());
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    void testGet_CacheHitAndMongoFallback_ShouldSerializeToSameShape() {
+        // **Was mache ich?**
+        // Wago und IST einmal aus MQTT (Cache-Treffer) und einmal bei ausgeschaltetem Cache aus "MongoDB" holen
+        // und beide so zu JSON machen wie Spring MVC (Jackson2ObjectMapperBuilder).
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        cache.onMqttMessage(MessageBuilder.withPayload("5")
+                .setHeader(MqttHeaders.RECEIVED_TOPIC, "Wago750/Status").build());
+        cache.onMqttMessage(MessageBuilder.withPayload("21.5")
+                .setHeader(MqttHeaders.RECEIVED_TOPIC, "S7_1500/Temperatur/Ist").build());
+        WagoData wagoFromMongo = new WagoData(5);
+        wagoFromMongo.setId("665f1c2e9b1e8a3d4c2b1a00");
+        SiemensData istFromMongo = new SiemensData(21.5, "IST");
+        istFromMongo.setId("665f1c2e9b1e8a3d4c2b1a01");
+
+        JsonNode wagoHit = mapper.valueToTree(cache.get(LatestValueCache.WAGO, WagoData.class, loader(wagoFromMongo)).orElseThrow());
+        JsonNode istHit = mapper.valueToTree(cache.get("IST", SiemensData.class, loader(istFromMongo)).orElseThrow());
+        ReflectionTestUtils.setField(cache, "enabled", false);
+        JsonNode wagoFallback = mapper.valueToTree(cache.get(LatestValueCache.WAGO, WagoData.class, loader(wagoFromMongo)).orElseThrow());
+        JsonNode istFallback = mapper.valueToTree(cache.get("IST", SiemensData.class, loader(istFromMongo)).orElseThrow());
+
+        // **Was erwarte ich?**
+        // - Dieselben Felder in beiden Fällen; id steht auch beim Treffer im JSON (als null)
+        // - Zeitstempel und Werte haben denselben JSON-Typ, nur die id ist beim Treffer leer
+        assertShapeEquals(wagoFallback, wagoHit);
+        assertShapeEquals(istFallback, istHit);
+        assertTrue(wagoHit.get("id").isNull());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testOnMqttMessage_InvalidPayload_ShouldBeIgnored() {
+        // **Was mache ich?**
+        // Ungültige Payload auf dem Wago-Topic.
+        cache.onMqttMessage(MessageBuilder.withPayload("kaputt")
+                .setHeader(MqttHeaders.RECEIVED_TOPIC, "Wago750/Status").build());
+
+        // **Was erwarte ich?**
+        // - Kein Eintrag, die Abfrage geht an MongoDB
+        cache.get(LatestValueCache.WAGO, WagoData.class, loader(new WagoData(1)));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testGet_Disabled_ShouldAlwaysAskMongo() {
+        // **Was mache ich?**
+        // Cache ist aus, zweimal abfragen.
+        ReflectionTestUtils.setField(cache, "enabled", false);
+        cache.get(LatestValueCache.WAGO, WagoData.class, loader(new WagoData(1)));
+        cache.get(LatestValueCache.WAGO, WagoData.class, loader(new WagoData(1)));
+
+        // **Was erwarte ich?**
+        // - Beide Abfragen gehen an MongoDB
+        assertEquals(2, loads.get());
+    }
+
+    private static void assertShapeEquals(JsonNode expected, JsonNode actual) {
+        List<String> fields = new ArrayList<>();
+        expected.fieldNames().forEachRemaining(fields::add);
+        List<String> actualFields = new ArrayList<>();
+        actual.fieldNames().forEachRemaining(actualFields::add);
+        assertEquals(fields, actualFields);
+        for (String field : fields) {
+            if (!field.equals("id")) {
+                assertEquals(expected.get(field).getNodeType(), actual.get(field).getNodeType(), field);
+            }
+        }
+    }
+
+    private <T> Supplier<Optional<T>> loader(T value) {
+        return () -> {
+            loads.incrementAndGet();
+            return Optional.of(value);
+        };
+    }
+}
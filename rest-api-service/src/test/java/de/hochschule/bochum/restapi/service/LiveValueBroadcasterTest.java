@@ -0,0 +1,188 @@
+package de.hochschule.bochum.restapi.service;
+
+import de.hochschule.bochum.common.model.SiemensData;
+import de.hochschule.bochum.common.model.WagoData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit-Tests für den LiveValueBroadcaster.
+ *
+ * Statt einer echten HTTP-Verbindung zeichnet ein SseEmitter die gesendeten Events auf
+ * (optional blockierend, um einen langsamen Client zu simulieren). Geprüft wird der Startzustand,
+ * das Zusammenfassen von Updates pro Client, dass ein hängender Client die anderen nicht aufhält,
+ * und das Abmelden bei Fehlern.
+ */
+class LiveValueBroadcasterTest {
+
+    private LatestValueCache cache;
+    private LiveValueBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        cache = new LatestValueCache(meterRegistry);
+        broadcaster = new LiveValueBroadcaster(cache, meterRegistry);
+        ReflectionTestUtils.setField(broadcaster, "maxSubscribers", 2);
+        ReflectionTestUtils.setField(broadcaster, "heartbeatSeconds", 0L);
+        ReflectionTestUtils.setField(broadcaster, "senderThreads", 2);
+        broadcaster.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.stop();
+    }
+
+    @Test
+    void testRegister_ShouldSendCurrentValuesThenUpdates() throws InterruptedException {
+        // **Was mache ich?**
+        // Im Cache steht schon ein Wago-Status, danach meldet sich ein Client an und ein IST-Wert kommt.
+        cache.put(LatestValueCache.WAGO, new WagoData(3));
+        RecordingEmitter client = new RecordingEmitter(null, 2);
+        broadcaster.register(client);
+        broadcaster.publish("IST", new SiemensData(21.5, "IST"));
+
+        // **Was erwarte ich?**
+        // - Zuerst der vorhandene Wago-Status, dann der neue IST-Wert
+        assertTrue(client.received.await(2, TimeUnit.SECONDS));
+        assertEquals(List.of("wago", "ist"), client.names());
+    }
+
+    @Test
+    void testPublish_SlowClient_ShouldOnlyGetLatestValue() throws InterruptedException {
+        // **Was mache ich?**
+        // Der Client blockiert beim ersten Event. Währenddessen kommen drei IST-Werte.
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter client = new RecordingEmitter(release, 2);
+        broadcaster.register(client);
+        broadcaster.publish("SOLL", new SiemensData(25.0, "SOLL"));
+        assertTrue(client.blocked.await(2, TimeUnit.SECONDS));
+        broadcaster.publish("IST", new SiemensData(20.0, "IST"));
+        broadcaster.publish("IST", new SiemensData(20.5, "IST"));
+        broadcaster.publish("IST", new SiemensData(21.0, "IST"));
+        release.countDown();
+
+        // **Was erwarte ich?**
+        // - Nach dem SOLL-Event kommt nur noch der letzte IST-Wert an, die beiden älteren wurden überschrieben
+        assertTrue(client.received.await(2, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(List.of("soll", "ist"), client.names());
+        assertEquals(Double.valueOf(21.0), ((SiemensData) client.data.get(1)).getIstTemperatur());
+    }
+
+    @Test
+    void testPublish_BlockedClient_ShouldNotHoldBackOthers() throws InterruptedException {
+        // **Was mache ich?**
+        // Zwei Sende-Threads. Client A hängt bei jedem Event (Socket-Write blockiert), dazu kommen mehrere Heartbeats.
+        // Danach kommen neue Werte, die auch Client B bekommen soll.
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter blocked = new RecordingEmitter(release, 1);
+        blocked.blockEverySend = true;
+        broadcaster.register(blocked);
+        broadcaster.publish("SOLL", new SiemensData(25.0, "SOLL"));
+        assertTrue(blocked.blocked.await(2, TimeUnit.SECONDS));
+        for (int i = 0; i < 5; i++) {
+            broadcaster.sendHeartbeats();
+        }
+        RecordingEmitter fast = new RecordingEmitter(null, 2);
+        broadcaster.register(fast);
+        broadcaster.publish("IST", new SiemensData(20.0, "IST"));
+        broadcaster.publish("DIFFERENZ", new SiemensData(5.0, "DIFFERENZ"));
+
+        // **Was erwarte ich?**
+        // - Client B bekommt alle Werte, obwohl A seinen Sende-Thread festhält und Heartbeats anstehen
+        // - Gesendet wird auf Plattform-Threads (ein virtueller Thread würde im synchronized send() pinnen)
+        boolean fastServed = fast.received.await(2, TimeUnit.SECONDS);
+        release.countDown();
+        assertTrue(fastServed);
+        assertEquals(Set.of("ist", "differenz"), Set.copyOf(fast.names()));
+        assertFalse(fast.virtualSender);
+    }
+
+    @Test
+    void testPublish_BrokenClient_ShouldBeRemoved() throws InterruptedException {
+        // **Was mache ich?**
+        // Ein Client, dessen Verbindung beim Senden abbricht.
+        SseEmitter broken = new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        broadcaster.register(broken);
+        broadcaster.publish("IST", new SiemensData(21.5, "IST"));
+
+        // **Was erwarte ich?**
+        // - Der Client ist danach abgemeldet
+        for (int i = 0; i < 50 && broadcaster.getSubscriberCount() > 0; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, broadcaster.getSubscriberCount());
+    }
+
+    @Test
+    void testSubscribe_LimitReached_ShouldReturnNull() {
+        // **Was erwarte ich?**
+        // - max-subscribers ist 2, der dritte Client wird abgelehnt
+        assertNotNull(broadcaster.subscribe());
+        assertNotNull(broadcaster.subscribe());
+        assertNull(broadcaster.subscribe());
+    }
+
+    // Zeichnet Event-Namen und Daten auf; blockiert optional beim ersten Event bis release
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final CountDownLatch release;
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private final CountDownLatch received;
+        private final List<String> rawEvents = new CopyOnWriteArrayList<>();
+        private final List<Object> data = new CopyOnWriteArrayList<>();
+        private volatile boolean blockEverySend;
+        private volatile boolean virtualSender;
+
+        private RecordingEmitter(CountDownLatch release, int expectedEvents) {
+            this.release = release;
+            this.received = new CountDownLatch(expectedEvents);
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            virtualSender |= Thread.currentThread().isVirtual();
+            List<DataWithMediaType> parts = List.copyOf(builder.build());
+            if (parts.size() < 2) {
+                // Heartbeat (nur Kommentar, keine Daten)
+                return;
+            }
+            rawEvents.add(parts.get(0).getData().toString());
+            data.add(parts.get(1).getData());
+            if (release != null && (blockEverySend || blocked.getCount() > 0)) {
+                blocked.countDown();
+                try {
+                    release.await(2, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            received.countDown();
+        }
+
+        // "event:ist\ndata:" -> "ist"
+        private List<String> names() {
+            return rawEvents.stream().map(raw -> raw.substring("event:".length(), raw.indexOf('\n'))).toList();
+        }
+    }
+}
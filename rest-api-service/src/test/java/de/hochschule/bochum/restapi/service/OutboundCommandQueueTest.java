@@ -0,0 +1,178 @@
+package de.hochschule.bochum.restapi.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.integration.mqtt.event.MqttMessageDeliveredEvent;
+import org.springframework.integration.mqtt.event.MqttMessageSentEvent;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit-Tests für die OutboundCommandQueue.
+ *
+ * Statt MQTT zählt ein Runnable mit, welche Befehle wirklich veröffentlicht wurden. Der Dispatcher-Thread läuft nicht,
+ * ich rufe drain() selbst mit einer vorgegebenen Zeit auf. Geprüft werden last-write-wins, Token-Bucket,
+ * In-Flight-Fenster (pro Ziel) und das Verwerfen nach max-queue-ms.
+ */
+class OutboundCommandQueueTest {
+
+    private static final String TARGET = "Wago750/Control";
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private SimpleMeterRegistry meterRegistry;
+    private OutboundCommandQueue queue;
+    private List<String> published;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        queue = new OutboundCommandQueue(meterRegistry);
+        ReflectionTestUtils.setField(queue, "enabled", true);
+        ReflectionTestUtils.setField(queue, "ratePerSecond", 2.0);
+        ReflectionTestUtils.setField(queue, "burst", 1);
+        ReflectionTestUtils.setField(queue, "maxInFlight", 10);
+        ReflectionTestUtils.setField(queue, "maxQueueMs", 60_000L);
+        ReflectionTestUtils.setField(queue, "inFlightTimeoutMs", 10_000L);
+        published = new ArrayList<>();
+    }
+
+    @Test
+    void testSubmit_Burst_ShouldSendOnlyLatestCommand() {
+        // **Was mache ich?**
+        // Drei Klicks hintereinander, bevor der Dispatcher dran ist.
+        CompletableFuture<OutboundCommandQueue.Outcome> first = queue.submit(TARGET, publish("1"));
+        CompletableFuture<OutboundCommandQueue.Outcome> second = queue.submit(TARGET, publish("2"));
+        CompletableFuture<OutboundCommandQueue.Outcome> third = queue.submit(TARGET, publish("3"));
+        queue.drain(System.nanoTime());
+
+        // **Was erwarte ich?**
+        // - Nur der letzte Befehl geht raus, die beiden anderen sind COALESCED und gezählt
+        assertEquals(List.of("3"), published);
+        assertEquals(OutboundCommandQueue.Outcome.COALESCED, first.join());
+        assertEquals(OutboundCommandQueue.Outcome.COALESCED, second.join());
+        assertEquals(OutboundCommandQueue.Outcome.SENT, third.join());
+        assertEquals(3.0, meterRegistry.get("api.command.queue").tag("result", "queued").counter().count());
+        assertEquals(2.0, meterRegistry.get("api.command.queue").tag("result", "coalesced").counter().count());
+    }
+
+    @Test
+    void testDrain_NoTokens_ShouldWaitForRefill() {
+        // **Was mache ich?**
+        // burst 1, 2 pro Sekunde: der erste Befehl verbraucht das Token, der zweite kommt direkt danach.
+        long start = System.nanoTime();
+        queue.submit(TARGET, publish("1"));
+        queue.drain(start);
+        CompletableFuture<OutboundCommandQueue.Outcome> second = queue.submit(TARGET, publish("2"));
+        queue.drain(start + SECOND / 10);
+        boolean sentTooEarly = second.isDone();
+        queue.drain(start + SECOND);
+
+        // **Was erwarte ich?**
+        // - Nach 100 ms ist noch kein neues Token da, nach einer Sekunde schon
+        assertFalse(sentTooEarly);
+        assertEquals(List.of("1", "2"), published);
+        assertEquals(OutboundCommandQueue.Outcome.SENT, second.join());
+    }
+
+    @Test
+    void testDrain_InFlightWindowFull_ShouldWaitForPuback() {
+        // **Was mache ich?**
+        // Fenster 1, ein Publish wartet noch auf sein PUBACK; Tokens sind genug da.
+        ReflectionTestUtils.setField(queue, "maxInFlight", 1);
+        ReflectionTestUtils.setField(queue, "burst", 5);
+        queue.onSent(new MqttMessageSentEvent(this, MessageBuilder.withPayload("0").build(), TARGET, 42, "client", 1));
+        CompletableFuture<OutboundCommandQueue.Outcome> command = queue.submit(TARGET, publish("1"));
+        queue.drain(System.nanoTime());
+        boolean sentBeforePuback = command.isDone();
+        queue.onDelivered(new MqttMessageDeliveredEvent(this, 42, "client", 1));
+        queue.drain(System.nanoTime());
+
+        // **Was erwarte ich?**
+        // - Erst nach dem PUBACK für Nachricht 42 wird gesendet
+        assertFalse(sentBeforePuback);
+        assertEquals(List.of("1"), published);
+        assertEquals(0, queue.inFlightCount());
+    }
+
+    @Test
+    void testOnDelivered_BeforeSent_ShouldNotLeaveStaleInFlight() {
+        // **Was mache ich?**
+        // Fenster 1. Das PUBACK für Nachricht 42 kommt (asynchrone Events) vor dem Sent-Event an, danach ein Befehl.
+        ReflectionTestUtils.setField(queue, "maxInFlight", 1);
+        queue.onDelivered(new MqttMessageDeliveredEvent(this, 42, "client", 1));
+        queue.onSent(new MqttMessageSentEvent(this, MessageBuilder.withPayload("0").build(), TARGET, 42, "client", 1));
+        CompletableFuture<OutboundCommandQueue.Outcome> command = queue.submit(TARGET, publish("1"));
+        queue.drain(System.nanoTime());
+
+        // **Was erwarte ich?**
+        // - Nachricht 42 zählt nicht als in-flight, der Befehl muss nicht auf den In-Flight-Timeout warten
+        // - Auch der Merker für das frühe PUBACK ist mit dem Sent-Event wieder weg
+        assertEquals(OutboundCommandQueue.Outcome.SENT, command.join());
+        assertEquals(0, queue.inFlightCount(TARGET));
+        assertEquals(0, queue.inFlightCount());
+        assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(queue, "inFlight")).isEmpty());
+    }
+
+    @Test
+    void testDrain_InFlightWindowFullForOtherTarget_ShouldStillSend() {
+        // **Was mache ich?**
+        // Fenster 1, ein Publish an eine andere SPS wartet noch auf sein PUBACK.
+        ReflectionTestUtils.setField(queue, "maxInFlight", 1);
+        queue.onSent(new MqttMessageSentEvent(this, MessageBuilder.withPayload("0").build(), "S7_1500/Control", 42, "client", 1));
+        CompletableFuture<OutboundCommandQueue.Outcome> command = queue.submit(TARGET, publish("1"));
+        queue.drain(System.nanoTime());
+
+        // **Was erwarte ich?**
+        // - Das Fenster gilt pro Ziel: der Befehl an die Wago geht sofort raus
+        assertEquals(OutboundCommandQueue.Outcome.SENT, command.join());
+        assertEquals(List.of("1"), published);
+        assertEquals(1, queue.inFlightCount("S7_1500/Control"));
+        assertEquals(0, queue.inFlightCount(TARGET));
+    }
+
+    @Test
+    void testDrain_WaitedLongerThanMaxQueue_ShouldReject() {
+        // **Was mache ich?**
+        // Kein Token mehr, und der Befehl wartet länger als max-queue-ms (hier 100 ms).
+        ReflectionTestUtils.setField(queue, "maxQueueMs", 100L);
+        ReflectionTestUtils.setField(queue, "ratePerSecond", 0.1);
+        long start = System.nanoTime();
+        queue.submit(TARGET, publish("1"));
+        queue.drain(start);
+        CompletableFuture<OutboundCommandQueue.Outcome> late = queue.submit(TARGET, publish("2"));
+        queue.drain(start + SECOND);
+
+        // **Was erwarte ich?**
+        // - REJECTED statt irgendwann verspätet gesendet, gezählt als rejected
+        assertEquals(OutboundCommandQueue.Outcome.REJECTED, late.join());
+        assertEquals(List.of("1"), published);
+        assertEquals(1.0, meterRegistry.get("api.command.queue").tag("result", "rejected").counter().count());
+    }
+
+    @Test
+    void testSubmit_Disabled_ShouldPublishDirectly() {
+        // **Was mache ich?**
+        // Queue aus, ein Befehl wird eingestellt.
+        ReflectionTestUtils.setField(queue, "enabled", false);
+
+        CompletableFuture<OutboundCommandQueue.Outcome> result = queue.submit(TARGET, publish("1"));
+
+        // **Was erwarte ich?**
+        // - Sofort gesendet, ohne drain()
+        assertEquals(List.of("1"), published);
+        assertEquals(OutboundCommandQueue.Outcome.SENT, result.join());
+    }
+
+    private Runnable publish(String payload) {
+        return () -> published.add(payload);
+    }
+}
@@ -0,0 +1,88 @@
+package de.hochschule.bochum.restapi.service;
+
+import de.hochschule.bochum.common.model.WagoData;
+import de.hochschule.bochum.common.model.WagoTransition;
+import de.hochschule.bochum.restapi.repository.ReactiveWagoDataRepository;
+import de.hochschule.bochum.restapi.repository.ReactiveWagoTransitionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit-Tests für ReactiveWagoService (Profil "reactive").
+ *
+ * Die reaktiven Repositories sind gemockt. Ich prüfe, dass der aktuelle Status nach derselben Regel
+ * wie im WagoService gewählt wird und dass ein veralteter Cache-Eintrag besser ist als keiner.
+ */
+@ExtendWith(MockitoExtension.class)
+class ReactiveWagoServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    @Mock
+    private ReactiveWagoDataRepository wagoRepository;
+
+    @Mock
+    private ReactiveWagoTransitionRepository transitionRepository;
+
+    private LatestValueCache latestCache;
+    private ReactiveWagoService service;
+
+    @BeforeEach
+    void setUp() {
+        latestCache = new LatestValueCache(new SimpleMeterRegistry());
+        service = new ReactiveWagoService(wagoRepository, transitionRepository, latestCache);
+    }
+
+    @Test
+    void testGetLatestStatus_NewerTransition_ShouldWinOverLastWagoData() {
+        // **Was mache ich?**
+        // Das letzte WagoData ist eine Minute alt, der letzte Wechsel (Status 6) ist neuer.
+        WagoData old = new WagoData(1);
+        old.setTimestamp(NOW.minusMinutes(1));
+        WagoTransition transition = new WagoTransition();
+        transition.setId("t1");
+        transition.setStatus(6);
+        transition.setTimestamp(NOW);
+        when(wagoRepository.findTopByOrderByTimestampDesc()).thenReturn(Mono.just(old));
+        when(transitionRepository.findTopByOrderByTimestampDesc()).thenReturn(Mono.just(transition));
+
+        WagoData latest = service.getLatestStatus().block();
+
+        // **Was erwarte ich?**
+        // - Der Wechsel, umgebaut zu WagoData mit seiner ID und seinem Zeitstempel
+        assertNotNull(latest);
+        assertEquals(6, latest.getStatus());
+        assertEquals("t1", latest.getId());
+        assertEquals(NOW, latest.getTimestamp());
+    }
+
+    @Test
+    void testGetLatestStatus_StaleCacheAndEmptyDatabase_ShouldFallBackToCachedValue() {
+        // **Was mache ich?**
+        // Cache an, aber max-age -1 (jeder Eintrag ist sofort veraltet); MongoDB hat noch gar nichts.
+        ReflectionTestUtils.setField(latestCache, "enabled", true);
+        ReflectionTestUtils.setField(latestCache, "maxAgeMs", -1L);
+        WagoData cached = new WagoData(3);
+        latestCache.put(LatestValueCache.WAGO, cached);
+        when(wagoRepository.findTopByOrderByTimestampDesc()).thenReturn(Mono.empty());
+        when(transitionRepository.findTopByOrderByTimestampDesc()).thenReturn(Mono.empty());
+
+        WagoData latest = service.getLatestStatus().block();
+
+        // **Was erwarte ich?**
+        // - MongoDB wird gefragt, liefert nichts, also kommt der alte Wert aus MQTT
+        assertSame(cached, latest);
+        verify(wagoRepository).findTopByOrderByTimestampDesc();
+    }
+}
@@ -0,0 +1,86 @@
+package de.hochschule.bochum.restapi.service;
+
+import de.hochschule.bochum.common.model.Rollup;
+import de.hochschule.bochum.common.model.RollupTier;
+import de.hochschule.bochum.restapi.repository.RollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit-Tests für den RollupService (Lesepfad der Rollups).
+ *
+ * Das RollupRepository ist gemockt. Geprüft wird die Wahl der Stufe (pickTier und RollupTier.coarsestWithin)
+ * und dass das Intervall, in das "from" fällt, mit abgefragt wird.
+ */
+@ExtendWith(MockitoExtension.class)
+class RollupServiceTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2024, 5, 1, 0, 0);
+
+    @Mock
+    private RollupRepository rollupRepository;
+
+    private RollupService rollupService;
+
+    @BeforeEach
+    void setUp() {
+        rollupService = new RollupService(rollupRepository);
+    }
+
+    @Test
+    void testCoarsestWithin_ShouldPickLargestTierThatFitsIntoStep() {
+        // **Was erwarte ich?**
+        // - Die Stufe darf höchstens so lang sein wie ein Schritt; genau gleich lang passt noch
+        // - Schritte unter einer Minute haben keine passende Stufe (null)
+        assertNull(RollupTier.coarsestWithin(Duration.ofSeconds(59)));
+        assertEquals(RollupTier.MINUTE, RollupTier.coarsestWithin(Duration.ofMinutes(1)));
+        assertEquals(RollupTier.MINUTE, RollupTier.coarsestWithin(Duration.ofMinutes(59)));
+        assertEquals(RollupTier.HOUR, RollupTier.coarsestWithin(Duration.ofHours(1)));
+        assertEquals(RollupTier.HOUR, RollupTier.coarsestWithin(Duration.ofHours(23)));
+        assertEquals(RollupTier.DAY, RollupTier.coarsestWithin(Duration.ofDays(1)));
+        assertEquals(RollupTier.DAY, RollupTier.coarsestWithin(Duration.ofDays(30)));
+    }
+
+    @Test
+    void testPickTier_ShouldDependOnRangeAndPoints() {
+        // **Was mache ich?**
+        // Verschiedene Zeiträume mit 500 bzw. 24 Punkten.
+
+        // **Was erwarte ich?**
+        // - Ein Jahr mit 500 Punkten: Schritt ~17,5 h -> Stunden
+        // - Ein Jahr mit 300 Punkten: Schritt > 1 Tag -> Tage
+        // - Ein Tag mit 24 Punkten: Schritt genau 1 h -> Stunden
+        // - Eine Stunde mit 500 Punkten: Schritt 7,2 s -> feiner als jede Stufe, also Minuten
+        assertEquals(RollupTier.HOUR, rollupService.pickTier(FROM, FROM.plusYears(1), 500));
+        assertEquals(RollupTier.DAY, rollupService.pickTier(FROM, FROM.plusYears(1), 300));
+        assertEquals(RollupTier.HOUR, rollupService.pickTier(FROM, FROM.plusDays(1), 24));
+        assertEquals(RollupTier.MINUTE, rollupService.pickTier(FROM, FROM.plusHours(1), 500));
+    }
+
+    @Test
+    void testGetRollups_ShouldIncludeIntervalContainingFrom() {
+        // **Was mache ich?**
+        // Stundenrollups ab 13:25 abfragen.
+        LocalDateTime from = LocalDateTime.of(2024, 5, 1, 13, 25, 30);
+        LocalDateTime to = from.plusHours(5);
+        Rollup rollup = new Rollup();
+        when(rollupRepository.findRange("IST", "1h", LocalDateTime.of(2024, 5, 1, 13, 0), to)).thenReturn(List.of(rollup));
+
+        List<Rollup> result = rollupService.getRollups("IST", RollupTier.HOUR, from, to);
+
+        // **Was erwarte ich?**
+        // - Die Untergrenze ist der Beginn der Stunde (13:00), nicht 13:25: das angebrochene Intervall gehört dazu
+        assertEquals(List.of(rollup), result);
+        verify(rollupRepository).findRange("IST", "1h", LocalDateTime.of(2024, 5, 1, 13, 0), to);
+    }
+}
@@ -0,0 +1,166 @@
+package de.hochschule.bochum.restapi.service;
+
+import de.hochschule.bochum.common.dto.SiemensSeries;
+import de.hochschule.bochum.common.model.Rollup;
+import de.hochschule.bochum.common.model.SiemensData;
+import de.hochschule.bochum.common.model.SiemensHourBucket;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit-Tests für SiemensSeriesService und Lttb.
+ *
+ * Die Aggregation in MongoDB wird gemockt; ich prüfe, wie die Pipeline je nach Layout (und mit Rollups) aussieht,
+ * wie die Ergebnisse in Punkte umgerechnet werden und dass LTTB Spitzen behält.
+ */
+@ExtendWith(MockitoExtension.class)
+class SiemensSeriesServiceTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2024, 5, 1, 0, 0);
+    private static final LocalDateTime TO = LocalDateTime.of(2024, 5, 2, 0, 0);
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @InjectMocks
+    private SiemensSeriesService seriesService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(seriesService, "layout", "documents");
+        ReflectionTestUtils.setField(seriesService, "preselectRatio", 4);
+    }
+
+    @Test
+    void testGetSeries_MinMax_ShouldMapIntervalsFromAggregation() {
+        // **Was mache ich?**
+        // Ein Tag in 24 Punkten (= Stunden-Intervalle), MongoDB liefert zwei belegte Intervalle (0 und 5).
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(SiemensData.class), eq(Document.class)))
+                .thenReturn(results(
+                        new Document("_id", 0.0).append("min", 20.0).append("max", 22.0).append("avg", 21.0).append("count", 60),
+                        new Document("_id", 5.0).append("min", 18.0).append("max", 19.0).append("avg", 18.5).append("count", 30)));
+
+        SiemensSeries series = seriesService.getSeries("IST", FROM, TO, 24, SeriesMode.MINMAX);
+
+        // **Was erwarte ich?**
+        // - Intervall von einer Stunde, Punkte am Intervallbeginn mit min/max/avg/count
+        // - Die Pipeline liest istTemperatur direkt aus siemens_data (kein $unwind)
+        assertEquals(3_600_000L, series.getIntervalMillis());
+        assertEquals("minmax", series.getMode());
+        assertEquals(2, series.getPoints().size());
+        SiemensSeries.Point second = series.getPoints().get(1);
+        assertEquals(FROM.plusHours(5), second.getTimestamp());
+        assertEquals(18.5, second.getValue());
+        assertEquals(18.0, second.getMin());
+        assertEquals(19.0, second.getMax());
+        assertEquals(30L, second.getCount());
+        String pipeline = capturedPipeline(SiemensData.class);
+        assertTrue(pipeline.contains("$istTemperatur"));
+        assertFalse(pipeline.contains("$unwind"));
+    }
+
+    @Test
+    void testGetSeries_MinMaxWithRollups_ShouldReadCoarsestFittingTier() {
+        // **Was mache ich?**
+        // Rollups sind an, ein Tag in 24 Punkten: jedes Intervall ist eine Stunde lang, passt also genau auf 1h.
+        ReflectionTestUtils.setField(seriesService, "rollupsEnabled", true);
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Rollup.class), eq(Document.class)))
+                .thenReturn(results(new Document("_id", 3.0).append("min", 19.0).append("max", 23.0)
+                        .append("sum", 63.0).append("count", 3L)));
+
+        SiemensSeries series = seriesService.getSeries("IST", FROM, TO, 24, SeriesMode.MINMAX);
+
+        // **Was erwarte ich?**
+        // - Gelesen wird nur die Rollup-Collection mit Stufe 1h, nie die Rohwerte
+        // - Mittelwert aus Summe und Anzahl der Rollups
+        SiemensSeries.Point point = series.getPoints().get(0);
+        assertEquals(FROM.plusHours(3), point.getTimestamp());
+        assertEquals(21.0, point.getValue());
+        assertEquals(3L, point.getCount());
+        assertTrue(capturedPipeline(Rollup.class).contains("1h"));
+        verify(mongoTemplate, never()).aggregate(any(Aggregation.class), eq(SiemensData.class), eq(Document.class));
+    }
+
+    @Test
+    void testGetSeries_LttbFromBuckets_ShouldUnwindAndReduceToRequestedPoints() {
+        // **Was mache ich?**
+        // Layout "buckets", lttb mit 3 Punkten: MongoDB liefert je Intervall den kleinsten und größten Messpunkt.
+        ReflectionTestUtils.setField(seriesService, "layout", "buckets");
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(SiemensHourBucket.class), eq(Document.class)))
+                .thenReturn(results(
+                        extremes(FROM.plusMinutes(1), 20.0, FROM.plusMinutes(1), 20.0),
+                        extremes(FROM.plusHours(2), 19.0, FROM.plusHours(3), 35.0),
+                        extremes(FROM.plusHours(6), 20.5, FROM.plusHours(5), 21.0),
+                        extremes(FROM.plusHours(9), 20.0, FROM.plusHours(9), 20.0)));
+
+        SiemensSeries series = seriesService.getSeries("IST", FROM, TO, 3, SeriesMode.LTTB);
+
+        // **Was erwarte ich?**
+        // - Erster und letzter Punkt bleiben, dazwischen die Spitze mit 35 Grad
+        // - Vorauswahl mit 3 * 4 = 12 Intervallen, die Buckets werden in MongoDB ausgepackt
+        assertEquals(List.of(20.0, 35.0, 20.0), series.getPoints().stream().map(SiemensSeries.Point::getValue).toList());
+        assertEquals(FROM.plusHours(3), series.getPoints().get(1).getTimestamp());
+        assertEquals(2 * 3_600_000L, series.getIntervalMillis());
+        assertTrue(capturedPipeline(SiemensHourBucket.class).contains("$unwind"));
+    }
+
+    @Test
+    void testLttb_ShouldKeepEndpointsAndPeaksAndRespectThreshold() {
+        // **Was mache ich?**
+        // 1000 Punkte flache Linie mit einem Ausreißer nach oben und einem nach unten, reduziert auf 20.
+        List<SiemensSeries.Point> data = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            double value = i == 300 ? 50.0 : i == 700 ? -10.0 : 20.0;
+            data.add(new SiemensSeries.Point(FROM.plusSeconds(i), value, null, null, null));
+        }
+
+        List<SiemensSeries.Point> sampled = Lttb.downsample(data, 20);
+
+        // **Was erwarte ich?**
+        // - Genau 20 Punkte, erster und letzter unverändert, beide Ausreißer enthalten
+        // - Weniger Punkte als verlangt: Daten unverändert zurück
+        assertEquals(20, sampled.size());
+        assertSame(data.get(0), sampled.get(0));
+        assertSame(data.get(999), sampled.get(19));
+        assertTrue(sampled.contains(data.get(300)));
+        assertTrue(sampled.contains(data.get(700)));
+        assertSame(data, Lttb.downsample(data, 1000));
+    }
+
+    private String capturedPipeline(Class<?> inputType) {
+        ArgumentCaptor<Aggregation> captor = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate).aggregate(captor.capture(), eq(inputType), eq(Document.class));
+        return captor.getValue().toString();
+    }
+
+    private static AggregationResults<Document> results(Document... rows) {
+        return new AggregationResults<>(List.of(rows), new Document());
+    }
+
+    private static Document extremes(LocalDateTime lowAt, double low, LocalDateTime highAt, double high) {
+        return new Document("low", List.of(date(lowAt), low)).append("high", List.of(date(highAt), high));
+    }
+
+    private static Date date(LocalDateTime timestamp) {
+        return Date.from(timestamp.atZone(ZoneId.systemDefault()).toInstant());
+    }
+}
@@ -1,17 +1,27 @@
 package de.hochschule.bochum.restapi.service;
 
 import de.hochschule.bochum.common.model.SiemensData;
+import de.hochschule.bochum.common.model.SiemensHourBucket;
+import de.hochschule.bochum.common.model.SiemensSnapshot;
 import de.hochschule.bochum.restapi.repository.SiemensDataRepository;
+import de.hochschule.bochum.restapi.repository.SiemensHourBucketRepository;
+import de.hochschule.bochum.restapi.repository.SiemensSnapshotRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
 
-import java.util.Arrays;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -29,6 +39,16 @@ class SiemensServiceTest {
     @Mock
     private SiemensDataRepository siemensRepository;
 
+    @Mock
+    private SiemensHourBucketRepository bucketRepository;
+
+    @Mock
+    private SiemensSnapshotRepository snapshotRepository;
+
+    // Cache ist aus (Standard) und reicht alles an die Repositories durch
+    @Spy
+    private LatestValueCache latestCache = new LatestValueCache(new SimpleMeterRegistry());
+
     @InjectMocks
     private SiemensService siemensService;
 
@@ -105,22 +125,162 @@ class SiemensServiceTest {
     }
 
     @Test
-    void testGetAllByType_ShouldReturnAllDataOfType() {
+    void testGetHistory_ShouldReturnPageWithCursorWhenMoreDataExists() {
         // **Was mache ich?**
-        // Ich simuliere, dass für einen Typ mehrere Werte geliefert werden.
+        // Ich frage eine Seite mit limit 2 an, das Repository liefert (wie angefragt) limit + 1 Einträge.
+        LocalDateTime from = LocalDateTime.of(2024, 5, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 5, 2, 0, 0);
+        List<SiemensData> rows = List.of(
+                history("665f1c000000000000000003", to.minusMinutes(1)),
+                history("665f1c000000000000000002", to.minusMinutes(2)),
+                history("665f1c000000000000000001", to.minusMinutes(3)));
+        when(siemensRepository.findPage("IST", from, to, Limit.of(3))).thenReturn(rows);
+
+        HistoryPage<SiemensData> result = siemensService.getHistory("IST", from, to, 2, null);
+
+        // **Was erwarte ich?**
+        // - Zwei Einträge und ein Cursor, der auf den zweiten (zuletzt gelieferten) zeigt
+        assertEquals(2, result.items().size());
+        assertNotNull(result.nextCursor());
+        HistoryCursor cursor = HistoryCursor.decode(result.nextCursor());
+        assertEquals(rows.get(1).getTimestamp(), cursor.timestamp());
+        assertEquals(rows.get(1).getId(), cursor.id());
+    }
 
-        List<SiemensData> expectedList = Arrays.asList(istData, istData);
-        when(siemensRepository.findByTypeOrderByTimestampDesc("IST"))
-                .thenReturn(expectedList);
+    @Test
+    void testGetHistory_WithCursor_ShouldContinueAfterCursorAndEndWithoutNextCursor() {
+        // **Was mache ich?**
+        // Ich schicke den Cursor der ersten Seite zurück, danach kommt nur noch ein Eintrag.
+        LocalDateTime from = LocalDateTime.of(2024, 5, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 5, 2, 0, 0);
+        HistoryCursor cursor = new HistoryCursor(to.minusMinutes(2), "665f1c000000000000000002");
+        when(siemensRepository.findPageAfter("IST", from, cursor.timestamp(),
+                new ObjectId(cursor.id()), Limit.of(3)))
+                .thenReturn(List.of(history("665f1c000000000000000001", to.minusMinutes(3))));
 
-        List<SiemensData> result = siemensService.getAllByType("IST");
+        HistoryPage<SiemensData> result = siemensService.getHistory("IST", from, to, 2, cursor);
 
         // **Was erwarte ich?**
-        // - Liste ist nicht leer, enthält nur Einträge vom Typ IST
-        assertNotNull(result);
-        assertEquals(2, result.size());
-        assertEquals("IST", result.get(0).getType());
-        assertEquals("IST", result.get(1).getType());
-        verify(siemensRepository, times(1)).findByTypeOrderByTimestampDesc("IST");
+        // - Nur der Rest, kein weiterer Cursor, kein Zugriff auf die erste Seite
+        assertEquals(1, result.items().size());
+        assertNull(result.nextCursor());
+        verify(siemensRepository, never()).findPage(any(), any(), any(), any());
+    }
+
+    @Test
+    void testGetHistory_InvalidCursorId_ShouldThrow() {
+        // **Was mache ich?**
+        // Ein Cursor, dessen ID keine ObjectId ist (z.B. manipuliert).
+        LocalDateTime now = LocalDateTime.of(2024, 5, 1, 12, 0);
+        HistoryCursor cursor = new HistoryCursor(now, "kaputt");
+
+        // **Was erwarte ich?**
+        // - IllegalArgumentException (wird im Controller zu 400), keine Datenbankabfrage
+        assertThrows(IllegalArgumentException.class,
+                () -> siemensService.getHistory("IST", now.minusDays(1), now, 10, cursor));
+        verifyNoInteractions(siemensRepository);
+    }
+
+    @Test
+    void testGetHistory_BucketLayout_ShouldExpandBucketsNewestFirstAndResumeInsideBucket() {
+        // **Was mache ich?**
+        // Layout "buckets": zwei Stunden-Buckets mit je zwei Werten, erst Seite 1 (limit 3), dann Seite 2 mit Cursor.
+        ReflectionTestUtils.setField(siemensService, "layout", "buckets");
+        LocalDateTime hour = LocalDateTime.of(2024, 5, 1, 13, 0);
+        LocalDateTime from = hour.minusHours(1);
+        LocalDateTime to = hour.plusHours(2);
+        SiemensHourBucket newer = bucket(hour.plusHours(1), 22.0, 23.0);
+        SiemensHourBucket older = bucket(hour, 20.0, 21.0);
+        when(bucketRepository.streamByTypeAndHourRange(eq("IST"), eq(from), any()))
+                .thenAnswer(invocation -> Stream.of(newer, older));
+
+        HistoryPage<SiemensData> first = siemensService.getHistory("IST", from, to, 3, null);
+        HistoryPage<SiemensData> second = siemensService.getHistory("IST", from, to, 3,
+                HistoryCursor.decode(first.nextCursor()));
+
+        // **Was erwarte ich?**
+        // - Seite 1: die drei neuesten Werte absteigend nach Zeit, mit Zeitstempel aus dem Bucket
+        // - Seite 2: genau der eine restliche Wert aus der Mitte des älteren Buckets, danach Schluss
+        assertEquals(List.of(23.0, 22.0, 21.0), first.items().stream().map(SiemensData::getIstTemperatur).toList());
+        assertEquals(hour.plusHours(1).plusMinutes(1), first.items().get(0).getTimestamp());
+        assertNotNull(first.nextCursor());
+        assertEquals(List.of(20.0), second.items().stream().map(SiemensData::getIstTemperatur).toList());
+        assertEquals(hour, second.items().get(0).getTimestamp());
+        assertNull(second.nextCursor());
+        verifyNoInteractions(siemensRepository);
+    }
+
+    @Test
+    void testHistoryCursor_ShouldRoundTripAndRejectGarbage() {
+        // **Was mache ich?**
+        // Ich kodiere einen Cursor und lese ihn wieder ein, außerdem einen beliebigen String.
+        HistoryCursor cursor = new HistoryCursor(LocalDateTime.of(2024, 5, 1, 13, 0, 1, 500), "IST:2024-05-01T13:00#4");
+
+        // **Was erwarte ich?**
+        // - Gleicher Cursor nach dem Umweg über den String, Fehler bei Unsinn
+        assertEquals(cursor, HistoryCursor.decode(cursor.encode()));
+        assertThrows(IllegalArgumentException.class, () -> HistoryCursor.decode("%%%"));
+        assertThrows(IllegalArgumentException.class, () -> HistoryCursor.decode("aGFsbG8"));
+    }
+
+    @Test
+    void testGetLatestByType_BucketLayout_ShouldReturnLastValueOfNewestBucket() {
+        // **Was mache ich?**
+        // Layout "buckets": der jüngste Bucket enthält zwei Werte.
+        ReflectionTestUtils.setField(siemensService, "layout", "buckets");
+        LocalDateTime hour = LocalDateTime.of(2024, 5, 1, 13, 0);
+        when(bucketRepository.findTopByTypeOrderByHourDesc("IST")).thenReturn(Optional.of(bucket(hour, 20.0, 21.0)));
+
+        Optional<SiemensData> result = siemensService.getLatestByType("IST");
+
+        // **Was erwarte ich?**
+        // - Der zuletzt angehängte Wert des Buckets
+        assertTrue(result.isPresent());
+        assertEquals(Double.valueOf(21.0), result.get().getIstTemperatur());
+        assertEquals(hour.plusMinutes(1), result.get().getTimestamp());
+        verifyNoInteractions(siemensRepository);
+    }
+
+    @Test
+    void testGetLatestSnapshot_ShouldReturnNewestSnapshot() {
+        // **Was mache ich?**
+        // Das Snapshot-Repository liefert einen vollständigen Snapshot.
+        SiemensSnapshot snapshot = new SiemensSnapshot();
+        snapshot.set("IST", 23.5);
+        snapshot.set("SOLL", 25.0);
+        snapshot.set("DIFFERENZ", 1.5);
+        snapshot.setComplete(true);
+        when(snapshotRepository.findTopByOrderByTimestampDesc()).thenReturn(Optional.of(snapshot));
+
+        Optional<SiemensSnapshot> result = siemensService.getLatestSnapshot();
+
+        // **Was erwarte ich?**
+        // - Alle drei Werte in einem Ergebnis, ohne die Einzelwert-Repositories zu fragen
+        assertTrue(result.isPresent());
+        assertEquals(Double.valueOf(23.5), result.get().getIstTemperatur());
+        assertEquals(Double.valueOf(25.0), result.get().getSollTemperatur());
+        assertEquals(Double.valueOf(1.5), result.get().getDifferenzTemperatur());
+        verifyNoInteractions(siemensRepository, bucketRepository);
+    }
+
+    // Bucket mit aufeinanderfolgenden Werten im Minutenabstand ab Stundenbeginn
+    private static SiemensData history(String id, LocalDateTime timestamp) {
+        SiemensData data = new SiemensData(23.5, "IST");
+        data.setId(id);
+        data.setTimestamp(timestamp);
+        return data;
+    }
+
+    private static SiemensHourBucket bucket(LocalDateTime hour, double... values) {
+        SiemensHourBucket bucket = new SiemensHourBucket();
+        bucket.setId(SiemensHourBucket.idOf("IST", hour));
+        bucket.setType("IST");
+        bucket.setHour(hour);
+        for (int i = 0; i < values.length; i++) {
+            bucket.getTimestamps().add(hour.plusMinutes(i));
+            bucket.getValues().add(values[i]);
+        }
+        bucket.setCount(values.length);
+        return bucket;
     }
 }
@@ -0,0 +1,92 @@
+package de.hochschule.bochum.restapi.service;
+
+import de.hochschule.bochum.common.dto.WagoOnDurations;
+import de.hochschule.bochum.common.dto.WagoState;
+import de.hochschule.bochum.common.model.WagoTransition;
+import de.hochschule.bochum.restapi.repository.WagoTransitionRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit-Tests für WagoHistoryService.
+ *
+ * Das Repository ist gemockt und liefert feste Statuswechsel. Geprüft wird, dass der Zustand
+ * zu einem Zeitpunkt aus dem letzten Wechsel davor kommt und dass die Einschaltdauern pro Bit
+ * über den Zeitraum korrekt aufsummiert werden.
+ */
+@ExtendWith(MockitoExtension.class)
+class WagoHistoryServiceTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2024, 5, 1, 8, 0);
+    private static final LocalDateTime TO = FROM.plusHours(1);
+
+    @Mock
+    private WagoTransitionRepository transitionRepository;
+
+    @InjectMocks
+    private WagoHistoryService historyService;
+
+    @Test
+    void testGetStateAt_ShouldReturnStatusOfLastTransitionBefore() {
+        // **Was mache ich?**
+        // Der letzte Wechsel vor 8:30 war um 8:10 auf Status 5.
+        LocalDateTime at = FROM.plusMinutes(30);
+        when(transitionRepository.findTopByTimestampLessThanEqualOrderByTimestampDesc(at))
+                .thenReturn(Optional.of(transition(FROM.plusMinutes(10), 5, 5)));
+
+        Optional<WagoState> state = historyService.getStateAt(at);
+
+        // **Was erwarte ich?**
+        // - Status 5, gültig seit 8:10
+        assertTrue(state.isPresent());
+        assertEquals(Integer.valueOf(5), state.get().getStatus());
+        assertEquals(FROM.plusMinutes(10), state.get().getSince());
+    }
+
+    @Test
+    void testGetOnDurations_ShouldSumOnTimePerBit() {
+        // **Was mache ich?**
+        // Um 8:00 ist Bit 0 an (Status 1). 8:15 kommt Bit 1 dazu (3), 8:45 geht Bit 0 aus (2).
+        when(transitionRepository.findTopByTimestampLessThanEqualOrderByTimestampDesc(FROM))
+                .thenReturn(Optional.of(transition(FROM.minusDays(1), 1, WagoTransition.FULL_MASK)));
+        when(transitionRepository.findByTimestampGreaterThanAndTimestampLessThanEqualOrderByTimestampAsc(FROM, TO))
+                .thenReturn(Stream.of(
+                        transition(FROM.plusMinutes(15), 3, 2),
+                        transition(FROM.plusMinutes(45), 2, 1)));
+
+        WagoOnDurations result = historyService.getOnDurations(FROM, TO);
+
+        // **Was erwarte ich?**
+        // - Bit 0 war 45 Minuten an, Bit 1 ebenfalls 45 Minuten (8:15 bis 9:00), Bit 2 gar nicht
+        // - Zwei Wechsel ausgewertet, 16 Bits im Ergebnis
+        assertEquals(45 * 60_000L, result.getBits().get(0).getOnMillis());
+        assertEquals(45 * 60_000L, result.getBits().get(1).getOnMillis());
+        assertEquals(0L, result.getBits().get(2).getOnMillis());
+        assertEquals(2, result.getTransitions());
+        assertEquals(16, result.getBits().size());
+    }
+
+    @Test
+    void testGetOnDurations_ShouldRejectEmptyRange() {
+        // **Was erwarte ich?**
+        // - from muss vor to liegen, sonst IllegalArgumentException und keine Datenbankabfrage
+        assertThrows(IllegalArgumentException.class, () -> historyService.getOnDurations(TO, FROM));
+        verifyNoInteractions(transitionRepository);
+    }
+
+    private static WagoTransition transition(LocalDateTime timestamp, int status, int changedMask) {
+        WagoTransition transition = new WagoTransition(status, changedMask);
+        transition.setTimestamp(timestamp);
+        return transition;
+    }
+}
@@ -3,16 +3,21 @@ package de.hochschule.bochum.restapi.service;
 import static org.junit.jupiter.api.Assertions.*;
 
 import de.hochschule.bochum.common.model.WagoData;
+import de.hochschule.bochum.common.model.WagoTransition;
 import de.hochschule.bochum.restapi.repository.WagoDataRepository;
+import de.hochschule.bochum.restapi.repository.WagoTransitionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 import static org.mockito.Mockito.*;
@@ -31,9 +36,20 @@ class WagoServiceTest {
     @Mock
     private WagoDataRepository wagoRepository;
 
+    @Mock
+    private WagoTransitionRepository transitionRepository;
+
     @Mock
     private MessageChannel mqttOutboundChannel;
 
+    // Cache ist aus (Standard) und reicht alles an die Repositories durch
+    @Spy
+    private LatestValueCache latestCache = new LatestValueCache(new SimpleMeterRegistry());
+
+    // Queue ist aus (Standard) und sendet direkt
+    @Spy
+    private OutboundCommandQueue outboundQueue = new OutboundCommandQueue(new SimpleMeterRegistry());
+
     @InjectMocks
     private WagoService wagoService;
 
@@ -79,6 +95,26 @@ class WagoServiceTest {
         verify(wagoRepository, times(1)).findTopByOrderByTimestampDesc();
     }
 
+    @Test
+    void testGetLatestStatus_ShouldUseNewerTransition() {
+        // **Was mache ich?**
+        // Der Consumer speichert nur noch Wechsel: der letzte Wechsel ist neuer als das letzte WagoData.
+
+        testWagoData.setTimestamp(LocalDateTime.now().minusHours(1));
+        WagoTransition transition = new WagoTransition(6, 3);
+        when(wagoRepository.findTopByOrderByTimestampDesc()).thenReturn(Optional.of(testWagoData));
+        when(transitionRepository.findTopByOrderByTimestampDesc()).thenReturn(Optional.of(transition));
+
+        Optional<WagoData> result = wagoService.getLatestStatus();
+
+        // **Was erwarte ich?**
+        // - Status und Zeitstempel kommen aus dem Wechsel, statusBinary ist trotzdem gesetzt
+        assertTrue(result.isPresent());
+        assertEquals(Integer.valueOf(6), result.get().getStatus());
+        assertEquals(transition.getTimestamp(), result.get().getTimestamp());
+        assertNotNull(result.get().getStatusBinary());
+    }
+
     @Test
     void testSendControlCommand_ShouldSendValidCommand() {
         // **Was mache ich?**